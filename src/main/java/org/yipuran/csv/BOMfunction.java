@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * BOM操作ユーティリティクラス.
@@ -50,6 +51,20 @@ public final class BOMfunction{
 		}
 		return str;
 	}
+	/**
+	 * CSV１行目の先頭の列にBOMが付いていれば除去する.
+	 * @param fields CSV１行分の文字列リスト
+	 * @return fields
+	 * @since 1.3
+	 */
+	static List<String> chop(List<String> fields){
+		String rep = fields.get(0);
+		if (match(rep)) {
+			fields.remove(0);
+			fields.add(0, chop(rep));
+		}
+		return fields;
+	}
 	/**
 	 * 文字列がBOM付き文字であるか返す
 	 * @param str 文字列
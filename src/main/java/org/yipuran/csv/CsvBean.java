@@ -0,0 +1,29 @@
+package org.yipuran.csv;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * CsvObject 読込み対象クラスのマッパー生成指定.
+ * <PRE>
+ * このアノテーションを付けたクラスは、コンパイル時に org.yipuran.csv.processor.CsvMapperProcessor が
+ * 同じパッケージに「クラス名$CsvMapper」の {@link CsvMapper} を生成する。
+ * 生成されたマッパーは、setter を直接呼び出し、プリミティブ型を直接変換するので、リフレクションを使用しない。
+ * CsvObject は、生成されたマッパーがあればそれを使用し、無ければリフレクションで setter を探す。
+ * アノテーションプロセッサーは、このライブラリの jar に含まれていて、javac が自動的に実行する。
+ *
+ * 対象クラスの条件は、CsvObject と同じで、以下も必須である。
+ * 　・private でない、引数なしのコンストラクタを持つこと。
+ * 　・setter が private でないこと。
+ * 　・トップレベルのクラス、または static なネストクラスであること。
+ * </PRE>
+ * @since 1.3
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface CsvBean{
+}
@@ -0,0 +1,215 @@
+package org.yipuran.csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.yipuran.csv.CsvSetters.Column;
+import org.yipuran.csv.CsvSetters.Factory;
+import org.yipuran.csv.CsvSetters.Parser;
+
+/**
+ * CsvObject のヘッダ列と setter の結び付けキャッシュ.
+ * <PRE>
+ * CsvObject は、ヘッダ行の列ごとにフィールドと setter をリフレクションで探して、型の変換と setter を生成する。
+ * 同じ Bean クラス、同じヘッダ行、同じ型に変換（setConverter）を登録した読込みは、
+ * このキャッシュの結び付けを共有して、リフレクションを実行しない。
+ * 日付フォーマット、boolean 読込方法、変換の関数は、キャッシュの結び付けに持たないで、読込みごとに適用する。
+ * キャッシュは全ての CsvObject で共有され、最大件数を超えると最も長く使われていないものから削除される。
+ *
+ * 例）
+ *   long hit = CsvBindingCache.getHitCount();
+ *   long miss = CsvBindingCache.getMissCount();
+ * </PRE>
+ * @since 1.3
+ */
+public final class CsvBindingCache{
+	/** 最大件数の初期値 */
+	public static final int DEFAULT_MAX_SIZE = 256;
+
+	private static int maxSize = DEFAULT_MAX_SIZE;
+	private static long hitCount;
+	private static long missCount;
+	private static final Map<Key, Header<?>> cache = new LinkedHashMap<Key, Header<?>>(16, 0.75f, true){
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Header<?>> eldest){
+			return size() > maxSize;
+		}
+	};
+
+	/** private constructor. */
+	private CsvBindingCache(){}
+
+	/**
+	 * キャッシュにあった回数.
+	 * @return ヒット回数
+	 */
+	public static synchronized long getHitCount(){
+		return hitCount;
+	}
+	/**
+	 * キャッシュに無く、結び付けを生成した回数.
+	 * @return ミス回数
+	 */
+	public static synchronized long getMissCount(){
+		return missCount;
+	}
+	/**
+	 * キャッシュ件数.
+	 * @return 件数
+	 */
+	public static synchronized int size(){
+		return cache.size();
+	}
+	/**
+	 * 最大件数.
+	 * @return 最大件数
+	 */
+	public static synchronized int getMaxSize(){
+		return maxSize;
+	}
+	/**
+	 * 最大件数の指定.
+	 * <PRE>0 を指定するとキャッシュしない。</PRE>
+	 * @param size 最大件数
+	 */
+	public static synchronized void setMaxSize(int size){
+		if (size < 0) throw new IllegalArgumentException("max size < 0 : " + size);
+		maxSize = size;
+		if (cache.size() > size){
+			List<Key> keys = new ArrayList<>(cache.keySet());
+			keys.subList(keys.size() - size, keys.size()).clear();
+			cache.keySet().removeAll(keys);
+		}
+	}
+	/**
+	 * キャッシュと回数のクリア.
+	 */
+	public static synchronized void clear(){
+		cache.clear();
+		hitCount = 0;
+		missCount = 0;
+	}
+
+	/**
+	 * 結び付けの取得、無ければ生成してキャッシュする.
+	 * @param key キー
+	 * @param builder 結び付けの生成、ロックの外で実行する
+	 * @return 結び付け
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Header<T> get(Key key, Supplier<Header<T>> builder){
+		synchronized(CsvBindingCache.class){
+			Header<?> header = cache.get(key);
+			if (header != null){
+				hitCount++;
+				return (Header<T>)header;
+			}
+			missCount++;
+		}
+		Header<T> header = builder.get();
+		synchronized(CsvBindingCache.class){
+			if (maxSize > 0) cache.put(key, header);
+		}
+		return header;
+	}
+
+	/**
+	 * キャッシュのキー、Bean クラス、ヘッダ行と変換を登録した型.
+	 * <PRE>DateTimeFormatter や関数は equals で比較できないので、キーに含めない。</PRE>
+	 */
+	static final class Key{
+		private final Object[] values;
+		private final int hash;
+		Key(Class<?> cls, List<String> header, Object... options){
+			values = new Object[options.length + 2];
+			values[0] = cls;
+			values[1] = new ArrayList<>(header);
+			System.arraycopy(options, 0, values, 2, options.length);
+			hash = Arrays.hashCode(values);
+		}
+		@Override
+		public int hashCode(){
+			return hash;
+		}
+		@Override
+		public boolean equals(Object obj){
+			return obj instanceof Key && Arrays.equals(values, ((Key)obj).values);
+		}
+	}
+
+	/**
+	 * キャッシュする結び付け、Bean の生成と列ごとの Property.
+	 * <PRE>読込み設定に依存しない。変更されないので、スレッド間で共有できる。</PRE>
+	 */
+	static final class Header<T>{
+		final Factory<T> factory;
+		/** {@link CsvBean} で生成された CsvMapper、リフレクションの場合は null */
+		final CsvMapper<T> mapper;
+		/** 列ごとの Property、setter に結び付かない列は null */
+		final List<Property> properties;
+		Header(Factory<T> factory, CsvMapper<T> mapper, List<Property> properties){
+			this.factory = factory;
+			this.mapper = mapper;
+			this.properties = Collections.unmodifiableList(properties);
+		}
+	}
+
+	/**
+	 * setter に結び付いた列.
+	 * <PRE>
+	 * CsvMapper の場合は番号、リフレクションの場合は、フィールドの型、生成した setter、valueOf による変換。
+	 * </PRE>
+	 */
+	static final class Property{
+		/** CsvMapper の番号、リフレクションの場合は -1 */
+		final int index;
+		final Class<?> type;
+		private final Object setter;
+		/** valueOf(String) による変換、標準の変換の型と変換を登録した型は null */
+		final Parser parser;
+		Property(int index){
+			this(index, null, null, null);
+		}
+		Property(Class<?> type, Object setter, Parser parser){
+			this(-1, type, setter, parser);
+		}
+		private Property(int index, Class<?> type, Object setter, Parser parser){
+			this.index = index;
+			this.type = type;
+			this.setter = setter;
+			this.parser = parser;
+		}
+		/** 型の setter、IntSetter, LongSetter ... ObjectSetter */
+		@SuppressWarnings("unchecked")
+		<S> S setter(){
+			return (S)setter;
+		}
+	}
+
+	/**
+	 * 読込みごとの Bean の生成と、列ごとの setter.
+	 * <PRE>キャッシュの Header に、読込み設定を適用したもの。</PRE>
+	 */
+	static final class Binding<T>{
+		final Factory<T> factory;
+		final List<Column<T>> columns;
+		/** setter に結び付いた列番号、昇順 */
+		final int[] bound;
+		Binding(Factory<T> factory, List<Column<T>> columns){
+			this.factory = factory;
+			this.columns = Collections.unmodifiableList(columns);
+			int n = 0;
+			int[] b = new int[columns.size()];
+			for(int i=0; i < columns.size(); i++){
+				if (columns.get(i) != null) b[n++] = i;
+			}
+			this.bound = Arrays.copyOf(b, n);
+		}
+	}
+}
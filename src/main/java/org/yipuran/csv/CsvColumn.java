@@ -0,0 +1,565 @@
+package org.yipuran.csv;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.yipuran.csv.CsvTable.Type;
+import org.yipuran.csv4j.CSVCursor;
+
+/**
+ * CsvTable の１列.
+ * <PRE>
+ * 行の順に、型ごとの配列に値を追加する。配列は 1.5 倍ずつ拡張して、読込みの終わりに行数に切り詰める。
+ * 数値は CSVCursor の getInt などで、文字列を生成せずに読む。
+ * 空の値は null、STRING の列の空の値は、CSVCursor が null にしない場合は空文字である。
+ * CsvPages.Memory を指定すると、INT, LONG, DOUBLE, STRING の列の値をヒープの外に持つ。
+ * </PRE>
+ * @since 1.3
+ */
+abstract class CsvColumn{
+	private static final int INITIAL_CAPACITY = 16;
+
+	final Type type;
+	int size;
+	/** null の行、null が無い場合は null */
+	BitSet nulls;
+
+	CsvColumn(Type type){
+		this.type = type;
+	}
+
+	/**
+	 * 型の列を生成.
+	 * @param type 型
+	 * @param memory ヒープの外の列のメモリ、null はヒープの配列、BOOLEAN の列は常にヒープ
+	 * @return 行の無い列
+	 */
+	static CsvColumn of(Type type, CsvPages.Memory memory){
+		if (memory != null && type != Type.BOOLEAN) return new PagedColumn(type, memory);
+		switch(type){
+		case INT:
+			return new IntColumn();
+		case LONG:
+			return new LongColumn();
+		case DOUBLE:
+			return new DoubleColumn();
+		case BOOLEAN:
+			return new BooleanColumn();
+		default:
+			return new StringColumn();
+		}
+	}
+
+	/**
+	 * 行の値を追加.
+	 * @param cursor 行を読んだ CSVCursor
+	 * @param index 列番号、行に無い列は null
+	 * @throws IllegalArgumentException 型の値でない、行は追加しない
+	 */
+	final void add(CSVCursor cursor, int index){
+		CharSequence s = index < cursor.fieldCount() ? cursor.field(index) : null;
+		ensure(size + 1);
+		if (s==null || s.length()==0 && type != Type.STRING){
+			setNull(size);
+		}else{
+			set(size, cursor, index);
+		}
+		size++;
+	}
+	/**
+	 * 行の値を追加.
+	 * @param value 値
+	 * @throws IllegalArgumentException 型の値でない、行は追加しない
+	 */
+	final void add(String value){
+		ensure(size + 1);
+		if (value==null || value.isEmpty() && type != Type.STRING){
+			setNull(size);
+		}else{
+			set(size, value);
+		}
+		size++;
+	}
+
+	/**
+	 * 値を読めない数値の列を、読める型の列にする（INT → LONG → DOUBLE）.
+	 * @param value 読めない値
+	 * @return 同じ行の値を持つ列、広げる型が無い場合は null
+	 * @throws NumberFormatException 値が数値でない
+	 */
+	CsvColumn widen(String value){
+		return null;
+	}
+
+	boolean isNull(int row){
+		return nulls != null && nulls.get(row);
+	}
+	int getInt(int row){
+		throw new IllegalStateException("column is " + type);
+	}
+	long getLong(int row){
+		throw new IllegalStateException("column is " + type);
+	}
+	double getDouble(int row){
+		throw new IllegalStateException("column is " + type);
+	}
+	boolean getBoolean(int row){
+		throw new IllegalStateException("column is " + type);
+	}
+	abstract String getString(int row);
+	List<String> dictionary(){
+		throw new IllegalStateException("column is " + type);
+	}
+
+	/** 配列を行数に切り詰める */
+	abstract void trim();
+	/** 配列を行数以上にする */
+	abstract void ensure(int capacity);
+	/** ヒープの外のメモリを放す、以後は値を参照できない */
+	void release(){
+	}
+	abstract void set(int row, CSVCursor cursor, int index);
+	abstract void set(int row, String value);
+
+	void setNull(int row){
+		if (nulls==null) nulls = new BitSet();
+		nulls.set(row);
+	}
+	/** 配列の拡張後の長さ */
+	static int capacity(int length, int capacity){
+		return Math.max(capacity, Math.max(INITIAL_CAPACITY, length + (length >> 1)));
+	}
+
+	/** INT の列 */
+	static final class IntColumn extends CsvColumn{
+		int[] values = new int[0];
+		IntColumn(){
+			super(Type.INT);
+		}
+		@Override
+		CsvColumn widen(String value){
+			CsvColumn c;
+			try{
+				Long.parseLong(value);
+				c = new LongColumn();
+			}catch(NumberFormatException e){
+				Double.parseDouble(value);
+				c = new DoubleColumn();
+			}
+			c.ensure(size + 1);
+			for(int row=0; row < size; row++){
+				if (isNull(row)) c.setNull(row);
+				else if (c instanceof LongColumn) ((LongColumn)c).values[row] = values[row];
+				else ((DoubleColumn)c).values[row] = values[row];
+			}
+			c.size = size;
+			return c;
+		}
+		@Override
+		int getInt(int row){
+			return values[row];
+		}
+		@Override
+		long getLong(int row){
+			return values[row];
+		}
+		@Override
+		double getDouble(int row){
+			return values[row];
+		}
+		@Override
+		String getString(int row){
+			return isNull(row) ? null : Integer.toString(values[row]);
+		}
+		@Override
+		void trim(){
+			if (values.length != size) values = Arrays.copyOf(values, size);
+		}
+		@Override
+		void ensure(int capacity){
+			if (values.length < capacity) values = Arrays.copyOf(values, capacity(values.length, capacity));
+		}
+		@Override
+		void set(int row, CSVCursor cursor, int index){
+			values[row] = cursor.getInt(index);
+		}
+		@Override
+		void set(int row, String value){
+			values[row] = Integer.parseInt(value);
+		}
+	}
+
+	/** LONG の列 */
+	static final class LongColumn extends CsvColumn{
+		long[] values = new long[0];
+		LongColumn(){
+			super(Type.LONG);
+		}
+		@Override
+		CsvColumn widen(String value){
+			Double.parseDouble(value);
+			DoubleColumn c = new DoubleColumn();
+			c.ensure(size + 1);
+			for(int row=0; row < size; row++){
+				if (isNull(row)) c.setNull(row);
+				else c.values[row] = values[row];
+			}
+			c.size = size;
+			return c;
+		}
+		@Override
+		long getLong(int row){
+			return values[row];
+		}
+		@Override
+		double getDouble(int row){
+			return values[row];
+		}
+		@Override
+		String getString(int row){
+			return isNull(row) ? null : Long.toString(values[row]);
+		}
+		@Override
+		void trim(){
+			if (values.length != size) values = Arrays.copyOf(values, size);
+		}
+		@Override
+		void ensure(int capacity){
+			if (values.length < capacity) values = Arrays.copyOf(values, capacity(values.length, capacity));
+		}
+		@Override
+		void set(int row, CSVCursor cursor, int index){
+			values[row] = cursor.getLong(index);
+		}
+		@Override
+		void set(int row, String value){
+			values[row] = Long.parseLong(value);
+		}
+	}
+
+	/** DOUBLE の列 */
+	static final class DoubleColumn extends CsvColumn{
+		double[] values = new double[0];
+		DoubleColumn(){
+			super(Type.DOUBLE);
+		}
+		@Override
+		double getDouble(int row){
+			return values[row];
+		}
+		@Override
+		String getString(int row){
+			return isNull(row) ? null : Double.toString(values[row]);
+		}
+		@Override
+		void trim(){
+			if (values.length != size) values = Arrays.copyOf(values, size);
+		}
+		@Override
+		void ensure(int capacity){
+			if (values.length < capacity) values = Arrays.copyOf(values, capacity(values.length, capacity));
+		}
+		@Override
+		void set(int row, CSVCursor cursor, int index){
+			values[row] = cursor.getDouble(index);
+		}
+		@Override
+		void set(int row, String value){
+			values[row] = Double.parseDouble(value);
+		}
+	}
+
+	/** BOOLEAN の列、"true" "false" 以外の値はエラー */
+	static final class BooleanColumn extends CsvColumn{
+		final BitSet values = new BitSet();
+		BooleanColumn(){
+			super(Type.BOOLEAN);
+		}
+		@Override
+		boolean getBoolean(int row){
+			return values.get(row);
+		}
+		@Override
+		String getString(int row){
+			return isNull(row) ? null : Boolean.toString(values.get(row));
+		}
+		@Override
+		void trim(){
+		}
+		@Override
+		void ensure(int capacity){
+		}
+		@Override
+		void set(int row, CSVCursor cursor, int index){
+			if (parse(cursor.field(index))) values.set(row);
+		}
+		@Override
+		void set(int row, String value){
+			if (parse(value)) values.set(row);
+		}
+		/**
+		 * 真偽値を読む.
+		 * @throws IllegalArgumentException "true" "false" でない
+		 */
+		static boolean parse(CharSequence s){
+			if (matches(s, "true")) return true;
+			if (matches(s, "false")) return false;
+			throw new IllegalArgumentException("not a boolean: \"" + s + "\"");
+		}
+		/** "true" または "false" か判定 */
+		static boolean isBoolean(CharSequence s){
+			return matches(s, "true") || matches(s, "false");
+		}
+		private static boolean matches(CharSequence s, String word){
+			if (s.length() != word.length()) return false;
+			for(int i=0; i < word.length(); i++){
+				if (Character.toLowerCase(s.charAt(i)) != word.charAt(i)) return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * STRING の列.
+	 * <PRE>
+	 * 異なる値を辞書に１つずつ持ち、行ごとに辞書の番号を持つ。
+	 * </PRE>
+	 */
+	static final class StringColumn extends CsvColumn{
+		/** 行ごとの辞書の番号、null は -1 */
+		int[] codes = new int[0];
+		private final Dictionary dictionary = new Dictionary();
+		StringColumn(){
+			super(Type.STRING);
+		}
+		@Override
+		boolean isNull(int row){
+			return codes[row] < 0;
+		}
+		@Override
+		String getString(int row){
+			return dictionary.get(codes[row]);
+		}
+		@Override
+		List<String> dictionary(){
+			return dictionary.values();
+		}
+		@Override
+		void trim(){
+			if (codes.length != size) codes = Arrays.copyOf(codes, size);
+			dictionary.trim();
+		}
+		@Override
+		void ensure(int capacity){
+			if (codes.length < capacity) codes = Arrays.copyOf(codes, capacity(codes.length, capacity));
+		}
+		@Override
+		void set(int row, CSVCursor cursor, int index){
+			codes[row] = dictionary.code(cursor.field(index));
+		}
+		@Override
+		void set(int row, String value){
+			codes[row] = dictionary.code(value);
+		}
+		@Override
+		void setNull(int row){
+			codes[row] = -1;
+		}
+	}
+
+	/**
+	 * ヒープの外の列、INT, LONG, DOUBLE, STRING.
+	 * <PRE>
+	 * 値は CsvPages に持ち、STRING の列は辞書の番号を CsvPages に持つ。
+	 * ページは拡張しないので、切り詰めない。
+	 * </PRE>
+	 */
+	static final class PagedColumn extends CsvColumn{
+		private final CsvPages.Memory memory;
+		private CsvPages pages;
+		private final Dictionary dictionary;
+		PagedColumn(Type type, CsvPages.Memory memory){
+			super(type);
+			this.memory = memory;
+			pages = new CsvPages(memory, type==Type.LONG || type==Type.DOUBLE ? 8 : 4);
+			dictionary = type==Type.STRING ? new Dictionary() : null;
+		}
+		@Override
+		CsvColumn widen(String value){
+			if (type != Type.INT && type != Type.LONG) return null;
+			Type to = Type.DOUBLE;
+			try{
+				if (type==Type.INT){
+					Long.parseLong(value);
+					to = Type.LONG;
+				}
+			}catch(NumberFormatException e){
+			}
+			if (to==Type.DOUBLE) Double.parseDouble(value);
+			PagedColumn c = new PagedColumn(to, memory);
+			c.ensure(size + 1);
+			for(int row=0; row < size; row++){
+				if (to==Type.LONG) c.pages.putLong(row, getLong(row));
+				else c.pages.putDouble(row, getDouble(row));
+			}
+			c.nulls = nulls;
+			c.size = size;
+			release();
+			return c;
+		}
+		@Override
+		boolean isNull(int row){
+			return type==Type.STRING ? pages.getInt(row) < 0 : super.isNull(row);
+		}
+		@Override
+		int getInt(int row){
+			if (type != Type.INT) return super.getInt(row);
+			return pages.getInt(row);
+		}
+		@Override
+		long getLong(int row){
+			if (type==Type.INT) return pages.getInt(row);
+			if (type != Type.LONG) return super.getLong(row);
+			return pages.getLong(row);
+		}
+		@Override
+		double getDouble(int row){
+			if (type==Type.INT) return pages.getInt(row);
+			if (type==Type.LONG) return pages.getLong(row);
+			if (type != Type.DOUBLE) return super.getDouble(row);
+			return pages.getDouble(row);
+		}
+		@Override
+		String getString(int row){
+			switch(type){
+			case INT:
+				return isNull(row) ? null : Integer.toString(pages.getInt(row));
+			case LONG:
+				return isNull(row) ? null : Long.toString(pages.getLong(row));
+			case DOUBLE:
+				return isNull(row) ? null : Double.toString(pages.getDouble(row));
+			default:
+				return dictionary.get(pages.getInt(row));
+			}
+		}
+		@Override
+		List<String> dictionary(){
+			if (type != Type.STRING) return super.dictionary();
+			return dictionary.values();
+		}
+		@Override
+		void trim(){
+			if (dictionary != null) dictionary.trim();
+		}
+		@Override
+		void ensure(int capacity){
+			pages.ensure(capacity);
+		}
+		@Override
+		void release(){
+			pages.release();
+		}
+		@Override
+		void set(int row, CSVCursor cursor, int index){
+			switch(type){
+			case INT:
+				pages.putInt(row, cursor.getInt(index));
+				break;
+			case LONG:
+				pages.putLong(row, cursor.getLong(index));
+				break;
+			case DOUBLE:
+				pages.putDouble(row, cursor.getDouble(index));
+				break;
+			default:
+				pages.putInt(row, dictionary.code(cursor.field(index)));
+			}
+		}
+		@Override
+		void set(int row, String value){
+			switch(type){
+			case INT:
+				pages.putInt(row, Integer.parseInt(value));
+				break;
+			case LONG:
+				pages.putLong(row, Long.parseLong(value));
+				break;
+			case DOUBLE:
+				pages.putDouble(row, Double.parseDouble(value));
+				break;
+			default:
+				pages.putInt(row, dictionary.code(value));
+			}
+		}
+		@Override
+		void setNull(int row){
+			if (type==Type.STRING) pages.putInt(row, -1);
+			else super.setNull(row);
+		}
+	}
+
+	/**
+	 * STRING の列の辞書.
+	 * <PRE>
+	 * 辞書は列の文字で探すので、辞書にある値の String を生成しない。
+	 * </PRE>
+	 */
+	static final class Dictionary{
+		private String[] values = new String[16];
+		private int count;
+		/** オープンアドレス法のハッシュ表、辞書の番号 + 1、0 は空き */
+		private int[] table = new int[32];
+
+		/**
+		 * 番号の値.
+		 * @param code 番号、null は負数
+		 * @return 値
+		 */
+		String get(int code){
+			return code < 0 ? null : values[code];
+		}
+		/** 値、現れた順の変更できない List */
+		List<String> values(){
+			return Collections.unmodifiableList(Arrays.asList(values).subList(0, count));
+		}
+		/** 読込みの終わりに、配列を切り詰めてハッシュ表を捨てる */
+		void trim(){
+			if (values.length != count) values = Arrays.copyOf(values, count);
+			table = null;
+		}
+		/** 値の辞書の番号、辞書に無い値は追加する */
+		int code(CharSequence s){
+			int length = s.length();
+			int hash = 0;
+			for(int i=0; i < length; i++){
+				hash = 31 * hash + s.charAt(i);
+			}
+			int mask = table.length - 1;
+			int slot = (hash ^ hash >>> 16) & mask;
+			for(;; slot = (slot + 1) & mask){
+				int code = table[slot] - 1;
+				if (code < 0) break;
+				String value = values[code];
+				if (value.hashCode()==hash && value.contentEquals(s)) return code;
+			}
+			if (count==values.length) values = Arrays.copyOf(values, count * 2);
+			values[count] = s.toString();
+			table[slot] = count + 1;
+			count++;
+			if (count * 2 > table.length) rehash();
+			return count - 1;
+		}
+		private void rehash(){
+			table = new int[table.length * 2];
+			int mask = table.length - 1;
+			for(int code=0; code < count; code++){
+				int hash = values[code].hashCode();
+				int slot = (hash ^ hash >>> 16) & mask;
+				while(table[slot] != 0) slot = (slot + 1) & mask;
+				table[slot] = code + 1;
+			}
+		}
+	}
+}
@@ -1,14 +1,13 @@
 package org.yipuran.csv;
 
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
+import org.yipuran.csv4j.CSVByteWriter;
 import org.yipuran.csv4j.CSVWriter;
 /**
  * ＣＳＶ生成インターフェース.
@@ -45,6 +44,9 @@ import org.yipuran.csv4j.CSVWriter;
  * }catch(Exception e){
  *    e.printStackTrace();
  * }
+ *
+ * 文字セットが UTF-8 の場合は、CharsetEncoder を使わずにバイト配列に UTF-8 で書込み、大きな単位で OutputStream に出力する。
+ * BOM も同じバイト配列に書込む。
  * </PRE>
  */
 @FunctionalInterface
@@ -62,14 +64,15 @@ public interface CsvCreator extends Serializable{
 	 * @param charName 文字セット名
 	 */
 	default public void create(OutputStream out, String charName){
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, charName)){
-			CSVWriter csvWriter = new CSVWriter(writer);
+		try(Writer writer = CSVByteWriter.of(out, Charset.forName(charName))){
+			CSVWriter csvWriter = new CSVWriter(writer, true);
 			for(String[] s:getSupplier().get()){
 				for(int i=0;i < s.length;i++){
 					s[i] = s[i]==null ? "" : s[i];
 				}
 				csvWriter.writeLine(s);
 			}
+			csvWriter.flush();
 		}catch(Exception e){
 			throw new RuntimeException(e.getMessage(), e);
 		}
@@ -81,14 +84,22 @@ public interface CsvCreator extends Serializable{
 	 */
 	default public void createWithDblQuot(OutputStream out, String charName){
 		String lineSeparator = System.getProperty("line.separator");
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, charName)){
+		try(Writer writer = CSVByteWriter.of(out, Charset.forName(charName))){
+			CSVWriter csvWriter = new CSVWriter(writer, true);
+			csvWriter.setQuoteAll(true);
+			boolean overridden = CsvUtil.isCsvlineOverridden(this, CsvCreator.class, String[].class);
 			for(String[] sary:getSupplier().get()){
 				for(int i=0;i < sary.length;i++){
 					sary[i] = sary[i]==null ? "" : sary[i];
 				}
-				writer.write(csvline(sary));
-				writer.write(lineSeparator);
+				if (overridden){
+					writer.write(csvline(sary));
+					writer.write(lineSeparator);
+				}else{
+					csvWriter.writeLine(sary);
+				}
 			}
+			csvWriter.flush();
 		}catch(Exception e){
 			throw new RuntimeException(e.getMessage(), e);
 		}
@@ -98,15 +109,16 @@ public interface CsvCreator extends Serializable{
 	 * @param out OutputStream
 	 */
 	default public void createBomUTF8(OutputStream out){
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)){
-			BOMfunction.push(out);
-			CSVWriter csvWriter = new CSVWriter(writer);
+		try(CSVByteWriter writer = new CSVByteWriter(out)){
+			writer.writeBOM();
+			CSVWriter csvWriter = new CSVWriter(writer, true);
 			for(String[] sary:getSupplier().get()){
 				for(int i=0;i < sary.length;i++){
 					sary[i] = sary[i]==null ? "" : sary[i];
 				}
 				csvWriter.writeLine(sary);
 			}
+			csvWriter.flush();
 		}catch(Exception e){
 			throw new RuntimeException(e.getMessage(), e);
 		}
@@ -117,25 +129,37 @@ public interface CsvCreator extends Serializable{
 	 */
 	default public void createBomUTF8WithDblQuot(OutputStream out){
 		String lineSeparator = System.getProperty("line.separator");
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)){
-			BOMfunction.push(out);
+		try(CSVByteWriter writer = new CSVByteWriter(out)){
+			writer.writeBOM();
+			CSVWriter csvWriter = new CSVWriter(writer, true);
+			csvWriter.setQuoteAll(true);
+			boolean overridden = CsvUtil.isCsvlineOverridden(this, CsvCreator.class, String[].class);
 			for(String[] sary:getSupplier().get()){
 				for(int i=0;i < sary.length;i++){
 					sary[i] = sary[i]==null ? "" : sary[i];
 				}
-				writer.write(csvline(sary));
-				writer.write(lineSeparator);
+				if (overridden){
+					writer.write(csvline(sary));
+					writer.write(lineSeparator);
+				}else{
+					csvWriter.writeLine(sary);
+				}
 			}
+			csvWriter.flush();
 		}catch(Exception e){
 			throw new RuntimeException(e.getMessage(), e);
 		}
 	}
 	/**
 	 * ダブルクォート括り１行作成.
+	 * <PRE>
+	 * createWithDblQuot と createBomUTF8WithDblQuot は、このメソッドが上書きされた場合だけ、このメソッドで１行を作成する。
+	 * 上書きされていなければ、同じ結果を CSVWriter で行の文字列を作らずに出力する。
+	 * </PRE>
 	 * @param ary １行生成する配列
 	 * @return ダブルクォート括り１行
 	 */
 	default public String csvline(String[] ary){
-		return "\"" + Arrays.stream(ary).map(s->s.replaceAll("\"","\"\"")).collect(Collectors.joining("\",\"")) + "\"";
+		return ary.length==0 ? "\"\"" : CsvUtil.csvline(ary);
 	}
 }
@@ -0,0 +1,263 @@
+package org.yipuran.csv;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DecimalStyle;
+import java.time.format.ResolverStyle;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.yipuran.csv4j.CSVCursor;
+
+/**
+ * CsvObject の日付、時刻の変換.
+ * <PRE>
+ * フォーマットが DateTimeFormatter.ISO_LOCAL_DATE, ISO_LOCAL_DATE_TIME, ISO_LOCAL_TIME か、
+ * 次のパターンの DateTimeFormatter.ofPattern の場合は、DateTimeFormatter を使わずに固定桁の数字を読む。
+ *   日付 : yyyy-MM-dd, yyyy/MM/dd, yyyyMMdd（uuuu も同じ）
+ *   時刻 : HH:mm:ss, HH:mm
+ *   日時 : 日付と時刻を、空白か 'T' で繋いだもの
+ * 固定桁で読めない値や存在しない日付、時刻は、DateTimeFormatter で変換するので、結果と例外は DateTimeFormatter と同じである。
+ * LocalDate は同じ日付が繰返し現れることが多いので、列ごとに、最近変換した文字列と結果をキャッシュする。
+ * </PRE>
+ * @since 1.3
+ */
+final class CsvDates{
+	private CsvDates(){}
+
+	private static final String[] DATE_PATTERNS = { "yyyy-MM-dd", "yyyy/MM/dd", "yyyyMMdd", "uuuu-MM-dd", "uuuu/MM/dd", "uuuuMMdd" };
+	private static final String[] TIME_PATTERNS = { "HH:mm:ss", "HH:mm" };
+	private static final String[] DATE_TIME_SEPARATORS = { " ", "'T'" };
+	private static final int[] NANO_SCALE = { 0, 100000000, 10000000, 1000000, 100000, 10000, 1000, 100, 10, 1 };
+	private static final int CACHE_SIZE = 64;
+
+	private static final Layout ISO_DATE = new Layout('-', true, -1, false, false);
+	private static final Layout ISO_DATE_TIME = new Layout('-', true, 'T', true, false);
+	private static final Layout ISO_TIME = new Layout(-1, false, -1, true, false);
+	/** ofPattern の DateTimeFormatter#toString() → 形式 */
+	private static final Map<String, Layout> PATTERNS = new HashMap<>();
+	static{
+		for(String time : TIME_PATTERNS){
+			boolean seconds = time.length() > 5;
+			PATTERNS.put(DateTimeFormatter.ofPattern(time).toString(), new Layout(-1, false, -1, false, seconds));
+			for(String date : DATE_PATTERNS){
+				int separator = date.length() > 8 ? date.charAt(4) : 0;
+				boolean yearZero = date.charAt(0)=='u';
+				PATTERNS.put(DateTimeFormatter.ofPattern(date).toString(), new Layout(separator, yearZero, -1, false, false));
+				for(String dt : DATE_TIME_SEPARATORS){
+					PATTERNS.put(DateTimeFormatter.ofPattern(date + dt + time).toString()
+						, new Layout(separator, yearZero, dt.length()==1 ? ' ' : 'T', false, seconds));
+				}
+			}
+		}
+	}
+
+	/** CSV１列 → 日付、時刻 */
+	@FunctionalInterface
+	interface Reader<V>{
+		V read(CSVCursor cursor, int index);
+	}
+
+	/**
+	 * LocalDate の変換.
+	 * @param formatter フォーマット
+	 * @return Reader、列ごとのキャッシュを持つので列ごとに生成する
+	 */
+	static Reader<LocalDate> localDate(DateTimeFormatter formatter){
+		Layout layout = layout(formatter);
+		if (layout==null || !layout.isDate() || layout.isTime()){
+			return (cursor, index)->LocalDate.parse(cursor.getString(index), formatter);
+		}
+		// 複数スレッドから参照されても、Entry は変更しないので一貫している
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Entry<LocalDate>[] cache = new Entry[CACHE_SIZE];
+		return (cursor, index)->{
+			CharSequence s = cursor.field(index);
+			if (s==null) return LocalDate.parse(cursor.getString(index), formatter);
+			int length = s.length();
+			int hash = 0;
+			for(int i=0; i < length; i++){
+				hash = 31 * hash + s.charAt(i);
+			}
+			int slot = (hash ^ hash >>> 16) & (CACHE_SIZE - 1);
+			Entry<LocalDate> entry = cache[slot];
+			if (entry != null && entry.hash==hash && entry.key.contentEquals(s)) return entry.value;
+			String str = s.toString();
+			LocalDate d = length==layout.dateLength() ? layout.date(s, 0) : null;
+			if (d==null) d = LocalDate.parse(str, formatter);
+			cache[slot] = new Entry<>(str, hash, d);
+			return d;
+		};
+	}
+	/**
+	 * LocalDateTime の変換.
+	 * @param formatter フォーマット
+	 * @return Reader
+	 */
+	static Reader<LocalDateTime> localDateTime(DateTimeFormatter formatter){
+		Layout layout = layout(formatter);
+		if (layout==null || !layout.isDate() || !layout.isTime()){
+			return (cursor, index)->LocalDateTime.parse(cursor.getString(index), formatter);
+		}
+		return (cursor, index)->{
+			CharSequence s = cursor.field(index);
+			if (s != null){
+				int pos = layout.dateLength();
+				if (s.length() > pos && s.charAt(pos)==layout.timeSeparator){
+					LocalDate d = layout.date(s, 0);
+					LocalTime t = d==null ? null : layout.time(s, pos + 1, s.length());
+					if (t != null) return LocalDateTime.of(d, t);
+				}
+			}
+			return LocalDateTime.parse(cursor.getString(index), formatter);
+		};
+	}
+	/**
+	 * LocalTime の変換.
+	 * @param formatter フォーマット
+	 * @return Reader
+	 */
+	static Reader<LocalTime> localTime(DateTimeFormatter formatter){
+		Layout layout = layout(formatter);
+		if (layout==null || layout.isDate() || !layout.isTime()){
+			return (cursor, index)->LocalTime.parse(cursor.getString(index), formatter);
+		}
+		return (cursor, index)->{
+			CharSequence s = cursor.field(index);
+			LocalTime t = s==null ? null : layout.time(s, 0, s.length());
+			return t != null ? t : LocalTime.parse(cursor.getString(index), formatter);
+		};
+	}
+
+	/**
+	 * フォーマットの固定桁の形式.
+	 * @param formatter フォーマット
+	 * @return 形式、固定桁で読めない場合は null
+	 */
+	private static Layout layout(DateTimeFormatter formatter){
+		if (formatter==DateTimeFormatter.ISO_LOCAL_DATE) return ISO_DATE;
+		if (formatter==DateTimeFormatter.ISO_LOCAL_DATE_TIME) return ISO_DATE_TIME;
+		if (formatter==DateTimeFormatter.ISO_LOCAL_TIME) return ISO_TIME;
+		// ofPattern の初期設定のまま
+		if (formatter.getResolverStyle() != ResolverStyle.SMART || formatter.getChronology() != null
+		|| formatter.getZone() != null || formatter.getResolverFields() != null
+		|| !DecimalStyle.STANDARD.equals(formatter.getDecimalStyle())){
+			return null;
+		}
+		return PATTERNS.get(formatter.toString());
+	}
+
+	/** 固定桁の形式 */
+	private static final class Layout{
+		/** 日付の区切り、0 は区切り無し、-1 は日付無し */
+		final int dateSeparator;
+		/** 年 0 を許す、yyyy は紀元の年なので 0 は無い */
+		final boolean yearZero;
+		/** 日付と時刻の区切り */
+		final int timeSeparator;
+		/** ISO_LOCAL_TIME、秒と小数秒は省略できる */
+		final boolean isoTime;
+		/** 時刻に秒がある */
+		final boolean seconds;
+		Layout(int dateSeparator, boolean yearZero, int timeSeparator, boolean isoTime, boolean seconds){
+			this.dateSeparator = dateSeparator;
+			this.yearZero = yearZero;
+			this.timeSeparator = timeSeparator;
+			this.isoTime = isoTime;
+			this.seconds = seconds;
+		}
+		boolean isDate(){
+			return dateSeparator >= 0;
+		}
+		boolean isTime(){
+			return dateSeparator < 0 || timeSeparator >= 0;
+		}
+		int dateLength(){
+			return dateSeparator==0 ? 8 : 10;
+		}
+		/**
+		 * 日付の読込み.
+		 * @return 日付、読めない場合や存在しない日付は null
+		 */
+		LocalDate date(CharSequence s, int pos){
+			int year = digits(s, pos, 4);
+			int month;
+			int day;
+			if (dateSeparator==0){
+				month = digits(s, pos + 4, 2);
+				day = digits(s, pos + 6, 2);
+			}else{
+				if (s.charAt(pos + 4) != dateSeparator || s.charAt(pos + 7) != dateSeparator) return null;
+				month = digits(s, pos + 5, 2);
+				day = digits(s, pos + 8, 2);
+			}
+			if (year < 0 || year==0 && !yearZero || month < 1 || month > 12 || day < 1) return null;
+			if (day > 28 && day > lengthOfMonth(year, month)) return null;
+			return LocalDate.of(year, month, day);
+		}
+		/**
+		 * 時刻の読込み、pos から end まで.
+		 * @return 時刻、読めない場合や範囲外の値は null
+		 */
+		LocalTime time(CharSequence s, int pos, int end){
+			if (end - pos < 5 || s.charAt(pos + 2) != ':') return null;
+			int hour = digits(s, pos, 2);
+			int minute = digits(s, pos + 3, 2);
+			if (hour < 0 || hour > 23 || minute < 0 || minute > 59) return null;
+			pos += 5;
+			if (pos==end) return seconds ? null : LocalTime.of(hour, minute);
+			if (!seconds && !isoTime || end - pos < 3 || s.charAt(pos) != ':') return null;
+			int second = digits(s, pos + 1, 2);
+			if (second < 0 || second > 59) return null;
+			pos += 3;
+			if (pos==end) return LocalTime.of(hour, minute, second);
+			int n = end - pos - 1;
+			if (!isoTime || s.charAt(pos) != '.' || n < 1 || n > 9) return null;
+			int nano = digits(s, pos + 1, n);
+			if (nano < 0) return null;
+			return LocalTime.of(hour, minute, second, nano * NANO_SCALE[n]);
+		}
+	}
+
+	/**
+	 * 数字の読込み.
+	 * @return 値、数字でない文字がある場合は -1
+	 */
+	private static int digits(CharSequence s, int pos, int count){
+		int v = 0;
+		for(int i=pos; i < pos + count; i++){
+			int d = s.charAt(i) - '0';
+			if (d < 0 || d > 9) return -1;
+			v = v * 10 + d;
+		}
+		return v;
+	}
+	private static int lengthOfMonth(int year, int month){
+		switch(month){
+		case 2:
+			return IsoChronology.INSTANCE.isLeapYear(year) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/** キャッシュの１件、変更しない */
+	private static final class Entry<V>{
+		final String key;
+		final int hash;
+		final V value;
+		Entry(String key, int hash, V value){
+			this.key = key;
+			this.hash = hash;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package org.yipuran.csv;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Function;
+
+import org.yipuran.csv.CsvDates.Reader;
+import org.yipuran.csv4j.CSVCursor;
+
+/**
+ * {@link CsvBean} のクラスに生成されるマッパー.
+ * <PRE>
+ * CsvObject が、ヘッダ行の列名を index で番号にして、行ごとに set を実行する。
+ * 生成されたクラスが実装するもので、アプリケーションが実装する必要はない。
+ * </PRE>
+ * @param <T> CSV読込み対象クラス
+ * @since 1.3
+ */
+public interface CsvMapper<T>{
+	/**
+	 * インスタンス生成.
+	 * @return 引数なしのコンストラクタで生成したインスタンス
+	 */
+	T create();
+	/**
+	 * 列名の番号.
+	 * @param name ヘッダ行の列名、フィールド名
+	 * @return 番号、フィールドと setter が無い場合は -1
+	 */
+	int index(String name);
+	/**
+	 * CSV１列の値のセット.
+	 * <PRE>数値は、文字列を生成せずに CSVCursor から解析する。</PRE>
+	 * @param bean インスタンス
+	 * @param index index が返した番号
+	 * @param cursor 読込み行の CSVCursor
+	 * @param column CSVCursor の列番号
+	 * @param settings 読込み設定
+	 * @throws Exception 変換エラー
+	 */
+	void set(T bean, int index, CSVCursor cursor, int column, Settings settings) throws Exception;
+
+	/**
+	 * CsvObject の読込み設定.
+	 */
+	final class Settings{
+		private final boolean blankIsNull;
+		private final Function<String, Boolean> booleanReader;
+		private final DateTimeFormatter dateFormatter;
+		private final DateTimeFormatter localdatetimeFormatter;
+		private final DateTimeFormatter timeFormatter;
+		private final Reader<LocalDate> dateReader;
+		private final Reader<LocalDateTime> localdatetimeReader;
+		private final Reader<LocalTime> timeReader;
+		Settings(boolean blankIsNull, Function<String, Boolean> booleanReader, DateTimeFormatter dateFormatter
+				, DateTimeFormatter localdatetimeFormatter, DateTimeFormatter timeFormatter){
+			this.blankIsNull = blankIsNull;
+			this.booleanReader = booleanReader;
+			this.dateFormatter = dateFormatter;
+			this.localdatetimeFormatter = localdatetimeFormatter;
+			this.timeFormatter = timeFormatter;
+			this.dateReader = CsvDates.localDate(dateFormatter);
+			this.localdatetimeReader = CsvDates.localDateTime(localdatetimeFormatter);
+			this.timeReader = CsvDates.localTime(timeFormatter);
+		}
+		/**
+		 * @return true=ブランク、",," は、null として読み込む。
+		 */
+		public boolean isBlankIsNull(){
+			return blankIsNull;
+		}
+		/**
+		 * @return boolean/Boolean 型読込方法
+		 */
+		public Function<String, Boolean> getBooleanReader(){
+			return booleanReader;
+		}
+		/**
+		 * @return LocalDate のフォーマット
+		 */
+		public DateTimeFormatter getLocaldateFormat(){
+			return dateFormatter;
+		}
+		/**
+		 * @return LocalDateTime のフォーマット
+		 */
+		public DateTimeFormatter getLocaldateTimeFormat(){
+			return localdatetimeFormatter;
+		}
+		/**
+		 * @return LocalTime のフォーマット
+		 */
+		public DateTimeFormatter getLocalTimeFormat(){
+			return timeFormatter;
+		}
+		/**
+		 * LocalDate の読込み.
+		 * <PRE>
+		 * LocalDate.parse(cursor.getString(column), getLocaldateFormat()) と同じ結果になる。
+		 * ISO 形式や固定桁のパターンは DateTimeFormatter を使わずに読み、最近読んだ日付をキャッシュする。
+		 * </PRE>
+		 * @param cursor 読込み行の CSVCursor
+		 * @param column CSVCursor の列番号
+		 * @return LocalDate
+		 * @since 1.3
+		 */
+		public LocalDate readLocalDate(CSVCursor cursor, int column){
+			return dateReader.read(cursor, column);
+		}
+		/**
+		 * LocalDateTime の読込み.
+		 * <PRE>
+		 * LocalDateTime.parse(cursor.getString(column), getLocaldateTimeFormat()) と同じ結果になる。
+		 * ISO 形式や固定桁のパターンは DateTimeFormatter を使わずに読む。
+		 * </PRE>
+		 * @param cursor 読込み行の CSVCursor
+		 * @param column CSVCursor の列番号
+		 * @return LocalDateTime
+		 * @since 1.3
+		 */
+		public LocalDateTime readLocalDateTime(CSVCursor cursor, int column){
+			return localdatetimeReader.read(cursor, column);
+		}
+		/**
+		 * LocalTime の読込み.
+		 * <PRE>
+		 * LocalTime.parse(cursor.getString(column), getLocalTimeFormat()) と同じ結果になる。
+		 * ISO 形式や固定桁のパターンは DateTimeFormatter を使わずに読む。
+		 * </PRE>
+		 * @param cursor 読込み行の CSVCursor
+		 * @param column CSVCursor の列番号
+		 * @return LocalTime
+		 * @since 1.3
+		 */
+		public LocalTime readLocalTime(CSVCursor cursor, int column){
+			return timeReader.read(cursor, column);
+		}
+	}
+}
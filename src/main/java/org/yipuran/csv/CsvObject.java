@@ -3,24 +3,52 @@
  */
 package org.yipuran.csv;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.yipuran.csv4j.CSVReader;
+import org.yipuran.csv.CsvBindingCache.Binding;
+import org.yipuran.csv.CsvBindingCache.Header;
+import org.yipuran.csv.CsvBindingCache.Key;
+import org.yipuran.csv.CsvBindingCache.Property;
+import org.yipuran.csv.CsvDates.Reader;
+import org.yipuran.csv.CsvMapper.Settings;
+import org.yipuran.csv.CsvSetters.BooleanSetter;
+import org.yipuran.csv.CsvSetters.Column;
+import org.yipuran.csv.CsvSetters.DoubleSetter;
+import org.yipuran.csv.CsvSetters.FloatSetter;
+import org.yipuran.csv.CsvSetters.IntSetter;
+import org.yipuran.csv.CsvSetters.LongSetter;
+import org.yipuran.csv.CsvSetters.ObjectSetter;
+import org.yipuran.csv.CsvSetters.Parser;
+import org.yipuran.csv.CsvSetters.ShortSetter;
+import org.yipuran.csv4j.CSVCursor;
+import org.yipuran.csv4j.CSVFileSpliterator;
+import org.yipuran.csv4j.CSVFileSpliterator.RowMapper;
 import org.yipuran.csv4j.CSVStreamProcessor;
+import org.yipuran.csv4j.ParseException;
 import org.yipuran.csv4j.ProcessingException;
 
 /**
@@ -34,20 +62,29 @@ import org.yipuran.csv4j.ProcessingException;
  * 　・JavaBean 規則による setter を持つこと。
  * 対応するフィールドの型は、byte と char を除くプリミティブ型とそのラッパークラス及び、JSR-310 で提供された
  * LocalDate, LocalDateTime, LocalTime である。
+ * その他の型は、enum と static valueOf(String) または String 引数のコンストラクタを持つクラスを変換する。
+ * {@link #setConverter(Class, Function)} で、型ごとに変換を登録することもできる。
  * CSVの列数 ＞ 読込み対象クラスのフィールドの数、つまりCSVが余計に列が存在してもエラーにはならないが、
  * CSVの列数 ＜ 読込み対象クラスのフィールドの数であることは許されずエラーになる。
+ * ヘッダ行より列が多いコンテンツ行は、ProcessingException になる。
+ * 読込み対象クラスに {@link CsvBean} を付けると、コンパイル時に生成される CsvMapper を使用して、
+ * リフレクションを使用せずに読込む。
+ * ヘッダ行が setter に結び付かない列は、列の終わりを探すだけで文字列にしない。
+ * setFilter で列の値の条件を指定すると、条件を満たす行だけをオブジェクトにする。
+ * 条件を満たさない行は、残りの列の終わりを探すだけでオブジェクトも文字列も生成しない。
+ * CSVファイルの Stream、stream(Path, Charset) は、フィルタを指定していると IllegalStateException になる。
+ * 区分やコードのように値の種類が少ない列は、setInterning(列番号...) で、同じ値のオブジェクトが同じ String を参照する。
  * </PRE>
  * @since 1.2
  */
 public class CsvObject<T> extends CSVStreamProcessor{
 	private boolean blankIsNull = false;
 	private Class<T> cls;
-	private List<Class<?>> typelist;
-	private List<Method> methodlist;
 	private DateTimeFormatter dateFormatter =  DateTimeFormatter.ISO_LOCAL_DATE;//  DateTimeFormatter.ofPattern("yyyy-MM-dd");
 	private DateTimeFormatter localdatetimeFormatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 	private DateTimeFormatter timeFormatter = DateTimeFormatter.ISO_LOCAL_TIME;
 	private Function<String, Boolean> booleanReader = s -> Boolean.parseBoolean(s.toLowerCase());
+	private Map<Class<?>, Function<CharSequence, ?>> converters = new HashMap<>();
 
 	/**
 	 * コンストラクタ.
@@ -95,6 +132,28 @@ public class CsvObject<T> extends CSVStreamProcessor{
 	public void setBooleanReader(Function<String, Boolean> function) {
 		booleanReader = function;
 	}
+	/**
+	 * 型の変換の登録.
+	 * <PRE>
+	 * 登録した型のフィールドは、標準の変換の代わりに converter が返す値をセットする。
+	 * enum や独自のクラス等、標準で変換できない型にも使用できる。
+	 * converter に渡す CharSequence は次の行の読込みで再利用されるので、保持する場合は文字列にすること。
+	 * ブランクで setBlanknull(true) の場合は null が渡される。
+	 * converter が null を返した場合、プリミティブ型のフィールドにはセットしない。
+	 * converter の例外は読込みエラーになる。
+	 * 変換を登録すると、{@link CsvBean} で生成された CsvMapper は使用しない。
+	 * </PRE>
+	 * @param type フィールドの型
+	 * @param converter 変換、null は登録の削除
+	 * @since 1.3
+	 */
+	public <V> void setConverter(Class<V> type, Function<CharSequence, ? extends V> converter) {
+		if (converter==null) {
+			converters.remove(type);
+		}else{
+			converters.put(type, converter);
+		}
+	}
 
 	/**
 	 * 総称型指定ＣＳＶ読込み実行.
@@ -104,55 +163,38 @@ public class CsvObject<T> extends CSVStreamProcessor{
 	 * @throws ProcessingException
 	 */
 	public void read(InputStreamReader inReader, BiConsumer<Integer, T> biconsumer) throws IOException, ProcessingException{
-		CSVReader reader = new CSVReader(new BufferedReader(inReader), Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
+		CSVCursor cursor = CSVCursor.of(inReader, Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
 		try{
-			typelist = new ArrayList<>();
-			methodlist = new ArrayList<>();
+			Binding<T> binding = null;
+			applyInterning(cursor);
+			if (!isHasHeader()) applyFilter(cursor, null);
 			int lineCount = 0;
 			while(true){
 				try{
-					List<String> fields = reader.readLine();
-					if (fields.size()==0) break;
+					if (!cursor.next() || cursor.fieldCount()==0) break;
 					if (isHasHeader() && lineCount==0){
-						String rep = fields.get(0);
-						if (BOMfunction.match(rep)) {
-							fields.remove(0);
-							fields.add(0, BOMfunction.chop(rep));
-						}
-						for(String f:fields){
-							try{
-								Class<?> c =  cls.getDeclaredField(f).getType();
-								Method m = cls.getDeclaredMethod("set" + f.substring(0, 1).toUpperCase() + f.substring(1), c);
-								typelist.add(c);
-								methodlist.add(m);
-							}catch(NoSuchFieldException | NoSuchMethodException e){
-								typelist.add(null);
-								methodlist.add(null);
-							}
-						}
+						List<String> fields = BOMfunction.chop(cursor.toList());
+						binding = bindHeader(fields);
+						cursor.setProjection(binding.bound);
+						applyFilter(cursor, fields);
 					}else{
-						T t = cls.newInstance();
-						int i=0;
-						for(String f:fields){
-							Method m = methodlist.get(i);
-							if (m != null){
-								setValue(m, t, i, f);
-							}
-							i++;
-						}
+						T t = toObject(binding, cursor);
 						biconsumer.accept(lineCount, t);
 					}
 				}catch(Exception e){
-					throw new ProcessingException(e, reader.getLineNumber());
+					throw new ProcessingException(e, cursor.getLineNumber());
 				}
 				lineCount++;
 			}
 		}finally{
-			reader.close();
+			cursor.close();
 		}
 	}
 	/**
 	 * 総称型指定ＣＳＶ読込み結果Stream生成.
+	 * <PRE>
+	 * 全行を読込んでから Stream を返す。大量行のCSVは、{@link #stream(InputStreamReader)} を使用すること。
+	 * </PRE>
 	 * @param inReader InputStreamReader
 	 * @return 総称型 T のStream
 	 * @throws IOException
@@ -160,51 +202,31 @@ public class CsvObject<T> extends CSVStreamProcessor{
 	 */
 	public Stream<T> read(InputStreamReader inReader) throws IOException, ProcessingException{
 		Stream.Builder<T> builder = Stream.builder();
-		CSVReader reader = new CSVReader(new BufferedReader(inReader), Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
+		CSVCursor cursor = CSVCursor.of(inReader, Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
 		try{
-			typelist = new ArrayList<>();
-			methodlist = new ArrayList<>();
+			Binding<T> binding = null;
+			applyInterning(cursor);
+			if (!isHasHeader()) applyFilter(cursor, null);
 			int lineCount = 0;
 			while(true){
 				try{
-					List<String> fields = reader.readLine();
-					if (fields.size()==0) break;
+					if (!cursor.next() || cursor.fieldCount()==0) break;
 					if (isHasHeader() && lineCount==0){
-						String rep = fields.get(0);
-						if (BOMfunction.match(rep)) {
-							fields.remove(0);
-							fields.add(0, BOMfunction.chop(rep));
-						}
-						for(String f:fields){
-							try{
-								Class<?> c =  cls.getDeclaredField(f).getType();
-								Method m = cls.getDeclaredMethod("set" + f.substring(0, 1).toUpperCase() + f.substring(1), c);
-								typelist.add(c);
-								methodlist.add(m);
-							}catch(NoSuchFieldException | NoSuchMethodException e){
-								typelist.add(null);
-								methodlist.add(null);
-							}
-						}
+						List<String> fields = BOMfunction.chop(cursor.toList());
+						binding = bindHeader(fields);
+						cursor.setProjection(binding.bound);
+						applyFilter(cursor, fields);
 					}else{
-						T t = cls.newInstance();
-						int i=0;
-						for(String f:fields){
-							Method m = methodlist.get(i);
-							if (m != null){
-								setValue(m, t, i, f);
-							}
-							i++;
-						}
+						T t = toObject(binding, cursor);
 						builder.add(t);
 					}
 				}catch(Exception e){
-					throw new ProcessingException(e, reader.getLineNumber());
+					throw new ProcessingException(e, cursor.getLineNumber());
 				}
 				lineCount++;
 			}
 		}finally{
-			reader.close();
+			cursor.close();
 		}
 		return builder.build();
 	}
@@ -217,28 +239,33 @@ public class CsvObject<T> extends CSVStreamProcessor{
 	 * @throws ProcessingException
 	 */
 	public void read(InputStreamReader inReader, Function<List<String>, T> converter,  BiConsumer<Integer, T> biconsumer) throws IOException, ProcessingException{
-		CSVReader reader = new CSVReader(new BufferedReader(inReader), Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
+		CSVCursor cursor = CSVCursor.of(inReader, Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
 		try{
-			methodlist = new ArrayList<>();
+			applyInterning(cursor);
+			if (!isHasHeader()) applyFilter(cursor, null);
 			int lineCount = 0;
 			while(true){
 				try{
-					List<String> fields = reader.readLine();
-					if (fields.size()==0) break;
+					if (!cursor.next() || cursor.fieldCount()==0) break;
 					if (!isHasHeader() || lineCount > 0){
-						biconsumer.accept(lineCount, converter.apply(fields));
+						biconsumer.accept(lineCount, converter.apply(toList(cursor, null)));
+					}else{
+						applyFilter(cursor, BOMfunction.chop(cursor.toList()));
 					}
 				}catch(Exception e){
-					throw new ProcessingException(e, reader.getLineNumber());
+					throw new ProcessingException(e, cursor.getLineNumber());
 				}
 				lineCount++;
 			}
 		}finally{
-			reader.close();
+			cursor.close();
 		}
 	}
 	/**
 	 * 総称型指定ＣＳＶ読込み結果Stream生成（コンバーター指定）.
+	 * <PRE>
+	 * 全行を読込んでから Stream を返す。大量行のCSVは、{@link #stream(InputStreamReader, Function)} を使用すること。
+	 * </PRE>
 	 * @param inReader InputStreamReader
 	 * @param converter CSV１行分の文字列リストから、総称型Ｔを生成取得するコンバーター
 	 * @return 総称型 T のStream
@@ -247,62 +274,384 @@ public class CsvObject<T> extends CSVStreamProcessor{
 	 */
 	public Stream<T> read(InputStreamReader inReader, Function<List<String>, T> converter) throws IOException, ProcessingException{
 		Stream.Builder<T> builder = Stream.builder();
-		CSVReader reader = new CSVReader(new BufferedReader(inReader), Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
+		CSVCursor cursor = CSVCursor.of(inReader, Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
 		try{
+			applyInterning(cursor);
+			if (!isHasHeader()) applyFilter(cursor, null);
 			int lineCount = 0;
 			while(true){
 				try{
-					List<String> fields = reader.readLine();
-					if (fields.size()==0) break;
+					if (!cursor.next() || cursor.fieldCount()==0) break;
 					if (!isHasHeader() || lineCount > 0){
-						builder.add(converter.apply(fields));
+						builder.add(converter.apply(toList(cursor, null)));
+					}else{
+						applyFilter(cursor, BOMfunction.chop(cursor.toList()));
 					}
 				}catch(Exception e){
-					throw new ProcessingException(e, reader.getLineNumber());
+					throw new ProcessingException(e, cursor.getLineNumber());
 				}
 				lineCount++;
 			}
 		}finally{
-			reader.close();
+			cursor.close();
 		}
 		return builder.build();
 	}
+	/**
+	 * 総称型指定ＣＳＶ読込みStream生成.
+	 * <PRE>
+	 * Stream の要素を取り出す時に、CSV行を１行ずつ読込む遅延評価の Stream を返す。
+	 * read(InputStreamReader) と異なり、全行を読込んでから返すのではないので、大量行のCSVでもメモリを消費しない。
+	 * limit や findFirst などの短絡操作では、必要な行まで読込んだところで読込みを止める。
+	 * Stream を close すると InputStreamReader が close されるので、try-with-resources で使用すること。
+	 * 読込みのエラーは、ProcessingException を cause とする RuntimeException として Stream の終端操作から送出される。
+	 * </PRE>
+	 * @param inReader InputStreamReader
+	 * @return 総称型 T のStream
+	 * @since 1.3
+	 */
+	public Stream<T> stream(InputStreamReader inReader){
+		return stream(CSVCursor.of(inReader, Charset.forName(inReader.getEncoding()), getComment(), blankIsNull));
+	}
+	/**
+	 * 総称型指定ＣＳＶ読込みStream生成.
+	 * <PRE>
+	 * 文字セットが UTF-8、Shift_JIS、MS932 または ASCII 互換の１バイト文字セットの場合、バイト列のまま解析する。
+	 * Stream の性質は、{@link #stream(InputStreamReader)} と同じ。
+	 * </PRE>
+	 * @param in InputStream
+	 * @param charset 文字セット
+	 * @return 総称型 T のStream
+	 * @since 1.3
+	 */
+	public Stream<T> stream(InputStream in, Charset charset){
+		return stream(CSVCursor.of(in, charset, getComment(), blankIsNull));
+	}
+	/**
+	 * 総称型指定ＣＳＶ読込みStream生成（コンバーター指定）.
+	 * <PRE>
+	 * Stream の性質は、{@link #stream(InputStreamReader)} と同じ。
+	 * </PRE>
+	 * @param inReader InputStreamReader
+	 * @param converter CSV１行分の文字列リストから、総称型Ｔを生成取得するコンバーター
+	 * @return 総称型 T のStream
+	 * @since 1.3
+	 */
+	public Stream<T> stream(InputStreamReader inReader, Function<List<String>, T> converter){
+		return stream(CSVCursor.of(inReader, Charset.forName(inReader.getEncoding()), getComment(), blankIsNull), converter);
+	}
+	/**
+	 * 総称型指定ＣＳＶ読込みStream生成（コンバーター指定）.
+	 * <PRE>
+	 * Stream の性質は、{@link #stream(InputStream, Charset)} と同じ。
+	 * </PRE>
+	 * @param in InputStream
+	 * @param charset 文字セット
+	 * @param converter CSV１行分の文字列リストから、総称型Ｔを生成取得するコンバーター
+	 * @return 総称型 T のStream
+	 * @since 1.3
+	 */
+	public Stream<T> stream(InputStream in, Charset charset, Function<List<String>, T> converter){
+		return stream(CSVCursor.of(in, charset, getComment(), blankIsNull), converter);
+	}
 
-	private void setValue(Method m, Object obj, int n, String str) throws NoSuchMethodException, SecurityException, IllegalAccessException, IllegalArgumentException {
-		try{
-			if (typelist.get(n).isPrimitive()) {
-				if (blankIsNull && str==null) return;
-				Class<?> c = typelist.get(n);
-				if (c.equals(int.class)) {
-					m.invoke(obj, Integer.parseInt(str));
-				}else if(c.equals(long.class)) {
-					m.invoke(obj, Long.parseLong(str));
-				}else if(c.equals(double.class)) {
-					m.invoke(obj, Double.parseDouble(str));
-				}else if(c.equals(short.class)) {
-					m.invoke(obj, Short.parseShort(str));
-				}else if(c.equals(float.class)) {
-					m.invoke(obj, Float.parseFloat(str));
-				}else if(c.equals(boolean.class)) {
-					m.invoke(obj, booleanReader.apply(str));
+	/**
+	 * ＣＳＶファイルの総称型指定Stream生成.
+	 * <PRE>
+	 * ヘッダ行は、このメソッドの実行時に読込む。
+	 * parallel() で並列 Stream にすると、ファイルをレコード境界で分割して解析とオブジェクト生成も並列に実行する。
+	 * Stream の close、エラーの送出は、{@link #stream(InputStreamReader)} と同じ。
+	 * </PRE>
+	 * @param path CSVファイル
+	 * @param charset 文字セット
+	 * @return 総称型 T のStream
+	 * @throws IOException
+	 * @throws ProcessingException ヘッダ行の読込みエラー
+	 * @since 1.3
+	 */
+	public Stream<T> stream(Path path, Charset charset) throws IOException, ProcessingException{
+		// 結び付けは Stream ごとに持つ、同じ CsvObject の他の読込みと共有しない
+		Binding<T> binding = isHasHeader() ? bindHeader(path, charset) : null;
+		return stream(path, charset, (record, c)->{
+			if (isHasHeader() && record==0) return null;
+			T t = toObject(binding, c);
+			// 範囲の最初の行を読んだ後に、結び付いた列だけを読むように設定する
+			c.setProjection(binding.bound);
+			return t;
+		});
+	}
+	/**
+	 * ＣＳＶファイルの総称型指定Stream生成（コンバーター指定）.
+	 * <PRE>
+	 * Stream の性質は、{@link #stream(Path, Charset)} と同じ。
+	 * </PRE>
+	 * @param path CSVファイル
+	 * @param charset 文字セット
+	 * @param converter CSV１行分の文字列リストから、総称型Ｔを生成取得するコンバーター
+	 * @return 総称型 T のStream
+	 * @throws IOException
+	 * @since 1.3
+	 */
+	public Stream<T> stream(Path path, Charset charset, Function<List<String>, T> converter) throws IOException{
+		return stream(path, charset, (record, c)->
+			!isHasHeader() || record > 0 ? converter.apply(toList(c, null)) : null
+		);
+	}
+
+	private Stream<T> stream(Path path, Charset charset, RowMapper<T> mapper) throws IOException{
+		if (hasFilter()) throw new IllegalStateException("row filter is not supported by reading a file in ranges");
+		// 範囲ごとの cursor に、列の intern を設定する
+		CSVFileSpliterator<T> spliterator = new CSVFileSpliterator<>(path, charset, ',', getComment(), blankIsNull, (record, c)->{
+			applyInterning(c);
+			return mapper.map(record, c);
+		});
+		return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+	}
+	private Stream<T> stream(CSVCursor cursor){
+		// ヘッダ行の結び付けは Stream ごとに持つ
+		AtomicReference<Binding<T>> binding = new AtomicReference<>();
+		applyInterning(cursor);
+		if (!isHasHeader()) applyFilter(cursor, null);
+		return stream(cursor, (lineCount, c)->{
+			if (isHasHeader() && lineCount==0){
+				List<String> fields = BOMfunction.chop(c.toList());
+				binding.set(bindHeader(fields));
+				c.setProjection(binding.get().bound);
+				applyFilter(c, fields);
+				return null;
+			}
+			return toObject(binding.get(), c);
+		});
+	}
+	private Stream<T> stream(CSVCursor cursor, Function<List<String>, T> converter){
+		applyInterning(cursor);
+		if (!isHasHeader()) applyFilter(cursor, null);
+		return stream(cursor, (lineCount, c)->{
+			if (!isHasHeader() || lineCount > 0) return converter.apply(toList(c, null));
+			applyFilter(c, BOMfunction.chop(c.toList()));
+			return null;
+		});
+	}
+	private Stream<T> stream(CSVCursor cursor, RowMapper<T> mapper){
+		CursorSpliterator<T> spliterator = new CursorSpliterator<>(cursor, mapper);
+		return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+	}
+	private T toObject(Binding<T> binding, CSVCursor cursor) throws Exception{
+		int count = cursor.fieldCount();
+		// ヘッダ行より列が多い行はエラー
+		if (count > binding.columns.size()) throw new IndexOutOfBoundsException("Index: " + binding.columns.size() + ", Size: " + binding.columns.size());
+		T t = binding.factory.create();
+		for(int i : binding.bound){
+			if (i >= count) break;
+			binding.columns.get(i).set(t, cursor, i);
+		}
+		return t;
+	}
+	/** ファイルのヘッダ行の結び付け、ヘッダ行が無い場合は null */
+	private Binding<T> bindHeader(Path path, Charset charset) throws IOException, ProcessingException{
+		try(CSVCursor cursor = CSVCursor.of(path, charset, ',', getComment(), blankIsNull)){
+			try{
+				if (cursor.next() && cursor.fieldCount() > 0){
+					return bindHeader(BOMfunction.chop(cursor.toList()));
 				}
-			}else{
-				if (typelist.get(n).equals(String.class)) {
-					m.invoke(obj, str);
-				}else if(typelist.get(n).equals(Boolean.class)) {
-					m.invoke(obj, booleanReader.apply(str));
-				}else if(typelist.get(n).equals(LocalDate.class)) {
-					m.invoke(obj, LocalDate.parse(str, dateFormatter));
-				}else if(typelist.get(n).equals(LocalDateTime.class)) {
-					m.invoke(obj, LocalDateTime.parse(str, localdatetimeFormatter));
-				}else if(typelist.get(n).equals(LocalTime.class)) {
-					m.invoke(obj, LocalTime.parse(str, timeFormatter));
-				}else{
-					Method getter = typelist.get(n).getDeclaredMethod("valueOf", String.class);
-					m.invoke(obj, getter.invoke(null, str));
+				return null;
+			}catch(ParseException e){
+				throw new ProcessingException(e, cursor.getLineNumber());
+			}
+		}
+	}
+	/**
+	 * ヘッダ行の列を setter に結び付ける.
+	 * 列ごとに、フィールドの型と setter を１度だけ解決する。
+	 * 同じクラス、ヘッダ行、変換を登録した型の解決は、CsvBindingCache から取得して、
+	 * 日付フォーマット等の読込み設定と変換を、読込みごとに適用する。
+	 * {@link CsvBean} で生成された CsvMapper があれば、リフレクションを使用しない。
+	 * @return 結び付け、読込みごとに持ち、インスタンスのフィールドには持たない
+	 */
+	private Binding<T> bindHeader(List<String> fields){
+		Key key = new Key(cls, fields, new HashSet<>(converters.keySet()));
+		Header<T> header = CsvBindingCache.get(key, ()->{
+			List<Property> list = new ArrayList<>();
+			CsvMapper<T> mapper = converters.isEmpty() ? CsvSetters.mapper(cls) : null;
+			if (mapper != null){
+				// @CsvBean で生成されたマッパー
+				for(String f:fields){
+					int index = mapper.index(f);
+					list.add(index < 0 ? null : new Property(index));
+				}
+				return new Header<>(mapper::create, mapper, list);
+			}
+			for(String f:fields){
+				try{
+					Class<?> c =  cls.getDeclaredField(f).getType();
+					Method m = cls.getDeclaredMethod("set" + f.substring(0, 1).toUpperCase() + f.substring(1), c);
+					list.add(property(m, c));
+				}catch(NoSuchFieldException | NoSuchMethodException e){
+					list.add(null);
 				}
 			}
-		}catch(InvocationTargetException e){
+			return new Header<>(CsvSetters.constructor(cls), null, list);
+		});
+		List<Column<T>> columns = new ArrayList<>();
+		for(Property p : header.properties){
+			columns.add(p==null ? null : column(header.mapper, p));
+		}
+		return new Binding<>(header.factory, columns);
+	}
+	/** フィールドの型の setter の生成、読込まない型は null */
+	private Property property(Method m, Class<?> c){
+		if (converters.containsKey(c)) {
+			return new Property(c, CsvSetters.objectSetter(m), null);
+		}
+		if (c.isPrimitive()) {
+			if (c.equals(int.class)) {
+				return new Property(c, CsvSetters.intSetter(m), null);
+			}else if(c.equals(long.class)) {
+				return new Property(c, CsvSetters.longSetter(m), null);
+			}else if(c.equals(double.class)) {
+				return new Property(c, CsvSetters.doubleSetter(m), null);
+			}else if(c.equals(short.class)) {
+				return new Property(c, CsvSetters.shortSetter(m), null);
+			}else if(c.equals(float.class)) {
+				return new Property(c, CsvSetters.floatSetter(m), null);
+			}else if(c.equals(boolean.class)) {
+				return new Property(c, CsvSetters.booleanSetter(m), null);
+			}
+			// byte, char は読込まない
+			return null;
 		}
+		if (c.equals(String.class) || c.equals(Boolean.class)
+			|| c.equals(LocalDate.class) || c.equals(LocalDateTime.class) || c.equals(LocalTime.class)) {
+			return new Property(c, CsvSetters.objectSetter(m), null);
+		}
+		return new Property(c, CsvSetters.objectSetter(m), CsvSetters.valueOf(c));
+	}
+	/** 列の読込み、この読込みの設定と変換を適用する */
+	private Column<T> column(CsvMapper<T> mapper, Property p){
+		if (mapper != null){
+			int index = p.index;
+			// 日付のキャッシュは列ごと
+			Settings settings = new Settings(blankIsNull, booleanReader, dateFormatter, localdatetimeFormatter, timeFormatter);
+			return (t, c, i)->mapper.set(t, index, c, i, settings);
+		}
+		Class<?> c = p.type;
+		Function<CharSequence, ?> converter = converters.get(c);
+		if (converter != null) {
+			ObjectSetter<T> s = p.setter();
+			boolean primitive = c.isPrimitive();
+			return (t, cursor, i)->{
+				Object v = converter.apply(cursor.field(i));
+				if (v==null && primitive) return;
+				s.set(t, v);
+			};
+		}
+		Function<String, Boolean> booleanReader = this.booleanReader;
+		if (c.isPrimitive()) {
+			if (c.equals(int.class)) {
+				IntSetter<T> s = p.setter();
+				return (t, cursor, i)->{
+					if (cursor.isNull(i)) return;
+					s.set(t, cursor.getInt(i));
+				};
+			}else if(c.equals(long.class)) {
+				LongSetter<T> s = p.setter();
+				return (t, cursor, i)->{
+					if (cursor.isNull(i)) return;
+					s.set(t, cursor.getLong(i));
+				};
+			}else if(c.equals(double.class)) {
+				DoubleSetter<T> s = p.setter();
+				return (t, cursor, i)->{
+					if (cursor.isNull(i)) return;
+					s.set(t, cursor.getDouble(i));
+				};
+			}else if(c.equals(short.class)) {
+				ShortSetter<T> s = p.setter();
+				return (t, cursor, i)->{
+					if (cursor.isNull(i)) return;
+					s.set(t, cursor.getShort(i));
+				};
+			}else if(c.equals(float.class)) {
+				FloatSetter<T> s = p.setter();
+				return (t, cursor, i)->{
+					if (cursor.isNull(i)) return;
+					s.set(t, cursor.getFloat(i));
+				};
+			}
+			BooleanSetter<T> s = p.setter();
+			return (t, cursor, i)->{
+				if (cursor.isNull(i)) return;
+				s.set(t, booleanReader.apply(cursor.getString(i)));
+			};
+		}
+		ObjectSetter<T> s = p.setter();
+		if (c.equals(String.class)) {
+			return (t, cursor, i)->s.set(t, cursor.getString(i));
+		}else if(c.equals(Boolean.class)) {
+			return (t, cursor, i)->s.set(t, booleanReader.apply(cursor.getString(i)));
+		}else if(c.equals(LocalDate.class)) {
+			Reader<LocalDate> reader = CsvDates.localDate(dateFormatter);
+			return (t, cursor, i)->s.set(t, reader.read(cursor, i));
+		}else if(c.equals(LocalDateTime.class)) {
+			Reader<LocalDateTime> reader = CsvDates.localDateTime(localdatetimeFormatter);
+			return (t, cursor, i)->s.set(t, reader.read(cursor, i));
+		}else if(c.equals(LocalTime.class)) {
+			Reader<LocalTime> reader = CsvDates.localTime(timeFormatter);
+			return (t, cursor, i)->s.set(t, reader.read(cursor, i));
+		}
+		// valueOf(String) で変換できない値はセットしない
+		Parser parser = p.parser;
+		return (t, cursor, i)->{
+			Object v;
+			try{
+				v = parser.parse(cursor, i);
+			}catch(InvocationTargetException | RuntimeException e){
+				return;
+			}
+			s.set(t, v);
+		};
 	}
-}
+
+	/** CSVCursor から要求の都度１行ずつ読込む Spliterator */
+	private static final class CursorSpliterator<T> extends Spliterators.AbstractSpliterator<T>{
+		private final CSVCursor cursor;
+		private final RowMapper<T> mapper;
+		private long lineCount = 0;
+		private boolean closed = false;
+		CursorSpliterator(CSVCursor cursor, RowMapper<T> mapper){
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+			this.cursor = cursor;
+			this.mapper = mapper;
+		}
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action){
+			while(!closed){
+				T t;
+				try{
+					if (!cursor.next() || cursor.fieldCount()==0){
+						close();
+						return false;
+					}
+					t = mapper.map(lineCount++, cursor);
+				}catch(Exception e){
+					ProcessingException pe = new ProcessingException(e, cursor.getLineNumber());
+					close();
+					throw new RuntimeException(pe);
+				}
+				if (t != null){
+					action.accept(t);
+					return true;
+				}
+			}
+			return false;
+		}
+		void close(){
+			if (closed) return;
+			closed = true;
+			try{
+				cursor.close();
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+	}}
@@ -0,0 +1,187 @@
+package org.yipuran.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ヒープの外の、固定長の値の配列.
+ * <PRE>
+ * 値をページ（65536 個の値）ごとの ByteBuffer に持つ。拡張はページを追加するだけで、値をコピーしない。
+ * ByteBuffer の２GBの上限を超える列も持てる。
+ * ページは Memory から割当て、release で Memory に返す。
+ * </PRE>
+ * @since 1.3
+ */
+final class CsvPages{
+	private static final int PAGE_SHIFT = 16;
+	private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+	private final Memory memory;
+	/** 値のバイト数の log2 */
+	private final int shift;
+	private ByteBuffer[] pages = new ByteBuffer[0];
+
+	/**
+	 * コンストラクタ.
+	 * @param memory ページを割当てるメモリ
+	 * @param width 値のバイト数、4 または 8
+	 */
+	CsvPages(Memory memory, int width){
+		this.memory = memory;
+		this.shift = width==8 ? 3 : 2;
+	}
+
+	/** 値の数を capacity 以上にする */
+	void ensure(int capacity){
+		int count = (int)(((long)capacity + PAGE_MASK) >>> PAGE_SHIFT);
+		if (count <= pages.length) return;
+		ByteBuffer[] p = Arrays.copyOf(pages, count);
+		for(int i=pages.length; i < count; i++){
+			p[i] = memory.allocate(1 << (PAGE_SHIFT + shift));
+		}
+		pages = p;
+	}
+	/** ページを Memory に返す、以後は値を参照できない */
+	void release(){
+		if (pages==null) return;
+		for(ByteBuffer page : pages){
+			memory.free(page);
+		}
+		pages = null;
+	}
+
+	int getInt(int index){
+		return pages[index >>> PAGE_SHIFT].getInt((index & PAGE_MASK) << 2);
+	}
+	void putInt(int index, int value){
+		pages[index >>> PAGE_SHIFT].putInt((index & PAGE_MASK) << 2, value);
+	}
+	long getLong(int index){
+		return pages[index >>> PAGE_SHIFT].getLong((index & PAGE_MASK) << 3);
+	}
+	void putLong(int index, long value){
+		pages[index >>> PAGE_SHIFT].putLong((index & PAGE_MASK) << 3, value);
+	}
+	double getDouble(int index){
+		return pages[index >>> PAGE_SHIFT].getDouble((index & PAGE_MASK) << 3);
+	}
+	void putDouble(int index, double value){
+		pages[index >>> PAGE_SHIFT].putDouble((index & PAGE_MASK) << 3, value);
+	}
+
+	/**
+	 * ページのメモリ.
+	 * <PRE>
+	 * direct の ByteBuffer か、一時ファイルをマップした ByteBuffer を割当てる。
+	 * 一時ファイルは CHUNK_SIZE ずつマップし、ページはその slice にする。
+	 * ページごとにマップすると、数GBの列でマップの数が OS の上限（Linux の vm.max_map_count）を超えるため。
+	 * 返されたページは、同じバイト数のページの割当てに再利用する。列を拡張した後の元の列のページが一時ファイルに残らない。
+	 * 一時ファイルは、close で削除する。
+	 * ByteBuffer のメモリは、参照が無くなった後の GC で OS に返る。
+	 * </PRE>
+	 */
+	static final class Memory implements Closeable{
+		/** 一時ファイルを一度にマップするバイト数 */
+		static final int CHUNK_SIZE = 1 << 26;
+
+		private final FileChannel channel;
+		private long position;
+		/** マップした一時ファイルの、ページに割当てていない残り */
+		private ByteBuffer chunk;
+		/** 返されたページ、バイト数ごと */
+		private final Map<Integer, Deque<ByteBuffer>> freed = new HashMap<>();
+
+		private Memory(FileChannel channel){
+			this.channel = channel;
+		}
+		/**
+		 * direct の ByteBuffer のメモリ.
+		 * @return Memory
+		 */
+		static Memory direct(){
+			return new Memory(null);
+		}
+		/**
+		 * 一時ファイルをマップするメモリ.
+		 * @param directory 一時ファイルのディレクトリ、null はシステムの一時ディレクトリ
+		 * @return Memory
+		 * @throws IOException
+		 */
+		static Memory mapped(Path directory) throws IOException{
+			Path file = directory==null ? Files.createTempFile("csvtable", ".tmp") : Files.createTempFile(directory, "csvtable", ".tmp");
+			try{
+				return new Memory(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE));
+			}catch(IOException | RuntimeException e){
+				Files.deleteIfExists(file);
+				throw e;
+			}
+		}
+		/**
+		 * ページを割当てる.
+		 * @param bytes バイト数
+		 * @return 0 で初期化された ByteBuffer、ネイティブのバイト順
+		 * @throws UncheckedIOException 一時ファイルのエラー
+		 */
+		ByteBuffer allocate(int bytes){
+			Deque<ByteBuffer> q = freed.get(bytes);
+			if (q != null && !q.isEmpty()) return zero(q.pop());
+			if (channel==null) return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+			if (chunk==null || chunk.remaining() < bytes){
+				int size = Math.max(CHUNK_SIZE, bytes);
+				try{
+					chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+				}catch(IOException e){
+					throw new UncheckedIOException(e);
+				}
+				position += size;
+			}
+			int start = chunk.position();
+			((Buffer)chunk).limit(start + bytes);
+			ByteBuffer buffer = chunk.slice();
+			((Buffer)chunk).limit(chunk.capacity());
+			((Buffer)chunk).position(start + bytes);
+			return buffer.order(ByteOrder.nativeOrder());
+		}
+		/**
+		 * 一時ファイルをマップしたバイト数.
+		 * @return バイト数、direct の場合は 0
+		 */
+		long mapped(){
+			return position;
+		}
+		/**
+		 * ページを返す.
+		 * @param buffer allocate で割当てたページ、以後は参照しない
+		 */
+		void free(ByteBuffer buffer){
+			freed.computeIfAbsent(buffer.capacity(), k->new ArrayDeque<>()).push(buffer);
+		}
+		/** 再利用するページを 0 にする、ページのバイト数は 8 の倍数 */
+		private static ByteBuffer zero(ByteBuffer buffer){
+			for(int i=0; i < buffer.capacity(); i += 8){
+				buffer.putLong(i, 0L);
+			}
+			return buffer;
+		}
+		/** 一時ファイルを削除する */
+		@Override
+		public void close() throws IOException{
+			freed.clear();
+			chunk = null;
+			if (channel != null) channel.close();
+		}
+	}
+}
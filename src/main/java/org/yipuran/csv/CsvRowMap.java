@@ -0,0 +1,187 @@
+package org.yipuran.csv;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * ヘッダ行の列名をキーとする、CSV１行の値の Map.
+ * <PRE>
+ * 列名 → 列の表（Header）を全ての行で共有して、行の値の配列をコピーせずに参照する。
+ * 変更できない Map である。
+ * キーと値は、列名と列番号で HashMap に順に put した結果と同じである。
+ *   ・同じ列名が複数ある場合は、最後の列の値
+ *   ・列数がヘッダより少ない行は、行に無い列のキーは含まない
+ *   ・列数がヘッダより多い行は、キー null に最後の列の値
+ * </PRE>
+ * @since 1.3
+ */
+final class CsvRowMap extends AbstractMap<String, String>{
+	private final Header header;
+	private final String[] values;
+	private int size = -1;
+	private Set<Map.Entry<String, String>> entrySet;
+
+	/**
+	 * コンストラクタ.
+	 * @param header ヘッダ行の表
+	 * @param values 行の値、コピーしない
+	 */
+	CsvRowMap(Header header, String[] values){
+		this.header = header;
+		this.values = values;
+	}
+
+	@Override
+	public String get(Object key){
+		int index = header.index(header.find(key), values.length);
+		return index < 0 ? null : values[index];
+	}
+	@Override
+	public boolean containsKey(Object key){
+		return header.index(header.find(key), values.length) >= 0;
+	}
+	@Override
+	public int size(){
+		if (size < 0){
+			int n = 0;
+			for(int id=0; id < header.keys.length; id++){
+				if (header.index(id, values.length) >= 0) n++;
+			}
+			size = n;
+		}
+		return size;
+	}
+	@Override
+	public boolean isEmpty(){
+		return values.length==0;
+	}
+	@Override
+	public Set<Map.Entry<String, String>> entrySet(){
+		if (entrySet==null){
+			entrySet = new AbstractSet<Map.Entry<String, String>>(){
+				@Override
+				public Iterator<Map.Entry<String, String>> iterator(){
+					return new EntryIterator();
+				}
+				@Override
+				public int size(){
+					return CsvRowMap.this.size();
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	/** 行にあるキーの順に返す Iterator */
+	private final class EntryIterator implements Iterator<Map.Entry<String, String>>{
+		private int id = next(0);
+		private int next(int from){
+			int i = from;
+			while(i < header.keys.length && header.index(i, values.length) < 0) i++;
+			return i;
+		}
+		@Override
+		public boolean hasNext(){
+			return id < header.keys.length;
+		}
+		@Override
+		public Map.Entry<String, String> next(){
+			if (!hasNext()) throw new NoSuchElementException();
+			Map.Entry<String, String> e = new SimpleImmutableEntry<>(header.keys[id], values[header.index(id, values.length)]);
+			id = next(id + 1);
+			return e;
+		}
+	}
+
+	/**
+	 * ヘッダ行の列名 → 列の表.
+	 * <PRE>
+	 * オープンアドレス法のハッシュ表で、列名を読込む行ごとに探さない。
+	 * 変更されないので、スレッド間で共有できる。
+	 * </PRE>
+	 */
+	static final class Header{
+		/** 重複を除いた列名、ヘッダの順、null は最後 */
+		final String[] keys;
+		/** 列名ごとの列番号、昇順 */
+		private final int[][] columns;
+		/** ハッシュ表、keys の番号 + 1、0 は空き */
+		private final int[] table;
+		private final int mask;
+		private final int width;
+		/** キー null の番号、ヘッダより多い列のキー */
+		private final int nullId;
+
+		/**
+		 * コンストラクタ.
+		 * @param names ヘッダ行の列名
+		 */
+		Header(List<String> names){
+			width = names.size();
+			Map<String, int[]> map = new LinkedHashMap<>();
+			for(int i=0; i < width; i++){
+				int[] c = map.get(names.get(i));
+				int[] n = c==null ? new int[1] : Arrays.copyOf(c, c.length + 1);
+				n[n.length - 1] = i;
+				map.put(names.get(i), n);
+			}
+			int[] nullColumns = map.remove(null);
+			int count = map.size();
+			keys = new String[count + 1];
+			columns = new int[count + 1][];
+			int capacity = Integer.highestOneBit(Math.max(count * 2, 2) - 1) << 1;
+			table = new int[capacity];
+			mask = capacity - 1;
+			int id = 0;
+			for(Map.Entry<String, int[]> e : map.entrySet()){
+				keys[id] = e.getKey();
+				columns[id] = e.getValue();
+				int slot = spread(e.getKey().hashCode()) & mask;
+				while(table[slot] != 0) slot = (slot + 1) & mask;
+				table[slot] = id + 1;
+				id++;
+			}
+			nullId = count;
+			keys[nullId] = null;
+			columns[nullId] = nullColumns==null ? new int[0] : nullColumns;
+		}
+		/**
+		 * キーの番号.
+		 * @return 番号、列名に無い場合は -1
+		 */
+		int find(Object key){
+			if (key==null) return nullId;
+			if (!(key instanceof String)) return -1;
+			for(int slot = spread(key.hashCode()) & mask;; slot = (slot + 1) & mask){
+				int id = table[slot] - 1;
+				if (id < 0) return -1;
+				if (keys[id].equals(key)) return id;
+			}
+		}
+		/**
+		 * キーの値の列番号.
+		 * @param id キーの番号
+		 * @param length 行の列数
+		 * @return 列番号、行にキーが無い場合は -1
+		 */
+		int index(int id, int length){
+			if (id < 0) return -1;
+			if (id==nullId && length > width) return length - 1;
+			int[] c = columns[id];
+			for(int i=c.length - 1; i >= 0; i--){
+				if (c[i] < length) return c[i];
+			}
+			return -1;
+		}
+		private static int spread(int h){
+			return h ^ (h >>> 16);
+		}
+	}
+}
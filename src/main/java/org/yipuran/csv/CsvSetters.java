@@ -0,0 +1,292 @@
+package org.yipuran.csv;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.yipuran.csv4j.CSVCursor;
+
+/**
+ * CsvObject の setter 生成.
+ * <PRE>
+ * setter の Method から LambdaMetafactory で型付きの関数インターフェースを生成して、
+ * Method.invoke とプリミティブ型のボクシングを使わずに setter を実行する。
+ * 生成できない場合（public でない、クラスローダーから見えない等）は、Method.invoke で実行する。
+ * setter が送出した例外は、チェック例外とエラーも含めて、Method.invoke の InvocationTargetException と同様に無視する。
+ * </PRE>
+ * @since 1.3
+ */
+final class CsvSetters{
+	private CsvSetters(){}
+
+	/** CSV１列 → Bean の setter 実行 */
+	@FunctionalInterface
+	interface Column<T>{
+		void set(T t, CSVCursor cursor, int index) throws Exception;
+	}
+	/** 引数なしコンストラクタ */
+	@FunctionalInterface
+	interface Factory<T>{
+		T create() throws Exception;
+	}
+	@FunctionalInterface
+	interface IntSetter<T>{
+		void set(T t, int v) throws Exception;
+	}
+	@FunctionalInterface
+	interface LongSetter<T>{
+		void set(T t, long v) throws Exception;
+	}
+	@FunctionalInterface
+	interface DoubleSetter<T>{
+		void set(T t, double v) throws Exception;
+	}
+	@FunctionalInterface
+	interface ShortSetter<T>{
+		void set(T t, short v) throws Exception;
+	}
+	@FunctionalInterface
+	interface FloatSetter<T>{
+		void set(T t, float v) throws Exception;
+	}
+	@FunctionalInterface
+	interface BooleanSetter<T>{
+		void set(T t, boolean v) throws Exception;
+	}
+	@FunctionalInterface
+	interface ObjectSetter<T>{
+		void set(T t, Object v) throws Exception;
+	}
+	/** CSV１列 → 型の変換 */
+	@FunctionalInterface
+	interface Parser{
+		Object parse(CSVCursor cursor, int index) throws Exception;
+	}
+
+	static <T> IntSetter<T> intSetter(Method m){
+		IntSetter<T> s = generate(IntSetter.class, m);
+		if (s==null) return (t, v)->invoke(m, t, v);
+		return (t, v)->{
+			try{
+				s.set(t, v);
+			}catch(Throwable e){
+			}
+		};
+	}
+	static <T> LongSetter<T> longSetter(Method m){
+		LongSetter<T> s = generate(LongSetter.class, m);
+		if (s==null) return (t, v)->invoke(m, t, v);
+		return (t, v)->{
+			try{
+				s.set(t, v);
+			}catch(Throwable e){
+			}
+		};
+	}
+	static <T> DoubleSetter<T> doubleSetter(Method m){
+		DoubleSetter<T> s = generate(DoubleSetter.class, m);
+		if (s==null) return (t, v)->invoke(m, t, v);
+		return (t, v)->{
+			try{
+				s.set(t, v);
+			}catch(Throwable e){
+			}
+		};
+	}
+	static <T> ShortSetter<T> shortSetter(Method m){
+		ShortSetter<T> s = generate(ShortSetter.class, m);
+		if (s==null) return (t, v)->invoke(m, t, v);
+		return (t, v)->{
+			try{
+				s.set(t, v);
+			}catch(Throwable e){
+			}
+		};
+	}
+	static <T> FloatSetter<T> floatSetter(Method m){
+		FloatSetter<T> s = generate(FloatSetter.class, m);
+		if (s==null) return (t, v)->invoke(m, t, v);
+		return (t, v)->{
+			try{
+				s.set(t, v);
+			}catch(Throwable e){
+			}
+		};
+	}
+	static <T> BooleanSetter<T> booleanSetter(Method m){
+		BooleanSetter<T> s = generate(BooleanSetter.class, m);
+		if (s==null) return (t, v)->invoke(m, t, v);
+		return (t, v)->{
+			try{
+				s.set(t, v);
+			}catch(Throwable e){
+			}
+		};
+	}
+	static <T> ObjectSetter<T> objectSetter(Method m){
+		ObjectSetter<T> s = generate(ObjectSetter.class, m);
+		if (s==null) return (t, v)->invoke(m, t, v);
+		return (t, v)->{
+			try{
+				s.set(t, v);
+			}catch(Throwable e){
+			}
+		};
+	}
+
+	/**
+	 * 型の static valueOf(String) による変換.
+	 * <PRE>
+	 * Integer, Long, Double, Short, Float は、valueOf(String) と同じ結果を、文字列を生成せずに CSVCursor から解析する。
+	 * enum は、名前 → 定数の HashMap で変換する。
+	 * valueOf(String) が無く、public な String 引数のコンストラクタがある型は、コンストラクタで生成する。
+	 * valueOf とコンストラクタは、列ごとに１度だけ MethodHandle にして、読込む値ごとにリフレクションで探さない。
+	 * 変換で発生した例外は、InvocationTargetException で送出する。
+	 * </PRE>
+	 * @param type 型
+	 * @return Parser、valueOf もコンストラクタも無い場合は、NoSuchMethodException を送出する Parser
+	 */
+	static Parser valueOf(Class<?> type){
+		if (type.equals(Integer.class)) return CSVCursor::getInt;
+		if (type.equals(Long.class)) return CSVCursor::getLong;
+		if (type.equals(Double.class)) return CSVCursor::getDouble;
+		if (type.equals(Short.class)) return CSVCursor::getShort;
+		if (type.equals(Float.class)) return CSVCursor::getFloat;
+		if (type.equals(Byte.class)) return (cursor, index)->Byte.valueOf(cursor.getString(index));
+		if (type.isEnum()) return enumOf(type);
+		Method getter = null;
+		try{
+			getter = type.getDeclaredMethod("valueOf", String.class);
+		}catch(NoSuchMethodException e){
+			try{
+				Constructor<?> c = type.getConstructor(String.class);
+				if (!Modifier.isAbstract(type.getModifiers())){
+					MethodHandle handle = MethodHandles.lookup().unreflectConstructor(c);
+					return handle(handle.asType(MethodType.methodType(Object.class, String.class)));
+				}
+			}catch(NoSuchMethodException | IllegalAccessException ex){
+			}
+			return (cursor, index)->{
+				throw e;
+			};
+		}
+		if (Modifier.isStatic(getter.getModifiers())){
+			try{
+				MethodHandle handle = MethodHandles.lookup().unreflect(getter);
+				return handle(handle.asType(MethodType.methodType(Object.class, String.class)));
+			}catch(IllegalAccessException e){
+			}
+		}
+		Method m = getter;
+		return (cursor, index)->m.invoke(null, cursor.getString(index));
+	}
+	/** enum の名前 → 定数 */
+	private static Parser enumOf(Class<?> type){
+		Map<String, Object> constants = new HashMap<>();
+		for(Object e : type.getEnumConstants()){
+			constants.put(((Enum<?>)e).name(), e);
+		}
+		return (cursor, index)->{
+			String str = cursor.getString(index);
+			Object v = constants.get(str);
+			if (v==null){
+				throw new InvocationTargetException(new IllegalArgumentException("No enum constant " + type.getCanonicalName() + "." + str));
+			}
+			return v;
+		};
+	}
+	/** (String)Object の MethodHandle の実行 */
+	private static Parser handle(MethodHandle handle){
+		return (cursor, index)->{
+			String str = cursor.getString(index);
+			try{
+				return (Object)handle.invokeExact(str);
+			}catch(Error e){
+				throw e;
+			}catch(Throwable e){
+				throw new InvocationTargetException(e);
+			}
+		};
+	}
+
+	/**
+	 * {@link CsvBean} で生成された CsvMapper.
+	 * @param cls Bean のクラス
+	 * @return CsvMapper、生成されていない場合は null
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> CsvMapper<T> mapper(Class<T> cls){
+		try{
+			Class<?> c = Class.forName(cls.getName() + "$CsvMapper", true, cls.getClassLoader());
+			if (!CsvMapper.class.isAssignableFrom(c)) return null;
+			return (CsvMapper<T>)c.newInstance();
+		}catch(ClassNotFoundException | LinkageError | InstantiationException | IllegalAccessException e){
+			return null;
+		}
+	}
+	/**
+	 * 引数なしコンストラクタ.
+	 * @param cls Bean のクラス
+	 * @return Factory
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Factory<T> constructor(Class<T> cls){
+		try{
+			Constructor<T> c = cls.getDeclaredConstructor();
+			if (visible(cls)){
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				MethodHandle target = lookup.unreflectConstructor(c);
+				return (Factory<T>)LambdaMetafactory.metafactory(lookup, "create", MethodType.methodType(Factory.class)
+					, MethodType.methodType(Object.class), target, MethodType.methodType(cls))
+					.getTarget().invoke();
+			}
+		}catch(Throwable e){
+		}
+		return cls::newInstance;
+	}
+
+	/**
+	 * setter の関数インターフェースを生成する.
+	 * @return 生成できない場合は null
+	 */
+	@SuppressWarnings("unchecked")
+	private static <F> F generate(Class<?> type, Method m){
+		if (Modifier.isStatic(m.getModifiers()) || !visible(m.getDeclaringClass()) || !visible(m.getParameterTypes()[0])) return null;
+		try{
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle target = lookup.unreflect(m);
+			MethodType instantiated = target.type().changeReturnType(void.class);
+			// 関数インターフェースの引数の型に合わない setter（ObjectSetter にプリミティブ型の setter 等）は生成しない
+			MethodType sam = MethodType.methodType(void.class, type.getMethod("set", Object.class, m.getParameterTypes()[0].isPrimitive()
+				? m.getParameterTypes()[0] : Object.class).getParameterTypes());
+			if (!instantiated.erase().equals(sam)) return null;
+			return (F)LambdaMetafactory.metafactory(lookup, "set", MethodType.methodType(type)
+				, sam, target, instantiated)
+				.getTarget().invoke();
+		}catch(Throwable e){
+			return null;
+		}
+	}
+	/** 生成クラスから参照できるクラスであるか */
+	private static boolean visible(Class<?> c){
+		if (c.isPrimitive()) return true;
+		try{
+			return Class.forName(c.getName(), false, CsvSetters.class.getClassLoader())==c;
+		}catch(ClassNotFoundException e){
+			return false;
+		}
+	}
+	private static void invoke(Method m, Object t, Object v) throws IllegalAccessException{
+		try{
+			m.invoke(t, v);
+		}catch(InvocationTargetException e){
+		}
+	}
+}
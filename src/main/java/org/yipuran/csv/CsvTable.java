@@ -0,0 +1,297 @@
+package org.yipuran.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 列ごとの配列に読込んだCSV.
+ * <PRE>
+ * {@link CsvTableLoader} で読込む。行の List や Bean を持たずに、列の型ごとの配列に値を持つ。
+ *   INT     : int[]
+ *   LONG    : long[]
+ *   DOUBLE  : double[]
+ *   BOOLEAN : BitSet
+ *   STRING  : 辞書（異なる値の String）と、行ごとの辞書の番号 int[]
+ * 空の値は null で、INT, LONG, DOUBLE, BOOLEAN の null の行は BitSet に記録する。
+ * null の値を getInt などで取得すると 0 または false になるので、isNull で判定すること。
+ *
+ * CsvTableLoader loader = new CsvTableLoader();
+ * CsvTable table = loader.read(path, StandardCharsets.UTF_8);
+ * int price = table.indexOf("PRICE");
+ * long total = 0;
+ * for(int row=0; row &lt; table.size(); row++){
+ *    if (!table.isNull(row, price)) total += table.getLong(row, price);
+ * }
+ *
+ * getInts などで、列の配列をそのまま参照できる。配列は表のものなので変更しないこと。
+ * 変更されないので、スレッド間で共有できる。
+ *
+ * CsvTableLoader の setStorage で DIRECT か MAPPED を指定すると、INT, LONG, DOUBLE の値と
+ * STRING の辞書の番号を、ヒープの外の ByteBuffer に持つ。大きなCSVを読込んでも GC の対象にならない。
+ * 値は getInt などで参照する、getInts などの配列は無い。BOOLEAN と null の BitSet、STRING の辞書はヒープに持つ。
+ * 使い終わったら close すること。close 後は値を参照できない。
+ * try(CsvTable table = loader.read(path, StandardCharsets.UTF_8)){
+ *    ...
+ * }
+ * </PRE>
+ * @since 1.3
+ */
+public final class CsvTable implements Closeable{
+	/** 列の型 */
+	public enum Type{
+		/** int */
+		INT,
+		/** long */
+		LONG,
+		/** double */
+		DOUBLE,
+		/** boolean、"true" または "false"（大文字小文字を区別しない） */
+		BOOLEAN,
+		/** 辞書で符号化した String */
+		STRING,
+	}
+
+	/** 列の値を持つメモリ */
+	public enum Storage{
+		/** ヒープの配列 */
+		HEAP,
+		/** direct の ByteBuffer */
+		DIRECT,
+		/** 一時ファイルをマップした ByteBuffer */
+		MAPPED,
+	}
+
+	private final List<String> names;
+	private final CsvColumn[] columns;
+	private final int size;
+	private final CsvPages.Memory memory;
+	private volatile boolean closed;
+
+	/**
+	 * コンストラクタ.
+	 * @param names ヘッダ行の列名、ヘッダ無しは空
+	 * @param columns 列、行数に切り詰めてあること
+	 * @param size 行数
+	 * @param memory ヒープの外の列のメモリ、ヒープの場合は null
+	 */
+	CsvTable(List<String> names, CsvColumn[] columns, int size, CsvPages.Memory memory){
+		this.names = Collections.unmodifiableList(names);
+		this.columns = columns;
+		this.size = size;
+		this.memory = memory;
+	}
+
+	/**
+	 * 行数.
+	 * @return 行数、ヘッダ行を含まない
+	 */
+	public int size(){
+		return size;
+	}
+	/**
+	 * 列数.
+	 * @return 列数、ヘッダ無しは最初の行の列数
+	 */
+	public int getColumnCount(){
+		return columns.length;
+	}
+	/**
+	 * ヘッダ行の列名.
+	 * @return 変更できない List、ヘッダ無しは空
+	 */
+	public List<String> getNames(){
+		return names;
+	}
+	/**
+	 * 列名の列番号.
+	 * @param name 列名
+	 * @return 同じ列名の最後の列番号、列名が無い場合は -1
+	 */
+	public int indexOf(String name){
+		return names.lastIndexOf(name);
+	}
+	/**
+	 * 列の型.
+	 * @param column 列番号
+	 * @return 型
+	 */
+	public Type getType(int column){
+		return columns[column].type;
+	}
+
+	/**
+	 * 値が null か判定.
+	 * @param row 行番号（０始まり）
+	 * @param column 列番号
+	 * @return true=null
+	 */
+	public boolean isNull(int row, int column){
+		checkRow(row);
+		return columns[column].isNull(row);
+	}
+	/**
+	 * int の値.
+	 * @param row 行番号（０始まり）
+	 * @param column 列番号
+	 * @return 値、null の場合は 0
+	 * @throws IllegalStateException 列の型が INT でない
+	 */
+	public int getInt(int row, int column){
+		checkRow(row);
+		return columns[column].getInt(row);
+	}
+	/**
+	 * long の値.
+	 * @param row 行番号（０始まり）
+	 * @param column 列番号
+	 * @return 値、null の場合は 0
+	 * @throws IllegalStateException 列の型が INT, LONG でない
+	 */
+	public long getLong(int row, int column){
+		checkRow(row);
+		return columns[column].getLong(row);
+	}
+	/**
+	 * double の値.
+	 * @param row 行番号（０始まり）
+	 * @param column 列番号
+	 * @return 値、null の場合は 0
+	 * @throws IllegalStateException 列の型が INT, LONG, DOUBLE でない
+	 */
+	public double getDouble(int row, int column){
+		checkRow(row);
+		return columns[column].getDouble(row);
+	}
+	/**
+	 * boolean の値.
+	 * @param row 行番号（０始まり）
+	 * @param column 列番号
+	 * @return 値、null の場合は false
+	 * @throws IllegalStateException 列の型が BOOLEAN でない
+	 */
+	public boolean getBoolean(int row, int column){
+		checkRow(row);
+		return columns[column].getBoolean(row);
+	}
+	/**
+	 * 文字列の値.
+	 * <PRE>
+	 * STRING 以外の列は、値の文字列表現（Integer.toString など）を生成する。
+	 * </PRE>
+	 * @param row 行番号（０始まり）
+	 * @param column 列番号
+	 * @return 値、null の場合は null
+	 */
+	public String getString(int row, int column){
+		checkRow(row);
+		return columns[column].getString(row);
+	}
+
+	/**
+	 * INT の列の配列.
+	 * @param column 列番号
+	 * @return 行数の長さの配列、null の行は 0
+	 * @throws IllegalStateException 列の型が INT でない、ヒープの外の列
+	 */
+	public int[] getInts(int column){
+		return ((CsvColumn.IntColumn)array(column, Type.INT)).values;
+	}
+	/**
+	 * LONG の列の配列.
+	 * @param column 列番号
+	 * @return 行数の長さの配列、null の行は 0
+	 * @throws IllegalStateException 列の型が LONG でない、ヒープの外の列
+	 */
+	public long[] getLongs(int column){
+		return ((CsvColumn.LongColumn)array(column, Type.LONG)).values;
+	}
+	/**
+	 * DOUBLE の列の配列.
+	 * @param column 列番号
+	 * @return 行数の長さの配列、null の行は 0
+	 * @throws IllegalStateException 列の型が DOUBLE でない、ヒープの外の列
+	 */
+	public double[] getDoubles(int column){
+		return ((CsvColumn.DoubleColumn)array(column, Type.DOUBLE)).values;
+	}
+	/**
+	 * BOOLEAN の列の値.
+	 * @param column 列番号
+	 * @return true の行の BitSet、表のものなので変更しないこと
+	 * @throws IllegalStateException 列の型が BOOLEAN でない
+	 */
+	public BitSet getBooleans(int column){
+		return ((CsvColumn.BooleanColumn)column(column, Type.BOOLEAN)).values;
+	}
+	/**
+	 * STRING の列の辞書の番号.
+	 * @param column 列番号
+	 * @return 行数の長さの配列、値の {@link #getDictionary(int)} の番号、null の行は -1
+	 * @throws IllegalStateException 列の型が STRING でない、ヒープの外の列
+	 */
+	public int[] getCodes(int column){
+		return ((CsvColumn.StringColumn)array(column, Type.STRING)).codes;
+	}
+	/**
+	 * STRING の列の辞書.
+	 * @param column 列番号
+	 * @return 列の異なる値、現れた順の変更できない List
+	 * @throws IllegalStateException 列の型が STRING でない
+	 */
+	public List<String> getDictionary(int column){
+		return column(column, Type.STRING).dictionary();
+	}
+	/**
+	 * 列の null の行.
+	 * @param column 列番号
+	 * @return null の行の新しい BitSet
+	 */
+	public BitSet getNulls(int column){
+		checkOpen();
+		CsvColumn c = columns[column];
+		BitSet nulls = new BitSet(size);
+		for(int row=0; row < size; row++){
+			if (c.isNull(row)) nulls.set(row);
+		}
+		return nulls;
+	}
+
+	/**
+	 * ヒープの外の列のメモリを放す.
+	 * <PRE>
+	 * MAPPED の一時ファイルを削除する。close 後は値を参照できない。
+	 * ヒープの場合は何もしない。
+	 * </PRE>
+	 */
+	@Override
+	public void close() throws IOException{
+		if (memory==null || closed) return;
+		closed = true;
+		for(CsvColumn c : columns){
+			c.release();
+		}
+		memory.close();
+	}
+
+	private CsvColumn column(int column, Type type){
+		CsvColumn c = columns[column];
+		if (c.type != type) throw new IllegalStateException("column " + column + " is " + c.type);
+		return c;
+	}
+	/** 配列の列 */
+	private CsvColumn array(int column, Type type){
+		CsvColumn c = column(column, type);
+		if (c instanceof CsvColumn.PagedColumn) throw new IllegalStateException("column " + column + " is not in heap");
+		return c;
+	}
+	private void checkOpen(){
+		if (closed) throw new IllegalStateException("closed");
+	}
+	private void checkRow(int row){
+		checkOpen();
+		if (row < 0 || row >= size) throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+	}
+}
@@ -0,0 +1,303 @@
+package org.yipuran.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.yipuran.csv.CsvTable.Storage;
+import org.yipuran.csv.CsvTable.Type;
+import org.yipuran.csv4j.CSVCursor;
+import org.yipuran.csv4j.CSVRow;
+import org.yipuran.csv4j.CSVStreamProcessor;
+import org.yipuran.csv4j.ProcessingException;
+
+/**
+ * CSVを列ごとの配列の {@link CsvTable} に読込む.
+ * <PRE>
+ * 行の List や Bean を生成せずに、数値は文字列にしないで列の配列に読込む。
+ * 文字列の列は、異なる値だけを String にして、行は辞書の番号で持つ。
+ *
+ * 列の型は setType で指定する。指定しない列は、最初の setSampleSize の行数（デフォルト 1000 行）の値から決める。
+ *   全ての値が int → INT、long → LONG、double → DOUBLE、"true" か "false" → BOOLEAN、
+ *   その他の値がある列と値が無い列 → STRING
+ * 値から決めた数値の列は、後の行に型に合わない数値があると、LONG、DOUBLE に広げる。
+ * setType で指定した型に合わない値と、広げられない値は ProcessingException になる。
+ * 列数は、ヘッダ行の列数、ヘッダ無しは型を決める行の最大の列数で、それを超える列は読まない。
+ * 行に無い列は null になる。
+ * setFilter で列の値の条件を指定すると、条件を満たす行だけを読込む。
+ * setStorage で DIRECT か MAPPED を指定すると、列の値をヒープの外に持つ、{@link CsvTable} を参照。
+ *
+ * CsvTableLoader loader = new CsvTableLoader();
+ * loader.setType("CODE", CsvTable.Type.STRING);
+ * CsvTable table = loader.read(path, StandardCharsets.UTF_8);
+ * </PRE>
+ * @since 1.3
+ */
+public class CsvTableLoader extends CSVStreamProcessor{
+	/** 型を決める行数のデフォルト */
+	public static final int DEFAULT_SAMPLE_SIZE = 1000;
+	private boolean blankIsNull = false;
+	private int sampleSize = DEFAULT_SAMPLE_SIZE;
+	private Storage storage = Storage.HEAP;
+	private Path tempDirectory;
+	private final Map<Integer, Type> types = new HashMap<>();
+	private final Map<String, Type> namedTypes = new HashMap<>();
+
+	/**
+	 * デフォルトコンストラクタ.
+	 * STRING の列のブランク、",," は、null にしないで、空文字として読み込む。
+	 */
+	public CsvTableLoader(){}
+	/**
+	 * ブランク→null指定コンストラクタ.
+	 * @param blankIsNull true=STRING の列のブランク、",," は、null として読み込む。
+	 */
+	public CsvTableLoader(boolean blankIsNull){
+		this.blankIsNull = blankIsNull;
+	}
+
+	/**
+	 * 列の型の指定（列番号）.
+	 * @param column 列番号（０始まり）
+	 * @param type 型、null は値から決める
+	 */
+	public void setType(int column, Type type){
+		if (type==null) types.remove(column);
+		else types.put(column, type);
+	}
+	/**
+	 * 列の型の指定（ヘッダ行の列名）.
+	 * <PRE>
+	 * 同じ列名が複数ある場合は、最後の列の型になる。ヘッダ行に無い列名は無視する。
+	 * 列番号と列名の両方で指定した列は、列名の指定の型になる。
+	 * </PRE>
+	 * @param name 列名
+	 * @param type 型、null は値から決める
+	 */
+	public void setType(String name, Type type){
+		if (type==null) namedTypes.remove(name);
+		else namedTypes.put(name, type);
+	}
+	/**
+	 * 型を決める行数の指定.
+	 * @param sampleSize 行数
+	 * @throws IllegalArgumentException 行数が１未満
+	 */
+	public void setSampleSize(int sampleSize){
+		if (sampleSize < 1) throw new IllegalArgumentException("sampleSize < 1 : " + sampleSize);
+		this.sampleSize = sampleSize;
+	}
+	/**
+	 * 型を決める行数.
+	 * @return 行数
+	 */
+	public int getSampleSize(){
+		return sampleSize;
+	}
+
+	/**
+	 * 列の値を持つメモリの指定.
+	 * <PRE>
+	 * DIRECT は direct の ByteBuffer、MAPPED は一時ファイルをマップした ByteBuffer に、
+	 * INT, LONG, DOUBLE の値と STRING の辞書の番号を持つ。
+	 * DIRECT は JVM の -XX:MaxDirectMemorySize の範囲、MAPPED はディスクの範囲で読込める。
+	 * どちらも読込んだ CsvTable は、使い終わったら close すること。
+	 * </PRE>
+	 * @param storage メモリ、デフォルトは HEAP
+	 */
+	public void setStorage(Storage storage){
+		this.storage = storage==null ? Storage.HEAP : storage;
+	}
+	/**
+	 * 列の値を持つメモリ.
+	 * @return メモリ
+	 */
+	public Storage getStorage(){
+		return storage;
+	}
+	/**
+	 * MAPPED の一時ファイルのディレクトリの指定.
+	 * @param directory ディレクトリ、null はシステムの一時ディレクトリ
+	 */
+	public void setTempDirectory(Path directory){
+		this.tempDirectory = directory;
+	}
+
+	/**
+	 * ＣＳＶ読込み実行.
+	 * @param inReader InputStreamReader
+	 * @return CsvTable
+	 * @throws IOException
+	 * @throws ProcessingException 読込みのエラー、型に合わない値
+	 * @throws IllegalStateException ヘッダ無しで列名の型を指定している
+	 */
+	public CsvTable read(InputStreamReader inReader) throws IOException, ProcessingException{
+		return read(CSVCursor.of(inReader, Charset.forName(inReader.getEncoding()), getComment(), blankIsNull));
+	}
+	/**
+	 * ＣＳＶ読込み実行.
+	 * <PRE>
+	 * 文字セットが UTF-8、Shift_JIS、MS932 または ASCII 互換の１バイト文字セットの場合、
+	 * 数値の列はバイト列のまま読む。
+	 * </PRE>
+	 * @param in InputStream
+	 * @param charset 文字コード
+	 * @return CsvTable
+	 * @throws IOException
+	 * @throws ProcessingException 読込みのエラー、型に合わない値
+	 * @throws IllegalStateException ヘッダ無しで列名の型を指定している
+	 */
+	public CsvTable read(InputStream in, Charset charset) throws IOException, ProcessingException{
+		return read(CSVCursor.of(in, charset, getComment(), blankIsNull));
+	}
+	/**
+	 * ＣＳＶファイル読込み実行.
+	 * <PRE>
+	 * ファイルはメモリにマップして読む。
+	 * </PRE>
+	 * @param path CSVファイル
+	 * @param charset 文字コード
+	 * @return CsvTable
+	 * @throws IOException
+	 * @throws ProcessingException 読込みのエラー、型に合わない値
+	 * @throws IllegalStateException ヘッダ無しで列名の型を指定している
+	 */
+	public CsvTable read(Path path, Charset charset) throws IOException, ProcessingException{
+		return read(CSVCursor.of(path, charset, ',', getComment(), blankIsNull));
+	}
+
+	private CsvTable read(CSVCursor cursor) throws IOException, ProcessingException{
+		CsvPages.Memory memory = null;
+		boolean done = false;
+		try{
+			if (!isHasHeader() && !namedTypes.isEmpty()) throw new IllegalStateException("type by name requires a header line");
+			List<String> names = Collections.emptyList();
+			int width = 0;
+			if (!isHasHeader()) applyFilter(cursor, null);
+			// 型を決める行
+			List<CSVRow> sample = new ArrayList<>();
+			List<Integer> sampleLines = new ArrayList<>();
+			boolean more = true;
+			try{
+				if (isHasHeader()){
+					more = cursor.next() && cursor.fieldCount() > 0;
+					if (more){
+						names = BOMfunction.chop(cursor.toList());
+						applyFilter(cursor, names);
+						width = names.size();
+					}
+				}
+				while(more && sample.size() < sampleSize){
+					more = cursor.next() && cursor.fieldCount() > 0;
+					if (!more) break;
+					// ヘッダ無しは、BOM が１行目の先頭の列にある
+					CSVRow row = isHasHeader() || !sample.isEmpty() ? cursor.toRow() : CSVRow.of(BOMfunction.chop(cursor.toList()));
+					sample.add(row);
+					sampleLines.add(cursor.getLineNumber());
+					if (!isHasHeader()) width = Math.max(width, row.size());
+				}
+			}catch(Exception e){
+				throw new ProcessingException(e, cursor.getLineNumber());
+			}
+			memory = storage==Storage.DIRECT ? CsvPages.Memory.direct()
+				: storage==Storage.MAPPED ? CsvPages.Memory.mapped(tempDirectory) : null;
+			CsvColumn[] columns = new CsvColumn[width];
+			boolean[] fixed = new boolean[width];
+			for(int i=0; i < width; i++){
+				Type type = type(i, names);
+				fixed[i] = type != null;
+				columns[i] = CsvColumn.of(fixed[i] ? type : infer(sample, i), memory);
+			}
+			int size = 0;
+			for(CSVRow row : sample){
+				try{
+					for(int i=0; i < width; i++){
+						columns[i].add(i < row.size() ? row.get(i) : null);
+					}
+				}catch(Exception e){
+					throw new ProcessingException(e, sampleLines.get(size));
+				}
+				size++;
+			}
+			sample = null;
+			while(more){
+				try{
+					if (!cursor.next() || cursor.fieldCount()==0) break;
+					for(int i=0; i < width; i++){
+						try{
+							columns[i].add(cursor, i);
+						}catch(NumberFormatException e){
+							CsvColumn c = fixed[i] ? null : columns[i].widen(cursor.getString(i));
+							if (c==null) throw e;
+							columns[i] = c;
+							c.add(cursor, i);
+						}
+					}
+				}catch(Exception e){
+					throw new ProcessingException(e, cursor.getLineNumber());
+				}
+				size++;
+			}
+			for(CsvColumn c : columns){
+				c.trim();
+			}
+			done = true;
+			return new CsvTable(names, columns, size, memory);
+		}finally{
+			try{
+				if (!done && memory != null) memory.close();
+			}finally{
+				cursor.close();
+			}
+		}
+	}
+
+	/** 指定された列の型、指定が無い場合は null */
+	private Type type(int column, List<String> names){
+		for(Map.Entry<String, Type> e : namedTypes.entrySet()){
+			if (names.lastIndexOf(e.getKey())==column) return e.getValue();
+		}
+		return types.get(column);
+	}
+	/** 列の値から型を決める */
+	private static Type infer(List<CSVRow> sample, int column){
+		boolean ints = true;
+		boolean longs = true;
+		boolean doubles = true;
+		boolean booleans = true;
+		int count = 0;
+		for(CSVRow row : sample){
+			if (column >= row.size() || row.length(column)==0) continue;
+			count++;
+			if (longs){
+				try{
+					long v = row.getLong(column);
+					ints = ints && v==(int)v;
+				}catch(NumberFormatException e){
+					ints = false;
+					longs = false;
+				}
+			}
+			if (!longs && doubles){
+				try{
+					row.getDouble(column);
+				}catch(NumberFormatException e){
+					doubles = false;
+				}
+			}
+			if (booleans) booleans = CsvColumn.BooleanColumn.isBoolean(row.get(column));
+		}
+		if (count==0) return Type.STRING;
+		if (ints) return Type.INT;
+		if (longs) return Type.LONG;
+		if (doubles) return Type.DOUBLE;
+		return booleans ? Type.BOOLEAN : Type.STRING;
+	}
+}
@@ -29,11 +29,9 @@ public final class CsvUtil{
 	public static String csvline(List<String> list){
 		StringBuilder sb = new StringBuilder();
 		for(Iterator<String> it=list.iterator();it.hasNext();){
-			sb.append("\"");
-			sb.append(it.next().replaceAll("\"","\"\""));
-			sb.append("\"");
+			quote(sb, it.next());
 			if (it.hasNext()){
-				sb.append(",");
+				sb.append(',');
 			}
 		}
 		return sb.toString();
@@ -46,15 +44,50 @@ public final class CsvUtil{
 	public static String csvline(String...s){
 		StringBuilder sb = new StringBuilder();
 		for(int i=0;i < s.length;i++){
-			sb.append("\"");
-			sb.append(s[i].replaceAll("\"","\"\""));
-			sb.append("\"");
+			quote(sb, s[i]);
 			if ((i+1) < s.length){
-				sb.append(",");
+				sb.append(',');
 			}
 		}
 		return sb.toString();
 	}
+	/**
+	 * ダブルクォートで括った列を追加する.
+	 * <pre>
+	 * 列の中のダブルクォートは "" にする。正規表現を使わずに indexOf で探す。
+	 * </pre>
+	 * @param sb 追加する StringBuilder
+	 * @param s 列の文字列
+	 * @since 1.3
+	 */
+	static void quote(StringBuilder sb, String s){
+		sb.append('"');
+		int start = 0;
+		for(int i=s.indexOf('"'); i >= 0; i=s.indexOf('"', start)){
+			sb.append(s, start, i + 1).append('"');
+			start = i + 1;
+		}
+		sb.append(s, start, s.length()).append('"');
+	}
+	/**
+	 * csvline メソッドが上書きされているか.
+	 * <pre>
+	 * 上書きされていない csvline は、CSVWriter のダブルクォート括り出力と同じ結果になるので、
+	 * ダブルクォート括りＣＳＶ出力は、上書きされた場合だけ csvline で１行を作成する。
+	 * </pre>
+	 * @param o 出力するインスタンス
+	 * @param type csvline を宣言しているインタフェース
+	 * @param parameterType csvline の引数の型
+	 * @return true=上書きされている
+	 * @since 1.3
+	 */
+	static boolean isCsvlineOverridden(Object o, Class<?> type, Class<?> parameterType){
+		try{
+			return o.getClass().getMethod("csvline", parameterType).getDeclaringClass() != type;
+		}catch(NoSuchMethodException e){
+			return true;
+		}
+	}
 
 	/**
 	 * 文字列split（列の縮小を回避）.
@@ -1,18 +1,30 @@
 package org.yipuran.csv;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.yipuran.csv4j.CSVReader;
+import org.yipuran.csv.CsvRowMap.Header;
+import org.yipuran.csv4j.CSVCursor;
+import org.yipuran.csv4j.CSVFileChunks;
+import org.yipuran.csv4j.CSVFileSpliterator;
+import org.yipuran.csv4j.CSVRow;
 import org.yipuran.csv4j.CSVStreamProcessor;
 import org.yipuran.csv4j.ParseException;
 import org.yipuran.csv4j.ProcessingException;
@@ -21,6 +33,8 @@ import org.yipuran.csv4j.ProcessingException;
  * CSV読込みProcessor.
  * ヘッダ有り読込みとヘッダ無し読込みを提供する。
  * InputStreamReader か、InputStream と文字セットを指定して読込みを実行する。
+ * InputStream 指定で文字セットが UTF-8、Shift_JIS、MS932 または ASCII 互換の１バイト文字セットの場合、
+ * バイト列のままCSVを分割して、列の値だけを文字列にデコードする。
  * <PRE>
  * ヘッダ有り読込み、(for Windows SJIS CSV)
  * Csvprocess process = new Csvprocess();
@@ -68,10 +82,24 @@ import org.yipuran.csv4j.ProcessingException;
  *     String value =  p.get(0);
  * });
  *
+ * 行のフィルタ、国コードの列が "JP" の行だけを読込む.
+ * Csvprocess process = new Csvprocess();
+ * process.setFilter("COUNTRY", s-&gt;s != null &amp;&amp; "JP".contentEquals(s));
+ * 条件を満たさない行は、残りの列の終わりを探すだけで文字列を生成しない。ヘッダ行はフィルタしない。
+ * ヘッダ行に無い列名のフィルタは、ヘッダ行の読込みで IllegalArgumentException を原因とする ProcessingException になる。
+ * CSV行読込みカウントと行index は、除いた行を数えない。
+ * ファイルを範囲ごとに読込む readParallel、readNoheaderParallel、stream(Path, Charset) は、
+ * フィルタを指定していると IllegalStateException になる。
+ *
+ * 大量の行をメモリに保持する場合は、setCompactRows(true) で、コンテンツ行の List を
+ * １つの char 配列に全ての列を持つ CSVRow にする。CSVRow は変更できない List である。
+ * 区分やコードのように値の種類が少ない列は、setInterning(列番号...) で、同じ値の行が同じ String を参照する。
  * </PRE>
  */
 public class Csvprocess extends CSVStreamProcessor{
 	private boolean blankIsNull = false;
+	private int[] projection;
+	private String[] projectionNames;
 	/**
 	 * デフォルトコンストラクタ.
 	 * ブランク、",," は、null にしないで、空文字として読み込む。
@@ -87,6 +115,36 @@ public class Csvprocess extends CSVStreamProcessor{
 		this.blankIsNull = blankIsNull;
 	}
 
+	/**
+	 * 読込む列の指定（列番号）.
+	 * <PRE>
+	 * 各行を、指定した列の値を指定の順に並べた固定長の List で読込む。ヘッダ行も同じである。
+	 * 指定外の列は、列の終わりを探すだけで文字列を生成しない。
+	 * 行に無い列の値は null になる。
+	 * Map形式読込みは、指定した列のキーだけの Map になる。
+	 * </PRE>
+	 * @param columns 列番号（０始まり）、null は全ての列
+	 * @since 1.3
+	 */
+	public void setProjection(int...columns){
+		projection = columns;
+		projectionNames = null;
+	}
+	/**
+	 * 読込む列の指定（ヘッダ列名）.
+	 * <PRE>
+	 * ヘッダ行で列名を列番号にして、{@link #setProjection(int...)} と同じく読込む。
+	 * 同じ列名が複数ある場合は最後の列、ヘッダに無い列名は値が null の列になる。
+	 * ヘッダ有り読込みでのみ使用できる。ヘッダ無しの読込みは IllegalStateException になる。
+	 * </PRE>
+	 * @param names ヘッダ列名、null は全ての列
+	 * @since 1.3
+	 */
+	public void setProjection(String...names){
+		projection = null;
+		projectionNames = names;
+	}
+
 	/**
 	 * ヘッダ有りＣＳＶ読込み実行.
 	 * @param inReader InputStreamReader
@@ -97,30 +155,35 @@ public class Csvprocess extends CSVStreamProcessor{
 	 */
 	public void read(InputStreamReader inReader, Consumer<List<String>> header, BiConsumer<Integer, List<String>> processor)
 	throws IOException, ProcessingException{
-		CSVReader reader = new CSVReader(new BufferedReader(inReader), Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
+		read(CSVCursor.of(inReader, Charset.forName(inReader.getEncoding()), getComment(), blankIsNull), header, processor);
+	}
+	private void read(CSVCursor cursor, Consumer<List<String>> header, BiConsumer<Integer, List<String>> processor)
+	throws IOException, ProcessingException{
 		try{
+			int[] columns = isHasHeader() ? null : projection(null);
+			cursor.setProjection(columns);
+			applyInterning(cursor);
+			if (!isHasHeader()) applyFilter(cursor, null);
 			int lineCount = 0;
 			while(true){
 				try{
-					List<String> fields = reader.readLine();
-					if (fields.size()==0) break;
+					if (!cursor.next() || cursor.fieldCount()==0) break;
 					if (isHasHeader() && lineCount==0){
-						String rep = fields.get(0);
-						if (BOMfunction.match(rep)) {
-							fields.remove(0);
-							fields.add(0, BOMfunction.chop(rep));
-						}
-						header.accept(fields);
+						List<String> fields = BOMfunction.chop(cursor.toList());
+						columns = projection(fields);
+						cursor.setProjection(columns);
+						applyFilter(cursor, fields);
+						header.accept(select(fields, columns));
 					}else{
-						processor.accept(lineCount, fields);
+						processor.accept(lineCount, toList(cursor, columns));
 					}
 				}catch(Exception e){
-					throw new ProcessingException(e, reader.getLineNumber());
+					throw new ProcessingException(e, cursor.getLineNumber());
 				}
 				lineCount++;
 			}
 		}finally{
-			reader.close();
+			cursor.close();
 		}
 	}
 	/**
@@ -132,28 +195,33 @@ public class Csvprocess extends CSVStreamProcessor{
 	 * @throws ParseException
 	 */
 	public void readNoheader(InputStreamReader inReader, BiConsumer<Integer, List<String>> processor) throws IOException, ProcessingException, ParseException{
-		CSVReader reader = new CSVReader(new BufferedReader(inReader), Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
+		readNoheader(CSVCursor.of(inReader, Charset.forName(inReader.getEncoding()), getComment(), blankIsNull), processor);
+	}
+	private void readNoheader(CSVCursor cursor, BiConsumer<Integer, List<String>> processor) throws IOException, ProcessingException{
 		try{
+			int[] columns = projection(null);
+			applyInterning(cursor);
+			applyFilter(cursor, null);
 			int lineIndex = 0;
 			while(true){
 				try{
-					List<String> fields = reader.readLine();
-					if (fields.size()==0) break;
+					if (!cursor.next() || cursor.fieldCount()==0) break;
+					List<String> fields;
 					if (lineIndex==0){
-						String rep = fields.get(0);
-						if (BOMfunction.match(rep)) {
-							fields.remove(0);
-							fields.add(0, BOMfunction.chop(rep));
-						}
+						// BOM は先頭の列なので、１行目は全ての列を読込む
+						fields = row(select(BOMfunction.chop(cursor.toList()), columns));
+						cursor.setProjection(columns);
+					}else{
+						fields = toList(cursor, columns);
 					}
 					processor.accept(lineIndex, fields);
 				}catch(Exception e){
-					throw new ProcessingException(e, reader.getLineNumber());
+					throw new ProcessingException(e, cursor.getLineNumber());
 				}
 				lineIndex++;
 			}
 		}finally{
-			reader.close();
+			cursor.close();
 		}
 	}
 
@@ -161,6 +229,7 @@ public class Csvprocess extends CSVStreamProcessor{
 	 * ヘッダ有りＣＳＶ読込み実行（Map形式読込み）.
 	 * <PRE>
 	 * ヘッダ行列をキーとして読込み結果をMapで実行
+	 * Map は、全ての行で共有するヘッダ行の表と行の値を参照する、変更できない Map である。
 	 * </PRE>
 	 * @param inReader InputStreamReader
 	 * @param processor コンテンツ行BiConsumer、CSV行読込みカウント（１始まり）とヘッダのキーに対するコンテンツ行の値のMap
@@ -168,38 +237,42 @@ public class Csvprocess extends CSVStreamProcessor{
 	 * @throws ProcessingException
 	 */
 	public void read(InputStreamReader inReader, BiConsumer<Integer, Map<String, String>> processor) throws IOException, ProcessingException{
-		CSVReader reader = new CSVReader(new BufferedReader(inReader), Charset.forName(inReader.getEncoding()), getComment(), blankIsNull);
+		read(CSVCursor.of(inReader, Charset.forName(inReader.getEncoding()), getComment(), blankIsNull), processor);
+	}
+	private void read(CSVCursor cursor, BiConsumer<Integer, Map<String, String>> processor) throws IOException, ProcessingException{
 		try{
-			Map<Integer, String> headerMap = new HashMap<>();
+			// ヘッダ無しは、全ての列のキーが null
+			Header header = new Header(Collections.emptyList());
+			int[] columns = isHasHeader() ? null : projection(null);
+			cursor.setProjection(columns);
+			applyInterning(cursor);
+			if (!isHasHeader()) applyFilter(cursor, null);
 			int lineCount = 0;
 			while(true){
 				try{
-					List<String> fields = reader.readLine();
-					if (fields.size()==0) break;
+					if (!cursor.next() || cursor.fieldCount()==0) break;
 					if (isHasHeader() && lineCount==0){
-						String rep = fields.get(0);
-						if (BOMfunction.match(rep)) {
-							fields.remove(0);
-							fields.add(0, BOMfunction.chop(rep));
-						}
-						int i = 0;
-						for(String key:fields){
-							headerMap.put(i, key);
-							i++;
-						}
+						List<String> fields = BOMfunction.chop(cursor.toList());
+						columns = projection(fields);
+						cursor.setProjection(columns);
+						applyFilter(cursor, fields);
+						header = new Header(projectionNames != null ? Arrays.asList(projectionNames) : select(fields, columns));
+					}else if(columns != null){
+						processor.accept(lineCount, new CsvRowMap(header, cursor.toList(columns).toArray(new String[columns.length])));
 					}else{
-						processor.accept(lineCount,
-							Stream.iterate(0, i->i+1).limit(fields.size())
-							.collect(HashMap<String, String>::new, (r, t)->r.put(headerMap.get(t), fields.get(t)), (r, t)->{})
-						);
+						String[] values = new String[cursor.fieldCount()];
+						for(int i=0; i < values.length; i++){
+							values[i] = cursor.getString(i);
+						}
+						processor.accept(lineCount, new CsvRowMap(header, values));
 					}
 				}catch(Exception e){
-					throw new ProcessingException(e, reader.getLineNumber());
+					throw new ProcessingException(e, cursor.getLineNumber());
 				}
 				lineCount++;
 			}
 		}finally{
-			reader.close();
+			cursor.close();
 		}
 	}
 
@@ -214,7 +287,7 @@ public class Csvprocess extends CSVStreamProcessor{
 	 * @since 1.1
 	 */
 	public void read(InputStream in, Charset charset, Consumer<List<String>> header, BiConsumer<Integer, List<String>> processor) throws IOException, ProcessingException {
-		read(new InputStreamReader(in, charset), header, processor);
+		read(CSVCursor.of(in, charset, getComment(), blankIsNull), header, processor);
 	}
 	/**
 	 * ヘッダ無しＣＳＶ読込み実行.
@@ -227,12 +300,13 @@ public class Csvprocess extends CSVStreamProcessor{
 	 * @since 1.1
 	 */
 	public void readNoheader(InputStream in, Charset charset, BiConsumer<Integer, List<String>> processor) throws IOException, ProcessingException {
-		readNoheader(new InputStreamReader(in, charset), processor);
+		readNoheader(CSVCursor.of(in, charset, getComment(), blankIsNull), processor);
 	}
 	/**
 	 * ヘッダ有りＣＳＶ読込み実行（Map形式読込み）.
 	 * <PRE>
 	 * ヘッダ行列をキーとして読込み結果をMapで実行
+	 * Map は、全ての行で共有するヘッダ行の表と行の値を参照する、変更できない Map である。
 	 * </PRE>
 	 * @param in InputStream
 	 * @param charset 文字コード
@@ -242,6 +316,315 @@ public class Csvprocess extends CSVStreamProcessor{
 	 * @since 1.1
 	 */
 	public void read(InputStream in, Charset charset, BiConsumer<Integer, Map<String, String>> processor) throws IOException, ProcessingException {
-		read(new InputStreamReader(in, charset), processor);
+		read(CSVCursor.of(in, charset, getComment(), blankIsNull), processor);
+	}
+
+	/**
+	 * ヘッダ有りＣＳＶ並列読込み実行.
+	 * <PRE>
+	 * ForkJoinPool.commonPool() で並列に解析する。
+	 * </PRE>
+	 * @param path CSVファイル
+	 * @param charset 文字コード
+	 * @param header ヘッダ行 Consumer
+	 * @param processor コンテンツ行BiConsumer、CSV行読込みカウント（１始まり）とCSV文字列のList
+	 * @param ordered true=ファイルの行順に実行、false=解析スレッドから順不同に並行実行
+	 * @throws IOException
+	 * @throws ProcessingException
+	 * @since 1.3
+	 */
+	public void readParallel(Path path, Charset charset, Consumer<List<String>> header, BiConsumer<Integer, List<String>> processor, boolean ordered)
+	throws IOException, ProcessingException{
+		readParallel(path, charset, ForkJoinPool.commonPool(), header, processor, ordered);
+	}
+	/**
+	 * ヘッダ有りＣＳＶ並列読込み実行.
+	 * <PRE>
+	 * ファイルをレコード境界で範囲に分割して、ForkJoinPool で並列に解析する。
+	 * ordered = true の場合、processor は呼び出し側スレッドでファイルの行順に実行される。
+	 * 解析済で未実行の範囲は、並列度の２倍までに制限される。
+	 * ordered = false の場合、processor は解析したスレッドから順不同に並行して実行されるので、スレッドセーフであること。
+	 * どちらの場合も、ヘッダ行と先頭範囲の行は呼び出し側スレッドで最初に実行される。
+	 * 文字セットが UTF-8、Shift_JIS、MS932、ASCII 互換１バイト文字セット以外の場合は、逐次読込みを実行する。
+	 * </PRE>
+	 * @param path CSVファイル
+	 * @param charset 文字コード
+	 * @param pool 解析を実行する ForkJoinPool
+	 * @param header ヘッダ行 Consumer
+	 * @param processor コンテンツ行BiConsumer、CSV行読込みカウント（１始まり）とCSV文字列のList
+	 * @param ordered true=ファイルの行順に実行、false=解析スレッドから順不同に並行実行
+	 * @throws IOException
+	 * @throws ProcessingException
+	 * @since 1.3
+	 */
+	public void readParallel(Path path, Charset charset, ForkJoinPool pool, Consumer<List<String>> header, BiConsumer<Integer, List<String>> processor, boolean ordered)
+	throws IOException, ProcessingException{
+		checkNoFilter();
+		if (!CSVFileChunks.supports(charset, getComment())){
+			read(Files.newInputStream(path), charset, header, processor);
+			return;
+		}
+		int[] columns = projection(path, charset);
+		readParallel(path, charset, pool, ordered, columns, (n, fields)->{
+			if (isHasHeader() && n==0){
+				header.accept(select(BOMfunction.chop(fields), columns));
+			}else{
+				processor.accept(n, n==0 ? row(select(fields, columns)) : fields);
+			}
+		});
+	}
+	/**
+	 * ヘッダ無しＣＳＶ並列読込み実行.
+	 * <PRE>
+	 * ForkJoinPool.commonPool() で並列に解析する。
+	 * </PRE>
+	 * @param path CSVファイル
+	 * @param charset 文字コード
+	 * @param processor BiConsumer 行のindexとCSV文字列のList
+	 * @param ordered true=ファイルの行順に実行、false=解析スレッドから順不同に並行実行
+	 * @throws IOException
+	 * @throws ProcessingException
+	 * @since 1.3
+	 */
+	public void readNoheaderParallel(Path path, Charset charset, BiConsumer<Integer, List<String>> processor, boolean ordered)
+	throws IOException, ProcessingException{
+		readNoheaderParallel(path, charset, ForkJoinPool.commonPool(), processor, ordered);
+	}
+	/**
+	 * ヘッダ無しＣＳＶ並列読込み実行.
+	 * <PRE>
+	 * 並列実行の規則は、{@link #readParallel(Path, Charset, ForkJoinPool, Consumer, BiConsumer, boolean)} と同じ。
+	 * </PRE>
+	 * @param path CSVファイル
+	 * @param charset 文字コード
+	 * @param pool 解析を実行する ForkJoinPool
+	 * @param processor BiConsumer 行のindexとCSV文字列のList
+	 * @param ordered true=ファイルの行順に実行、false=解析スレッドから順不同に並行実行
+	 * @throws IOException
+	 * @throws ProcessingException
+	 * @since 1.3
+	 */
+	public void readNoheaderParallel(Path path, Charset charset, ForkJoinPool pool, BiConsumer<Integer, List<String>> processor, boolean ordered)
+	throws IOException, ProcessingException{
+		checkNoFilter();
+		if (!CSVFileChunks.supports(charset, getComment())){
+			readNoheader(Files.newInputStream(path), charset, processor);
+			return;
+		}
+		int[] columns = projection(null);
+		readParallel(path, charset, pool, ordered, columns, (n, fields)->{
+			processor.accept(n, n==0 ? row(select(BOMfunction.chop(fields), columns)) : fields);
+		});
+	}
+
+	/**
+	 * ＣＳＶファイル行のStream生成.
+	 * <PRE>
+	 * Stream の要素を取り出す時に、CSV行を読込む遅延評価の Stream を返す。
+	 * ヘッダ有りの場合、ヘッダ行は Stream の要素にならない。
+	 * parallel() で並列 Stream にすると、ファイルをレコード境界で分割して解析も並列に実行する。
+	 * Stream を close するとファイルが close されるので、try-with-resources で使用すること。
+	 * 読込みのエラーは、ProcessingException を cause とする RuntimeException として Stream の終端操作から送出される。
+	 * </PRE>
+	 * @param path CSVファイル
+	 * @param charset 文字コード
+	 * @return CSV文字列のListのStream
+	 * @throws IOException
+	 * @since 1.3
+	 */
+	public Stream<List<String>> stream(Path path, Charset charset) throws IOException{
+		checkNoFilter();
+		int[] columns = projection(path, charset);
+		CSVFileSpliterator<List<String>> spliterator = new CSVFileSpliterator<>(path, charset, ',', getComment(), blankIsNull,
+			(record, cursor)->{
+				applyInterning(cursor);
+				// 範囲の最初の行を読んだ後に、列の指定を設定する
+				List<String> fields = record > 0 ? toList(cursor, columns)
+					: isHasHeader() ? null : row(select(BOMfunction.chop(cursor.toList()), columns));
+				cursor.setProjection(columns);
+				return fields;
+			}
+		);
+		return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+	}
+
+	/**
+	 * ヘッダ行から読込む列を求める.
+	 * @param header ヘッダ行、ヘッダ無しは null
+	 * @return 列番号、全ての列の場合は null
+	 * @throws IllegalStateException ヘッダ無しで列名を指定している
+	 */
+	private int[] projection(List<String> header){
+		if (projectionNames==null) return projection;
+		if (header==null) throw new IllegalStateException("projection by names requires a header line");
+		int[] columns = new int[projectionNames.length];
+		for(int i=0; i < columns.length; i++){
+			columns[i] = header.lastIndexOf(projectionNames[i]);
+		}
+		return columns;
+	}
+	/** ファイルのヘッダ行から読込む列を求める */
+	private int[] projection(Path path, Charset charset) throws IOException{
+		if (projectionNames==null || !isHasHeader()) return projection(null);
+		try(CSVCursor cursor = CSVCursor.of(path, charset, ',', getComment(), blankIsNull)){
+			return projection(cursor.next() && cursor.fieldCount() > 0 ? BOMfunction.chop(cursor.toList()) : Collections.emptyList());
+		}
+	}
+	/**
+	 * 行のフィルタは逐次読込みでのみ使用できる.
+	 * @throws IllegalStateException フィルタを指定している
+	 */
+	private void checkNoFilter(){
+		if (hasFilter()) throw new IllegalStateException("row filter is not supported by reading a file in ranges");
+	}
+	/** コンテンツ行、setCompactRows(true) の場合は CSVRow */
+	private List<String> row(List<String> fields){
+		return isCompactRows() ? CSVRow.of(fields) : fields;
+	}
+	/** 列の選択、columns が null の場合は fields */
+	private static List<String> select(List<String> fields, int[] columns){
+		if (columns==null) return fields;
+		String[] values = new String[columns.length];
+		for(int i=0; i < columns.length; i++){
+			if (columns[i] >= 0 && columns[i] < fields.size()) values[i] = fields.get(columns[i]);
+		}
+		return Arrays.asList(values);
+	}
+
+	private void readParallel(Path path, Charset charset, ForkJoinPool pool, boolean ordered, int[] columns, BiConsumer<Integer, List<String>> handler)
+	throws IOException, ProcessingException{
+		try(CSVFileChunks chunks = CSVFileChunks.split(path, charset, getComment(), pool)){
+			AtomicBoolean stop = new AtomicBoolean(false);
+			readRange(chunks, 0, columns, handler, stop);
+			List<ForkJoinTask<RangeRows>> tasks = new ArrayList<>();
+			if (ordered){
+				int window = Math.max(2, pool.getParallelism() * 2);
+				int next = 1;
+				try{
+					for(int i=1; i < chunks.size(); i++){
+						while(next < chunks.size() && next < i + window){
+							int index = next++;
+							tasks.add(pool.submit(()->collectRange(chunks, index, columns)));
+						}
+						RangeRows rows = join(tasks.set(i - 1, null));
+						for(int k=0; k < rows.rows.size(); k++){
+							try{
+								handler.accept((int)(rows.firstRecord + k), rows.rows.get(k));
+							}catch(Exception e){
+								throw new ProcessingException(e, rows.lines.get(k));
+							}
+						}
+						if (rows.error != null) throw rows.error;
+						if (rows.stopped) break;
+					}
+				}finally{
+					// エラーと空行で終了した場合、残りの範囲の読込みを取消し、実行中の読込みの終了を待ってから chunks を閉じる
+					for(ForkJoinTask<RangeRows> t : tasks){
+						if (t != null) t.cancel(false);
+					}
+					for(ForkJoinTask<RangeRows> t : tasks){
+						if (t != null) t.quietlyJoin();
+					}
+				}
+			}else{
+				for(int i=1; i < chunks.size(); i++){
+					int index = i;
+					tasks.add(pool.submit(()->{
+						readRange(chunks, index, columns, handler, stop);
+						return null;
+					}));
+				}
+				Exception error = null;
+				for(ForkJoinTask<RangeRows> t : tasks){
+					try{
+						join(t);
+					}catch(ProcessingException | IOException | RuntimeException e){
+						if (error==null) error = e;
+					}
+				}
+				if (error instanceof ProcessingException) throw (ProcessingException)error;
+				if (error instanceof IOException) throw (IOException)error;
+				if (error != null) throw (RuntimeException)error;
+			}
+		}
+	}
+	/** 範囲のCSV行を実行する、空行またはエラーで stop を設定する、ファイルの１行目は全ての列 */
+	private void readRange(CSVFileChunks chunks, int index, int[] columns, BiConsumer<Integer, List<String>> handler, AtomicBoolean stop)
+	throws IOException, ProcessingException{
+		long empty = chunks.emptyLineRecord();
+		long record = chunks.firstRecord(index);
+		if (stop.get() || empty >= 0 && record >= empty) return;
+		try(CSVCursor cursor = chunks.cursor(index, ',', blankIsNull)){
+			applyInterning(cursor);
+			while(!stop.get()){
+				try{
+					if (!cursor.next()) break;
+					if (cursor.fieldCount()==0){
+						stop.set(true);
+						break;
+					}
+					handler.accept((int)record, record==0 ? cursor.toList() : toList(cursor, columns));
+					cursor.setProjection(columns);
+				}catch(Exception e){
+					stop.set(true);
+					throw new ProcessingException(e, chunks.lineOffset(index) + cursor.getLineNumber());
+				}
+				record++;
+			}
+		}
+	}
+	/** 範囲のCSV行を読込む */
+	private RangeRows collectRange(CSVFileChunks chunks, int index, int[] columns) throws IOException{
+		RangeRows rows = new RangeRows(chunks.firstRecord(index));
+		long empty = chunks.emptyLineRecord();
+		if (empty >= 0 && rows.firstRecord >= empty){
+			rows.stopped = true;
+			return rows;
+		}
+		try(CSVCursor cursor = chunks.cursor(index, ',', blankIsNull)){
+			applyInterning(cursor);
+			while(true){
+				try{
+					if (!cursor.next()) break;
+					if (cursor.fieldCount()==0){
+						rows.stopped = true;
+						break;
+					}
+					rows.rows.add(toList(cursor, columns));
+					cursor.setProjection(columns);
+					rows.lines.add(chunks.lineOffset(index) + cursor.getLineNumber());
+				}catch(Exception e){
+					rows.error = new ProcessingException(e, chunks.lineOffset(index) + cursor.getLineNumber());
+					break;
+				}
+			}
+		}
+		return rows;
+	}
+	private static <T> T join(ForkJoinTask<T> task) throws IOException, ProcessingException{
+		try{
+			return task.get();
+		}catch(ExecutionException e){
+			Throwable cause = e.getCause();
+			if (cause instanceof ProcessingException) throw (ProcessingException)cause;
+			if (cause instanceof IOException) throw (IOException)cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new RuntimeException(cause);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+	/** 並列読込みで、解析済で未実行の範囲 */
+	private static final class RangeRows{
+		final long firstRecord;
+		final List<List<String>> rows = new ArrayList<>();
+		final List<Integer> lines = new ArrayList<>();
+		ProcessingException error;
+		boolean stopped;
+		RangeRows(long firstRecord){
+			this.firstRecord = firstRecord;
+		}
 	}
 }
@@ -2,13 +2,12 @@ package org.yipuran.csv;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.yipuran.csv4j.CSVByteWriter;
 import org.yipuran.csv4j.CSVWriter;
 
 /**
@@ -46,6 +45,9 @@ import org.yipuran.csv4j.CSVWriter;
  * }catch(Exception e){
  *    e.printStackTrace();
  * }
+ *
+ * 文字セットが UTF-8 の場合は、CharsetEncoder を使わずにバイト配列に UTF-8 で書込み、大きな単位で OutputStream に出力する。
+ * BOM も同じバイト配列に書込む。
  * </PRE>
  */
 @FunctionalInterface
@@ -63,8 +65,8 @@ public interface CsvwriteArrayStream{
 	 * @param charName 文字セット名
 	 */
 	default public void create(OutputStream out, String charName){
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, charName)){
-			CSVWriter csvWriter = new CSVWriter(writer);
+		try(Writer writer = CSVByteWriter.of(out, Charset.forName(charName))){
+			CSVWriter csvWriter = new CSVWriter(writer, true);
 			getSupplier().get().map(s->{
 				for(int i=0;i < s.length;i++){
 					s[i] = s[i]==null ? "" : s[i];
@@ -77,6 +79,7 @@ public interface CsvwriteArrayStream{
 					throw new RuntimeException(ex);
 				}
 			});
+			csvWriter.flush();
 		}catch(Exception ex){
 			throw new RuntimeException(ex.getMessage(), ex);
 		}
@@ -88,7 +91,10 @@ public interface CsvwriteArrayStream{
 	 */
 	default public void createWithDblQuot(OutputStream out, String charName){
 		String lineSeparator = System.getProperty("line.separator");
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, charName)){
+		try(Writer writer = CSVByteWriter.of(out, Charset.forName(charName))){
+			CSVWriter csvWriter = new CSVWriter(writer, true);
+			csvWriter.setQuoteAll(true);
+			boolean overridden = CsvUtil.isCsvlineOverridden(this, CsvwriteArrayStream.class, String[].class);
 			getSupplier().get().map(s->{
 				for(int i=0;i < s.length;i++){
 					s[i] = s[i]==null ? "" : s[i];
@@ -96,12 +102,17 @@ public interface CsvwriteArrayStream{
 				return s;
 			}).forEach(t->{
 				try{
-					writer.write(csvline(t));
-					writer.write(lineSeparator);
+					if (overridden){
+						writer.write(csvline(t));
+						writer.write(lineSeparator);
+					}else{
+						csvWriter.writeLine(t);
+					}
 				}catch(IOException ex){
 					throw new RuntimeException(ex);
 				}
 			});
+			csvWriter.flush();
 		}catch(Exception e){
 			throw new RuntimeException(e.getMessage(), e);
 		}
@@ -111,9 +122,9 @@ public interface CsvwriteArrayStream{
 	 * @param out OutputStream
 	 */
 	default public void createBomUTF8(OutputStream out){
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)){
-			BOMfunction.push(out);
-			CSVWriter csvWriter = new CSVWriter(writer);
+		try(CSVByteWriter writer = new CSVByteWriter(out)){
+			writer.writeBOM();
+			CSVWriter csvWriter = new CSVWriter(writer, true);
 			getSupplier().get().map(s->{
 				for(int i=0;i < s.length;i++){
 					s[i] = s[i]==null ? "" : s[i];
@@ -126,6 +137,7 @@ public interface CsvwriteArrayStream{
 					throw new RuntimeException(ex);
 				}
 			});
+			csvWriter.flush();
 		}catch(Exception e){
 			throw new RuntimeException(e.getMessage(), e);
 		}
@@ -136,8 +148,11 @@ public interface CsvwriteArrayStream{
 	 */
 	default public void createBomUTF8WithDblQuot(OutputStream out){
 		String lineSeparator = System.getProperty("line.separator");
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)){
-			BOMfunction.push(out);
+		try(CSVByteWriter writer = new CSVByteWriter(out)){
+			writer.writeBOM();
+			CSVWriter csvWriter = new CSVWriter(writer, true);
+			csvWriter.setQuoteAll(true);
+			boolean overridden = CsvUtil.isCsvlineOverridden(this, CsvwriteArrayStream.class, String[].class);
 			getSupplier().get().map(s->{
 				for(int i=0;i < s.length;i++){
 					s[i] = s[i]==null ? "" : s[i];
@@ -145,22 +160,31 @@ public interface CsvwriteArrayStream{
 				return s;
 			}).forEach(t->{
 				try{
-					writer.write(csvline(t));
-					writer.write(lineSeparator);
+					if (overridden){
+						writer.write(csvline(t));
+						writer.write(lineSeparator);
+					}else{
+						csvWriter.writeLine(t);
+					}
 				}catch(IOException ex){
 					throw new RuntimeException(ex);
 				}
 			});
+			csvWriter.flush();
 		}catch(Exception e){
 			throw new RuntimeException(e.getMessage(), e);
 		}
 	}
 	/**
 	 * ダブルクォート括り１行作成.
+	 * <PRE>
+	 * createWithDblQuot と createBomUTF8WithDblQuot は、このメソッドが上書きされた場合だけ、このメソッドで１行を作成する。
+	 * 上書きされていなければ、同じ結果を CSVWriter で行の文字列を作らずに出力する。
+	 * </PRE>
 	 * @param ary １行生成する配列
 	 * @return ダブルクォート括り１行
 	 */
 	default public String csvline(String[] ary){
-		return "\"" + Arrays.stream(ary).map(s->s.replaceAll("\"","\"\"")).collect(Collectors.joining("\",\"")) + "\"";
+		return ary.length==0 ? "\"\"" : CsvUtil.csvline(ary);
 	}
 }
@@ -2,13 +2,14 @@ package org.yipuran.csv;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.yipuran.csv4j.CSVByteWriter;
 import org.yipuran.csv4j.CSVWriter;
 
 /**
@@ -46,6 +47,9 @@ import org.yipuran.csv4j.CSVWriter;
  * }catch(Exception e){
  *    e.printStackTrace();
  * }
+ *
+ * 文字セットが UTF-8 の場合は、CharsetEncoder を使わずにバイト配列に UTF-8 で書込み、大きな単位で OutputStream に出力する。
+ * BOM も同じバイト配列に書込む。
  * </PRE>
  */
 @FunctionalInterface
@@ -59,8 +63,8 @@ public interface CsvwriteListStream{
 	 * @param charName 文字セット名
 	 */
 	default public void create(OutputStream out, String charName){
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, charName)){
-			CSVWriter csvWriter = new CSVWriter(writer);
+		try(Writer writer = CSVByteWriter.of(out, Charset.forName(charName))){
+			CSVWriter csvWriter = new CSVWriter(writer, true);
 			getSupplier().get().map(list->list.stream().map(s->s==null ? "" : s).collect(Collectors.toList()))
 			.forEach(t->{
 				try{
@@ -69,6 +73,7 @@ public interface CsvwriteListStream{
 					throw new RuntimeException(ex);
 				}
 			});
+			csvWriter.flush();
 		}catch(Exception ex){
 			throw new RuntimeException(ex.getMessage(), ex);
 		}
@@ -80,16 +85,24 @@ public interface CsvwriteListStream{
 	 */
 	default public void createWithDblQuot(OutputStream out, String charName){
 		String lineSeparator = System.getProperty("line.separator");
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, charName)){
+		try(Writer writer = CSVByteWriter.of(out, Charset.forName(charName))){
+			CSVWriter csvWriter = new CSVWriter(writer, true);
+			csvWriter.setQuoteAll(true);
+			boolean overridden = CsvUtil.isCsvlineOverridden(this, CsvwriteListStream.class, List.class);
 			getSupplier().get().map(list->list.stream().map(s->s==null ? "" : s).collect(Collectors.toList()))
 			.forEach(t->{
 				try{
-					writer.write(csvline(t));
-					writer.write(lineSeparator);
+					if (overridden){
+						writer.write(csvline(t));
+						writer.write(lineSeparator);
+					}else{
+						csvWriter.writeLine(t);
+					}
 				}catch(IOException ex){
 					throw new RuntimeException(ex);
 				}
 			});
+			csvWriter.flush();
 		}catch(Exception e){
 			throw new RuntimeException(e.getMessage(), e);
 		}
@@ -99,9 +112,9 @@ public interface CsvwriteListStream{
 	 * @param out OutputStream
 	 */
 	default public void createBomUTF8(OutputStream out){
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)){
-			BOMfunction.push(out);
-			CSVWriter csvWriter = new CSVWriter(writer);
+		try(CSVByteWriter writer = new CSVByteWriter(out)){
+			writer.writeBOM();
+			CSVWriter csvWriter = new CSVWriter(writer, true);
 			getSupplier().get().map(list->list.stream().map(s->s==null ? "" : s).collect(Collectors.toList()))
 			.forEach(t->{
 				try{
@@ -110,6 +123,7 @@ public interface CsvwriteListStream{
 					throw new RuntimeException(ex);
 				}
 			});
+			csvWriter.flush();
 		}catch(Exception e){
 			throw new RuntimeException(e.getMessage(), e);
 		}
@@ -120,27 +134,39 @@ public interface CsvwriteListStream{
 	 */
 	default public void createBomUTF8WithDblQuot(OutputStream out){
 		String lineSeparator = System.getProperty("line.separator");
-		try(OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)){
-			BOMfunction.push(out);
+		try(CSVByteWriter writer = new CSVByteWriter(out)){
+			writer.writeBOM();
+			CSVWriter csvWriter = new CSVWriter(writer, true);
+			csvWriter.setQuoteAll(true);
+			boolean overridden = CsvUtil.isCsvlineOverridden(this, CsvwriteListStream.class, List.class);
 			getSupplier().get().map(list->list.stream().map(s->s==null ? "" : s).collect(Collectors.toList()))
 			.forEach(t->{
 				try{
-					writer.write(csvline(t));
-					writer.write(lineSeparator);
+					if (overridden){
+						writer.write(csvline(t));
+						writer.write(lineSeparator);
+					}else{
+						csvWriter.writeLine(t);
+					}
 				}catch(IOException ex){
 					throw new RuntimeException(ex);
 				}
 			});
+			csvWriter.flush();
 		}catch(Exception e){
 			throw new RuntimeException(e.getMessage(), e);
 		}
 	}
 	/**
 	 * Collection→ダブルクォート括り１行作成.
+	 * <PRE>
+	 * createWithDblQuot と createBomUTF8WithDblQuot は、このメソッドが上書きされた場合だけ、このメソッドで１行を作成する。
+	 * 上書きされていなければ、同じ結果を CSVWriter で行の文字列を作らずに出力する。
+	 * </PRE>
 	 * @param list １行生成する文字列 List
 	 * @return ダブルクォート括り１行
 	 */
 	default public String csvline(List<String> list){
-		return "\"" + list.stream().map(s->s.replaceAll("\"","\"\"")).collect(Collectors.joining("\",\"")) + "\"";
+		return list.isEmpty() ? "\"\"" : CsvUtil.csvline(list);
 	}
 }
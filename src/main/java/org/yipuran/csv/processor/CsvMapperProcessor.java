@@ -0,0 +1,261 @@
+package org.yipuran.csv.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * {@link org.yipuran.csv.CsvBean} のクラスに {@link org.yipuran.csv.CsvMapper} を生成するアノテーションプロセッサー.
+ * <PRE>
+ * 「クラス名$CsvMapper」を同じパッケージに生成する。
+ * 列の対象は、CsvObject のリフレクションと同じく、クラスに宣言されたフィールドと、フィールドの型を引数とする
+ * 「set + 先頭大文字のフィールド名」の setter の組である。
+ * 値の変換は、CsvObject のリフレクションによる読込みと同じ結果になるように生成する。
+ * META-INF/services で登録しているので、このライブラリの jar がクラスパスにあれば javac が自動的に実行する。
+ * </PRE>
+ * @since 1.3
+ */
+public class CsvMapperProcessor extends AbstractProcessor{
+	private static final String ANNOTATION = "org.yipuran.csv.CsvBean";
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes(){
+		return Collections.singleton(ANNOTATION);
+	}
+	@Override
+	public SourceVersion getSupportedSourceVersion(){
+		return SourceVersion.latestSupported();
+	}
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv){
+		for(TypeElement annotation : annotations){
+			for(Element e : roundEnv.getElementsAnnotatedWith(annotation)){
+				if (e.getKind() != ElementKind.CLASS){
+					error(e, "@CsvBean is only for classes");
+					continue;
+				}
+				try{
+					generate((TypeElement)e);
+				}catch(IOException ex){
+					error(e, "cannot write CsvMapper : " + ex.getMessage());
+				}
+			}
+		}
+		return true;
+	}
+
+	private void generate(TypeElement type) throws IOException{
+		if (type.getModifiers().contains(Modifier.ABSTRACT) || type.getModifiers().contains(Modifier.PRIVATE)
+		|| type.getNestingKind()==NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+		|| type.getNestingKind()==NestingKind.LOCAL || type.getNestingKind()==NestingKind.ANONYMOUS){
+			error(type, "@CsvBean class must be a non abstract top level or static nested class");
+			return;
+		}
+		boolean constructor = false;
+		for(ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())){
+			if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE)) constructor = true;
+		}
+		if (!constructor){
+			error(type, "@CsvBean class needs a non private constructor without arguments");
+			return;
+		}
+		List<VariableElement> fields = new ArrayList<>();
+		List<ExecutableElement> setters = new ArrayList<>();
+		for(VariableElement f : ElementFilter.fieldsIn(type.getEnclosedElements())){
+			ExecutableElement setter = setter(type, f);
+			if (setter==null) continue;
+			if (setter.getModifiers().contains(Modifier.PRIVATE)){
+				error(setter, "setter of @CsvBean class must not be private");
+				return;
+			}
+			fields.add(f);
+			setters.add(setter);
+		}
+
+		String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		String mapperName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + "$CsvMapper";
+		String beanName = type.getQualifiedName().toString();
+
+		StringBuilder sb = new StringBuilder();
+		if (!packageName.isEmpty()) sb.append("package ").append(packageName).append(";\n\n");
+		sb.append("/**\n * CsvMapper of ").append(beanName).append(", generated by ").append(getClass().getName()).append(".\n */\n");
+		sb.append("public final class ").append(mapperName).append(" implements org.yipuran.csv.CsvMapper<").append(beanName).append(">{\n");
+		sb.append("\t@Override\n\tpublic ").append(beanName).append(" create(){\n");
+		sb.append("\t\treturn new ").append(beanName).append("();\n\t}\n");
+		sb.append("\t@Override\n\tpublic int index(String name){\n\t\tswitch(name){\n");
+		for(int i=0; i < fields.size(); i++){
+			sb.append("\t\tcase \"").append(fields.get(i).getSimpleName()).append("\": return ").append(i).append(";\n");
+		}
+		sb.append("\t\tdefault: return -1;\n\t\t}\n\t}\n");
+		sb.append("\t@Override\n\tpublic void set(").append(beanName)
+		.append(" bean, int index, org.yipuran.csv4j.CSVCursor cursor, int column, org.yipuran.csv.CsvMapper.Settings settings)")
+		.append(" throws Exception{\n");
+		sb.append("\t\tswitch(index){\n");
+		for(int i=0; i < fields.size(); i++){
+			sb.append("\t\tcase ").append(i).append(":{\n");
+			convert(sb, fields.get(i).asType(), setters.get(i).getSimpleName().toString());
+			sb.append("\t\t\treturn;\n\t\t}\n");
+		}
+		sb.append("\t\tdefault:\n\t\t\treturn;\n\t\t}\n\t}\n}\n");
+
+		String sourceName = packageName.isEmpty() ? mapperName : packageName + "." + mapperName;
+		try(Writer writer = processingEnv.getFiler().createSourceFile(sourceName, type).openWriter()){
+			writer.write(sb.toString());
+		}
+	}
+
+	/**
+	 * 列の値の変換と setter 呼出しのコード.
+	 * CsvObject のリフレクションによる読込みと同じく、setter の例外と valueOf、コンストラクタの例外は、
+	 * チェック例外とエラーも含めて無視する。
+	 * 数値は、CSVCursor から文字列を生成せずに解析する。
+	 */
+	private void convert(StringBuilder sb, TypeMirror type, String setter){
+		String call = "\t\t\ttry{\n\t\t\t\tbean." + setter + "(v);\n\t\t\t}catch(Throwable e){\n\t\t\t}\n";
+		String blank = "\t\t\tif (cursor.isNull(column)) return;\n";
+		switch(type.getKind()){
+		case INT:
+			sb.append(blank).append("\t\t\tint v = cursor.getInt(column);\n").append(call);
+			return;
+		case LONG:
+			sb.append(blank).append("\t\t\tlong v = cursor.getLong(column);\n").append(call);
+			return;
+		case DOUBLE:
+			sb.append(blank).append("\t\t\tdouble v = cursor.getDouble(column);\n").append(call);
+			return;
+		case SHORT:
+			sb.append(blank).append("\t\t\tshort v = cursor.getShort(column);\n").append(call);
+			return;
+		case FLOAT:
+			sb.append(blank).append("\t\t\tfloat v = cursor.getFloat(column);\n").append(call);
+			return;
+		case BOOLEAN:
+			sb.append(blank).append("\t\t\tboolean v = settings.getBooleanReader().apply(cursor.getString(column));\n").append(call);
+			return;
+		case BYTE:
+		case CHAR:
+			// CsvObject は byte, char を読込まない
+			return;
+		default:
+			break;
+		}
+		String name = processingEnv.getTypeUtils().erasure(type).toString();
+		String getter = null;
+		switch(name){
+		case "java.lang.String":
+			sb.append("\t\t\tString v = cursor.getString(column);\n").append(call);
+			return;
+		case "java.lang.Boolean":
+			sb.append("\t\t\tBoolean v = settings.getBooleanReader().apply(cursor.getString(column));\n").append(call);
+			return;
+		case "java.time.LocalDate":
+			sb.append("\t\t\tjava.time.LocalDate v = settings.readLocalDate(cursor, column);\n").append(call);
+			return;
+		case "java.time.LocalDateTime":
+			sb.append("\t\t\tjava.time.LocalDateTime v = settings.readLocalDateTime(cursor, column);\n").append(call);
+			return;
+		case "java.time.LocalTime":
+			sb.append("\t\t\tjava.time.LocalTime v = settings.readLocalTime(cursor, column);\n").append(call);
+			return;
+		case "java.lang.Integer":
+			getter = "getInt";
+			break;
+		case "java.lang.Long":
+			getter = "getLong";
+			break;
+		case "java.lang.Double":
+			getter = "getDouble";
+			break;
+		case "java.lang.Short":
+			getter = "getShort";
+			break;
+		case "java.lang.Float":
+			getter = "getFloat";
+			break;
+		default:
+			break;
+		}
+		if (getter != null){
+			// valueOf(String) と同じ結果
+			sb.append("\t\t\t").append(name).append(" v;\n");
+			sb.append("\t\t\ttry{\n\t\t\t\tv = cursor.").append(getter).append("(column);\n\t\t\t}catch(RuntimeException e){\n\t\t\t\treturn;\n\t\t\t}\n");
+			sb.append(call);
+			return;
+		}
+		if (type.getKind()==TypeKind.DECLARED && hasValueOf((TypeElement)processingEnv.getTypeUtils().asElement(type))){
+			sb.append("\t\t\t").append(name).append(" v;\n");
+			sb.append("\t\t\ttry{\n\t\t\t\tv = ").append(name).append(".valueOf(cursor.getString(column));\n\t\t\t}catch(Throwable e){\n\t\t\t\treturn;\n\t\t\t}\n");
+			sb.append(call);
+			return;
+		}
+		if (type.getKind()==TypeKind.DECLARED && hasStringConstructor((TypeElement)processingEnv.getTypeUtils().asElement(type))){
+			sb.append("\t\t\t").append(name).append(" v;\n");
+			sb.append("\t\t\ttry{\n\t\t\t\tv = new ").append(name).append("(cursor.getString(column));\n\t\t\t}catch(Throwable e){\n\t\t\t\treturn;\n\t\t\t}\n");
+			sb.append(call);
+			return;
+		}
+		sb.append("\t\t\tthrow new NoSuchMethodException(\"").append(name).append(".valueOf(java.lang.String)\");\n");
+	}
+
+	/** public な String 引数のコンストラクタが宣言されているか、valueOf(String) が無い場合に使用する */
+	private boolean hasStringConstructor(TypeElement type){
+		if (type.getModifiers().contains(Modifier.ABSTRACT) || type.getKind() != ElementKind.CLASS) return false;
+		for(ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())){
+			if (c.getModifiers().contains(Modifier.PUBLIC) && c.getParameters().size()==1
+			&& c.getParameters().get(0).asType().toString().equals("java.lang.String")){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** static valueOf(String) が宣言されているか */
+	private boolean hasValueOf(TypeElement type){
+		for(ExecutableElement m : ElementFilter.methodsIn(type.getEnclosedElements())){
+			if (m.getSimpleName().contentEquals("valueOf") && m.getModifiers().contains(Modifier.STATIC)
+			&& m.getModifiers().contains(Modifier.PUBLIC) && m.getParameters().size()==1
+			&& m.getParameters().get(0).asType().toString().equals("java.lang.String")){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** フィールドの setter、無ければ null */
+	private ExecutableElement setter(TypeElement type, VariableElement field){
+		String f = field.getSimpleName().toString();
+		String name = "set" + f.substring(0, 1).toUpperCase() + f.substring(1);
+		for(ExecutableElement m : ElementFilter.methodsIn(type.getEnclosedElements())){
+			if (m.getSimpleName().contentEquals(name) && m.getParameters().size()==1
+			&& processingEnv.getTypeUtils().isSameType(
+				processingEnv.getTypeUtils().erasure(m.getParameters().get(0).asType()),
+				processingEnv.getTypeUtils().erasure(field.asType()))){
+				return m;
+			}
+		}
+		return null;
+	}
+
+	private void error(Element e, String message){
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+	}
+}
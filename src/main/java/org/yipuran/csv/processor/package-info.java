@@ -0,0 +1,8 @@
+/**
+ * CsvBean アノテーションプロセッサー.
+ * <PRE>
+ * {@link org.yipuran.csv.CsvBean} のクラスに、リフレクションを使用しない CsvMapper をコンパイル時に生成する。
+ * </PRE>
+ * @since 1.3
+ */
+package org.yipuran.csv.processor;
@@ -55,8 +55,6 @@ abstract class AbstractLineToFieldMapAdapter implements CSVLineProcessor
         if ( this.header == null )
             throw new ParseException( "missing header line" );
 
-        final Map<String,String> fields = createMap();
-
         if ( this.header.size() > fieldValues.size() )
         {
             // this data line has too few values, so we need to pad it
@@ -69,16 +67,16 @@ abstract class AbstractLineToFieldMapAdapter implements CSVLineProcessor
                     "header size (" + fieldValues.size() + ")" );
         }
 
-        for ( int ii = 0; ii < this.header.size(); ii++ )
-        {
-            fields.put( this.header.get( ii ), fieldValues.get( ii ) );
-        }
-
-        processDataLine( linenumber, fields );
+        processDataLine( linenumber, createMap( fieldValues ) );
     }
 
 
-    protected abstract Map<String, String> createMap();
+    /**
+     * Creates the map of the fields of a data line.
+     * @param fieldValues field values, as many as the header fields
+     * @return map of field names and values
+     */
+    protected abstract Map<String, String> createMap( List<String> fieldValues );
     protected abstract void processDataLine( int lineNumber, Map<String,String> fields );
 
     /** {@inheritDoc} */
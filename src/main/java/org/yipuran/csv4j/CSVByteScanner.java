@@ -0,0 +1,844 @@
+package org.yipuran.csv4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Single pass CSV record scanner over encoded bytes.
+ * The double quote, delimiter, carriage return and newline are ASCII characters and in
+ * an ASCII compatible charset their bytes never occur inside a multi byte character,
+ * so the records and fields are found on the raw bytes without decoding the input.
+ * Only the fields the caller asks for are decoded, {@link #getString(int)} decodes one field
+ * and {@link #field(int)} decodes into a reused char buffer.
+ * <p>
+ * Supported are UTF-8 and the single byte charsets whose lower half is ASCII (ISO-8859-x, windows-125x, US-ASCII ...),
+ * Shift_JIS and windows-31j are scanned by {@link CSVSjisScanner}, see {@link #supports(Charset, char, char)}.
+ * Quoting, comment, trim and blank-is-null rules are the same as {@link CSVScanner},
+ * unquoted non ASCII whitespace such as U+3000 is trimmed as well.
+ * @since 1.3
+ */
+class CSVByteScanner extends CSVCursor
+{
+    private static final int UNQUOTED = 0;   // appending bytes outside of double quotes
+    private static final int QUOTED = 1;     // inside a quoted string
+    private static final int QUOTE_END = 2;  // last byte was a double quote inside a quoted string
+
+    private static final int RECORD = 0;
+    private static final int COMMENT_LINE = 1;
+    private static final int END = 2;
+    private static final int REJECTED = 3;
+
+    static final int BUFFER_SIZE = 65536;
+
+    private static final byte DOUBLE_QUOTE = CSVConstants.DOUBLE_QUOTE;
+    private static final byte CARRIAGE_RETURN = CSVConstants.CARRIAGE_RETURN;
+    private static final byte NEWLINE = CSVConstants.NEWLINE;
+
+    final Charset charset;
+    private final InputStream input;   // null if the whole input is in buf
+    private final byte delimiter;
+    private final byte commentChar;
+    private final boolean trimFields;
+    private final boolean utf8;
+    private boolean skipBom;
+
+    /** bytes which are content outside of double quotes without further checks */
+    final boolean[] plain = new boolean[256];
+    /** single byte whitespace */
+    final boolean[] whitespace = new boolean[256];
+
+    private byte[] buf;
+    private int bufPos;
+    private int bufLen;
+    private boolean eof;
+    private boolean pendingCR = false;
+    private int lineNumber = 0;
+
+    /** unescaped field contents of the current record */
+    byte[] row = new byte[256];
+    /** field i of the current record is row[offsets[i]] .. row[offsets[i+1]] */
+    int[] offsets = new int[17];
+    /** number of fields of the current record */
+    int fieldCount = 0;
+
+    // fields decoded for field views
+    private char[] chars = new char[256];
+    private int charLen = 0;
+    private int[] charStart = new int[16];
+    private int[] charEnd = new int[16];
+    private int[] decoded = new int[16];
+    private int generation = 1;
+    private CharsetDecoder decoder;
+    private ByteBuffer rowBuffer;
+    private CharBuffer charBuffer;
+
+
+    /**
+     * Constructor for stream input.
+     * @param input input to read from, it is read in large blocks
+     * @param charset character set, must be supported
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     */
+    CSVByteScanner( final InputStream input, final Charset charset, final char delimiter, final char comment,
+                    final boolean blankIsNull )
+    {
+        this( input, new byte[BUFFER_SIZE], 0, 0, charset, delimiter, comment, blankIsNull );
+    }
+
+    /**
+     * Constructor for input held in an array, the array is scanned in place.
+     * @param data input bytes
+     * @param offset start of the input
+     * @param length length of the input
+     * @param charset character set, must be supported
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     */
+    CSVByteScanner( final byte[] data, final int offset, final int length, final Charset charset,
+                    final char delimiter, final char comment, final boolean blankIsNull )
+    {
+        this( null, data, offset, offset + length, charset, delimiter, comment, blankIsNull );
+    }
+
+    private CSVByteScanner( final InputStream input, final byte[] buf, final int pos, final int len, final Charset charset,
+                            final char delimiter, final char comment, final boolean blankIsNull )
+    {
+        super( blankIsNull );
+        this.input = input;
+        this.buf = buf;
+        this.bufPos = pos;
+        this.bufLen = len;
+        this.eof = input == null;
+        this.charset = charset;
+        this.delimiter = (byte)delimiter;
+        this.commentChar = (byte)comment;
+        this.trimFields = true;
+        this.utf8 = StandardCharsets.UTF_8.equals( charset );
+        this.skipBom = this.utf8;
+        initTables();
+    }
+
+
+    /**
+     * Creates a scanner for stream input.
+     * @param input input to read from, it is read in large blocks
+     * @param charset character set, must be supported
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     * @return scanner for the charset
+     */
+    static CSVByteScanner create( final InputStream input, final Charset charset, final char delimiter, final char comment,
+                              final boolean blankIsNull )
+    {
+        if ( CSVSjisScanner.supports( charset ) )
+            return new CSVSjisScanner( input, charset, delimiter, comment, blankIsNull );
+        return new CSVByteScanner( input, charset, delimiter, comment, blankIsNull );
+    }
+
+    /**
+     * Creates a scanner for input held in an array.
+     * @param data input bytes, scanned in place
+     * @param offset start of the input
+     * @param length length of the input
+     * @param charset character set, must be supported
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     * @return scanner for the charset
+     */
+    static CSVByteScanner create( final byte[] data, final int offset, final int length, final Charset charset,
+                              final char delimiter, final char comment, final boolean blankIsNull )
+    {
+        if ( CSVSjisScanner.supports( charset ) )
+            return new CSVSjisScanner( data, offset, length, charset, delimiter, comment, blankIsNull );
+        return new CSVByteScanner( data, offset, length, charset, delimiter, comment, blankIsNull );
+    }
+
+
+    /**
+     * Keeps a byte order mark at the beginning of the input, for input starting in the middle of a file.
+     */
+    void noBom()
+    {
+        this.skipBom = false;
+    }
+
+
+    /**
+     * Indicates if the bytes of a charset can be scanned by this class or {@link CSVSjisScanner}.
+     * @param charset character set
+     * @param delimiter field delimiter character
+     * @param comment comment character
+     * @return true if supported
+     */
+    static boolean supports( final Charset charset, final char delimiter, final char comment )
+    {
+        if ( delimiter >= '\u0080' || comment >= '\u0080' )
+            return false;
+        return StandardCharsets.UTF_8.equals( charset ) || CSVSjisScanner.supports( charset ) || isAsciiSingleByte( charset );
+    }
+
+    /**
+     * Indicates if the charset is a single byte charset whose lower half is ASCII.
+     */
+    static boolean isAsciiSingleByte( final Charset charset )
+    {
+        if ( StandardCharsets.US_ASCII.equals( charset ) || StandardCharsets.ISO_8859_1.equals( charset ) )
+            return true;
+        if ( !charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f )
+            return false;
+        final byte[] ascii = new byte[128];
+        for ( int ii = 0; ii < ascii.length; ii++ )
+        {
+            ascii[ii] = (byte)ii;
+        }
+        final String s = new String( ascii, charset );
+        if ( s.length() != ascii.length )
+            return false;
+        for ( int ii = 0; ii < ascii.length; ii++ )
+        {
+            if ( s.charAt( ii ) != ii )
+                return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Sets up the byte tables.
+     */
+    void initTables()
+    {
+        final byte[] upper = new byte[128];
+        for ( int ii = 0; ii < upper.length; ii++ )
+        {
+            upper[ii] = (byte)( ii + 128 );
+        }
+        final String decodedUpper = this.utf8 ? null : new String( upper, this.charset );
+        for ( int b = 0; b < 256; b++ )
+        {
+            if ( b < 0x80 )
+                this.whitespace[b] = Character.isWhitespace( (char)b );
+            else if ( decodedUpper != null && decodedUpper.length() == upper.length )
+                this.whitespace[b] = Character.isWhitespace( decodedUpper.charAt( b - 128 ) );
+            this.plain[b] = b > ' ' && b != CSVConstants.DOUBLE_QUOTE && b != ( this.delimiter & 0xff )
+                            && !( this.trimFields && this.whitespace[b] )
+                            // possible lead byte of U+1680, U+2000..U+205F, U+3000
+                            && !( this.utf8 && b >= 0xe1 && b <= 0xe3 );
+        }
+    }
+
+
+    /**
+     * Classifies the character at a position outside of double quotes whose byte is not plain.
+     * At least 3 bytes from the position are in the buffer unless the input ends before.
+     * @param buf buffer
+     * @param pos position of the first byte
+     * @param limit end of the buffer
+     * @return byte length of the character, negative if it is whitespace
+     */
+    int classify( final byte[] buf, final int pos, final int limit )
+    {
+        final int b0 = buf[pos] & 0xff;
+        if ( this.utf8 )
+        {
+            if ( b0 >= 0xe0 && b0 <= 0xef && pos + 2 < limit
+                 && ( buf[pos + 1] & 0xc0 ) == 0x80 && ( buf[pos + 2] & 0xc0 ) == 0x80 )
+            {
+                final int cp = ( ( b0 & 0x0f ) << 12 ) | ( ( buf[pos + 1] & 0x3f ) << 6 ) | ( buf[pos + 2] & 0x3f );
+                return Character.isWhitespace( cp ) ? -3 : 3;
+            }
+            return 1;
+        }
+        return this.whitespace[b0] ? -1 : 1;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public int getLineNumber()
+    {
+        return this.lineNumber;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean next() throws IOException, ParseException
+    {
+        this.generation++;
+        this.charLen = 0;
+        while ( true )
+        {
+            final int result = scanRecord();
+            if ( result == RECORD )
+                return true;
+            if ( result == END )
+                return false;
+        }
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public int fieldCount()
+    {
+        return this.fieldCount;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public String getString( final int index )
+    {
+        checkIndex( index );
+        final int start = this.offsets[index];
+        final int length = this.offsets[index + 1] - start;
+        if ( length == 0 )
+            return this.blankIsNull ? null : "";
+        if ( interns( index ) )
+            return super.getString( index );
+        return new String( this.row, start, length, this.charset );
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public int getInt( final int index )
+    {
+        return isAscii( index ) ? CSVNumbers.parseInt( this.row, this.offsets[index], this.offsets[index + 1] )
+                : super.getInt( index );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLong( final int index )
+    {
+        return isAscii( index ) ? CSVNumbers.parseLong( this.row, this.offsets[index], this.offsets[index + 1] )
+                : super.getLong( index );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDouble( final int index )
+    {
+        return isAscii( index ) ? CSVNumbers.parseDouble( this.row, this.offsets[index], this.offsets[index + 1] )
+                : super.getDouble( index );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public float getFloat( final int index )
+    {
+        return isAscii( index ) ? CSVNumbers.parseFloat( this.row, this.offsets[index], this.offsets[index + 1] )
+                : super.getFloat( index );
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException
+    {
+        if ( this.input != null )
+            this.input.close();
+    }
+
+
+    @Override
+    boolean isEmpty( final int index )
+    {
+        return this.offsets[index] == this.offsets[index + 1];
+    }
+
+    /**
+     * Indicates if a field of the current record is not empty and all ASCII, so numbers are parsed on the bytes.
+     */
+    private boolean isAscii( final int index )
+    {
+        checkIndex( index );
+        final int end = this.offsets[index + 1];
+        int pos = this.offsets[index];
+        if ( pos == end )
+            return false;
+        while ( pos < end && this.row[pos] >= 0 )
+            pos++;
+        return pos == end;
+    }
+
+    @Override
+    char[] fieldChars( final int index )
+    {
+        if ( this.decoded[index] != this.generation )
+            decode( index );
+        return this.chars;
+    }
+
+    @Override
+    int fieldStart( final int index )
+    {
+        return this.charStart[index];
+    }
+
+    @Override
+    int fieldEnd( final int index )
+    {
+        return this.charEnd[index];
+    }
+
+
+    @Override
+    boolean accepts( final int index )
+    {
+        // the record being scanned may follow a rejected one, decoded fields are of the previous record
+        this.generation++;
+        this.charLen = 0;
+        if ( this.decoded.length <= index )
+        {
+            final int size = this.offsets.length;
+            this.charStart = new int[size];
+            this.charEnd = new int[size];
+            this.decoded = new int[size];
+        }
+        return super.accepts( index );
+    }
+
+
+    /**
+     * Decodes a field of the current record into the char buffer.
+     */
+    private void decode( final int index )
+    {
+        final int start = this.offsets[index];
+        final int end = this.offsets[index + 1];
+        if ( this.charLen + end - start > this.chars.length )
+        {
+            final char[] newChars = new char[Math.max( this.charLen + end - start, this.chars.length * 2 )];
+            System.arraycopy( this.chars, 0, newChars, 0, this.charLen );
+            this.chars = newChars;
+        }
+        final int c = decode( this.row, start, end, this.chars, this.charLen );
+        this.charStart[index] = this.charLen;
+        this.charEnd[index] = c;
+        this.decoded[index] = this.generation;
+        this.charLen = c;
+    }
+
+
+    /**
+     * Decodes bytes of the row buffer into the char buffer, which has room for one char per byte.
+     * @param row row buffer
+     * @param pos start of the bytes
+     * @param end end of the bytes
+     * @param chars char buffer
+     * @param c start in the char buffer
+     * @return end in the char buffer
+     */
+    int decode( final byte[] row, int pos, final int end, final char[] chars, int c )
+    {
+        // ASCII
+        while ( pos < end && row[pos] >= 0 )
+            chars[c++] = (char)row[pos++];
+        if ( pos < end )
+            c = decodeCharset( row, pos, end, chars, c );
+        return c;
+    }
+
+
+    /**
+     * Decodes bytes of the row buffer into the char buffer by the charset decoder,
+     * malformed input is replaced.
+     */
+    final int decodeCharset( final byte[] row, final int pos, final int end, final char[] chars, final int c )
+    {
+        if ( this.decoder == null )
+        {
+            this.decoder = this.charset.newDecoder()
+                    .onMalformedInput( CodingErrorAction.REPLACE )
+                    .onUnmappableCharacter( CodingErrorAction.REPLACE );
+        }
+        if ( this.rowBuffer == null || this.rowBuffer.array() != row )
+            this.rowBuffer = ByteBuffer.wrap( row );
+        if ( this.charBuffer == null || this.charBuffer.array() != chars )
+            this.charBuffer = CharBuffer.wrap( chars );
+        final ByteBuffer in = this.rowBuffer;
+        final CharBuffer out = this.charBuffer;
+        ( (Buffer)in ).limit( end );
+        ( (Buffer)in ).position( pos );
+        ( (Buffer)out ).limit( chars.length );
+        ( (Buffer)out ).position( c );
+        this.decoder.reset();
+        this.decoder.decode( in, out, true );
+        this.decoder.flush( out );
+        return out.position();
+    }
+
+
+    /**
+     * Scans one line from the input.
+     * @return RECORD if a record was read, COMMENT_LINE if a comment line was skipped,
+     * REJECTED if a record was not accepted by the filter, END if EOF reached
+     */
+    private int scanRecord() throws IOException
+    {
+        if ( this.skipBom )
+        {
+            this.skipBom = false;
+            ensure( 3 );
+            if ( this.bufLen - this.bufPos >= 3 && this.buf[this.bufPos] == (byte)0xef
+                 && this.buf[this.bufPos + 1] == (byte)0xbb && this.buf[this.bufPos + 2] == (byte)0xbf )
+                this.bufPos += 3;
+        }
+        if ( this.pendingCR )
+        {
+            // munch the LF of a CR LF terminator
+            if ( this.bufPos < this.bufLen || fill() )
+            {
+                if ( this.buf[this.bufPos] == NEWLINE )
+                    this.bufPos++;
+            }
+            this.pendingCR = false;
+        }
+
+        final byte delimiter = this.delimiter;
+        final boolean[] plain = this.plain;
+        byte[] row = this.row;
+        int rowLen = 0;
+        int fieldStart = 0;
+        int wsStart = -1;      // start of pending (possibly trailing) whitespace, -1 if none
+        int count = 0;
+        boolean head = true;   // only bytes <= ' ' consumed in this line so far
+        int state = UNQUOTED;
+        final boolean[] selected = this.selected;
+        final int filterColumn = this.filterColumn;
+        boolean copy = copies( selected, 0 ) || filterColumn == 0;
+        boolean rejected = false;
+        boolean skipped = false; // bytes of fields out of the projection consumed in this line
+
+        while ( true )
+        {
+            if ( this.bufPos >= this.bufLen && !fill() )
+            {
+                // EOF
+                if ( state != QUOTED && head && rowLen == 0 && count == 0 && !skipped )
+                    return END;
+                this.lineNumber++;
+                if ( state == QUOTED )
+                    throw new ParseException( "terminating double quote not found", count + 1 );
+                if ( wsStart >= 0 )
+                    rowLen = wsStart;
+                return endRecord( count, rowLen, rejected );
+            }
+
+            final byte[] buf = this.buf;
+            int pos = this.bufPos;
+            final int len = this.bufLen;
+
+            if ( state == QUOTED )
+            {
+                // copy up to the next double quote in bulk
+                int end = pos;
+                while ( end < len && buf[end] != DOUBLE_QUOTE )
+                    end++;
+                final int n = end - pos;
+                if ( n > 0 && copy )
+                {
+                    if ( rowLen + n > row.length )
+                        row = growRow( rowLen + n );
+                    System.arraycopy( buf, pos, row, rowLen, n );
+                    rowLen += n;
+                }
+                if ( end < len )
+                {
+                    state = QUOTE_END;
+                    end++;
+                }
+                this.bufPos = end;
+                continue;
+            }
+
+            final byte b = buf[pos];
+
+            if ( state == QUOTE_END )
+            {
+                if ( b == DOUBLE_QUOTE )
+                {
+                    // a quoted double quote is two consecutive double quotes
+                    if ( copy )
+                    {
+                        if ( rowLen == row.length )
+                            row = growRow( rowLen + 1 );
+                        row[rowLen++] = b;
+                    }
+                    this.bufPos = pos + 1;
+                    state = QUOTED;
+                    continue;
+                }
+                state = UNQUOTED; // we exited the quoted string, process this byte as unquoted
+            }
+
+            if ( b == CARRIAGE_RETURN || b == NEWLINE )
+            {
+                this.bufPos = pos + 1;
+                this.pendingCR = b == CARRIAGE_RETURN;
+                this.lineNumber++;
+                if ( head && rowLen == 0 && count == 0 && !skipped )
+                {
+                    // empty line
+                    this.fieldCount = 0;
+                    return RECORD;
+                }
+                if ( wsStart >= 0 )
+                    rowLen = wsStart;
+                return endRecord( count, rowLen, rejected );
+            }
+            if ( b == DOUBLE_QUOTE )
+            {
+                this.bufPos = pos + 1;
+                head = false;
+                if ( wsStart >= 0 )
+                {
+                    // leading whitespace is discarded, whitespace in the middle is kept
+                    if ( wsStart == fieldStart )
+                        rowLen = fieldStart;
+                    wsStart = -1;
+                }
+                state = QUOTED;
+                continue;
+            }
+            if ( head )
+            {
+                if ( b == this.commentChar )
+                {
+                    this.bufPos = pos + 1;
+                    skipComment();
+                    return COMMENT_LINE;
+                }
+                head = ( b & 0xff ) <= ' ';
+            }
+            if ( b == delimiter )
+            {
+                this.bufPos = pos + 1;
+                if ( wsStart >= 0 )
+                {
+                    rowLen = wsStart; // discard trailing whitespace
+                    wsStart = -1;
+                }
+                count++;
+                if ( count + 1 >= this.offsets.length )
+                    growOffsets();
+                this.offsets[count] = rowLen;
+                fieldStart = rowLen;
+                if ( count - 1 == filterColumn && !accepts( filterColumn ) )
+                    rejected = true;
+                copy = !rejected && ( copies( selected, count ) || count == filterColumn );
+                continue;
+            }
+
+            int unit = 1;
+            boolean isWhitespace = this.trimFields && this.whitespace[b & 0xff];
+            if ( b < 0 && !plain[b & 0xff] )
+            {
+                if ( len - pos < 3 && !this.eof )
+                {
+                    ensure( 3 );
+                    continue; // buffer has moved
+                }
+                final int c = classify( buf, pos, len );
+                unit = c < 0 ? -c : c;
+                isWhitespace = this.trimFields && c < 0;
+            }
+            if ( !copy )
+            {
+                // field out of the projection, only its end is looked for
+                skipped = true;
+                int end = pos + unit;
+                if ( !head )
+                {
+                    while ( end < len && plain[buf[end] & 0xff] )
+                        end++;
+                }
+                this.bufPos = end;
+                continue;
+            }
+            if ( isWhitespace )
+            {
+                if ( wsStart < 0 )
+                    wsStart = rowLen;
+            }
+            else if ( wsStart >= 0 )
+            {
+                if ( wsStart == fieldStart )
+                    rowLen = fieldStart;
+                wsStart = -1;
+            }
+            // copy the character and the run of plain bytes after it in bulk
+            int end = pos + unit;
+            if ( !isWhitespace && !head )
+            {
+                while ( end < len && plain[buf[end] & 0xff] )
+                    end++;
+            }
+            final int n = end - pos;
+            if ( rowLen + n > row.length )
+                row = growRow( rowLen + n );
+            System.arraycopy( buf, pos, row, rowLen, n );
+            rowLen += n;
+            this.bufPos = end;
+        }
+    }
+
+
+    /**
+     * Completes the current record.
+     * @param count number of completed fields before the last field
+     * @param rowLen end of the last field
+     * @param rejected true if the filter rejected a completed field
+     * @return RECORD, or REJECTED if the record is not accepted by the filter
+     */
+    private int endRecord( final int count, final int rowLen, final boolean rejected )
+    {
+        this.offsets[count + 1] = rowLen;
+        if ( rejected || count < this.filterColumn || count == this.filterColumn && !accepts( count ) )
+            return REJECTED;
+        this.fieldCount = count + 1;
+        if ( this.decoded.length < this.fieldCount )
+        {
+            final int size = this.offsets.length;
+            this.charStart = new int[size];
+            this.charEnd = new int[size];
+            this.decoded = new int[size];
+        }
+        return RECORD;
+    }
+
+
+    /**
+     * Skips to the end of a comment line.
+     */
+    private void skipComment() throws IOException
+    {
+        while ( this.bufPos < this.bufLen || fill() )
+        {
+            final byte b = this.buf[this.bufPos++];
+            if ( b == NEWLINE || b == CARRIAGE_RETURN )
+            {
+                this.pendingCR = b == CARRIAGE_RETURN;
+                break;
+            }
+        }
+        this.lineNumber++;
+    }
+
+
+    /**
+     * Fills the input buffer.
+     * @return false if EOF reached
+     */
+    private boolean fill() throws IOException
+    {
+        if ( this.bufPos < this.bufLen )
+            return true;
+        if ( this.eof )
+            return false;
+        this.bufPos = 0;
+        this.bufLen = 0;
+        while ( true )
+        {
+            final int n = this.input.read( this.buf, 0, this.buf.length );
+            if ( n < 0 )
+            {
+                this.eof = true;
+                return false;
+            }
+            if ( n > 0 )
+            {
+                this.bufLen = n;
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Makes sure that at least n bytes are in the buffer unless the input ends before.
+     */
+    private void ensure( final int n ) throws IOException
+    {
+        if ( this.bufLen - this.bufPos >= n || this.eof )
+            return;
+        final int remain = this.bufLen - this.bufPos;
+        System.arraycopy( this.buf, this.bufPos, this.buf, 0, remain );
+        this.bufPos = 0;
+        this.bufLen = remain;
+        while ( this.bufLen < n )
+        {
+            final int r = this.input.read( this.buf, this.bufLen, this.buf.length - this.bufLen );
+            if ( r < 0 )
+            {
+                this.eof = true;
+                return;
+            }
+            this.bufLen += r;
+        }
+    }
+
+
+    /**
+     * Returns a stream reading the remaining bytes of a buffer, the position of the buffer is not changed.
+     * @param buffer buffer, typically a direct or read only buffer
+     * @return InputStream
+     */
+    static InputStream asStream( final ByteBuffer buffer )
+    {
+        final ByteBuffer source = buffer.duplicate();
+        return new InputStream()
+        {
+            @Override
+            public int read()
+            {
+                return source.hasRemaining() ? source.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read( final byte[] b, final int off, final int len )
+            {
+                if ( len == 0 )
+                    return 0;
+                if ( !source.hasRemaining() )
+                    return -1;
+                final int n = Math.min( len, source.remaining() );
+                source.get( b, off, n );
+                return n;
+            }
+        };
+    }
+
+
+    private byte[] growRow( final int minLength )
+    {
+        final byte[] newRow = new byte[Math.max( minLength, this.row.length * 2 )];
+        System.arraycopy( this.row, 0, newRow, 0, this.row.length );
+        this.row = newRow;
+        return newRow;
+    }
+
+
+    private void growOffsets()
+    {
+        final int[] newOffsets = new int[this.offsets.length * 2];
+        System.arraycopy( this.offsets, 0, newOffsets, 0, this.offsets.length );
+        this.offsets = newOffsets;
+    }
+}
@@ -0,0 +1,297 @@
+package org.yipuran.csv4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Writer that encodes UTF-8 into a byte buffer and writes it to an OutputStream or a channel in large chunks.
+ * <p>
+ * Runs of ASCII chars are copied one byte per char, other chars are encoded by hand,
+ * no CharsetEncoder is involved. The output is the same as an OutputStreamWriter for UTF-8:
+ * a surrogate without its pair is written as '?'.
+ * A BOM is written into the same buffer by {@link #writeBOM()}.
+ * <p>
+ * Nothing is written until the buffer is full, {@link #flush()} or {@link #close()}.
+ * Not thread safe.
+ * @since 1.3
+ */
+public class CSVByteWriter extends Writer
+{
+    /** default buffer size in bytes */
+    public static final int BUFFER_SIZE = 65536;
+    private static final int CHUNK_SIZE = 1024;
+
+    private final OutputStream out;
+    private final WritableByteChannel channel;
+    private final byte[] buf;
+    private final ByteBuffer buffer;
+    private int count;
+    /** high surrogate of a pair split between two writes, 0 if none */
+    private char pending;
+    private char[] chunk;
+    private boolean closed;
+
+
+    /**
+     * Constructor.
+     * @param out stream to output to
+     */
+    public CSVByteWriter( final OutputStream out )
+    {
+        this( out, BUFFER_SIZE );
+    }
+
+    /**
+     * Constructor.
+     * @param out stream to output to
+     * @param size buffer size in bytes
+     */
+    public CSVByteWriter( final OutputStream out, final int size )
+    {
+        this( out, null, size );
+    }
+
+    /**
+     * Constructor.
+     * @param channel channel to output to
+     */
+    public CSVByteWriter( final WritableByteChannel channel )
+    {
+        this( channel, BUFFER_SIZE );
+    }
+
+    /**
+     * Constructor.
+     * @param channel channel to output to
+     * @param size buffer size in bytes
+     */
+    public CSVByteWriter( final WritableByteChannel channel, final int size )
+    {
+        this( null, channel, size );
+    }
+
+    private CSVByteWriter( final OutputStream out, final WritableByteChannel channel, final int size )
+    {
+        if ( size < 4 )
+            throw new IllegalArgumentException( "size < 4 : " + size );
+        this.out = out;
+        this.channel = channel;
+        this.buf = new byte[size];
+        this.buffer = channel == null ? null : ByteBuffer.wrap( this.buf );
+    }
+
+    /**
+     * Returns a writer for a stream and a charset.
+     * UTF-8 is written by a CSVByteWriter, other charsets by a buffered OutputStreamWriter.
+     * @param out stream to output to
+     * @param charset charset
+     * @return writer, closing it closes the stream
+     */
+    public static Writer of( final OutputStream out, final Charset charset )
+    {
+        if ( StandardCharsets.UTF_8.equals( charset ) )
+            return new CSVByteWriter( out );
+        return new BufferedWriter( new OutputStreamWriter( out, charset ), BUFFER_SIZE / 4 );
+    }
+
+
+    /**
+     * Writes the UTF-8 BOM.
+     * @throws IOException if an I/O error occurs or the writer is closed
+     */
+    public void writeBOM() throws IOException
+    {
+        checkOpen();
+        ensure( 3 );
+        this.buf[this.count++] = (byte)0xef;
+        this.buf[this.count++] = (byte)0xbb;
+        this.buf[this.count++] = (byte)0xbf;
+    }
+
+    @Override
+    public void write( final int c ) throws IOException
+    {
+        checkOpen();
+        encode( (char)c );
+    }
+
+    @Override
+    public void write( final char[] cbuf, final int off, final int len ) throws IOException
+    {
+        checkOpen();
+        if ( off < 0 || len < 0 || off + len > cbuf.length || off + len < 0 )
+            throw new IndexOutOfBoundsException();
+        final byte[] bytes = this.buf;
+        final int end = off + len;
+        int ii = off;
+        while ( ii < end )
+        {
+            if ( this.pending == 0 )
+            {
+                // run of ASCII chars
+                int pos = this.count;
+                final int limit = Math.min( end, ii + bytes.length - pos );
+                while ( ii < limit )
+                {
+                    final char ch = cbuf[ii];
+                    if ( ch >= 0x80 )
+                        break;
+                    bytes[pos++] = (byte)ch;
+                    ii++;
+                }
+                this.count = pos;
+            }
+            if ( ii < end )
+            {
+                // an ASCII char here means the buffer is full
+                if ( this.pending == 0 && cbuf[ii] < 0x80 )
+                    drain();
+                else
+                    encode( cbuf[ii++] );
+            }
+        }
+    }
+
+    @Override
+    public void write( final String str, final int off, final int len ) throws IOException
+    {
+        if ( this.chunk == null )
+            this.chunk = new char[CHUNK_SIZE];
+        for ( int start = off; start < off + len; start += CHUNK_SIZE )
+        {
+            final int length = Math.min( CHUNK_SIZE, off + len - start );
+            str.getChars( start, start + length, this.chunk, 0 );
+            write( this.chunk, 0, length );
+        }
+    }
+
+    /**
+     * Writes the buffer and flushes the stream.
+     * A high surrogate waiting for its pair is kept.
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        checkOpen();
+        drain();
+        if ( this.out != null )
+            this.out.flush();
+    }
+
+    /**
+     * Writes the buffer and closes the stream or the channel.
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if ( this.closed )
+            return;
+        try
+        {
+            if ( this.pending != 0 )
+            {
+                this.pending = 0;
+                encode( '?' );
+            }
+            drain();
+        }
+        finally
+        {
+            this.closed = true;
+            if ( this.out != null )
+                this.out.close();
+            else
+                this.channel.close();
+        }
+    }
+
+
+    /** encodes a char that may not be ASCII */
+    private void encode( final char ch ) throws IOException
+    {
+        ensure( 4 );
+        final byte[] bytes = this.buf;
+        int pos = this.count;
+        if ( this.pending != 0 )
+        {
+            final char high = this.pending;
+            this.pending = 0;
+            if ( Character.isLowSurrogate( ch ) )
+            {
+                final int cp = Character.toCodePoint( high, ch );
+                bytes[pos++] = (byte)( 0xf0 | cp >> 18 );
+                bytes[pos++] = (byte)( 0x80 | cp >> 12 & 0x3f );
+                bytes[pos++] = (byte)( 0x80 | cp >> 6 & 0x3f );
+                bytes[pos++] = (byte)( 0x80 | cp & 0x3f );
+                this.count = pos;
+                return;
+            }
+            bytes[pos++] = '?';
+        }
+        if ( ch < 0x80 )
+        {
+            bytes[pos++] = (byte)ch;
+        }
+        else if ( ch < 0x800 )
+        {
+            bytes[pos++] = (byte)( 0xc0 | ch >> 6 );
+            bytes[pos++] = (byte)( 0x80 | ch & 0x3f );
+        }
+        else if ( Character.isHighSurrogate( ch ) )
+        {
+            this.pending = ch;
+        }
+        else if ( Character.isLowSurrogate( ch ) )
+        {
+            bytes[pos++] = '?';
+        }
+        else
+        {
+            bytes[pos++] = (byte)( 0xe0 | ch >> 12 );
+            bytes[pos++] = (byte)( 0x80 | ch >> 6 & 0x3f );
+            bytes[pos++] = (byte)( 0x80 | ch & 0x3f );
+        }
+        this.count = pos;
+    }
+
+    /** makes room for some bytes, a pending '?' and a 3 byte char need 4 */
+    private void ensure( final int length ) throws IOException
+    {
+        if ( this.count + length > this.buf.length )
+            drain();
+    }
+
+    private void drain() throws IOException
+    {
+        if ( this.count == 0 )
+            return;
+        final int length = this.count;
+        this.count = 0;
+        if ( this.out != null )
+        {
+            this.out.write( this.buf, 0, length );
+            return;
+        }
+        ( (Buffer)this.buffer ).clear();
+        ( (Buffer)this.buffer ).limit( length );
+        while ( this.buffer.hasRemaining() )
+            this.channel.write( this.buffer );
+    }
+
+    private void checkOpen() throws IOException
+    {
+        if ( this.closed )
+            throw new IOException( "Stream closed" );
+    }
+}
@@ -0,0 +1,713 @@
+package org.yipuran.csv4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+
+/**
+ * Row cursor over CSV input.
+ * Unlike {@link CSVReader#readLine()}, moving to the next record allocates nothing:
+ * the field contents are kept in a reused internal buffer and {@link #field(int)} returns
+ * a {@link CharSequence} view on it. A view, and the characters it returns, are valid
+ * until the next call of {@link #next()}; use {@link #getString(int)} or {@link CharSequence#toString()}
+ * to keep a value.
+ * <pre>
+ * try(CSVCursor cursor = CSVCursor.of(reader, charset)){
+ *    while(cursor.next()){
+ *       if (cursor.fieldCount()==0) break;   // empty line
+ *       CharSequence code = cursor.field(2);
+ *       ...
+ *    }
+ * }
+ * </pre>
+ * Quoting, comment, trim and blank-is-null rules are the same as {@link CSVReader}.
+ * @since 1.3
+ */
+public abstract class CSVCursor implements Closeable
+{
+    final boolean blankIsNull;
+    private FieldView[] views = new FieldView[0];
+    private int[] projection;
+    /** fields copied by the scanner, null for all fields */
+    boolean[] selected;
+    private Predicate<? super CharSequence> filter;
+    /** field tested by the filter, -1 for no filter */
+    int filterColumn = -1;
+    private int[] interning;
+    /** caches of the interned fields, null for a field not interned or given up */
+    private CSVInterner[] interners;
+
+    CSVCursor( final boolean blankIsNull )
+    {
+        this.blankIsNull = blankIsNull;
+    }
+
+
+    /**
+     * Creates a cursor with the default options.
+     * @param reader input to read from
+     * @param charset character set of the input, a leading BOM is skipped for UTF-8
+     * @return cursor
+     */
+    public static CSVCursor of( final Reader reader, final Charset charset )
+    {
+        return of( reader, charset, CSVConstants.DEFAULT_DELIMITER, CSVConstants.DEFAULT_COMMENT, false );
+    }
+
+    /**
+     * Creates a cursor with the specified options.
+     * @param reader input to read from
+     * @param charset character set of the input, a leading BOM is skipped for UTF-8
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     * @return cursor
+     */
+    public static CSVCursor of( final Reader reader, final Charset charset, final char comment, final boolean blankIsNull )
+    {
+        return of( reader, charset, CSVConstants.DEFAULT_DELIMITER, comment, blankIsNull );
+    }
+
+    /**
+     * Creates a cursor with the specified options.
+     * @param reader input to read from, it is read in large blocks so a {@link java.io.BufferedReader} is not required
+     * @param charset character set of the input, a leading BOM is skipped for UTF-8
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     * @return cursor
+     */
+    public static CSVCursor of( final Reader reader, final Charset charset, final char delimiter, final char comment,
+                                final boolean blankIsNull )
+    {
+        return new CSVScanner( reader, delimiter, comment, true, blankIsNull, StandardCharsets.UTF_8.equals( charset ) );
+    }
+
+    /**
+     * Creates a cursor over encoded bytes with the default options.
+     * @param in input to read from
+     * @param charset character set of the input, a leading BOM is skipped for UTF-8
+     * @return cursor
+     */
+    public static CSVCursor of( final InputStream in, final Charset charset )
+    {
+        return of( in, charset, CSVConstants.DEFAULT_DELIMITER, CSVConstants.DEFAULT_COMMENT, false );
+    }
+
+    /**
+     * Creates a cursor over encoded bytes with the specified options.
+     * @param in input to read from
+     * @param charset character set of the input, a leading BOM is skipped for UTF-8
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     * @return cursor
+     */
+    public static CSVCursor of( final InputStream in, final Charset charset, final char comment, final boolean blankIsNull )
+    {
+        return of( in, charset, CSVConstants.DEFAULT_DELIMITER, comment, blankIsNull );
+    }
+
+    /**
+     * Creates a cursor over encoded bytes with the specified options.
+     * For UTF-8, Shift_JIS, windows-31j (MS932) and single byte charsets whose lower half is ASCII
+     * the records are scanned on the bytes and only the fields that are read are decoded,
+     * other charsets are decoded by an {@link InputStreamReader}.
+     * @param in input to read from, it is read in large blocks so a {@link java.io.BufferedInputStream} is not required
+     * @param charset character set of the input, a leading BOM is skipped for UTF-8
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     * @return cursor
+     */
+    public static CSVCursor of( final InputStream in, final Charset charset, final char delimiter, final char comment,
+                                final boolean blankIsNull )
+    {
+        if ( CSVByteScanner.supports( charset, delimiter, comment ) )
+            return CSVByteScanner.create( in, charset, delimiter, comment, blankIsNull );
+        return of( new InputStreamReader( in, charset ), charset, delimiter, comment, blankIsNull );
+    }
+
+    /**
+     * Creates a cursor over a byte array with the default options.
+     * @param data input bytes, scanned in place; must not be modified while the cursor is in use
+     * @param charset character set of the input, a leading BOM is skipped for UTF-8
+     * @return cursor
+     */
+    public static CSVCursor of( final byte[] data, final Charset charset )
+    {
+        return of( data, charset, CSVConstants.DEFAULT_DELIMITER, CSVConstants.DEFAULT_COMMENT, false );
+    }
+
+    /**
+     * Creates a cursor over a byte array with the specified options.
+     * @param data input bytes, scanned in place; must not be modified while the cursor is in use
+     * @param charset character set of the input, a leading BOM is skipped for UTF-8
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     * @return cursor
+     */
+    public static CSVCursor of( final byte[] data, final Charset charset, final char delimiter, final char comment,
+                                final boolean blankIsNull )
+    {
+        if ( CSVByteScanner.supports( charset, delimiter, comment ) )
+            return CSVByteScanner.create( data, 0, data.length, charset, delimiter, comment, blankIsNull );
+        return of( new ByteArrayInputStream( data ), charset, delimiter, comment, blankIsNull );
+    }
+
+    /**
+     * Creates a cursor over the remaining bytes of a buffer with the default options.
+     * @param buffer input bytes; its position is not changed
+     * @param charset character set of the input, a leading BOM is skipped for UTF-8
+     * @return cursor
+     */
+    public static CSVCursor of( final ByteBuffer buffer, final Charset charset )
+    {
+        return of( buffer, charset, CSVConstants.DEFAULT_DELIMITER, CSVConstants.DEFAULT_COMMENT, false );
+    }
+
+    /**
+     * Creates a cursor over the remaining bytes of a buffer with the specified options.
+     * The backing array of a heap buffer is scanned in place, a direct or read only buffer is copied in blocks.
+     * @param buffer input bytes; its position is not changed
+     * @param charset character set of the input, a leading BOM is skipped for UTF-8
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     * @return cursor
+     */
+    public static CSVCursor of( final ByteBuffer buffer, final Charset charset, final char delimiter, final char comment,
+                                final boolean blankIsNull )
+    {
+        if ( buffer.hasArray() && CSVByteScanner.supports( charset, delimiter, comment ) )
+            return CSVByteScanner.create( buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(),
+                                          charset, delimiter, comment, blankIsNull );
+        return of( CSVByteScanner.asStream( buffer ), charset, delimiter, comment, blankIsNull );
+    }
+
+
+    /**
+     * Creates a cursor over a memory mapped file with the default options.
+     * @param path file to read
+     * @param charset character set of the file, a leading BOM is skipped for UTF-8
+     * @return cursor, closing it closes the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static CSVCursor of( final Path path, final Charset charset ) throws IOException
+    {
+        return of( path, charset, CSVConstants.DEFAULT_DELIMITER, CSVConstants.DEFAULT_COMMENT, false );
+    }
+
+    /**
+     * Creates a cursor over a memory mapped file with the specified options.
+     * The file is mapped at once up to 2 GB, a larger file window by window.
+     * @param path file to read
+     * @param charset character set of the file, a leading BOM is skipped for UTF-8
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     * @return cursor, closing it closes the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static CSVCursor of( final Path path, final Charset charset, final char delimiter, final char comment,
+                                final boolean blankIsNull ) throws IOException
+    {
+        return of( CSVMappedInputStream.open( path ), charset, delimiter, comment, blankIsNull );
+    }
+
+
+    /**
+     * Moves to the next record, comment lines are skipped.
+     * An empty line is a record with no fields.
+     * @return false if EOF reached
+     * @throws IOException if an error occurs reading the input
+     * @throws ParseException if an error occurs during CSV parsing
+     */
+    public abstract boolean next() throws IOException, ParseException;
+
+    /**
+     * Returns the number of fields of the current record.
+     * @return number of fields
+     */
+    public abstract int fieldCount();
+
+    /**
+     * Returns the current line number.
+     * @return current line number
+     */
+    public abstract int getLineNumber();
+
+    /**
+     * Closes the input
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public abstract void close() throws IOException;
+
+
+    /**
+     * Returns a view of a field of the current record.
+     * The view is reused, it shows the same field of the next record after {@link #next()}.
+     * @param index field index
+     * @return field view, null if the field is blank and blank-is-null is set
+     * @throws IndexOutOfBoundsException if index is not less than {@link #fieldCount()}
+     */
+    public CharSequence field( final int index )
+    {
+        checkIndex( index );
+        if ( this.blankIsNull && isEmpty( index ) )
+            return null;
+        return view( index );
+    }
+
+    private CharSequence view( final int index )
+    {
+        if ( index >= this.views.length )
+        {
+            final FieldView[] newViews = new FieldView[Math.max( index + 1, this.views.length * 2 )];
+            System.arraycopy( this.views, 0, newViews, 0, this.views.length );
+            for ( int ii = this.views.length; ii < newViews.length; ii++ )
+            {
+                newViews[ii] = new FieldView( ii );
+            }
+            this.views = newViews;
+        }
+        return this.views[index];
+    }
+
+    /**
+     * Returns a field of the current record as a String.
+     * @param index field index
+     * @return field value, null if the field is blank and blank-is-null is set
+     * @throws IndexOutOfBoundsException if index is not less than {@link #fieldCount()}
+     */
+    public String getString( final int index )
+    {
+        checkIndex( index );
+        if ( isEmpty( index ) )
+            return this.blankIsNull ? null : "";
+        return newString( index, fieldChars( index ), fieldStart( index ), fieldEnd( index ) );
+    }
+
+    /**
+     * Indicates if a field of the current record is read as null, that is blank with blank-is-null set.
+     * @param index field index
+     * @return true if {@link #getString(int)} returns null
+     * @throws IndexOutOfBoundsException if index is not less than {@link #fieldCount()}
+     * @since 1.3
+     */
+    public boolean isNull( final int index )
+    {
+        checkIndex( index );
+        return this.blankIsNull && isEmpty( index );
+    }
+
+    /**
+     * Parses a field of the current record as an int without creating a String.
+     * The result and exceptions are the same as {@link Integer#parseInt(String)} of {@link #getString(int)}.
+     * @param index field index
+     * @return value
+     * @throws NumberFormatException if the field is not an int
+     * @throws IndexOutOfBoundsException if index is not less than {@link #fieldCount()}
+     * @since 1.3
+     */
+    public int getInt( final int index )
+    {
+        checkIndex( index );
+        if ( isEmpty( index ) )
+            return Integer.parseInt( getString( index ) );
+        final char[] chars = fieldChars( index );
+        return CSVNumbers.parseInt( chars, fieldStart( index ), fieldEnd( index ) );
+    }
+
+    /**
+     * Parses a field of the current record as a long without creating a String.
+     * The result and exceptions are the same as {@link Long#parseLong(String)} of {@link #getString(int)}.
+     * @param index field index
+     * @return value
+     * @throws NumberFormatException if the field is not a long
+     * @throws IndexOutOfBoundsException if index is not less than {@link #fieldCount()}
+     * @since 1.3
+     */
+    public long getLong( final int index )
+    {
+        checkIndex( index );
+        if ( isEmpty( index ) )
+            return Long.parseLong( getString( index ) );
+        final char[] chars = fieldChars( index );
+        return CSVNumbers.parseLong( chars, fieldStart( index ), fieldEnd( index ) );
+    }
+
+    /**
+     * Parses a field of the current record as a short without creating a String.
+     * The result and exceptions are the same as {@link Short#parseShort(String)} of {@link #getString(int)}.
+     * @param index field index
+     * @return value
+     * @throws NumberFormatException if the field is not a short
+     * @throws IndexOutOfBoundsException if index is not less than {@link #fieldCount()}
+     * @since 1.3
+     */
+    public short getShort( final int index )
+    {
+        final int value;
+        try
+        {
+            value = getInt( index );
+        }
+        catch ( final NumberFormatException e )
+        {
+            return Short.parseShort( getString( index ) );
+        }
+        if ( value < Short.MIN_VALUE || value > Short.MAX_VALUE )
+            return Short.parseShort( getString( index ) );
+        return (short)value;
+    }
+
+    /**
+     * Parses a field of the current record as a double without creating a String.
+     * The result and exceptions are the same as {@link Double#parseDouble(String)} of {@link #getString(int)}.
+     * @param index field index
+     * @return value
+     * @throws NumberFormatException if the field is not a double
+     * @throws IndexOutOfBoundsException if index is not less than {@link #fieldCount()}
+     * @since 1.3
+     */
+    public double getDouble( final int index )
+    {
+        checkIndex( index );
+        if ( isEmpty( index ) )
+            return Double.parseDouble( getString( index ) );
+        final char[] chars = fieldChars( index );
+        return CSVNumbers.parseDouble( chars, fieldStart( index ), fieldEnd( index ) );
+    }
+
+    /**
+     * Parses a field of the current record as a float without creating a String.
+     * The result and exceptions are the same as {@link Float#parseFloat(String)} of {@link #getString(int)}.
+     * @param index field index
+     * @return value
+     * @throws NumberFormatException if the field is not a float
+     * @throws IndexOutOfBoundsException if index is not less than {@link #fieldCount()}
+     * @since 1.3
+     */
+    public float getFloat( final int index )
+    {
+        checkIndex( index );
+        if ( isEmpty( index ) )
+            return Float.parseFloat( getString( index ) );
+        final char[] chars = fieldChars( index );
+        return CSVNumbers.parseFloat( chars, fieldStart( index ), fieldEnd( index ) );
+    }
+
+    /**
+     * Restricts the following records to some fields.
+     * From the next record on, the fields not in the projection are scanned only to find their end,
+     * their contents are not copied and they read as blank.
+     * The current record is not changed.
+     * @param columns field indexes to read, null for all fields
+     * @since 1.3
+     */
+    public void setProjection( final int... columns )
+    {
+        if ( columns == this.projection )
+            return;
+        boolean[] mask = null;
+        if ( columns != null )
+        {
+            int max = -1;
+            for ( final int column : columns )
+            {
+                max = Math.max( max, column );
+            }
+            mask = new boolean[max + 1];
+            for ( final int column : columns )
+            {
+                if ( column >= 0 )
+                    mask[column] = true;
+            }
+        }
+        this.projection = columns;
+        this.selected = mask;
+    }
+
+    /**
+     * Filters the following records by a field.
+     * From the next record on, a record is read only if the predicate accepts its field of the column.
+     * The predicate is tested as soon as the field is scanned, the rest of a rejected record is scanned
+     * only to find its end and nothing of it is copied.
+     * The predicate receives a view of the field that is valid during the call only,
+     * null if the field is blank and blank-is-null is set.
+     * A record without the column is rejected, an empty line is not filtered.
+     * Rejected records are counted in the line number.
+     * @param column field index
+     * @param predicate test of the field, null to read all records
+     * @throws IllegalArgumentException if column is negative
+     * @since 1.3
+     */
+    public void setFilter( final int column, final Predicate<? super CharSequence> predicate )
+    {
+        if ( predicate != null && column < 0 )
+            throw new IllegalArgumentException( "column < 0 : " + column );
+        this.filter = predicate;
+        this.filterColumn = predicate == null ? -1 : column;
+    }
+
+    /**
+     * Interns the Strings of some fields.
+     * {@link #getString(int)} and the lists return the same String instance for the repeated values of
+     * an interned field, instead of a new String for each record. The values are looked up by hashing
+     * their chars, a String is created only for a value not seen before.
+     * It is meant for low-cardinality fields such as codes and categories. Each field has a bounded cache,
+     * a field that turns out to have more than 1024 distinct values stops being interned.
+     * The caches are of this cursor, they are not shared with other cursors.
+     * Setting the same array again keeps the caches.
+     * @param columns field indexes to intern, null or none to intern no field
+     * @since 1.3
+     */
+    public void setInterning( final int... columns )
+    {
+        if ( columns == this.interning )
+            return;
+        CSVInterner[] caches = null;
+        if ( columns != null && columns.length > 0 )
+        {
+            int max = -1;
+            for ( final int column : columns )
+            {
+                max = Math.max( max, column );
+            }
+            caches = new CSVInterner[max + 1];
+            for ( final int column : columns )
+            {
+                if ( column >= 0 && caches[column] == null )
+                    caches[column] = new CSVInterner();
+            }
+        }
+        this.interning = columns;
+        this.interners = caches;
+    }
+
+    /**
+     * Returns the projection set by {@link #setProjection(int...)}.
+     * @return field indexes, null for all fields
+     * @since 1.3
+     */
+    public int[] getProjection()
+    {
+        return this.projection;
+    }
+
+    /**
+     * Returns some fields of the current record as a new fixed size list.
+     * @param columns field indexes, in the order of the list
+     * @return String list, null for an index that is negative or not less than {@link #fieldCount()};
+     * size 0 for an empty line
+     * @since 1.3
+     */
+    public List<String> toList( final int[] columns )
+    {
+        final int count = fieldCount();
+        if ( count == 0 )
+            return Collections.emptyList();
+        final String[] values = new String[columns.length];
+        for ( int ii = 0; ii < columns.length; ii++ )
+        {
+            final int column = columns[ii];
+            if ( column >= 0 && column < count )
+                values[ii] = getString( column );
+        }
+        return Arrays.asList( values );
+    }
+
+    /**
+     * Returns the fields of the current record as a new list.
+     * @return String list; size 0 for an empty line
+     */
+    public List<String> toList()
+    {
+        final int count = fieldCount();
+        final List<String> list = new ArrayList<String>( count );
+        for ( int ii = 0; ii < count; ii++ )
+        {
+            list.add( getString( ii ) );
+        }
+        return list;
+    }
+
+    /**
+     * Returns the fields of the current record as a new compact row.
+     * @return row; size 0 for an empty line
+     * @since 1.3
+     */
+    public CSVRow toRow()
+    {
+        return toRow( null, fieldCount() );
+    }
+
+    /**
+     * Returns some fields of the current record as a new compact row.
+     * @param columns field indexes, in the order of the row
+     * @return row, a null field for an index that is negative or not less than {@link #fieldCount()};
+     * size 0 for an empty line
+     * @since 1.3
+     */
+    public CSVRow toRow( final int[] columns )
+    {
+        return toRow( columns, fieldCount() == 0 ? 0 : columns.length );
+    }
+
+    private CSVRow toRow( final int[] columns, final int size )
+    {
+        final int count = fieldCount();
+        int length = 0;
+        for ( int ii = 0; ii < size; ii++ )
+        {
+            final int column = columns == null ? ii : columns[ii];
+            if ( column >= 0 && column < count && !isEmpty( column ) )
+            {
+                fieldChars( column );
+                length += fieldEnd( column ) - fieldStart( column );
+            }
+        }
+        final char[] chars = new char[length];
+        final int[] ends = new int[size];
+        int pos = 0;
+        for ( int ii = 0; ii < size; ii++ )
+        {
+            final int column = columns == null ? ii : columns[ii];
+            if ( column < 0 || column >= count || isEmpty( column ) )
+            {
+                ends[ii] = column < 0 || column >= count || this.blankIsNull ? ~pos : pos;
+                continue;
+            }
+            final char[] src = fieldChars( column );
+            final int start = fieldStart( column );
+            final int n = fieldEnd( column ) - start;
+            System.arraycopy( src, start, chars, pos, n );
+            pos += n;
+            ends[ii] = pos;
+        }
+        return new CSVRow( chars, ends );
+    }
+
+
+    /**
+     * Indicates if a field of the current record is empty.
+     */
+    abstract boolean isEmpty( int index );
+
+    /**
+     * Returns the char array holding a field of the current record.
+     * Must be called before {@link #fieldStart(int)} and {@link #fieldEnd(int)}.
+     */
+    abstract char[] fieldChars( int index );
+
+    abstract int fieldStart( int index );
+
+    abstract int fieldEnd( int index );
+
+
+    /**
+     * Tests the filter on a field of the record being scanned, the end of the field is set.
+     */
+    boolean accepts( final int index )
+    {
+        return this.filter.test( this.blankIsNull && isEmpty( index ) ? null : view( index ) );
+    }
+
+    /**
+     * Indicates if a field is interned.
+     */
+    final boolean interns( final int index )
+    {
+        final CSVInterner[] caches = this.interners;
+        return caches != null && index < caches.length && caches[index] != null;
+    }
+
+    /**
+     * Creates the String of a field, the interned instance if the field is interned.
+     */
+    final String newString( final int index, final char[] chars, final int start, final int end )
+    {
+        if ( !interns( index ) )
+            return new String( chars, start, end - start );
+        final CSVInterner cache = this.interners[index];
+        final String value = cache.intern( chars, start, end );
+        if ( cache.isFull() )
+            this.interners[index] = null;
+        return value;
+    }
+
+    /**
+     * Indicates if the scanner copies a field of the following records.
+     * @param mask selected fields at the start of the record, null for all fields
+     */
+    static boolean copies( final boolean[] mask, final int index )
+    {
+        return mask == null || index < mask.length && mask[index];
+    }
+
+
+    final void checkIndex( final int index )
+    {
+        if ( index < 0 || index >= fieldCount() )
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + fieldCount() );
+    }
+
+
+    /**
+     * CharSequence view of a field of the current record.
+     */
+    private final class FieldView implements CharSequence
+    {
+        private final int index;
+
+        FieldView( final int index )
+        {
+            this.index = index;
+        }
+
+        @Override
+        public int length()
+        {
+            fieldChars( this.index );
+            return fieldEnd( this.index ) - fieldStart( this.index );
+        }
+
+        @Override
+        public char charAt( final int pos )
+        {
+            final char[] chars = fieldChars( this.index );
+            final int start = fieldStart( this.index );
+            if ( pos < 0 || start + pos >= fieldEnd( this.index ) )
+                throw new StringIndexOutOfBoundsException( pos );
+            return chars[start + pos];
+        }
+
+        @Override
+        public CharSequence subSequence( final int start, final int end )
+        {
+            return toString().substring( start, end );
+        }
+
+        @Override
+        public String toString()
+        {
+            final char[] chars = fieldChars( this.index );
+            final int start = fieldStart( this.index );
+            return new String( chars, start, fieldEnd( this.index ) - start );
+        }
+    }
+}
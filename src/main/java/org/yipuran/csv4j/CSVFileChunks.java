@@ -0,0 +1,544 @@
+package org.yipuran.csv4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Splits a CSV file into byte ranges of whole records, so that the ranges can be parsed in parallel.
+ * <p>
+ * Whether a newline ends a record depends on everything before it (it may be inside double quotes,
+ * or end a comment line), so a range cannot be resynchronized by looking at its own bytes.
+ * The file is cut into chunks and every chunk is scanned in parallel from each possible
+ * scanner state at its start (line start, after a carriage return, leading blanks, unquoted field,
+ * quoted field, after a double quote inside quotes, comment line). This needs one pass over the chunk, as the
+ * combined states are run as one lazily built automaton. A short sequential pass then chains the chunks from the
+ * known state at the beginning of the file, which picks the real first record boundary of each chunk.
+ * <p>
+ * Only the charsets which are scanned on bytes are supported,
+ * see {@link CSVCursor#of(java.io.InputStream, Charset, char, char, boolean)}.
+ * <pre>
+ * try(CSVFileChunks chunks = CSVFileChunks.split(path, charset, '#', ForkJoinPool.commonPool())){
+ *    for(int i=0; i &lt; chunks.size(); i++){
+ *       try(CSVCursor cursor = chunks.cursor(i, ',', false)){   // in parallel
+ *          ...
+ *       }
+ *    }
+ * }
+ * </pre>
+ * @since 1.3
+ */
+public final class CSVFileChunks implements Closeable
+{
+    /** default chunk size */
+    static final long CHUNK_SIZE = 1L << 22;
+
+    // scanner states
+    private static final int LINE_START = 0;
+    private static final int AFTER_CR = 1;
+    private static final int HEAD = 2;
+    private static final int FIELD = 3;
+    private static final int QUOTED = 4;
+    private static final int QUOTE_END = 5;
+    private static final int COMMENT = 6;
+    private static final int STATES = 7;
+
+    // byte classes
+    private static final int C_CR = 0;
+    private static final int C_LF = 1;
+    private static final int C_QUOTE = 2;
+    private static final int C_COMMENT = 3;
+    private static final int C_BLANK = 4;
+    private static final int C_OTHER = 5;
+    private static final int CLASSES = 6;
+
+    // line terminating events
+    private static final int E_NONE = 0;
+    private static final int E_RECORD = 1;
+    private static final int E_EMPTY = 2;
+    private static final int E_COMMENT = 3;
+
+    private static final int[] NEXT = new int[STATES * CLASSES];
+    private static final int[] EVENT = new int[STATES * CLASSES];
+    static
+    {
+        for ( int s = 0; s < STATES; s++ )
+        {
+            for ( int c = 0; c < CLASSES; c++ )
+            {
+                int next;
+                int event = E_NONE;
+                // a carriage return followed by newline is one terminator
+                final int state = s == AFTER_CR ? ( c == C_LF ? -1 : LINE_START ) : s;
+                switch ( state )
+                {
+                case -1:
+                    next = LINE_START;
+                    break;
+                case QUOTED:
+                    next = c == C_QUOTE ? QUOTE_END : QUOTED;
+                    break;
+                case COMMENT:
+                    next = c == C_CR ? AFTER_CR : c == C_LF ? LINE_START : COMMENT;
+                    event = c == C_CR || c == C_LF ? E_COMMENT : E_NONE;
+                    break;
+                default:
+                    if ( c == C_CR || c == C_LF )
+                    {
+                        next = c == C_CR ? AFTER_CR : LINE_START;
+                        event = state == LINE_START ? E_EMPTY : E_RECORD;
+                    }
+                    else if ( c == C_QUOTE )
+                        next = QUOTED;
+                    else if ( state == LINE_START || state == HEAD )
+                        next = c == C_COMMENT ? COMMENT : c == C_BLANK ? HEAD : FIELD;
+                    else
+                        next = FIELD;
+                    break;
+                }
+                NEXT[s * CLASSES + c] = next;
+                EVENT[s * CLASSES + c] = event;
+            }
+        }
+    }
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final char comment;
+    /** range i is starts[i] .. starts[i+1] */
+    private final long[] starts;
+    private final long[] records;
+    private final int[] lines;
+    private final long emptyLineRecord;
+
+
+    private CSVFileChunks( final FileChannel channel, final Charset charset, final char comment, final long[] starts,
+                           final long[] records, final int[] lines, final long emptyLineRecord )
+    {
+        this.channel = channel;
+        this.charset = charset;
+        this.comment = comment;
+        this.starts = starts;
+        this.records = records;
+        this.lines = lines;
+        this.emptyLineRecord = emptyLineRecord;
+    }
+
+
+    /**
+     * Indicates if files of a charset can be split.
+     * @param charset character set
+     * @param comment comment character
+     * @return true if supported
+     */
+    public static boolean supports( final Charset charset, final char comment )
+    {
+        return CSVByteScanner.supports( charset, CSVConstants.DEFAULT_DELIMITER, comment );
+    }
+
+
+    /**
+     * Splits a file into ranges of whole records.
+     * @param path CSV file
+     * @param charset character set of the file
+     * @param comment character indicating line is a comment and should be ignored
+     * @param pool pool scanning the chunks
+     * @return ranges, the file is open until closed
+     * @throws IOException if an error occurs reading the file
+     * @throws IllegalArgumentException if the charset is not supported
+     */
+    public static CSVFileChunks split( final Path path, final Charset charset, final char comment, final ForkJoinPool pool )
+            throws IOException
+    {
+        return split( path, charset, comment, pool, CHUNK_SIZE );
+    }
+
+    static CSVFileChunks split( final Path path, final Charset charset, final char comment, final ForkJoinPool pool,
+                                final long chunkSize ) throws IOException
+    {
+        if ( !supports( charset, comment ) )
+            throw new IllegalArgumentException( "byte scanning not supported : " + charset.name() );
+        final FileChannel channel = FileChannel.open( path, StandardOpenOption.READ );
+        try
+        {
+            return split( channel, charset, comment, pool, chunkSize );
+        }
+        catch ( final IOException | RuntimeException e )
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static CSVFileChunks split( final FileChannel channel, final Charset charset, final char comment,
+                                        final ForkJoinPool pool, final long chunkSize ) throws IOException
+    {
+        final long size = channel.size();
+        final long begin = bomLength( channel, charset );
+        final int count = (int)Math.max( 1, ( size - begin + chunkSize - 1 ) / chunkSize );
+        final int[] classes = classes( comment );
+        final ChunkScan[] scans = new ChunkScan[count];
+        for ( int ii = 0; ii < count; ii++ )
+        {
+            scans[ii] = new ChunkScan( channel, classes, begin + ii * chunkSize, Math.min( size, begin + ( ii + 1 ) * chunkSize ) );
+        }
+        try
+        {
+            if ( count == 1 )
+                scans[0].compute();
+            else
+                pool.invoke( new RecursiveAction()
+                {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute()
+                    {
+                        ForkJoinTask.invokeAll( scans );
+                    }
+                } );
+        }
+        catch ( final UncheckedIOException e )
+        {
+            throw e.getCause();
+        }
+
+        // chain the chunks from the state at the beginning of the file
+        final List<long[]> ranges = new ArrayList<long[]>();
+        ranges.add( new long[]{ 0, 0, 0 } );
+        int state = LINE_START;
+        long recordBase = 0;
+        long lineBase = 0;
+        long empty = -1;
+        for ( int ii = 0; ii < count; ii++ )
+        {
+            final ChunkScan scan = scans[ii];
+            if ( ii > 0 && scan.first[state] >= 0 )
+                ranges.add( new long[]{ scan.first[state], recordBase + scan.recordsBefore[state], lineBase + scan.linesBefore[state] } );
+            if ( empty < 0 && scan.empty[state] >= 0 )
+                empty = recordBase + scan.empty[state];
+            recordBase += scan.records[state];
+            lineBase += scan.lines[state];
+            state = scan.endState[state];
+        }
+        final long[] starts = new long[ranges.size() + 1];
+        final long[] records = new long[ranges.size()];
+        final int[] lines = new int[ranges.size()];
+        for ( int ii = 0; ii < ranges.size(); ii++ )
+        {
+            starts[ii] = ranges.get( ii )[0];
+            records[ii] = ranges.get( ii )[1];
+            lines[ii] = (int)ranges.get( ii )[2];
+        }
+        starts[ranges.size()] = size;
+        return new CSVFileChunks( channel, charset, comment, starts, records, lines, empty );
+    }
+
+
+    /**
+     * Returns the number of ranges.
+     * @return number of ranges, at least 1
+     */
+    public int size()
+    {
+        return this.records.length;
+    }
+
+    /**
+     * Returns the start of a range.
+     * @param index range index
+     * @return file position
+     */
+    public long start( final int index )
+    {
+        return this.starts[index];
+    }
+
+    /**
+     * Returns the end of a range.
+     * @param index range index
+     * @return file position
+     */
+    public long end( final int index )
+    {
+        return this.starts[index + 1];
+    }
+
+    /**
+     * Returns the number of records in the file before a range, an empty line counts as a record.
+     * @param index range index
+     * @return index of the first record of the range
+     */
+    public long firstRecord( final int index )
+    {
+        return this.records[index];
+    }
+
+    /**
+     * Returns the line number at the start of a range, to be added to {@link CSVCursor#getLineNumber()}
+     * of its cursor.
+     * @param index range index
+     * @return number of lines before the range
+     */
+    public int lineOffset( final int index )
+    {
+        return this.lines[index];
+    }
+
+    /**
+     * Returns the record index of the first empty line.
+     * Readers of this library stop at an empty line, so records after it are not read.
+     * @return record index, -1 if there is no empty line
+     */
+    public long emptyLineRecord()
+    {
+        return this.emptyLineRecord;
+    }
+
+    /**
+     * Creates a cursor reading the records of a range.
+     * Cursors of different ranges may be used in different threads.
+     * @param index range index
+     * @param delimiter field delimiter character
+     * @param blankIsNull true if blank fields are read as null
+     * @return cursor, closing it does not close the file
+     */
+    public CSVCursor cursor( final int index, final char delimiter, final boolean blankIsNull )
+    {
+        final CSVByteScanner scanner = CSVByteScanner.create(
+                new CSVMappedInputStream( this.channel, start( index ), end( index ), CSVMappedInputStream.MAX_WINDOW, false ),
+                this.charset, delimiter, this.comment, blankIsNull );
+        if ( index > 0 )
+            scanner.noBom();
+        return scanner;
+    }
+
+
+    /**
+     * Closes the file.
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException
+    {
+        this.channel.close();
+    }
+
+
+    private static long bomLength( final FileChannel channel, final Charset charset ) throws IOException
+    {
+        if ( !StandardCharsets.UTF_8.equals( charset ) || channel.size() < 3 )
+            return 0;
+        final ByteBuffer head = ByteBuffer.allocate( 3 );
+        while ( head.hasRemaining() && channel.read( head, head.position() ) > 0 )
+            ;
+        final byte[] b = head.array();
+        return b[0] == (byte)0xef && b[1] == (byte)0xbb && b[2] == (byte)0xbf ? 3 : 0;
+    }
+
+
+    private static int[] classes( final char comment )
+    {
+        final int[] classes = new int[256];
+        for ( int b = 0; b < 256; b++ )
+        {
+            if ( b == CSVConstants.CARRIAGE_RETURN )
+                classes[b] = C_CR;
+            else if ( b == CSVConstants.NEWLINE )
+                classes[b] = C_LF;
+            else if ( b == CSVConstants.DOUBLE_QUOTE )
+                classes[b] = C_QUOTE;
+            else if ( b == comment )
+                classes[b] = C_COMMENT;
+            else if ( b <= ' ' )
+                classes[b] = C_BLANK;
+            else
+                classes[b] = C_OTHER;
+        }
+        return classes;
+    }
+
+
+    /**
+     * Scans one chunk from each possible state at its start.
+     * The states of all hypotheses are combined into one tuple, the transitions of the tuples are built
+     * as they are met, so each byte costs one table lookup.
+     */
+    private static final class ChunkScan extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final int[] classes;
+        private final long start;
+        private final long end;
+
+        // per hypothesis (state at the chunk start)
+        /** first record start, -1 if none */
+        final long[] first = new long[STATES];
+        final long[] recordsBefore = new long[STATES];
+        final long[] linesBefore = new long[STATES];
+        final long[] records = new long[STATES];
+        final long[] lines = new long[STATES];
+        /** chunk local record index of the first empty line, -1 if none */
+        final long[] empty = new long[STATES];
+        /** state at the chunk end */
+        final int[] endState = new int[STATES];
+
+        // tuple automaton
+        private final Map<Integer, Integer> tupleIds = new HashMap<Integer, Integer>();
+        private int[] tupleKeys = new int[16];
+        private int[] next = new int[16 * CLASSES];
+        private int[] events = new int[16 * CLASSES];
+
+        ChunkScan( final FileChannel channel, final int[] classes, final long start, final long end )
+        {
+            this.channel = channel;
+            this.classes = classes;
+            this.start = start;
+            this.end = end;
+            Arrays.fill( this.first, -1 );
+            Arrays.fill( this.empty, -1 );
+        }
+
+        @Override
+        protected void compute()
+        {
+            try
+            {
+                scan();
+            }
+            catch ( final IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        private void scan() throws IOException
+        {
+            int key = 0;
+            for ( int h = 0; h < STATES; h++ )
+            {
+                key |= h << ( 3 * h );
+            }
+            int id = tupleId( key );
+            final int[] classes = this.classes;
+            final byte[] buf = new byte[CSVByteScanner.BUFFER_SIZE];
+            long pos = this.start;
+            if ( this.end > this.start )
+            {
+                final MappedByteBuffer map = this.channel.map( FileChannel.MapMode.READ_ONLY, this.start, this.end - this.start );
+                while ( map.hasRemaining() )
+                {
+                    final int n = Math.min( buf.length, map.remaining() );
+                    map.get( buf, 0, n );
+                    int[] next = this.next;
+                    int[] events = this.events;
+                    for ( int k = 0; k < n; k++ )
+                    {
+                        final int idx = id * CLASSES + classes[buf[k] & 0xff];
+                        int nid = next[idx];
+                        if ( nid < 0 )
+                        {
+                            nid = transition( id, idx - id * CLASSES );
+                            next = this.next;
+                            events = this.events;
+                        }
+                        final int event = events[idx];
+                        if ( event != 0 )
+                            event( event, pos + k );
+                        id = nid;
+                    }
+                    pos += n;
+                }
+            }
+            key = this.tupleKeys[id];
+            for ( int h = 0; h < STATES; h++ )
+            {
+                this.endState[h] = ( key >>> ( 3 * h ) ) & 7;
+            }
+        }
+
+        /**
+         * Applies the events of a byte.
+         * bit h: record start before the byte, bit 7+h: line end, bit 14+h: record end, bit 21+h: empty line
+         */
+        private void event( final int event, final long pos )
+        {
+            for ( int h = 0; h < STATES; h++ )
+            {
+                if ( ( event & ( 1 << h ) ) != 0 && this.first[h] < 0 )
+                {
+                    this.first[h] = pos;
+                    this.recordsBefore[h] = this.records[h];
+                    this.linesBefore[h] = this.lines[h];
+                }
+                if ( ( event & ( 1 << ( 21 + h ) ) ) != 0 && this.empty[h] < 0 )
+                    this.empty[h] = this.records[h];
+                if ( ( event & ( 1 << ( 7 + h ) ) ) != 0 )
+                    this.lines[h]++;
+                if ( ( event & ( 1 << ( 14 + h ) ) ) != 0 )
+                    this.records[h]++;
+            }
+        }
+
+        private int transition( final int id, final int cls )
+        {
+            final int key = this.tupleKeys[id];
+            int nextKey = 0;
+            int event = 0;
+            for ( int h = 0; h < STATES; h++ )
+            {
+                final int s = ( key >>> ( 3 * h ) ) & 7;
+                if ( s == LINE_START || ( s == AFTER_CR && cls != C_LF ) )
+                    event |= 1 << h;
+                final int e = EVENT[s * CLASSES + cls];
+                if ( e != E_NONE )
+                    event |= 1 << ( 7 + h );
+                if ( e == E_RECORD || e == E_EMPTY )
+                    event |= 1 << ( 14 + h );
+                if ( e == E_EMPTY )
+                    event |= 1 << ( 21 + h );
+                nextKey |= NEXT[s * CLASSES + cls] << ( 3 * h );
+            }
+            final int nextId = tupleId( nextKey );
+            this.next[id * CLASSES + cls] = nextId;
+            this.events[id * CLASSES + cls] = event;
+            return nextId;
+        }
+
+        private int tupleId( final int key )
+        {
+            final Integer id = this.tupleIds.get( key );
+            if ( id != null )
+                return id;
+            final int newId = this.tupleIds.size();
+            if ( newId == this.tupleKeys.length )
+            {
+                this.tupleKeys = Arrays.copyOf( this.tupleKeys, newId * 2 );
+                this.next = Arrays.copyOf( this.next, newId * 2 * CLASSES );
+                this.events = Arrays.copyOf( this.events, newId * 2 * CLASSES );
+            }
+            Arrays.fill( this.next, newId * CLASSES, ( newId + 1 ) * CLASSES, -1 );
+            this.tupleKeys[newId] = key;
+            this.tupleIds.put( key, newId );
+            return newId;
+        }
+    }
+}
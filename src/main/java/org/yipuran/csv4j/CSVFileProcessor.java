@@ -19,6 +19,8 @@ package org.yipuran.csv4j;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 
 
 /**
@@ -111,6 +113,37 @@ public class CSVFileProcessor
     }
 
 
+    /**
+     * Indicates if the data lines are given as compact rows.
+     * @return true if the data lines are {@link CSVRow}
+     * @since 1.3
+     */
+    public boolean isCompactRows()
+    {
+        return processor.isCompactRows();
+    }
+
+    /**
+     * Sets if the data lines are given as compact rows, see {@link CSVStreamProcessor#setCompactRows(boolean)}.
+     * @param compactRows true to give the data lines as {@link CSVRow}
+     * @since 1.3
+     */
+    public void setCompactRows( final boolean compactRows )
+    {
+        processor.setCompactRows( compactRows );
+    }
+
+    /**
+     * Interns the Strings of some columns, see {@link CSVStreamProcessor#setInterning(int...)}.
+     * @param columns column indexes, null or none to intern no column
+     * @since 1.3
+     */
+    public void setInterning( final int... columns )
+    {
+        processor.setInterning( columns );
+    }
+
+
     /**
      * Processes the CSV file using the provided processor
      * @param filename name of CSV file
@@ -180,4 +213,72 @@ public class CSVFileProcessor
         return processFile( filename, new LineToSortedFieldMapAdapter( processor ) );
     }
 
+
+    /**
+     * Processes the CSV file using the provided processor.
+     * The file is memory mapped and scanned on its bytes, see {@link CSVCursor#of(Path, Charset, char, char, boolean)}.
+     * @param path CSV file
+     * @param charset character set of the file
+     * @param processor handler to process the CSV lines
+     * @return number of lines processed
+     * @throws IOException if a read error occurs
+     * @throws ProcessingException if an exception is thrown by the processor
+     * @throws ParseException if a error occurs parsing the CSV line
+     * @since 1.3
+     */
+    public int processFile( final Path path, final Charset charset, final CSVLineProcessor processor )
+            throws IOException, ProcessingException, ParseException
+    {
+        return this.processor.process( CSVCursor.of( path, charset, CSVConstants.DEFAULT_DELIMITER, getComment(), false ),
+                                       processor );
+    }
+
+    /**
+     * Processes the CSV file using the provided processor.
+     * The file is memory mapped and scanned on its bytes, see {@link CSVCursor#of(Path, Charset, char, char, boolean)}.
+     * Notes:
+     * <ol>
+     * <li>CSV file must have a header line (hasHeader must be true)</li>
+     * <li>if a data line has fewer columns than the header line, the missing
+     * columns will be blanks
+     * </ol>
+     * @param path CSV file
+     * @param charset character set of the file
+     * @param processor handler to process the CSV lines
+     * @return number of lines processed
+     * @throws IOException if a read error occurs
+     * @throws ProcessingException if an exception is thrown by the processor
+     * @throws ParseException if a error occurs parsing the CSV line
+     * @since 1.3
+     */
+    public int processFile( final Path path, final Charset charset, final CSVFieldMapProcessor processor )
+            throws IOException, ProcessingException, ParseException
+    {
+        return processFile( path, charset, new LineToFieldMapAdapter( processor ) );
+    }
+
+    /**
+     * Processes the CSV file using the provided processor.
+     * The file is memory mapped and scanned on its bytes, see {@link CSVCursor#of(Path, Charset, char, char, boolean)}.
+     * Notes:
+     * <ol>
+     * <li>CSV file must have a header line (hasHeader must be true)</li>
+     * <li>if a data line has fewer columns than the header line, the missing
+     * columns will be blanks
+     * </ol>
+     * @param path CSV file
+     * @param charset character set of the file
+     * @param processor handler to process the CSV lines
+     * @return number of lines processed
+     * @throws IOException if a read error occurs
+     * @throws ProcessingException if an exception is thrown by the processor
+     * @throws ParseException if a error occurs parsing the CSV line
+     * @since 1.3
+     */
+    public int processFile( final Path path, final Charset charset, final CSVSortedFieldMapProcessor processor )
+            throws IOException, ProcessingException, ParseException
+    {
+        return processFile( path, charset, new LineToSortedFieldMapAdapter( processor ) );
+    }
+
 }
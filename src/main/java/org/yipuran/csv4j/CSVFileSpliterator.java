@@ -0,0 +1,307 @@
+package org.yipuran.csv4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+
+/**
+ * Spliterator over the records of a CSV file, splitting at real record boundaries.
+ * <p>
+ * Read sequentially it is a plain cursor over the file. On the first {@link #trySplit()} the file is cut into
+ * ranges of whole records with {@link CSVFileChunks}, then each split hands over half of the remaining ranges,
+ * so a parallel stream parses the file on all cores. Sizes are estimated from the remaining bytes
+ * like the line spliterator of {@link Files#lines(Path)}.
+ * Files of charsets which are not scanned on bytes are not split.
+ * <p>
+ * Records are converted by a {@link RowMapper}, a record mapped to null is skipped.
+ * Errors are thrown as a RuntimeException with the {@link ProcessingException} holding the line number as cause.
+ * The file is open until {@link #close()}, which should be registered with {@link java.util.stream.Stream#onClose(Runnable)}.
+ * <pre>
+ * CSVFileSpliterator&lt;List&lt;String&gt;&gt; spliterator = new CSVFileSpliterator&lt;&gt;(path, charset, ',', '#', false,
+ *       (record, cursor)-&gt; cursor.toList());
+ * try(Stream&lt;List&lt;String&gt;&gt; stream = StreamSupport.stream(spliterator, true).onClose(spliterator::close)){
+ *    ...
+ * }
+ * </pre>
+ * @param <T> element type
+ * @since 1.3
+ */
+public class CSVFileSpliterator<T> implements Spliterator<T>, Closeable
+{
+    /** smallest chunk scanned for splitting */
+    static final long MIN_CHUNK_SIZE = 1L << 16;
+
+    /**
+     * Converts a record to a stream element.
+     * @param <T> element type
+     */
+    @FunctionalInterface
+    public interface RowMapper<T>
+    {
+        /**
+         * Converts the current record of a cursor.
+         * @param record index of the record in the file, 0 is the first record
+         * @param cursor cursor positioned on the record
+         * @return element, null if the record is skipped
+         * @throws Exception if the record cannot be converted
+         */
+        T map( long record, CSVCursor cursor ) throws Exception;
+    }
+
+    /** state shared by the spliterators split from one file */
+    private static final class Source
+    {
+        final Path path;
+        final Charset charset;
+        final char delimiter;
+        final char comment;
+        final boolean blankIsNull;
+        final RowMapper<?> mapper;
+        long chunkSize;
+        volatile CSVFileChunks chunks;
+
+        Source( final Path path, final Charset charset, final char delimiter, final char comment,
+                final boolean blankIsNull, final RowMapper<?> mapper )
+        {
+            this.path = path;
+            this.charset = charset;
+            this.delimiter = delimiter;
+            this.comment = comment;
+            this.blankIsNull = blankIsNull;
+            this.mapper = mapper;
+        }
+    }
+
+    private final Source source;
+    /** file size, or the end of the ranges once split */
+    private long end;
+    /** ranges lo .. hi, hi is -1 until the file is split */
+    private int lo;
+    private int hi = -1;
+    private CSVCursor cursor;
+    private int lineOffset;
+    private long record;
+    private boolean done;
+
+
+    /**
+     * Constructor.
+     * @param path CSV file
+     * @param charset character set of the file
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     * @param mapper converts the records
+     * @throws IOException if the size of the file cannot be read
+     */
+    public CSVFileSpliterator( final Path path, final Charset charset, final char delimiter, final char comment,
+                               final boolean blankIsNull, final RowMapper<T> mapper ) throws IOException
+    {
+        this.source = new Source( path, charset, delimiter, comment, blankIsNull, mapper );
+        this.end = Files.size( path );
+        this.source.chunkSize = Math.max( MIN_CHUNK_SIZE,
+                Math.min( CSVFileChunks.CHUNK_SIZE, this.end / ( ForkJoinPool.getCommonPoolParallelism() << 3 ) ) );
+    }
+
+    private CSVFileSpliterator( final Source source, final int lo, final int hi )
+    {
+        this.source = source;
+        this.lo = lo;
+        this.hi = hi;
+        this.end = source.chunks.end( hi - 1 );
+    }
+
+
+    /**
+     * Sets the size of the chunks the file is cut into when split.
+     * @param chunkSize chunk size
+     */
+    void setChunkSize( final long chunkSize )
+    {
+        this.source.chunkSize = chunkSize;
+    }
+
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public boolean tryAdvance( final Consumer<? super T> action )
+    {
+        final RowMapper<T> mapper = (RowMapper<T>)this.source.mapper;
+        while ( !this.done )
+        {
+            if ( this.cursor == null && !open() )
+                continue;
+            final T t;
+            try
+            {
+                if ( !this.cursor.next() )
+                {
+                    this.done = this.hi < 0;
+                    closeCursor();
+                    continue;
+                }
+                if ( this.cursor.fieldCount() == 0 )
+                {
+                    // an empty line ends the data, the ranges after it were dropped when split
+                    this.done = true;
+                    closeCursor();
+                    continue;
+                }
+                t = mapper.map( this.record++, this.cursor );
+            }
+            catch ( final Exception e )
+            {
+                final ProcessingException pe = new ProcessingException( e, this.lineOffset + this.cursor.getLineNumber() );
+                this.done = true;
+                closeCursor();
+                throw new RuntimeException( pe );
+            }
+            if ( t != null )
+            {
+                action.accept( t );
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Splits off the first half of the remaining ranges, the file is cut into ranges on the first call.
+     * @return spliterator of the first half, null if the remaining records are not split
+     */
+    @Override
+    public Spliterator<T> trySplit()
+    {
+        if ( this.done || this.cursor != null )
+            return null;
+        if ( this.hi < 0 )
+        {
+            if ( !CSVFileChunks.supports( this.source.charset, this.source.comment ) || this.end < 2 * this.source.chunkSize )
+                return null;
+            try
+            {
+                this.source.chunks = CSVFileChunks.split( this.source.path, this.source.charset, this.source.comment,
+                                                          ForkJoinPool.commonPool(), this.source.chunkSize );
+            }
+            catch ( final IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+            this.lo = 0;
+            this.hi = this.source.chunks.size();
+            final long empty = this.source.chunks.emptyLineRecord();
+            while ( empty >= 0 && this.hi > 1 && this.source.chunks.firstRecord( this.hi - 1 ) >= empty )
+                this.hi--;
+            this.end = this.source.chunks.end( this.hi - 1 );
+        }
+        if ( this.hi - this.lo < 2 )
+            return null;
+        final int mid = ( this.lo + this.hi ) >>> 1;
+        final CSVFileSpliterator<T> prefix = new CSVFileSpliterator<T>( this.source, this.lo, mid );
+        this.lo = mid;
+        return prefix;
+    }
+
+
+    /**
+     * Returns the number of bytes not yet read.
+     */
+    @Override
+    public long estimateSize()
+    {
+        if ( this.done )
+            return 0;
+        return this.hi < 0 ? this.end : this.end - this.source.chunks.start( this.lo );
+    }
+
+
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | NONNULL;
+    }
+
+
+    /**
+     * Closes the file, to be called once the stream is closed.
+     */
+    @Override
+    public void close()
+    {
+        this.done = true;
+        closeCursor();
+        final CSVFileChunks chunks = this.source.chunks;
+        if ( chunks != null )
+        {
+            try
+            {
+                chunks.close();
+            }
+            catch ( final IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+    }
+
+
+    /**
+     * Opens the cursor of the next range.
+     * @return false if there is no range left
+     */
+    private boolean open()
+    {
+        final Source s = this.source;
+        if ( this.hi < 0 )
+        {
+            try
+            {
+                this.cursor = CSVCursor.of( s.path, s.charset, s.delimiter, s.comment, s.blankIsNull );
+            }
+            catch ( final IOException e )
+            {
+                this.done = true;
+                throw new UncheckedIOException( e );
+            }
+            this.record = 0;
+            this.lineOffset = 0;
+            return true;
+        }
+        if ( this.lo >= this.hi )
+        {
+            this.done = true;
+            return false;
+        }
+        this.cursor = s.chunks.cursor( this.lo, s.delimiter, s.blankIsNull );
+        this.record = s.chunks.firstRecord( this.lo );
+        this.lineOffset = s.chunks.lineOffset( this.lo );
+        this.lo++;
+        return true;
+    }
+
+    private void closeCursor()
+    {
+        if ( this.cursor == null )
+            return;
+        try
+        {
+            this.cursor.close();
+        }
+        catch ( final IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+        finally
+        {
+            this.cursor = null;
+        }
+    }
+}
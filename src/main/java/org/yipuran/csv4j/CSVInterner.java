@@ -0,0 +1,110 @@
+package org.yipuran.csv4j;
+
+
+/**
+ * Bounded cache of the distinct values of a column.
+ * A value is looked up by hashing its chars in the row buffer, a String is created only for a value
+ * not in the cache, repeated values return the same String instance.
+ * <p>
+ * The cache is meant for low-cardinality columns. It gives up once the column has more than
+ * {@link #MAX_SIZE} distinct values, {@link #isFull()} then returns true and the cache is released,
+ * so a column of unique values pays only for its first values.
+ * Not thread safe, a cursor has its own caches.
+ * @since 1.3
+ */
+final class CSVInterner
+{
+    /** distinct values kept before giving up */
+    static final int MAX_SIZE = 1024;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** open addressing table, null is free */
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size;
+
+
+    /**
+     * Returns the String of some chars, the cached instance if the same chars were interned before.
+     * @param chars buffer
+     * @param start start of the value
+     * @param end end of the value
+     * @return String of the chars
+     */
+    String intern( final char[] chars, final int start, final int end )
+    {
+        if ( this.values == null )
+            return new String( chars, start, end - start );
+        // same hash as String#hashCode
+        int hash = 0;
+        for ( int pos = start; pos < end; pos++ )
+        {
+            hash = 31 * hash + chars[pos];
+        }
+        final int mask = this.values.length - 1;
+        int slot = ( hash ^ hash >>> 16 ) & mask;
+        for ( ;; slot = ( slot + 1 ) & mask )
+        {
+            final String value = this.values[slot];
+            if ( value == null )
+                break;
+            if ( this.hashes[slot] == hash && matches( value, chars, start, end ) )
+                return value;
+        }
+        final String value = new String( chars, start, end - start );
+        if ( ++this.size > MAX_SIZE )
+        {
+            // high cardinality, the cache would only cost
+            this.values = null;
+            this.hashes = null;
+            return value;
+        }
+        this.values[slot] = value;
+        this.hashes[slot] = hash;
+        if ( this.size * 2 > this.values.length )
+            grow();
+        return value;
+    }
+
+    /**
+     * Indicates if the cache gave up on the column.
+     * @return true if the column has more than {@link #MAX_SIZE} distinct values
+     */
+    boolean isFull()
+    {
+        return this.values == null;
+    }
+
+
+    private static boolean matches( final String value, final char[] chars, final int start, final int end )
+    {
+        if ( value.length() != end - start )
+            return false;
+        for ( int ii = 0; ii < value.length(); ii++ )
+        {
+            if ( value.charAt( ii ) != chars[start + ii] )
+                return false;
+        }
+        return true;
+    }
+
+    private void grow()
+    {
+        final String[] oldValues = this.values;
+        final int[] oldHashes = this.hashes;
+        this.values = new String[oldValues.length * 2];
+        this.hashes = new int[oldValues.length * 2];
+        final int mask = this.values.length - 1;
+        for ( int ii = 0; ii < oldValues.length; ii++ )
+        {
+            if ( oldValues[ii] == null )
+                continue;
+            final int hash = oldHashes[ii];
+            int slot = ( hash ^ hash >>> 16 ) & mask;
+            while ( this.values[slot] != null )
+                slot = ( slot + 1 ) & mask;
+            this.values[slot] = oldValues[ii];
+            this.hashes[slot] = hash;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.yipuran.csv4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Reads a region of a file through memory mapped windows.
+ * A region up to 2 GB is mapped at once, a larger one is mapped window by window
+ * as it is read. Reading copies from the mapped memory in bulk, no read system call is made.
+ * @since 1.3
+ */
+class CSVMappedInputStream extends InputStream
+{
+    /** largest window, the size limit of a MappedByteBuffer */
+    static final long MAX_WINDOW = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final boolean closeChannel;
+    private final long windowSize;
+    private final long end;
+    private long position;
+    private MappedByteBuffer window;
+
+
+    /**
+     * Opens a file for reading.
+     * @param path file
+     * @return stream over the whole file
+     * @throws IOException if the file cannot be opened
+     */
+    static CSVMappedInputStream open( final Path path ) throws IOException
+    {
+        final FileChannel channel = FileChannel.open( path, StandardOpenOption.READ );
+        try
+        {
+            return new CSVMappedInputStream( channel, 0, channel.size(), MAX_WINDOW, true );
+        }
+        catch ( final IOException e )
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Constructor.
+     * @param channel file channel
+     * @param start start of the region
+     * @param end end of the region
+     * @param windowSize largest size mapped at once
+     * @param closeChannel true if the channel is closed with this stream
+     */
+    CSVMappedInputStream( final FileChannel channel, final long start, final long end, final long windowSize,
+                          final boolean closeChannel )
+    {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+        this.windowSize = Math.min( windowSize, MAX_WINDOW );
+        this.closeChannel = closeChannel;
+    }
+
+
+    @Override
+    public int read() throws IOException
+    {
+        if ( !nextWindow() )
+            return -1;
+        return this.window.get() & 0xff;
+    }
+
+
+    @Override
+    public int read( final byte[] b, final int off, final int len ) throws IOException
+    {
+        if ( len == 0 )
+            return 0;
+        if ( !nextWindow() )
+            return -1;
+        final int n = Math.min( len, this.window.remaining() );
+        this.window.get( b, off, n );
+        return n;
+    }
+
+
+    @Override
+    public long skip( final long n ) throws IOException
+    {
+        long skipped = 0;
+        while ( skipped < n && nextWindow() )
+        {
+            final int step = (int)Math.min( n - skipped, this.window.remaining() );
+            ( (Buffer)this.window ).position( this.window.position() + step );
+            skipped += step;
+        }
+        return skipped;
+    }
+
+
+    @Override
+    public int available()
+    {
+        return (int)Math.min( Integer.MAX_VALUE, this.end - this.position + ( this.window == null ? 0 : this.window.remaining() ) );
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        this.window = null;
+        this.position = this.end;
+        if ( this.closeChannel )
+            this.channel.close();
+    }
+
+
+    /**
+     * Maps the next window if the current one is read.
+     * @return false if the end of the region is reached
+     */
+    private boolean nextWindow() throws IOException
+    {
+        if ( this.window != null && this.window.hasRemaining() )
+            return true;
+        if ( this.position >= this.end )
+            return false;
+        final long size = Math.min( this.end - this.position, this.windowSize );
+        this.window = this.channel.map( FileChannel.MapMode.READ_ONLY, this.position, size );
+        this.position += size;
+        return true;
+    }
+}
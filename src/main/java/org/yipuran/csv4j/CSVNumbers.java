@@ -0,0 +1,500 @@
+package org.yipuran.csv4j;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Number parsers over a range of a char array, byte array or CharSequence, so that a numeric field
+ * is parsed without creating a String.
+ * <p>
+ * The results and exceptions are the same as {@link Integer#parseInt(String)}, {@link Long#parseLong(String)},
+ * {@link Double#parseDouble(String)} and {@link Float#parseFloat(String)}: plain ASCII decimal numbers are
+ * parsed directly, anything else (non ASCII digits, hexadecimal or special values, suffixes, errors)
+ * is passed on to the JDK parser as a String.
+ * <p>
+ * Doubles of up to 18 significant digits are converted exactly with the Clinger fast path when the
+ * value and the power of ten are exact doubles, otherwise with the Eisel-Lemire algorithm
+ * (D. Lemire, "Number Parsing at a Gigabyte per Second", 2021). Byte arrays are read as ASCII,
+ * a byte of 0x80 or above is never a digit.
+ * @since 1.3
+ */
+public final class CSVNumbers
+{
+    private static final double[] DOUBLE_POWERS = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] FLOAT_POWERS = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    /** not a plain decimal, parsed by the JDK */
+    private static final long FALLBACK = Long.MIN_VALUE;
+
+    private CSVNumbers()
+    {
+    }
+
+
+    /**
+     * Parses an int.
+     * @param chars characters
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not an int
+     */
+    public static int parseInt( final char[] chars, final int start, final int end )
+    {
+        final long v = parseDecimal( chars, null, null, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE );
+        return v != FALLBACK ? (int)v : Integer.parseInt( new String( chars, start, end - start ) );
+    }
+
+    /**
+     * Parses an int from ASCII bytes.
+     * @param bytes bytes
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not an int
+     */
+    public static int parseInt( final byte[] bytes, final int start, final int end )
+    {
+        final long v = parseDecimal( null, bytes, null, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE );
+        return v != FALLBACK ? (int)v : Integer.parseInt( new String( bytes, start, end - start, StandardCharsets.ISO_8859_1 ) );
+    }
+
+    /**
+     * Parses an int.
+     * @param text characters
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not an int
+     */
+    public static int parseInt( final CharSequence text, final int start, final int end )
+    {
+        final long v = parseDecimal( null, null, text, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE );
+        return v != FALLBACK ? (int)v : Integer.parseInt( text.subSequence( start, end ).toString() );
+    }
+
+    /**
+     * Parses a long.
+     * @param chars characters
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not a long
+     */
+    public static long parseLong( final char[] chars, final int start, final int end )
+    {
+        final long v = parseDecimal( chars, null, null, start, end, Long.MIN_VALUE + 1, Long.MAX_VALUE );
+        return v != FALLBACK ? v : Long.parseLong( new String( chars, start, end - start ) );
+    }
+
+    /**
+     * Parses a long from ASCII bytes.
+     * @param bytes bytes
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not a long
+     */
+    public static long parseLong( final byte[] bytes, final int start, final int end )
+    {
+        final long v = parseDecimal( null, bytes, null, start, end, Long.MIN_VALUE + 1, Long.MAX_VALUE );
+        return v != FALLBACK ? v : Long.parseLong( new String( bytes, start, end - start, StandardCharsets.ISO_8859_1 ) );
+    }
+
+    /**
+     * Parses a long.
+     * @param text characters
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not a long
+     */
+    public static long parseLong( final CharSequence text, final int start, final int end )
+    {
+        final long v = parseDecimal( null, null, text, start, end, Long.MIN_VALUE + 1, Long.MAX_VALUE );
+        return v != FALLBACK ? v : Long.parseLong( text.subSequence( start, end ).toString() );
+    }
+
+    /**
+     * Parses a double.
+     * @param chars characters
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not a double
+     */
+    public static double parseDouble( final char[] chars, final int start, final int end )
+    {
+        final FloatParser p = new FloatParser( chars, null, null, start, end );
+        return p.parse() ? p.toDouble() : Double.parseDouble( new String( chars, start, end - start ) );
+    }
+
+    /**
+     * Parses a double from ASCII bytes.
+     * @param bytes bytes
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not a double
+     */
+    public static double parseDouble( final byte[] bytes, final int start, final int end )
+    {
+        final FloatParser p = new FloatParser( null, bytes, null, start, end );
+        return p.parse() ? p.toDouble() : Double.parseDouble( new String( bytes, start, end - start, StandardCharsets.ISO_8859_1 ) );
+    }
+
+    /**
+     * Parses a double.
+     * @param text characters
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not a double
+     */
+    public static double parseDouble( final CharSequence text, final int start, final int end )
+    {
+        final FloatParser p = new FloatParser( null, null, text, start, end );
+        return p.parse() ? p.toDouble() : Double.parseDouble( text.subSequence( start, end ).toString() );
+    }
+
+    /**
+     * Parses a float.
+     * @param chars characters
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not a float
+     */
+    public static float parseFloat( final char[] chars, final int start, final int end )
+    {
+        final FloatParser p = new FloatParser( chars, null, null, start, end );
+        return p.parse() && p.isExactFloat() ? p.toFloat() : Float.parseFloat( new String( chars, start, end - start ) );
+    }
+
+    /**
+     * Parses a float from ASCII bytes.
+     * @param bytes bytes
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not a float
+     */
+    public static float parseFloat( final byte[] bytes, final int start, final int end )
+    {
+        final FloatParser p = new FloatParser( null, bytes, null, start, end );
+        return p.parse() && p.isExactFloat() ? p.toFloat()
+                : Float.parseFloat( new String( bytes, start, end - start, StandardCharsets.ISO_8859_1 ) );
+    }
+
+    /**
+     * Parses a float.
+     * @param text characters
+     * @param start start of the range
+     * @param end end of the range
+     * @return value
+     * @throws NumberFormatException if the range is not a float
+     */
+    public static float parseFloat( final CharSequence text, final int start, final int end )
+    {
+        final FloatParser p = new FloatParser( null, null, text, start, end );
+        return p.parse() && p.isExactFloat() ? p.toFloat() : Float.parseFloat( text.subSequence( start, end ).toString() );
+    }
+
+
+    /**
+     * Returns the character at a position of one of the inputs.
+     */
+    private static int charAt( final char[] chars, final byte[] bytes, final CharSequence text, final int pos )
+    {
+        if ( chars != null )
+            return chars[pos];
+        if ( bytes != null )
+            return bytes[pos] & 0xff;
+        return text.charAt( pos );
+    }
+
+    /**
+     * Parses an optionally signed decimal integer of ASCII digits.
+     * @return value, {@link #FALLBACK} if it is not a plain decimal or out of range
+     */
+    private static long parseDecimal( final char[] chars, final byte[] bytes, final CharSequence text, final int start,
+                                      final int end, final long min, final long max )
+    {
+        int pos = start;
+        if ( pos >= end )
+            return FALLBACK;
+        final int first = charAt( chars, bytes, text, pos );
+        final boolean negative = first == '-';
+        if ( negative || first == '+' )
+        {
+            if ( ++pos >= end )
+                return FALLBACK;
+        }
+        // accumulate negatively, the negative range is the larger one
+        final long limit = negative ? min : -max;
+        final long multmin = limit / 10;
+        long result = 0;
+        while ( pos < end )
+        {
+            final int digit = charAt( chars, bytes, text, pos++ ) - '0';
+            if ( digit < 0 || digit > 9 || result < multmin )
+                return FALLBACK;
+            result *= 10;
+            if ( result < limit + digit )
+                return FALLBACK;
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+
+    /**
+     * Parses a plain decimal floating point number: optional sign, digits with an optional
+     * decimal point, optional exponent.
+     */
+    private static final class FloatParser
+    {
+        private final char[] chars;
+        private final byte[] bytes;
+        private final CharSequence text;
+        private final int start;
+        private final int end;
+        private boolean negative;
+        /** significant digits */
+        private long mantissa;
+        /** the number is mantissa * 10^exponent */
+        private int exponent;
+
+        FloatParser( final char[] chars, final byte[] bytes, final CharSequence text, final int start, final int end )
+        {
+            this.chars = chars;
+            this.bytes = bytes;
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return false if the JDK parser is needed
+         */
+        boolean parse()
+        {
+            int pos = this.start;
+            if ( pos >= this.end )
+                return false;
+            int c = charAt( this.chars, this.bytes, this.text, pos );
+            if ( c == '-' || c == '+' )
+            {
+                this.negative = c == '-';
+                if ( ++pos >= this.end )
+                    return false;
+                c = charAt( this.chars, this.bytes, this.text, pos );
+            }
+            long m = 0;
+            int digits = 0;
+            int significant = 0;
+            int scale = 0;
+            boolean point = false;
+            for ( ; pos < this.end; pos++ )
+            {
+                c = charAt( this.chars, this.bytes, this.text, pos );
+                if ( c >= '0' && c <= '9' )
+                {
+                    digits++;
+                    if ( point )
+                        scale--;
+                    if ( m == 0 && c == '0' )
+                        continue;
+                    // more digits than a long surely holds are left to the JDK
+                    if ( ++significant > 18 )
+                        return false;
+                    m = m * 10 + ( c - '0' );
+                }
+                else if ( c == '.' && !point )
+                    point = true;
+                else
+                    break;
+            }
+            if ( digits == 0 )
+                return false;
+            if ( pos < this.end )
+            {
+                if ( c != 'e' && c != 'E' || ++pos >= this.end )
+                    return false;
+                c = charAt( this.chars, this.bytes, this.text, pos );
+                final boolean negativeExponent = c == '-';
+                if ( ( c == '-' || c == '+' ) && ++pos >= this.end )
+                    return false;
+                int e = 0;
+                for ( ; pos < this.end; pos++ )
+                {
+                    c = charAt( this.chars, this.bytes, this.text, pos );
+                    if ( c < '0' || c > '9' || e > 100000 )
+                        return false;
+                    e = e * 10 + ( c - '0' );
+                }
+                scale += negativeExponent ? -e : e;
+            }
+            this.mantissa = m;
+            this.exponent = scale;
+            return true;
+        }
+
+        /**
+         * Indicates if the float is the exactly rounded product of two exact floats.
+         */
+        boolean isExactFloat()
+        {
+            return this.mantissa == 0 || this.mantissa <= ( 1L << 24 ) && this.exponent >= -10 && this.exponent <= 10;
+        }
+
+        float toFloat()
+        {
+            if ( this.mantissa == 0 )
+                return this.negative ? -0f : 0f;
+            float f = this.mantissa;
+            if ( this.exponent < 0 )
+                f /= FLOAT_POWERS[-this.exponent];
+            else if ( this.exponent > 0 )
+                f *= FLOAT_POWERS[this.exponent];
+            return this.negative ? -f : f;
+        }
+
+        double toDouble()
+        {
+            final long m = this.mantissa;
+            final int q = this.exponent;
+            double d;
+            if ( m == 0 )
+                d = 0;
+            else if ( m <= ( 1L << 53 ) && q >= -22 && q <= 22 )
+                d = q < 0 ? m / DOUBLE_POWERS[-q] : m * DOUBLE_POWERS[q];
+            else if ( q < EiselLemire.MIN_EXPONENT )
+                d = 0;
+            else if ( q > EiselLemire.MAX_EXPONENT )
+                d = Double.POSITIVE_INFINITY;
+            else
+                d = Double.longBitsToDouble( EiselLemire.toBits( m, q ) );
+            return this.negative ? -d : d;
+        }
+    }
+
+
+    /**
+     * Eisel-Lemire conversion of w * 10^q to the nearest double, w up to 18 digits.
+     */
+    private static final class EiselLemire
+    {
+        static final int MIN_EXPONENT = -342;
+        static final int MAX_EXPONENT = 308;
+        private static final int MANTISSA_BITS = 52;
+        private static final int MINIMUM_EXPONENT = -1023;
+        private static final int INFINITE_POWER = 0x7ff;
+        /** 128 bit approximations of 5^q, high and low 64 bits */
+        private static final long[] POWERS_OF_FIVE = new long[2 * ( MAX_EXPONENT - MIN_EXPONENT + 1 )];
+        static
+        {
+            final BigInteger two128 = BigInteger.ONE.shiftLeft( 128 );
+            final BigInteger two127 = BigInteger.ONE.shiftLeft( 127 );
+            final BigInteger mask = BigInteger.ONE.shiftLeft( 64 ).subtract( BigInteger.ONE );
+            for ( int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++ )
+            {
+                BigInteger c;
+                if ( q < 0 )
+                {
+                    final BigInteger power5 = BigInteger.valueOf( 5 ).pow( -q );
+                    final int z = power5.bitLength();
+                    final int b = q >= -27 ? z + 127 : 2 * z + 128;
+                    c = BigInteger.ONE.shiftLeft( b ).divide( power5 ).add( BigInteger.ONE );
+                    while ( c.compareTo( two128 ) >= 0 )
+                        c = c.shiftRight( 1 );
+                }
+                else
+                {
+                    c = BigInteger.valueOf( 5 ).pow( q );
+                    while ( c.compareTo( two127 ) < 0 )
+                        c = c.shiftLeft( 1 );
+                    while ( c.compareTo( two128 ) >= 0 )
+                        c = c.shiftRight( 1 );
+                }
+                final int index = 2 * ( q - MIN_EXPONENT );
+                POWERS_OF_FIVE[index] = c.shiftRight( 64 ).longValue();
+                POWERS_OF_FIVE[index + 1] = c.and( mask ).longValue();
+            }
+        }
+
+        /**
+         * @param w non zero decimal significand
+         * @param q decimal exponent, MIN_EXPONENT .. MAX_EXPONENT
+         * @return bits of the positive double
+         */
+        static long toBits( long w, final int q )
+        {
+            final int lz = Long.numberOfLeadingZeros( w );
+            w <<= lz;
+            // product with 55 bits of precision
+            final int index = 2 * ( q - MIN_EXPONENT );
+            long high = multiplyHigh( w, POWERS_OF_FIVE[index] );
+            long low = w * POWERS_OF_FIVE[index];
+            final long precisionMask = 0xffffffffffffffffL >>> ( MANTISSA_BITS + 3 );
+            if ( ( high & precisionMask ) == precisionMask )
+            {
+                final long secondHigh = multiplyHigh( w, POWERS_OF_FIVE[index + 1] );
+                low += secondHigh;
+                if ( Long.compareUnsigned( secondHigh, low ) > 0 )
+                    high++;
+            }
+            final int upperbit = (int)( high >>> 63 );
+            final int shift = upperbit + 64 - MANTISSA_BITS - 3;
+            long mantissa = high >>> shift;
+            int power2 = ( ( ( 152170 + 65536 ) * q ) >> 16 ) + 63 + upperbit - lz - MINIMUM_EXPONENT;
+            if ( power2 <= 0 )
+            {
+                // subnormal
+                if ( -power2 + 1 >= 64 )
+                    return 0;
+                mantissa >>>= -power2 + 1;
+                mantissa += mantissa & 1;
+                mantissa >>>= 1;
+                power2 = mantissa < ( 1L << MANTISSA_BITS ) ? 0 : 1;
+                return ( (long)power2 << MANTISSA_BITS ) | ( mantissa & ( ( 1L << MANTISSA_BITS ) - 1 ) );
+            }
+            // exactly halfway, round to even
+            if ( Long.compareUnsigned( low, 1 ) <= 0 && q >= -4 && q <= 23 && ( mantissa & 3 ) == 1
+                 && ( mantissa << shift ) == high )
+                mantissa &= ~1L;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            if ( mantissa >= ( 2L << MANTISSA_BITS ) )
+            {
+                mantissa = 1L << MANTISSA_BITS;
+                power2++;
+            }
+            mantissa &= ~( 1L << MANTISSA_BITS );
+            if ( power2 >= INFINITE_POWER )
+                return (long)INFINITE_POWER << MANTISSA_BITS;
+            return ( (long)power2 << MANTISSA_BITS ) | mantissa;
+        }
+
+        /**
+         * High 64 bits of the unsigned 128 bit product.
+         */
+        private static long multiplyHigh( final long a, final long b )
+        {
+            final long a0 = a & 0xffffffffL;
+            final long a1 = a >>> 32;
+            final long b0 = b & 0xffffffffL;
+            final long b1 = b >>> 32;
+            final long p01 = a0 * b1;
+            final long p10 = a1 * b0;
+            final long middle = ( ( a0 * b0 ) >>> 32 ) + ( p01 & 0xffffffffL ) + ( p10 & 0xffffffffL );
+            return a1 * b1 + ( p01 >>> 32 ) + ( p10 >>> 32 ) + ( middle >>> 32 );
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
 
 
 /**
@@ -30,35 +31,18 @@ import java.util.List;
  * Correctly handles quoted fields which contain line terminators.
  * The CSVReader is designed to be similar to {@link Reader} classes and in particular
  * is similar to the {@link LineNumberReader} in terms of its API.
+ * Since 1.3 the fields are split by a single pass {@link CSVScanner} while the input is read,
+ * instead of reading a line first and then tokenizing it with a {@link CSVParser}.
  * @author Shawn Boyce
  * @since 1.0
  */
 public class CSVReader
 {
-    enum States
-    {
-        Appending,         // appending characters
-
-        InsideDoubleQuote, // inside a quoted string
-        EndingDoubleQuote, // last character was a double quote
-
-        CarriageReturn,    // last character was a carriage return
-
-        InsideComment,     // inside comment line
-
-        EOF,               // at EOF
-    }
-
-    private final Reader reader;
-    private final CSVParser parser;
-    private final String comment;
-    private final char commentChar;
-    private int lineNumber = 0;
-    private final char buf[] = new char[100];
-    private int bufLen = 0;
-    private int bufPos = 0;
-    private States state = States.Appending;
-    private Charset charset;
+    private final CSVScanner scanner;
+    /** projected columns, null for all columns */
+    private int[] columns;
+    /** projected header names not yet resolved */
+    private String[] names;
 
     /**
      * Constructs a CSV reader with the default options.
@@ -71,7 +55,7 @@ public class CSVReader
 
     /**
      * Constructs a CSV reader with the specified options.
-     * @param reader input to read from. A {@link java.io.BufferedReader} is recommended for better performance.
+     * @param reader input to read from. A {@link java.io.BufferedReader} is not required, the reader is read in large blocks.
      * Note that a {@link java.io.LineNumberReader} should not be used since it will not
      * be able to track the line numbers correctly (newlines can be escaped in a CSV file).
      * @param comment character indicating line is a comment and should be ignored
@@ -87,7 +71,7 @@ public class CSVReader
 
     /**
      * Constructs a CSV reader with the specified options.
-     * @param reader input to read from. A {@link java.io.BufferedReader} is recommended for better performance.
+     * @param reader input to read from. A {@link java.io.BufferedReader} is not required, the reader is read in large blocks.
      * Note that a {@link java.io.LineNumberReader} should not be used since it will not
      * be able to track the line numbers correctly (newlines can be escaped in a CSV file).
      * @param comment character indicating line is a comment and should be ignored
@@ -95,21 +79,14 @@ public class CSVReader
      */
     public CSVReader( final Reader reader, Charset charset, final char delimiter, final char comment )
     {
-        this.reader = reader;
-        this.parser = new CSVParser( delimiter, true );
-        this.comment = comment + "";
-        this.commentChar = comment;
-        this.charset = charset;
+        this( reader, charset, delimiter, comment, false );
     }
 
     public CSVReader( final Reader reader, Charset charset, final char delimiter, final char comment , boolean blankIsNull)
     {
-        this.reader = reader;
         // "" → null フラグ: true なら解析結果 String を null にする
-        this.parser = blankIsNull ? new CSVNullableParser( delimiter, true ) : new CSVParser( delimiter, true );
-        this.comment = comment + "";
-        this.commentChar = comment;
-        this.charset = charset;
+        this.scanner = new CSVScanner( reader, delimiter, comment, true, blankIsNull,
+                                       StandardCharsets.UTF_8.equals( charset ) );
     }
 
 
@@ -120,7 +97,66 @@ public class CSVReader
      */
     public int getLineNumber()
     {
-        return this.lineNumber;
+        return this.scanner.getLineNumber();
+    }
+
+
+    /**
+     * Restricts the lines read after this call to some columns.
+     * The fields of the other columns are scanned only to find their end, they are never copied
+     * into a String. The lines are returned as fixed size lists of the projected fields in the
+     * order of the columns, null for a column beyond the end of the line.
+     * @param columns column indexes, null to read all columns
+     * @since 1.3
+     */
+    public void setProjection( final int... columns )
+    {
+        this.columns = columns;
+        this.names = null;
+        this.scanner.setProjection( columns );
+    }
+
+    /**
+     * Restricts the lines read after this call to the columns of some header names.
+     * The next line read is the header line, the names are resolved to the last column of
+     * the same name; the header line itself is returned projected.
+     * The following lines are returned as by {@link #setProjection(int...)},
+     * a name not in the header gives a null field.
+     * @param names header names
+     * @since 1.3
+     */
+    public void setProjection( final String... names )
+    {
+        this.columns = null;
+        this.names = names;
+        this.scanner.setProjection( (int[])null );
+    }
+
+
+    /**
+     * Interns the Strings of some columns.
+     * The repeated values of an interned column are the same String instance,
+     * see {@link CSVCursor#setInterning(int...)}.
+     * @param columns column indexes, null or none to intern no column
+     * @since 1.3
+     */
+    public void setInterning( final int... columns )
+    {
+        this.scanner.setInterning( columns );
+    }
+
+
+    /**
+     * Filters the lines read after this call by a column.
+     * A line is returned only if the predicate accepts its field of the column, the rest of a rejected
+     * line is scanned only to find its end. The rules are those of {@link CSVCursor#setFilter(int, Predicate)}.
+     * @param column column index
+     * @param predicate test of the field, null to read all lines
+     * @since 1.3
+     */
+    public void setFilter( final int column, final Predicate<? super CharSequence> predicate )
+    {
+        this.scanner.setFilter( column, predicate );
     }
 
 
@@ -133,162 +169,62 @@ public class CSVReader
      */
     public List<String> readLine() throws IOException, ParseException
     {
-        boolean flg = this.charset.equals(StandardCharsets.UTF_8);
-        while ( true )
-        {
-            final String line = readCSVLine(flg);
-            flg = false;
-            if ( line == null )
-                return Collections.emptyList();
-
-            if ( line.startsWith( this.comment ) || line.trim().startsWith( this.comment ) )
-            {
-                continue; // while -- ignore comment lines until read a data line
-            }
+        if ( !nextLine() )
+            return Collections.emptyList();
 
-            // return type mismatch - List vs String array
-            return this.parser.tokenize( line );
-        }
+        if ( this.columns != null )
+            return this.scanner.toList( this.columns );
+        return this.scanner.toList();
     }
 
-
     /**
-     * Closes the input
-     * @throws IOException if an I/O error occurs
+     * Reads and parses the next CSV line from the input as a compact row.
+     * Same as {@link #readLine()} but the fields are held in one char array,
+     * which takes much less memory for lines that are kept.
+     * @return row of size 0 if EOF reached; never returns null
+     * @throws IOException if an error occurs reading the input
+     * @throws ParseException if an error occurs during CSV parsing
+     * @since 1.3
      */
-    public void close() throws IOException
+    public CSVRow readRow() throws IOException, ParseException
     {
-        this.reader.close();
+        if ( !nextLine() )
+            return CSVRow.of( Collections.<String>emptyList() );
+
+        if ( this.columns != null )
+            return this.scanner.toRow( this.columns );
+        return this.scanner.toRow();
     }
 
     /**
-     * Read a line of CSV text.
-     * A line is terminated by newline ('\n'), carriage return ('\r'),
-     * or both ('\r\n')
-     * <b>unless</b> they are enclosed within double quotes.
-     * Line is also terminated by the EOF.
-     * @return CSV line without line terminator characters; null returned if EOF reached
-     * @throws IOException if an IO error occurs
+     * Moves to the next line, resolving the projection by names on the header line.
+     * @return false if EOF reached or the line is empty
      */
-    private String readCSVLine(boolean top) throws IOException
+    private boolean nextLine() throws IOException, ParseException
     {
-        if ( state == States.EOF )
-            return null;
+        if ( !this.scanner.next() || this.scanner.fieldCount == 0 )
+            return false;
 
-        final StringBuilder line = new StringBuilder();
-
-        while ( true )
+        if ( this.names != null )
         {
-            if ( this.bufPos >= this.bufLen ) // fill the buffer
+            final List<String> header = this.scanner.toList();
+            final int[] resolved = new int[this.names.length];
+            for ( int ii = 0; ii < resolved.length; ii++ )
             {
-                this.bufPos = 0;
-                this.bufLen = this.reader.read( buf );
-                if (top) {
-                   // BIG_ENDIAN or LITTLE_ENDIAN
-                   if (buf[0]==0xfeff || buf[0]==0xfffe) {
-                      for(int k=1;k < this.bufLen;k++) {
-                         buf[k-1] = buf[k];
-                      }
-                      this.bufLen--;
-                   }
-                }
-                if ( this.bufLen < 0 )
-                {
-                    state = States.EOF;
-                    if ( line.length() != 0 )
-                    {
-                        lineNumber++;
-                        return line.toString(); // return what's in the buffer. Next call will return null
-                    }
-						return null; // eof
-                }
+                resolved[ii] = header.lastIndexOf( this.names[ii] );
             }
+            setProjection( resolved );
+        }
+        return true;
+    }
 
-            for ( ; bufPos < this.bufLen; bufPos++ )
-            {
-                final char ch = this.buf[bufPos];
-
-                switch ( state )
-                {
-                case Appending:
-                    switch ( ch )
-                    {
-                    case CSVConstants.CARRIAGE_RETURN:
-                        state = States.CarriageReturn;
-                        break;
-
-                    case CSVConstants.NEWLINE:
-                        lineNumber++;
-                        bufPos++;
-                        state = States.Appending;
-                        return line.toString();
-
-                    case CSVConstants.DOUBLE_QUOTE:
-                        state = States.InsideDoubleQuote;
-                        line.append( ch );
-                        break;
-
-                    default:
-                        if ( ch == this.commentChar )
-                            state = States.InsideComment;
-
-                        line.append( ch );
-                        break;
-                    }
-                    break;
-
-                case InsideDoubleQuote:
-                    if ( ch == CSVConstants.DOUBLE_QUOTE )
-                    {
-                        state = States.EndingDoubleQuote; // possible ending double quote or escaped one; next char will tell
-                    }
-
-                    line.append( ch );
-                    break;
-
-                case EndingDoubleQuote:
-                    if ( ch == CSVConstants.DOUBLE_QUOTE ) // a quoted double quote is two consecutive double quotes
-                    {
-                        state = States.InsideDoubleQuote;
-                        line.append( ch );
-                    }
-                    else
-                    {
-                        state = States.Appending; // we exited the quoted string
-                        bufPos--; // process this character again
-                    }
-                    break;
-
-                case CarriageReturn:
-                    if ( ch == CSVConstants.NEWLINE )
-                    {
-                        bufPos++; // munch the CR LF
-                    }
-                    // else process this character in the next readLine() call
-
-                    lineNumber++;
-                    state = States.Appending;
-                    return line.toString();
-
-                case InsideComment:
-                    switch ( ch )
-                    {
-                    case CSVConstants.CARRIAGE_RETURN:
-                    case CSVConstants.NEWLINE:
-                        bufPos--; // stay where we are and just change state
-                        state = States.Appending;
-                        break;
-
-                    default:
-                        line.append( ch );
-                        break;
-                    }
-                    break;
 
-                case EOF:
-                    return null;
-                }
-            }
-        }
+    /**
+     * Closes the input
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException
+    {
+        this.scanner.close();
     }
 }
@@ -0,0 +1,286 @@
+package org.yipuran.csv4j;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+
+/**
+ * Compact CSV record.
+ * The fields are held in one char array with a table of the field ends, instead of a list of Strings
+ * which costs an object and an array per field. It is meant for records that are kept in memory,
+ * a String is created only when a field is read with {@link #get(int)} and numbers are parsed on the chars.
+ * <p>
+ * A row is an unmodifiable {@link List} of the field values, equal to a list of the same Strings.
+ * A null field is kept apart from an empty one.
+ * @since 1.3
+ */
+public final class CSVRow extends AbstractList<String> implements RandomAccess
+{
+    private static final char[] NO_CHARS = new char[0];
+
+    private final char[] chars;
+    /** end of each field in chars, ~end for a null field */
+    private final int[] ends;
+
+
+    /**
+     * Constructor.
+     * @param chars field contents, not copied
+     * @param ends end of each field, ~end for a null field; not copied
+     */
+    CSVRow( final char[] chars, final int[] ends )
+    {
+        this.chars = chars;
+        this.ends = ends;
+    }
+
+
+    /**
+     * Creates a row of some values.
+     * @param values field values, may contain null
+     * @return row
+     */
+    public static CSVRow of( final List<String> values )
+    {
+        if ( values instanceof CSVRow )
+            return (CSVRow)values;
+        int length = 0;
+        for ( final String value : values )
+        {
+            if ( value != null )
+                length += value.length();
+        }
+        final char[] chars = length == 0 ? NO_CHARS : new char[length];
+        final int[] ends = new int[values.size()];
+        int pos = 0;
+        int ii = 0;
+        for ( final String value : values )
+        {
+            if ( value == null )
+            {
+                ends[ii++] = ~pos;
+                continue;
+            }
+            value.getChars( 0, value.length(), chars, pos );
+            pos += value.length();
+            ends[ii++] = pos;
+        }
+        return new CSVRow( chars, ends );
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public int size()
+    {
+        return this.ends.length;
+    }
+
+    /**
+     * Returns a field as a new String.
+     * @param index field index
+     * @return field value, null for a null field
+     * @throws IndexOutOfBoundsException if index is not less than {@link #size()}
+     */
+    @Override
+    public String get( final int index )
+    {
+        if ( isNull( index ) )
+            return null;
+        final int start = start( index );
+        return new String( this.chars, start, this.ends[index] - start );
+    }
+
+    /**
+     * Indicates if a field is null.
+     * @param index field index
+     * @return true if {@link #get(int)} returns null
+     * @throws IndexOutOfBoundsException if index is not less than {@link #size()}
+     */
+    public boolean isNull( final int index )
+    {
+        return this.ends[index] < 0;
+    }
+
+    /**
+     * Returns the length of a field.
+     * @param index field index
+     * @return number of chars, 0 for a null field
+     * @throws IndexOutOfBoundsException if index is not less than {@link #size()}
+     */
+    public int length( final int index )
+    {
+        return end( index ) - start( index );
+    }
+
+    /**
+     * Parses a field as an int without creating a String.
+     * The result and exceptions are the same as {@link Integer#parseInt(String)} of {@link #get(int)}.
+     * @param index field index
+     * @return value
+     * @throws NumberFormatException if the field is not an int
+     * @throws IndexOutOfBoundsException if index is not less than {@link #size()}
+     */
+    public int getInt( final int index )
+    {
+        if ( length( index ) == 0 )
+            return Integer.parseInt( get( index ) );
+        return CSVNumbers.parseInt( this.chars, start( index ), this.ends[index] );
+    }
+
+    /**
+     * Parses a field as a long without creating a String.
+     * The result and exceptions are the same as {@link Long#parseLong(String)} of {@link #get(int)}.
+     * @param index field index
+     * @return value
+     * @throws NumberFormatException if the field is not a long
+     * @throws IndexOutOfBoundsException if index is not less than {@link #size()}
+     */
+    public long getLong( final int index )
+    {
+        if ( length( index ) == 0 )
+            return Long.parseLong( get( index ) );
+        return CSVNumbers.parseLong( this.chars, start( index ), this.ends[index] );
+    }
+
+    /**
+     * Parses a field as a short without creating a String.
+     * The result and exceptions are the same as {@link Short#parseShort(String)} of {@link #get(int)}.
+     * @param index field index
+     * @return value
+     * @throws NumberFormatException if the field is not a short
+     * @throws IndexOutOfBoundsException if index is not less than {@link #size()}
+     */
+    public short getShort( final int index )
+    {
+        final int value;
+        try
+        {
+            value = getInt( index );
+        }
+        catch ( final NumberFormatException e )
+        {
+            return Short.parseShort( get( index ) );
+        }
+        if ( value < Short.MIN_VALUE || value > Short.MAX_VALUE )
+            return Short.parseShort( get( index ) );
+        return (short)value;
+    }
+
+    /**
+     * Parses a field as a double without creating a String.
+     * The result and exceptions are the same as {@link Double#parseDouble(String)} of {@link #get(int)}.
+     * @param index field index
+     * @return value
+     * @throws NumberFormatException if the field is not a double
+     * @throws NullPointerException if the field is null
+     * @throws IndexOutOfBoundsException if index is not less than {@link #size()}
+     */
+    public double getDouble( final int index )
+    {
+        if ( length( index ) == 0 )
+            return Double.parseDouble( get( index ) );
+        return CSVNumbers.parseDouble( this.chars, start( index ), this.ends[index] );
+    }
+
+    /**
+     * Parses a field as a float without creating a String.
+     * The result and exceptions are the same as {@link Float#parseFloat(String)} of {@link #get(int)}.
+     * @param index field index
+     * @return value
+     * @throws NumberFormatException if the field is not a float
+     * @throws NullPointerException if the field is null
+     * @throws IndexOutOfBoundsException if index is not less than {@link #size()}
+     */
+    public float getFloat( final int index )
+    {
+        if ( length( index ) == 0 )
+            return Float.parseFloat( get( index ) );
+        return CSVNumbers.parseFloat( this.chars, start( index ), this.ends[index] );
+    }
+
+    /**
+     * Indicates if a field equals some characters, without creating a String.
+     * @param index field index
+     * @param value characters to compare, null matches a null field
+     * @return true if the field has the same characters
+     * @throws IndexOutOfBoundsException if index is not less than {@link #size()}
+     */
+    public boolean contentEquals( final int index, final CharSequence value )
+    {
+        if ( value == null || isNull( index ) )
+            return value == null && isNull( index );
+        final int start = start( index );
+        final int length = this.ends[index] - start;
+        if ( value.length() != length )
+            return false;
+        for ( int ii = 0; ii < length; ii++ )
+        {
+            if ( this.chars[start + ii] != value.charAt( ii ) )
+                return false;
+        }
+        return true;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode()
+    {
+        // same as a list of the Strings
+        int hash = 1;
+        for ( int ii = 0; ii < this.ends.length; ii++ )
+        {
+            int h = 0;
+            if ( !isNull( ii ) )
+            {
+                for ( int pos = start( ii ); pos < this.ends[ii]; pos++ )
+                {
+                    h = 31 * h + this.chars[pos];
+                }
+            }
+            hash = 31 * hash + h;
+        }
+        return hash;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals( final Object o )
+    {
+        if ( !( o instanceof CSVRow ) )
+            return super.equals( o );
+        final CSVRow other = (CSVRow)o;
+        if ( other.size() != size() )
+            return false;
+        for ( int ii = 0; ii < this.ends.length; ii++ )
+        {
+            if ( isNull( ii ) != other.isNull( ii ) )
+                return false;
+            final int start = start( ii );
+            final int otherStart = other.start( ii );
+            final int length = end( ii ) - start;
+            if ( other.end( ii ) - otherStart != length )
+                return false;
+            for ( int k = 0; k < length; k++ )
+            {
+                if ( this.chars[start + k] != other.chars[otherStart + k] )
+                    return false;
+            }
+        }
+        return true;
+    }
+
+
+    private int end( final int index )
+    {
+        final int end = this.ends[index];
+        return end < 0 ? ~end : end;
+    }
+
+    private int start( final int index )
+    {
+        return index == 0 ? 0 : end( index - 1 );
+    }
+}
@@ -0,0 +1,475 @@
+package org.yipuran.csv4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+
+/**
+ * Single pass CSV record scanner.
+ * Fields are split while the characters are read from the input buffer, so a record
+ * is neither built up as a line String nor scanned a second time by a {@link CSVParser}.
+ * The quoting, comment, trim and blank-is-null rules are those of {@link CSVReader},
+ * {@link CSVParser} and {@link CSVNullableParser}:
+ * <ul>
+ * <li>a record is terminated by newline, carriage return or both unless they are inside double quotes</li>
+ * <li>a record whose first non blank character is the comment character is ignored</li>
+ * <li>whitespace around unquoted content is trimmed, quoted content is kept as is</li>
+ * <li>an empty line is returned as a record without fields</li>
+ * </ul>
+ * The unescaped field contents of the current record are held in one char buffer
+ * which is reused for the next record.
+ * @since 1.3
+ */
+class CSVScanner extends CSVCursor
+{
+    private static final int UNQUOTED = 0;   // appending characters outside of double quotes
+    private static final int QUOTED = 1;     // inside a quoted string
+    private static final int QUOTE_END = 2;  // last character was a double quote inside a quoted string
+
+    private static final int RECORD = 0;
+    private static final int COMMENT_LINE = 1;
+    private static final int END = 2;
+    private static final int REJECTED = 3;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final char commentChar;
+    private final boolean trimFields;
+    private boolean skipBom;
+
+    private final char[] buf = new char[8192];
+    private int bufPos = 0;
+    private int bufLen = 0;
+    private boolean eof = false;
+    private boolean pendingCR = false;
+    private int lineNumber = 0;
+
+    /** unescaped field contents of the current record */
+    char[] row = new char[256];
+    /** field i of the current record is row[offsets[i]] .. row[offsets[i+1]] */
+    int[] offsets = new int[17];
+    /** number of fields of the current record */
+    int fieldCount = 0;
+
+
+    /**
+     * Constructor.
+     * @param reader input to read from
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param trimFields indicates if unquoted fields are to be trimmed or not
+     * @param blankIsNull true if blank fields are read as null
+     * @param skipBom true if a byte order mark at the beginning of the input is to be skipped
+     */
+    CSVScanner( final Reader reader, final char delimiter, final char comment,
+                final boolean trimFields, final boolean blankIsNull, final boolean skipBom )
+    {
+        super( blankIsNull );
+        this.reader = reader;
+        this.delimiter = delimiter;
+        this.commentChar = comment;
+        this.trimFields = trimFields;
+        this.skipBom = skipBom;
+    }
+
+
+    /**
+     * Returns the current line number.
+     * Comment lines are counted, a record containing quoted line terminators counts as one line.
+     * @return current line number
+     */
+    @Override
+    public int getLineNumber()
+    {
+        return this.lineNumber;
+    }
+
+
+    /**
+     * Reads the next record into the row buffer, skipping comment lines.
+     * @return false if EOF reached
+     * @throws IOException if an error occurs reading the input
+     * @throws ParseException if the terminating double quote is not found
+     */
+    @Override
+    public boolean next() throws IOException, ParseException
+    {
+        while ( true )
+        {
+            final int result = scanRecord();
+            if ( result == RECORD )
+                return true;
+            if ( result == END )
+                return false;
+        }
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public int fieldCount()
+    {
+        return this.fieldCount;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public String getString( final int index )
+    {
+        checkIndex( index );
+        final int start = this.offsets[index];
+        final int length = this.offsets[index + 1] - start;
+        if ( length == 0 )
+            return this.blankIsNull ? null : "";
+        return newString( index, this.row, start, start + length );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * The row buffer is copied at once, the fields are contiguous in it.
+     */
+    @Override
+    public CSVRow toRow()
+    {
+        final int count = this.fieldCount;
+        final int[] ends = new int[count];
+        for ( int ii = 0; ii < count; ii++ )
+        {
+            final int end = this.offsets[ii + 1];
+            ends[ii] = this.blankIsNull && end == this.offsets[ii] ? ~end : end;
+        }
+        return new CSVRow( Arrays.copyOf( this.row, count == 0 ? 0 : this.offsets[count] ), ends );
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException
+    {
+        this.reader.close();
+    }
+
+
+    @Override
+    boolean isEmpty( final int index )
+    {
+        return this.offsets[index] == this.offsets[index + 1];
+    }
+
+    @Override
+    char[] fieldChars( final int index )
+    {
+        return this.row;
+    }
+
+    @Override
+    int fieldStart( final int index )
+    {
+        return this.offsets[index];
+    }
+
+    @Override
+    int fieldEnd( final int index )
+    {
+        return this.offsets[index + 1];
+    }
+
+
+    /**
+     * Scans one line from the input.
+     * @return RECORD if a record was read, COMMENT_LINE if a comment line was skipped,
+     * REJECTED if a record was not accepted by the filter, END if EOF reached
+     */
+    private int scanRecord() throws IOException
+    {
+        if ( this.pendingCR )
+        {
+            // munch the LF of a CR LF terminator
+            if ( this.bufPos < this.bufLen || fill() )
+            {
+                if ( this.buf[this.bufPos] == CSVConstants.NEWLINE )
+                    this.bufPos++;
+            }
+            this.pendingCR = false;
+        }
+
+        final char[] buf = this.buf;
+        final char delimiter = this.delimiter;
+        char[] row = this.row;
+        int rowLen = 0;
+        int fieldStart = 0;
+        int wsStart = -1;      // start of pending (possibly trailing) whitespace, -1 if none
+        int count = 0;
+        boolean head = true;   // only characters <= ' ' consumed in this line so far
+        int state = UNQUOTED;
+        final boolean[] selected = this.selected;
+        final int filterColumn = this.filterColumn;
+        boolean copy = copies( selected, 0 ) || filterColumn == 0;
+        boolean rejected = false;
+        boolean skipped = false; // characters of fields out of the projection consumed in this line
+
+        while ( true )
+        {
+            if ( this.bufPos >= this.bufLen && !fill() )
+            {
+                // EOF
+                if ( state != QUOTED && head && rowLen == 0 && count == 0 && !skipped )
+                    return END;
+                this.lineNumber++;
+                if ( state == QUOTED )
+                    throw new ParseException( "terminating double quote not found", count + 1 );
+                if ( wsStart >= 0 )
+                    rowLen = wsStart;
+                return endRecord( count, rowLen, rejected );
+            }
+
+            int pos = this.bufPos;
+            final int len = this.bufLen;
+
+            if ( state == QUOTED )
+            {
+                // copy up to the next double quote in bulk
+                int end = pos;
+                while ( end < len && buf[end] != CSVConstants.DOUBLE_QUOTE )
+                    end++;
+                final int n = end - pos;
+                if ( n > 0 && copy )
+                {
+                    if ( rowLen + n > row.length )
+                        row = growRow( rowLen + n );
+                    System.arraycopy( buf, pos, row, rowLen, n );
+                    rowLen += n;
+                }
+                if ( end < len )
+                {
+                    state = QUOTE_END;
+                    end++;
+                }
+                this.bufPos = end;
+                continue;
+            }
+
+            final char ch = buf[pos++];
+            this.bufPos = pos;
+
+            if ( state == QUOTE_END )
+            {
+                if ( ch == CSVConstants.DOUBLE_QUOTE )
+                {
+                    // a quoted double quote is two consecutive double quotes
+                    if ( copy )
+                    {
+                        if ( rowLen == row.length )
+                            row = growRow( rowLen + 1 );
+                        row[rowLen++] = ch;
+                    }
+                    state = QUOTED;
+                    continue;
+                }
+                state = UNQUOTED; // we exited the quoted string, process this character as unquoted
+            }
+
+            switch ( ch )
+            {
+            case CSVConstants.CARRIAGE_RETURN:
+            case CSVConstants.NEWLINE:
+                this.pendingCR = ch == CSVConstants.CARRIAGE_RETURN;
+                this.lineNumber++;
+                if ( head && rowLen == 0 && count == 0 && !skipped )
+                {
+                    // empty line
+                    this.fieldCount = 0;
+                    this.row = row;
+                    return RECORD;
+                }
+                if ( wsStart >= 0 )
+                    rowLen = wsStart;
+                return endRecord( count, rowLen, rejected );
+
+            case CSVConstants.DOUBLE_QUOTE:
+                head = false;
+                if ( wsStart >= 0 )
+                {
+                    // leading whitespace is discarded, whitespace in the middle is kept
+                    if ( wsStart == fieldStart )
+                        rowLen = fieldStart;
+                    wsStart = -1;
+                }
+                state = QUOTED;
+                break;
+
+            default:
+                if ( head )
+                {
+                    if ( ch == this.commentChar )
+                    {
+                        skipComment();
+                        return COMMENT_LINE;
+                    }
+                    head = ch <= ' ';
+                }
+                if ( ch == delimiter )
+                {
+                    if ( wsStart >= 0 )
+                    {
+                        rowLen = wsStart; // discard trailing whitespace
+                        wsStart = -1;
+                    }
+                    count++;
+                    if ( count + 1 >= this.offsets.length )
+                        growOffsets();
+                    this.offsets[count] = rowLen;
+                    fieldStart = rowLen;
+                    if ( count - 1 == filterColumn && !accepts( filterColumn ) )
+                        rejected = true;
+                    copy = !rejected && ( copies( selected, count ) || count == filterColumn );
+                }
+                else if ( !copy )
+                {
+                    // field out of the projection, only its end is looked for
+                    skipped = true;
+                    if ( !head )
+                    {
+                        int end = pos;
+                        char c;
+                        while ( end < len && ( c = buf[end] ) != delimiter && c != CSVConstants.DOUBLE_QUOTE
+                                && c != CSVConstants.NEWLINE && c != CSVConstants.CARRIAGE_RETURN )
+                            end++;
+                        this.bufPos = end;
+                    }
+                }
+                else if ( this.trimFields && isWhitespace( ch ) )
+                {
+                    if ( wsStart < 0 )
+                        wsStart = rowLen;
+                    if ( rowLen == row.length )
+                        row = growRow( rowLen + 1 );
+                    row[rowLen++] = ch;
+                }
+                else
+                {
+                    if ( wsStart >= 0 )
+                    {
+                        if ( wsStart == fieldStart )
+                            rowLen = fieldStart;
+                        wsStart = -1;
+                    }
+                    // copy the run of ordinary characters in bulk
+                    int end = pos;
+                    if ( !head )
+                    {
+                        char c;
+                        while ( end < len && ( c = buf[end] ) > ' ' && c != delimiter && c != CSVConstants.DOUBLE_QUOTE
+                                && ( c < '\u0080' || !( this.trimFields && Character.isWhitespace( c ) ) ) )
+                            end++;
+                    }
+                    final int n = end - pos + 1;
+                    if ( rowLen + n > row.length )
+                        row = growRow( rowLen + n );
+                    System.arraycopy( buf, pos - 1, row, rowLen, n );
+                    rowLen += n;
+                    this.bufPos = end;
+                }
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Completes the current record.
+     * @param count number of completed fields before the last field
+     * @param rowLen end of the last field
+     * @param rejected true if the filter rejected a completed field
+     * @return RECORD, or REJECTED if the record is not accepted by the filter
+     */
+    private int endRecord( final int count, final int rowLen, final boolean rejected )
+    {
+        this.offsets[count + 1] = rowLen;
+        if ( rejected || count < this.filterColumn || count == this.filterColumn && !accepts( count ) )
+            return REJECTED;
+        this.fieldCount = count + 1;
+        return RECORD;
+    }
+
+
+    /**
+     * Skips to the end of a comment line.
+     */
+    private void skipComment() throws IOException
+    {
+        while ( this.bufPos < this.bufLen || fill() )
+        {
+            final char ch = this.buf[this.bufPos++];
+            if ( ch == CSVConstants.NEWLINE || ch == CSVConstants.CARRIAGE_RETURN )
+            {
+                this.pendingCR = ch == CSVConstants.CARRIAGE_RETURN;
+                break;
+            }
+        }
+        this.lineNumber++;
+    }
+
+
+    /**
+     * Fills the input buffer.
+     * @return false if EOF reached
+     */
+    private boolean fill() throws IOException
+    {
+        while ( !this.eof )
+        {
+            final int n = this.reader.read( this.buf, 0, this.buf.length );
+            if ( n < 0 )
+            {
+                this.eof = true;
+                break;
+            }
+            this.bufPos = 0;
+            this.bufLen = n;
+            if ( n > 0 && this.skipBom )
+            {
+                this.skipBom = false;
+                // BIG_ENDIAN or LITTLE_ENDIAN
+                if ( this.buf[0] == '\uFEFF' || this.buf[0] == '\uFFFE' )
+                    this.bufPos = 1;
+            }
+            if ( this.bufPos < this.bufLen )
+                return true;
+        }
+        this.bufPos = 0;
+        this.bufLen = 0;
+        return false;
+    }
+
+
+    private char[] growRow( final int minLength )
+    {
+        final char[] newRow = new char[Math.max( minLength, this.row.length * 2 )];
+        System.arraycopy( this.row, 0, newRow, 0, this.row.length );
+        this.row = newRow;
+        return newRow;
+    }
+
+
+    private void growOffsets()
+    {
+        final int[] newOffsets = new int[this.offsets.length * 2];
+        System.arraycopy( this.offsets, 0, newOffsets, 0, this.offsets.length );
+        this.offsets = newOffsets;
+    }
+
+
+    /**
+     * Same whitespace as {@link CSVParser}, with a shortcut for printable ASCII.
+     */
+    static boolean isWhitespace( final char ch )
+    {
+        if ( ch > ' ' && ch < '\u0080' )
+            return false;
+        return Character.isWhitespace( ch );
+    }
+}
@@ -0,0 +1,240 @@
+package org.yipuran.csv4j;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+
+/**
+ * CSV record scanner over Shift_JIS / windows-31j (MS932) bytes.
+ * The trail byte of a double byte character is 0x40 - 0xFC, so it never is a double quote,
+ * comma, carriage return or newline; records and fields are found on the raw bytes stepping
+ * over double byte characters, which also keeps a delimiter like '|' or '\' in the trail byte range safe.
+ * The ideographic space (0x81 0x40) outside of double quotes is trimmed like {@link CSVScanner} does with U+3000.
+ * <p>
+ * Fields are decoded with a lookup table built from the JDK decoder, malformed or unmapped bytes
+ * are left to the charset decoder so the result is the same as reading through an {@link java.io.InputStreamReader}.
+ * @since 1.3
+ */
+class CSVSjisScanner extends CSVByteScanner
+{
+    /** index of a lead byte in the table, -1 if not a lead byte */
+    private static final int[] LEAD = new int[256];
+    static
+    {
+        for ( int b = 0; b < 256; b++ )
+        {
+            LEAD[b] = b >= 0x81 && b <= 0x9f ? b - 0x81 : b >= 0xe0 && b <= 0xfc ? b - 0xe0 + 31 : -1;
+        }
+    }
+
+    private static final char UNDEFINED = '\uFFFD';
+
+    private final Table table;
+
+
+    /**
+     * Constructor for stream input.
+     * @param input input to read from, it is read in large blocks
+     * @param charset Shift_JIS or windows-31j
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     */
+    CSVSjisScanner( final InputStream input, final Charset charset, final char delimiter, final char comment,
+                    final boolean blankIsNull )
+    {
+        super( input, charset, delimiter, comment, blankIsNull );
+        this.table = table( charset );
+    }
+
+    /**
+     * Constructor for input held in an array, the array is scanned in place.
+     * @param data input bytes
+     * @param offset start of the input
+     * @param length length of the input
+     * @param charset Shift_JIS or windows-31j
+     * @param delimiter field delimiter character
+     * @param comment character indicating line is a comment and should be ignored
+     * @param blankIsNull true if blank fields are read as null
+     */
+    CSVSjisScanner( final byte[] data, final int offset, final int length, final Charset charset,
+                    final char delimiter, final char comment, final boolean blankIsNull )
+    {
+        super( data, offset, length, charset, delimiter, comment, blankIsNull );
+        this.table = table( charset );
+    }
+
+
+    /**
+     * Indicates if the charset is Shift_JIS or windows-31j (MS932).
+     * @param charset character set
+     * @return true if scanned by this class
+     */
+    static boolean supports( final Charset charset )
+    {
+        final String name = charset.name();
+        return "Shift_JIS".equals( name ) || "windows-31j".equals( name );
+    }
+
+
+    /**
+     * Lead bytes are not plain, the trail byte is stepped over.
+     */
+    @Override
+    void initTables()
+    {
+        super.initTables();
+        for ( int b = 0x80; b < 256; b++ )
+        {
+            this.whitespace[b] = false;
+            if ( LEAD[b] >= 0 )
+                this.plain[b] = false;
+        }
+    }
+
+
+    @Override
+    int classify( final byte[] buf, final int pos, final int limit )
+    {
+        final int lead = LEAD[buf[pos] & 0xff];
+        if ( lead < 0 || pos + 1 >= limit )
+            return 1;
+        final int index = ( lead << 8 ) | ( buf[pos + 1] & 0xff );
+        final char ch = this.table.doubleByte[index];
+        if ( ch == UNDEFINED )
+            return this.table.errorLength[index];
+        return CSVScanner.isWhitespace( ch ) ? -2 : 2;
+    }
+
+
+    @Override
+    int decode( final byte[] row, int pos, final int end, final char[] chars, int c )
+    {
+        final char[] singleByte = this.table.singleByte;
+        final char[] doubleByte = this.table.doubleByte;
+        while ( pos < end )
+        {
+            final int b = row[pos] & 0xff;
+            if ( b < 0x80 )
+            {
+                chars[c++] = (char)b;
+                pos++;
+                continue;
+            }
+            final int lead = LEAD[b];
+            final char ch;
+            if ( lead >= 0 )
+            {
+                if ( pos + 1 >= end )
+                    break;
+                ch = doubleByte[( lead << 8 ) | ( row[pos + 1] & 0xff )];
+                if ( ch == UNDEFINED )
+                    break;
+                pos += 2;
+            }
+            else
+            {
+                ch = singleByte[b];
+                if ( ch == UNDEFINED )
+                    break;
+                pos++;
+            }
+            chars[c++] = ch;
+        }
+        if ( pos < end )
+            c = decodeCharset( row, pos, end, chars, c );
+        return c;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public String getString( final int index )
+    {
+        checkIndex( index );
+        if ( isEmpty( index ) )
+            return this.blankIsNull ? null : "";
+        return newString( index, fieldChars( index ), fieldStart( index ), fieldEnd( index ) );
+    }
+
+
+    private static Table table( final Charset charset )
+    {
+        return "Shift_JIS".equals( charset.name() ) ? ShiftJis.TABLE : Windows31j.TABLE;
+    }
+
+
+    /**
+     * Decoding table of one charset, {@link #UNDEFINED} where the JDK decoder reports an error.
+     */
+    private static final class Table
+    {
+        /** chars of the single bytes 0x80 - 0xFF */
+        final char[] singleByte = new char[256];
+        /** chars of the double bytes, indexed by lead byte index and trail byte */
+        final char[] doubleByte = new char[60 << 8];
+        /** number of bytes the JDK decoder replaces for an undefined double byte, 1 if the trail byte is read again */
+        final byte[] errorLength = new byte[60 << 8];
+
+        Table( final Charset charset )
+        {
+            final CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput( CodingErrorAction.REPORT )
+                    .onUnmappableCharacter( CodingErrorAction.REPORT );
+            final CharBuffer out = CharBuffer.allocate( 2 );
+            for ( int b = 0x80; b < 256; b++ )
+            {
+                if ( LEAD[b] < 0 && decode( decoder, ByteBuffer.wrap( new byte[]{ (byte)b } ), out ) == 1 )
+                    this.singleByte[b] = out.get( 0 );
+                else
+                    this.singleByte[b] = UNDEFINED;
+            }
+            for ( int b = 0x80; b < 256; b++ )
+            {
+                final int lead = LEAD[b];
+                if ( lead < 0 )
+                    continue;
+                for ( int trail = 0; trail < 256; trail++ )
+                {
+                    final int index = ( lead << 8 ) | trail;
+                    final int n = decode( decoder, ByteBuffer.wrap( new byte[]{ (byte)b, (byte)trail } ), out );
+                    this.doubleByte[index] = n == 1 ? out.get( 0 ) : UNDEFINED;
+                    this.errorLength[index] = (byte)( n < 0 ? -n : 2 );
+                }
+            }
+        }
+
+        /**
+         * @return number of chars decoded, or minus the length of the malformed or unmappable input
+         */
+        private static int decode( final CharsetDecoder decoder, final ByteBuffer in, final CharBuffer out )
+        {
+            decoder.reset();
+            ( (Buffer)out ).clear();
+            CoderResult result = decoder.decode( in, out, true );
+            if ( !result.isError() )
+                result = decoder.flush( out );
+            if ( result.isError() )
+                return in.position() == 0 ? -result.length() : -1;
+            if ( in.hasRemaining() )
+                return -1;
+            return out.position();
+        }
+    }
+
+    private static final class ShiftJis
+    {
+        static final Table TABLE = new Table( Charset.forName( "Shift_JIS" ) );
+    }
+
+    private static final class Windows31j
+    {
+        static final Table TABLE = new Table( Charset.forName( "windows-31j" ) );
+    }
+}
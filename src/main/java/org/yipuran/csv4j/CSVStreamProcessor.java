@@ -16,11 +16,11 @@
  */
 package org.yipuran.csv4j;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.function.Predicate;
 
 
 /**
@@ -68,6 +68,11 @@ public class CSVStreamProcessor
 {
     private char comment = CSVConstants.DEFAULT_COMMENT;
     private boolean hasHeader = true;
+    private int filterColumn = -1;
+    private String filterName;
+    private Predicate<? super CharSequence> filter;
+    private boolean compactRows;
+    private int[] interning;
 
     /** Constructor. */
     public CSVStreamProcessor()
@@ -113,6 +118,148 @@ public class CSVStreamProcessor
     }
 
 
+    /**
+     * Indicates if the data lines are given as compact rows.
+     * @return true if the data lines are {@link CSVRow}
+     * @since 1.3
+     */
+    public boolean isCompactRows()
+    {
+        return this.compactRows;
+    }
+
+    /**
+     * Sets if the data lines are given as compact rows.
+     * A {@link CSVRow} holds the fields in one char array, so the lines kept in memory take much less heap
+     * than lists of Strings. The rows are unmodifiable.
+     * Lines given to a {@link CSVFieldMapProcessor} or {@link CSVSortedFieldMapProcessor} are not compact.
+     * @param compactRows true to give the data lines as {@link CSVRow}
+     * @since 1.3
+     */
+    public void setCompactRows( final boolean compactRows )
+    {
+        this.compactRows = compactRows;
+    }
+
+    /**
+     * Returns the fields of the current record of a cursor as a data line.
+     * @param cursor cursor on the record
+     * @param columns field indexes, null for all fields
+     * @return {@link CSVRow} if compact rows are set, a list of Strings otherwise
+     * @since 1.3
+     */
+    protected List<String> toList( final CSVCursor cursor, final int[] columns )
+    {
+        if ( columns == null )
+            return this.compactRows ? cursor.toRow() : cursor.toList();
+        return this.compactRows ? cursor.toRow( columns ) : cursor.toList( columns );
+    }
+
+    /**
+     * Interns the Strings of some columns.
+     * The repeated values of an interned column are the same String instance, which saves the heap
+     * taken by the lines kept in memory. It is meant for low-cardinality columns such as codes and categories,
+     * a column with many distinct values stops being interned, see {@link CSVCursor#setInterning(int...)}.
+     * The fields of a {@link CSVRow} are not interned.
+     * @param columns column indexes, null or none to intern no column
+     * @since 1.3
+     */
+    public void setInterning( final int... columns )
+    {
+        this.interning = columns == null || columns.length == 0 ? null : columns;
+    }
+
+    /**
+     * Returns the columns set by {@link #setInterning(int...)}.
+     * @return column indexes, null if no column is interned
+     * @since 1.3
+     */
+    public int[] getInterning()
+    {
+        return this.interning;
+    }
+
+    /**
+     * Sets the interned columns of this processor on a cursor.
+     * The caches of the cursor are kept if it already interns the same columns.
+     * @param cursor cursor to read CSV from
+     * @since 1.3
+     */
+    protected void applyInterning( final CSVCursor cursor )
+    {
+        cursor.setInterning( this.interning );
+    }
+
+    /**
+     * Filters the data lines by a column.
+     * A data line is processed only if the predicate accepts its field of the column, the rest of a
+     * rejected line is scanned only to find its end and no String is created for it.
+     * The header line is not filtered. The rules are those of {@link CSVCursor#setFilter(int, Predicate)}.
+     * @param column column index
+     * @param predicate test of the field, null to process all lines
+     * @since 1.3
+     */
+    public void setFilter( final int column, final Predicate<? super CharSequence> predicate )
+    {
+        if ( predicate != null && column < 0 )
+            throw new IllegalArgumentException( "column < 0 : " + column );
+        this.filterColumn = column;
+        this.filterName = null;
+        this.filter = predicate;
+    }
+
+    /**
+     * Filters the data lines by the column of a header name.
+     * The name is resolved to the last column of the same name in the header line,
+     * reading fails with IllegalArgumentException when the header line has no such name.
+     * @param name header name
+     * @param predicate test of the field, null to process all lines
+     * @see #setFilter(int, Predicate)
+     * @since 1.3
+     */
+    public void setFilter( final String name, final Predicate<? super CharSequence> predicate )
+    {
+        this.filterColumn = -1;
+        this.filterName = name;
+        this.filter = predicate;
+    }
+
+    /**
+     * Indicates if a filter is set.
+     * @return true if the data lines are filtered
+     * @since 1.3
+     */
+    public boolean hasFilter()
+    {
+        return this.filter != null;
+    }
+
+    /**
+     * Sets the filter of this processor on a cursor, it applies to the records after the current one.
+     * @param cursor cursor to filter
+     * @param header fields of the header line, null if the input has no header line
+     * @throws IllegalStateException if the filter is by name and there is no header line
+     * @throws IllegalArgumentException if the filter is by name and the header has no such name
+     * @since 1.3
+     */
+    protected void applyFilter( final CSVCursor cursor, final List<String> header )
+    {
+        if ( this.filter == null )
+            return;
+        if ( this.filterName == null )
+        {
+            cursor.setFilter( this.filterColumn, this.filter );
+            return;
+        }
+        if ( header == null )
+            throw new IllegalStateException( "filter by name requires a header line" );
+        final int column = header.lastIndexOf( this.filterName );
+        if ( column < 0 )
+            throw new IllegalArgumentException( "filter column not in the header : " + this.filterName );
+        cursor.setFilter( column, this.filter );
+    }
+
+
     /**
      * Processes the CSV file using the provided processor.
      * @param is stream to read CSV from
@@ -126,41 +273,59 @@ public class CSVStreamProcessor
     public int processStream( final InputStreamReader is, final CSVLineProcessor processor )
             throws IOException, ProcessingException, ParseException
     {
-        final CSVReader reader = new CSVReader( new BufferedReader( is ), Charset.forName(is.getEncoding()),
-                                                this.comment );
+        return process( CSVCursor.of( is, Charset.forName(is.getEncoding()), this.comment, false ), processor );
+    }
 
+
+    /**
+     * Processes the CSV records of a cursor using the provided processor.
+     * @param cursor cursor to read CSV from, it is closed
+     * @param processor handler to process the CSV lines
+     * @return number of lines processed
+     */
+    int process( final CSVCursor cursor, final CSVLineProcessor processor )
+            throws IOException, ProcessingException, ParseException
+    {
         try
         {
             int lineCnt = 0;
+            applyInterning( cursor );
+            if ( !hasHeader )
+                applyFilter( cursor, null );
+            // the field map adapters pad short lines
+            final boolean compact = this.compactRows && !( processor instanceof AbstractLineToFieldMapAdapter );
 
             while ( processor.continueProcessing() )
             {
-                final List<String> fields = reader.readLine();
-                if ( fields.size() == 0 )
+                if ( !cursor.next() || cursor.fieldCount() == 0 )
                 {
                     break; // while
                 }
+                final List<String> fields = compact && ( !hasHeader || lineCnt > 0 ) ? cursor.toRow() : cursor.toList();
 
                 try
                 {
                     if ( hasHeader && lineCnt == 0 )
-                        processor.processHeaderLine( reader.getLineNumber(), fields );
+                    {
+                        processor.processHeaderLine( cursor.getLineNumber(), fields );
+                        applyFilter( cursor, fields );
+                    }
                     else
-                        processor.processDataLine( reader.getLineNumber(), fields );
+                        processor.processDataLine( cursor.getLineNumber(), fields );
                 }
                 catch ( Exception e )
                 {
-                    throw new ProcessingException( e, reader.getLineNumber() );
+                    throw new ProcessingException( e, cursor.getLineNumber() );
                 }
 
                 lineCnt++;
             }
 
-            return lineCnt; // reader.getLineNumber();
+            return lineCnt; // cursor.getLineNumber();
         }
         finally
         {
-            reader.close();
+            cursor.close();
         }
     }
 
@@ -17,8 +17,8 @@
 package org.yipuran.csv4j;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.SortedMap;
@@ -26,15 +26,29 @@ import java.util.SortedMap;
 
 /**
  * Writes output lines in CSV format.
+ * <p>
+ * A line is built in a reusable char buffer and written to the writer in one call.
+ * Values are scanned once, runs of characters that need no escaping are copied in bulk.
+ * A buffered writer keeps several lines in the buffer and writes it in blocks of about
+ * {@link #BLOCK_SIZE} chars, {@link #flush()} must be called after the last line.
+ * <p>
+ * In quote-all mode, set by {@link #setQuoteAll(boolean)}, every field is enclosed in double quotes.
  * @author Shawn Boyce
  * @since 1.0
  */
 public class CSVWriter
 {
+    /** chars kept by a buffered writer before writing them */
+    public static final int BLOCK_SIZE = 8192;
+
     private final Writer writer;
     private final char commentChar;
     private final char delimiter;
     private final String lineSeparator;
+    private final boolean buffered;
+    private boolean quoteAll;
+    private char[] buf = new char[BLOCK_SIZE];
+    private int count;
 
 
     /**
@@ -47,6 +61,18 @@ public class CSVWriter
         this( writer, CSVConstants.DEFAULT_DELIMITER, CSVConstants.DEFAULT_COMMENT );
     }
 
+    /**
+     * Constructor.
+     * Uses default comment and delimiter characters.
+     * @param writer writer to output to
+     * @param buffered true to write the lines in blocks, {@link #flush()} must be called after the last line
+     * @since 1.3
+     */
+    public CSVWriter( Writer writer, boolean buffered )
+    {
+        this( writer, CSVConstants.DEFAULT_DELIMITER, CSVConstants.DEFAULT_COMMENT, System.getProperty( "line.separator" ), buffered );
+    }
+
 
     /**
      * Constructor.
@@ -77,11 +103,48 @@ public class CSVWriter
      * @param lineSeparator line separator
      */
     public CSVWriter( Writer writer, char delimiter, char comment, String lineSeparator )
+    {
+        this( writer, delimiter, comment, lineSeparator, false );
+    }
+
+    /**
+     * Constructor.
+     * @param writer writer to output to
+     * @param delimiter field delimiter character to use
+     * @param comment comment character to use
+     * @param lineSeparator line separator
+     * @param buffered true to write the lines in blocks, {@link #flush()} must be called after the last line
+     * @since 1.3
+     */
+    public CSVWriter( Writer writer, char delimiter, char comment, String lineSeparator, boolean buffered )
     {
         this.writer = writer;
         this.delimiter = delimiter;
         this.commentChar = comment;
         this.lineSeparator = lineSeparator;
+        this.buffered = buffered;
+    }
+
+    /**
+     * Sets the quote-all mode.
+     * A line with no fields is written as one empty field, two double quotes.
+     * @param quoteAll true to enclose every field in double quotes,
+     * false to enclose only fields with a double quote, a line feed or the delimiter
+     * @since 1.3
+     */
+    public void setQuoteAll( final boolean quoteAll )
+    {
+        this.quoteAll = quoteAll;
+    }
+
+    /**
+     * Indicates if every field is enclosed in double quotes.
+     * @return true if quote-all mode
+     * @since 1.3
+     */
+    public boolean isQuoteAll()
+    {
+        return this.quoteAll;
     }
 
     /**
@@ -103,15 +166,22 @@ public class CSVWriter
      */
     public void writeCommentLine( final String comment ) throws IOException
     {
-        // newlines output without modification in the comment will result in an invalid CSV line
-        // ensure that all comment lines are commented
-        final String[] lines = comment.split( "[\r\n]" );
-        for ( String line : lines )
+        try
         {
-            writer.write( this.commentChar );
-            writer.write( ' ' );
-            writer.write( line );
-            writer.write( this.lineSeparator );
+            // newlines output without modification in the comment will result in an invalid CSV line
+            // ensure that all comment lines are commented
+            final String[] lines = comment.split( "[\r\n]" );
+            for ( String line : lines )
+            {
+                append( this.commentChar );
+                append( ' ' );
+                append( line );
+                append( this.lineSeparator );
+            }
+        }
+        finally
+        {
+            endLine();
         }
     }
 
@@ -126,7 +196,29 @@ public class CSVWriter
      */
     public void writeHeaderLine( final SortedMap<String,String> fields ) throws IOException
     {
-        writeLine( fields.keySet() );
+        try
+        {
+            if ( fields instanceof SortedFieldMap )
+            {
+                final SortedFieldMap map = (SortedFieldMap)fields;
+                final int size = map.size();
+                for ( int ii = 0; ii < size; ii++ )
+                {
+                    if ( ii > 0 )
+                        append( this.delimiter );
+                    escape( map.keyAt( ii ) );
+                }
+                append( this.lineSeparator );
+            }
+            else
+            {
+                line( fields.keySet() );
+            }
+        }
+        finally
+        {
+            endLine();
+        }
     }
 
     /**
@@ -136,7 +228,30 @@ public class CSVWriter
      */
     public void writeDataLine( final SortedMap<String,String> fields ) throws IOException
     {
-        writeLine( fields.values() );
+        try
+        {
+            if ( fields instanceof SortedFieldMap )
+            {
+                // maps of CSVSortedFieldMapProcessor are written by position
+                final SortedFieldMap map = (SortedFieldMap)fields;
+                final int size = map.size();
+                for ( int ii = 0; ii < size; ii++ )
+                {
+                    if ( ii > 0 )
+                        append( this.delimiter );
+                    escape( map.valueAt( ii ) );
+                }
+                append( this.lineSeparator );
+            }
+            else
+            {
+                line( fields.values() );
+            }
+        }
+        finally
+        {
+            endLine();
+        }
     }
 
 
@@ -148,7 +263,14 @@ public class CSVWriter
      */
     public void writeLine( final List<String> values  ) throws IOException
     {
-        writeLine( (Collection<String>) values );
+        try
+        {
+            line( values );
+        }
+        finally
+        {
+            endLine();
+        }
     }
 
     /**
@@ -159,31 +281,160 @@ public class CSVWriter
      */
     public void writeLine( final String[] values ) throws IOException
     {
-        for ( int ii = 0; ii < values.length; ii++ )
+        try
+        {
+            if ( values.length == 0 && this.quoteAll )
+                quote( "", -1 );
+            for ( int ii = 0; ii < values.length; ii++ )
+            {
+                escape( values[ii] );
+                if ( (ii+1) < values.length )
+                    append( this.delimiter );
+            }
+            append( this.lineSeparator );
+        }
+        finally
         {
-            escapeCSV( writer, values[ii], this.delimiter );
-            if ( (ii+1) < values.length )
-                writer.append( this.delimiter );
+            endLine();
         }
-        writer.write( this.lineSeparator );
+    }
+
+    /**
+     * Writes the buffered lines and flushes the writer.
+     * A buffered writer must be flushed after the last line, before the writer is closed.
+     * @throws IOException if an I/O error occurs
+     * @since 1.3
+     */
+    public void flush() throws IOException
+    {
+        drain();
+        writer.flush();
     }
 
 
     /**
-     * Outputs a list of strings.
+     * Builds a line of strings in the buffer.
      * @param values strings to output
-     * @throws IOException if an I/O error occurs
      */
-    private void writeLine( final Collection<String> values ) throws IOException
+    private void line( final Collection<String> values )
     {
+        if ( values.isEmpty() && this.quoteAll )
+            quote( "", -1 );
         int ii = 0;
         for ( String value : values )
         {
-            escapeCSV( writer, value, this.delimiter );
+            escape( value );
             if ( ++ii < values.size() )
-                writer.append( this.delimiter );
+                append( this.delimiter );
+        }
+        append( this.lineSeparator );
+    }
+
+    /**
+     * Ends a line, the buffer is written unless a buffered writer has less than a block.
+     * A line that failed is written as far as it was built, like the writer had been written to directly.
+     */
+    private void endLine() throws IOException
+    {
+        if ( !this.buffered || this.count >= BLOCK_SIZE )
+            drain();
+    }
+
+    private void drain() throws IOException
+    {
+        if ( this.count == 0 )
+            return;
+        final int length = this.count;
+        this.count = 0;
+        writer.write( this.buf, 0, length );
+    }
+
+    private void ensure( final int length )
+    {
+        if ( this.count + length > this.buf.length )
+            this.buf = Arrays.copyOf( this.buf, Math.max( this.buf.length * 2, this.count + length ) );
+    }
+
+    private void append( final char ch )
+    {
+        ensure( 1 );
+        this.buf[this.count++] = ch;
+    }
+
+    private void append( final String text )
+    {
+        final int length = text.length();
+        ensure( length );
+        text.getChars( 0, length, this.buf, this.count );
+        this.count += length;
+    }
+
+    /**
+     * Escapes a text string into the buffer.
+     * @param text text string to escape
+     */
+    private void escape( final String text )
+    {
+        if ( this.quoteAll )
+        {
+            quote( text, text.indexOf( CSVConstants.DOUBLE_QUOTE ) );
+            return;
+        }
+        final int special = indexOfSpecial( text, this.delimiter );
+        if ( special < 0 )
+        {
+            append( text );
+            return;
         }
-        writer.write( this.lineSeparator );
+        quote( text, text.indexOf( CSVConstants.DOUBLE_QUOTE, special ) );
+    }
+
+    /**
+     * Encloses a text string in double quotes into the buffer.
+     * @param text text string
+     * @param first index of the first double quote, -1 if none
+     */
+    private void quote( final String text, final int first )
+    {
+        final int length = text.length();
+        // every char from the first double quote may be a double quote
+        ensure( length + ( first < 0 ? 0 : length - first ) + 2 );
+        final char[] chars = this.buf;
+        int pos = this.count;
+        chars[pos++] = CSVConstants.DOUBLE_QUOTE;
+        int start = 0;
+        for ( int ii = first; ii >= 0; ii = text.indexOf( CSVConstants.DOUBLE_QUOTE, start ) )
+        {
+            // double quote is escaped with a second double quote
+            text.getChars( start, ii + 1, chars, pos );
+            pos += ii + 1 - start;
+            chars[pos++] = CSVConstants.DOUBLE_QUOTE;
+            start = ii + 1;
+        }
+        text.getChars( start, length, chars, pos );
+        pos += length - start;
+        chars[pos++] = CSVConstants.DOUBLE_QUOTE;
+        this.count = pos;
+    }
+
+    /**
+     * Returns the index of the first char that requires quoting:
+     * a double quote, a line feed or the delimiter.
+     * @param text text string
+     * @param delimiter field delimiter
+     * @return index of the char, -1 if the text can be output as is
+     */
+    private static int indexOfSpecial( final String text, final char delimiter )
+    {
+        final int length = text.length();
+        for ( int ii = 0; ii < length; ii++ )
+        {
+            final char ch = text.charAt( ii );
+            if ( ch == CSVConstants.DOUBLE_QUOTE || ch == CSVConstants.CARRIAGE_RETURN
+                || ch == CSVConstants.NEWLINE || ch == delimiter )
+                return ii;
+        }
+        return -1;
     }
 
     /**
@@ -204,16 +455,34 @@ public class CSVWriter
      */
     public static String escapeCSV( final String text, final char delimiter )
     {
-        try
+        final int special = indexOfSpecial( text, delimiter );
+        if ( special < 0 )
+            return text;
+        final int length = text.length();
+        int quotes = 0;
+        for ( int ii = special; ii < length; ii++ )
         {
-            final StringWriter writer = new StringWriter();
-            escapeCSV( writer, text, delimiter );
-            return writer.toString();
+            if ( text.charAt( ii ) == CSVConstants.DOUBLE_QUOTE )
+                quotes++;
         }
-        catch ( IOException e )
+        final char[] chars = new char[length + quotes + 2];
+        chars[0] = CSVConstants.DOUBLE_QUOTE;
+        int pos = 1;
+        int start = 0;
+        for ( int ii = special; quotes > 0; ii++ )
         {
-            throw new RuntimeException( "escapeCSV error", e ); // should not happen with a StringWriter
+            if ( text.charAt( ii ) == CSVConstants.DOUBLE_QUOTE )
+            {
+                text.getChars( start, ii + 1, chars, pos );
+                pos += ii + 1 - start;
+                chars[pos++] = CSVConstants.DOUBLE_QUOTE;
+                start = ii + 1;
+                quotes--;
+            }
         }
+        text.getChars( start, length, chars, pos );
+        chars[chars.length - 1] = CSVConstants.DOUBLE_QUOTE;
+        return new String( chars );
     }
 
     /**
@@ -225,76 +494,29 @@ public class CSVWriter
      */
     public static void escapeCSV( final Writer writer, final String text, char delimiter ) throws IOException
     {
-        final StringBuilder sbuf = new StringBuilder();
-        boolean isBuffering = true;
-
         // scan for special characters; if none, just output value
-        for ( int ii = 0; ii < text.length(); ii++ )
+        final int special = indexOfSpecial( text, delimiter );
+        if ( special < 0 )
         {
-            final char ch = text.charAt( ii );
-            switch ( ch )
+            writer.write( text );
+            return;
+        }
+        final int length = text.length();
+        writer.write( CSVConstants.DOUBLE_QUOTE );
+        int start = 0;
+        for ( int ii = special; ii < length; ii++ )
+        {
+            if ( text.charAt( ii ) == CSVConstants.DOUBLE_QUOTE )
             {
-            case CSVConstants.DOUBLE_QUOTE:
-                if ( isBuffering )
-                {
-                    isBuffering = false;
-                    writer.write( CSVConstants.DOUBLE_QUOTE );
-                    if ( sbuf.length() != 0 )
-                        writer.write( sbuf.toString() );
-                }
-
                 // double quote is escaped with a second double quote
+                writer.write( text, start, ii + 1 - start );
                 writer.write( CSVConstants.DOUBLE_QUOTE );
-                writer.write( CSVConstants.DOUBLE_QUOTE );
-                break;
-
-            // line feeds need to be escaped
-            case CSVConstants.CARRIAGE_RETURN:
-            case CSVConstants.NEWLINE:
-                if ( isBuffering )
-                {
-                    isBuffering = false;
-                    writer.write( CSVConstants.DOUBLE_QUOTE );
-                    if ( sbuf.length() != 0 )
-                        writer.write( sbuf.toString() );
-                }
-
-                writer.write( ch );
-                break;
-
-            default:
-                if ( ch == delimiter )
-                {
-                    if ( isBuffering )
-                    {
-                        isBuffering = false;
-                        writer.write( CSVConstants.DOUBLE_QUOTE );
-                        if ( sbuf.length() != 0 )
-                            writer.write( sbuf.toString() );
-                    }
-
-                    writer.write( ch );
-                }
-                else if ( isBuffering )
-                {
-                    sbuf.append( ch );
-                }
-                else
-                {
-                    writer.write( ch );
-                }
-                break;
+                start = ii + 1;
             }
         }
-
-        if ( isBuffering ) // no special chars encountered
-        {
-            writer.write( text ); // no need for sbuf contents
-        }
-        else // output the ending double quote
-        {
-            writer.write( CSVConstants.DOUBLE_QUOTE );
-        }
+        writer.write( text, start, length - start );
+        // output the ending double quote
+        writer.write( CSVConstants.DOUBLE_QUOTE );
     }
 
 }
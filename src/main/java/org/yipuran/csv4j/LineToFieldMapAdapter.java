@@ -17,6 +17,7 @@
 package org.yipuran.csv4j;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -40,9 +41,14 @@ class LineToFieldMapAdapter extends AbstractLineToFieldMapAdapter implements CSV
     }
 
     @Override
-    protected Map<String, String> createMap()
+    protected Map<String, String> createMap( final List<String> fieldValues )
     {
-        return new HashMap<String,String>();
+        final Map<String,String> fields = new HashMap<String,String>();
+        for ( int ii = 0; ii < this.header.size(); ii++ )
+        {
+            fields.put( this.header.get( ii ), fieldValues.get( ii ) );
+        }
+        return fields;
     }
 
     @Override
@@ -21,7 +21,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.TreeMap;
 
 
 /**
@@ -32,7 +31,7 @@ import java.util.TreeMap;
 class LineToSortedFieldMapAdapter extends AbstractLineToFieldMapAdapter implements CSVLineProcessor
 {
     private final CSVSortedFieldMapProcessor processor;
-    private Comparator<String> comparator;
+    private SortedFieldMap.Header fieldHeader;
 
 
     /**
@@ -50,7 +49,8 @@ class LineToSortedFieldMapAdapter extends AbstractLineToFieldMapAdapter implemen
     public void processHeaderLine( final int linenumber, final List<String> fieldNames )
     {
         super.processHeaderLine( linenumber, fieldNames );
-        this.comparator = new LineToSortedFieldMapAdapter.FieldOrderComparator( this.header );
+        this.fieldHeader = new SortedFieldMap.Header( this.header,
+                new LineToSortedFieldMapAdapter.FieldOrderComparator( this.header ) );
     }
 
 
@@ -60,10 +60,13 @@ class LineToSortedFieldMapAdapter extends AbstractLineToFieldMapAdapter implemen
     {
         return processor.continueProcessing();
     }
+    /**
+     * Creates a map over the field values of the line, ordered by the header.
+     */
     @Override
-    protected Map<String, String> createMap()
+    protected Map<String, String> createMap( final List<String> fieldValues )
     {
-        return new TreeMap<String,String>( this.comparator );
+        return new SortedFieldMap( this.fieldHeader, fieldValues );
     }
 
     @Override
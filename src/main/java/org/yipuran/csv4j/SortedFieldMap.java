@@ -0,0 +1,332 @@
+package org.yipuran.csv4j;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+
+/**
+ * SortedMap of the fields of a CSV line in the order of the header line.
+ * <p>
+ * The field order is a {@link Header} shared by all lines and the values are the field list of the line,
+ * so no map is built per line and fields are accessed by position.
+ * Keys and values are the same as a {@link java.util.TreeMap} ordered by the header, a field name
+ * repeated in the header is ordered at and has the value of its last column.
+ * The values of the fields can be replaced with {@link #put(Object, Object)}, fields cannot be added or removed.
+ * The bound keys of {@link #subMap(String, String)}, {@link #headMap(String)} and {@link #tailMap(String)}
+ * must be field names within the range of the map, other keys throw IllegalArgumentException.
+ * @since 1.3
+ */
+final class SortedFieldMap extends AbstractMap<String, String> implements SortedMap<String, String>
+{
+    /**
+     * Field names of a header line, shared by the lines.
+     */
+    static final class Header
+    {
+        /** distinct names ordered by their last column */
+        final String[] names;
+        /** column of each name */
+        final int[] columns;
+        /** name to its index in names */
+        private final Map<String, Integer> order;
+        private final Comparator<String> comparator;
+
+        Header( final List<String> fields, final Comparator<String> comparator )
+        {
+            final Map<String, Integer> last = new HashMap<String, Integer>( fields.size() * 2 );
+            for ( int ii = 0; ii < fields.size(); ii++ )
+            {
+                last.put( fields.get( ii ), ii );
+            }
+            this.names = new String[last.size()];
+            this.columns = new int[last.size()];
+            this.order = new HashMap<String, Integer>( last.size() * 2 );
+            int n = 0;
+            for ( int ii = 0; ii < fields.size(); ii++ )
+            {
+                if ( last.get( fields.get( ii ) ) != ii )
+                    continue;
+                this.names[n] = fields.get( ii );
+                this.columns[n] = ii;
+                this.order.put( fields.get( ii ), n );
+                n++;
+            }
+            this.comparator = comparator;
+        }
+
+        /**
+         * Returns the index of a name, -1 if it is not a field name.
+         */
+        int indexOf( final Object name )
+        {
+            final Integer ii = this.order.get( name );
+            return ii == null ? -1 : ii;
+        }
+    }
+
+    private final Header header;
+    private final List<String> values;
+    /** range of the header names in this map */
+    private final int from;
+    private final int to;
+
+
+    /**
+     * Constructor.
+     * @param header header of the file
+     * @param values field values of the line, at least as many as the header fields; not copied
+     */
+    SortedFieldMap( final Header header, final List<String> values )
+    {
+        this( header, values, 0, header.names.length );
+    }
+
+    private SortedFieldMap( final Header header, final List<String> values, final int from, final int to )
+    {
+        this.header = header;
+        this.values = values;
+        this.from = from;
+        this.to = to;
+    }
+
+
+    /**
+     * Returns the field name at a position of this map.
+     * @param index position, 0 is the first key
+     * @return field name
+     */
+    String keyAt( final int index )
+    {
+        return this.header.names[this.from + index];
+    }
+
+    /**
+     * Returns the field value at a position of this map.
+     * @param index position, 0 is the first key
+     * @return field value
+     */
+    String valueAt( final int index )
+    {
+        return this.values.get( this.header.columns[this.from + index] );
+    }
+
+
+    @Override
+    public int size()
+    {
+        return this.to - this.from;
+    }
+
+    @Override
+    public boolean containsKey( final Object key )
+    {
+        return position( key ) >= 0;
+    }
+
+    @Override
+    public String get( final Object key )
+    {
+        final int ii = position( key );
+        return ii < 0 ? null : valueAt( ii );
+    }
+
+    /**
+     * Replaces the value of a field.
+     * @throws UnsupportedOperationException if the key is not a field of this map
+     */
+    @Override
+    public String put( final String key, final String value )
+    {
+        final int ii = position( key );
+        if ( ii < 0 )
+            throw new UnsupportedOperationException( "not a field : " + key );
+        return this.values.set( this.header.columns[this.from + ii], value );
+    }
+
+    @Override
+    public Comparator<? super String> comparator()
+    {
+        return this.header.comparator;
+    }
+
+    @Override
+    public String firstKey()
+    {
+        if ( this.from == this.to )
+            throw new NoSuchElementException();
+        return keyAt( 0 );
+    }
+
+    @Override
+    public String lastKey()
+    {
+        if ( this.from == this.to )
+            throw new NoSuchElementException();
+        return keyAt( size() - 1 );
+    }
+
+    @Override
+    public SortedMap<String, String> subMap( final String fromKey, final String toKey )
+    {
+        final int lo = bound( fromKey );
+        final int hi = bound( toKey );
+        if ( lo > hi )
+            throw new IllegalArgumentException( "fromKey > toKey" );
+        return new SortedFieldMap( this.header, this.values, lo, hi );
+    }
+
+    @Override
+    public SortedMap<String, String> headMap( final String toKey )
+    {
+        return new SortedFieldMap( this.header, this.values, this.from, bound( toKey ) );
+    }
+
+    @Override
+    public SortedMap<String, String> tailMap( final String fromKey )
+    {
+        return new SortedFieldMap( this.header, this.values, bound( fromKey ), this.to );
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        return new AbstractSet<String>()
+        {
+            @Override
+            public Iterator<String> iterator()
+            {
+                return new PositionIterator<String>()
+                {
+                    @Override
+                    String at( final int index )
+                    {
+                        return keyAt( index );
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains( final Object o )
+            {
+                return containsKey( o );
+            }
+
+            @Override
+            public int size()
+            {
+                return SortedFieldMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Collection<String> values()
+    {
+        return new AbstractCollection<String>()
+        {
+            @Override
+            public Iterator<String> iterator()
+            {
+                return new PositionIterator<String>()
+                {
+                    @Override
+                    String at( final int index )
+                    {
+                        return valueAt( index );
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return SortedFieldMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<String, String>>()
+        {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator()
+            {
+                return new PositionIterator<Map.Entry<String, String>>()
+                {
+                    @Override
+                    Map.Entry<String, String> at( final int index )
+                    {
+                        return new SimpleImmutableEntry<String, String>( keyAt( index ), valueAt( index ) );
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return SortedFieldMap.this.size();
+            }
+        };
+    }
+
+
+    /**
+     * Returns the position of a key in this map, -1 if it is not a key of this map.
+     */
+    private int position( final Object key )
+    {
+        final int ii = this.header.indexOf( key );
+        return ii < this.from || ii >= this.to ? -1 : ii - this.from;
+    }
+
+    /**
+     * Returns the index of the header names of a bound key of a sub map.
+     * @throws IllegalArgumentException if the key is not a field name or is outside the range of this map
+     */
+    private int bound( final String key )
+    {
+        final int ii = this.header.indexOf( key );
+        if ( ii < 0 )
+            throw new IllegalArgumentException( "not a field : " + key );
+        if ( ii < this.from || ii > this.to )
+            throw new IllegalArgumentException( "key out of range : " + key );
+        return ii;
+    }
+
+
+    /**
+     * Iterator over the positions of this map.
+     */
+    private abstract class PositionIterator<E> implements Iterator<E>
+    {
+        private int index;
+
+        abstract E at( int index );
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.index < size();
+        }
+
+        @Override
+        public E next()
+        {
+            if ( !hasNext() )
+                throw new NoSuchElementException();
+            return at( this.index++ );
+        }
+    }
+}
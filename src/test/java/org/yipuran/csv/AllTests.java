@@ -3,6 +3,10 @@ package org.yipuran.csv;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
+import org.yipuran.csv4j.CSVByteWriterTest;
+import org.yipuran.csv4j.CSVCursorTest;
+import org.yipuran.csv4j.CSVFileProcessorTest;
+import org.yipuran.csv4j.CSVWriterTest;
 
 /**
  * AllTests.java
@@ -14,6 +18,13 @@ import org.junit.runners.Suite.SuiteClasses;
 	CsvwriteArrayStreamTest.class,
 	CsvprocessTest.class,
 	CsvUtilTest.class,
+	CsvObjectTest.class,
+	CsvSettersTest.class,
+	CsvTableTest.class,
+	CSVCursorTest.class,
+	CSVFileProcessorTest.class,
+	CSVWriterTest.class,
+	CSVByteWriterTest.class,
 })
 public class AllTests{
 
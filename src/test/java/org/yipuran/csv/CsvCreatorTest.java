@@ -12,8 +12,10 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -68,6 +70,34 @@ public class CsvCreatorTest{
 		}
 	}
 	@Test
+	public void testCreateWithDblQuotCsvline() {
+		list.add(new String[]{});
+		try(ByteArrayOutputStream out = new ByteArrayOutputStream()){
+			CsvCreator c = ()->()->list;
+			c.createWithDblQuot(out, "UTF-8");
+			assertEquals(out.toString(), "\"A\",\"B\",\"C\"\r\n\"あ\",\"い\",\"う\"\r\n\"1\",\"\",\"3\"\r\n\"\"\r\n");
+		}catch(Exception e){
+			fail("Exception");
+		}
+		// csvline を上書きした場合
+		try(ByteArrayOutputStream out = new ByteArrayOutputStream()){
+			CsvCreator c = new CsvCreator(){
+				@Override
+				public Supplier<Collection<String[]>> getSupplier(){
+					return ()->list;
+				}
+				@Override
+				public String csvline(String[] ary){
+					return String.join(";", ary);
+				}
+			};
+			c.createBomUTF8WithDblQuot(out);
+			assertEquals(new String(out.toByteArray(), 3, out.size()-3, StandardCharsets.UTF_8), "A;B;C\r\nあ;い;う\r\n1;;3\r\n\r\n");
+		}catch(Exception e){
+			fail("Exception");
+		}
+	}
+	@Test
 	public void testCreateBomUTF8() {
 		try(ByteArrayOutputStream out = new ByteArrayOutputStream()){
 			CsvCreator c = ()->()->list;
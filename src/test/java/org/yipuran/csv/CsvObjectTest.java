@@ -5,19 +5,29 @@ import static org.junit.Assert.*;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.yipuran.csv.data.Bar;
 import org.yipuran.csv.data.Foo;
+import org.yipuran.csv.data.Item;
+import org.yipuran.csv.data.ItemBean;
+import org.yipuran.csv.data.ThrowingBean;
 import org.yipuran.csv4j.ProcessingException;
 
 public class CsvObjectTest {
@@ -231,4 +241,282 @@ assertEquals("(i=11,ii=null,l=21,ll=null,d=3.14,dd=30.14,f=0.02,ff=null,t=7,tt=n
 		}
 	}
 
+	@Test
+	public void testStream() throws IOException{
+		sb.append("10,100,2,20,3.14,30.14,0.02,0.021,7,70,true,false,あ,2021-07-09,2021-07-09T08:14:51,17:24:22");
+		sb.append("\n");
+		sb.append("11,,21,,3.14,,0.02,,7,,False,True,い,2021-07-08,2021-07-06T16:21:06,05:08:47");
+		sb.append("\n");
+		sb.append("12,\"unterminated");
+		byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+		CsvObject<Foo> co = new CsvObject<>();
+		boolean[] closed = { false };
+		InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(data){
+			@Override
+			public void close() throws IOException{
+				closed[0] = true;
+			}
+		}, StandardCharsets.UTF_8);
+		try(Stream<Foo> stream = co.stream(reader)){
+			assertEquals(10, stream.findFirst().get().getI());
+		}
+		assertTrue(closed[0]);
+		try(Stream<Foo> stream = co.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8, converter)){
+			assertEquals("[10, 11]", stream.limit(2).map(Foo::getI).collect(Collectors.toList()).toString());
+		}
+		try(Stream<Foo> stream = co.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			stream.forEach(f->{});
+			fail("RuntimeException");
+		}catch(RuntimeException e){
+			assertTrue(e.getCause() instanceof ProcessingException);
+			assertEquals(4, ((ProcessingException)e.getCause()).getLinenumber());
+		}
+	}
+	@Test
+	public void testStreamPath() throws Exception{
+		sb.append("10,100,2,20,3.14,30.14,0.02,0.021,7,70,true,false,あ,2021-07-09,2021-07-09T08:14:51,17:24:22");
+		sb.append("\n");
+		sb.append("11,,21,,3.14,,0.02,,7,,False,True,い,2021-07-08,2021-07-06T16:21:06,05:08:47");
+		Path path = Files.createTempFile("csvobject", ".csv");
+		try{
+			Files.write(path, ("\uFEFF" + sb.toString()).getBytes(StandardCharsets.UTF_8));
+			CsvObject<Foo> co = new CsvObject<>();
+			co.setBlanknull(true);
+			try(Stream<Foo> stream = co.stream(path, StandardCharsets.UTF_8)){
+				assertEquals("[あ, い]", stream.parallel().map(Foo::getInfo).collect(Collectors.toList()).toString());
+			}
+			try(Stream<Foo> stream = co.stream(path, StandardCharsets.UTF_8, converter)){
+				assertEquals(21L, stream.skip(1).findFirst().get().getL());
+			}
+		}finally{
+			Files.deleteIfExists(path);
+		}
+	}
+	@Test
+	public void testStreamConcat() throws Exception{
+		// 列の順序が異なるヘッダ行の Stream を、同じ CsvObject から作成して連結する
+		Path p1 = Files.createTempFile("csvobject", ".csv");
+		Path p2 = Files.createTempFile("csvobject", ".csv");
+		try{
+			Files.write(p1, "i,info\n1,first\n".getBytes(StandardCharsets.UTF_8));
+			Files.write(p2, "info,i\nsecond,2\n".getBytes(StandardCharsets.UTF_8));
+			CsvObject<Foo> co = new CsvObject<>();
+			try(Stream<Foo> stream = Stream.concat(co.stream(p1, StandardCharsets.UTF_8), co.stream(p2, StandardCharsets.UTF_8))){
+				assertEquals("[1:first, 2:second]", stream.map(f->f.getI() + ":" + f.getInfo()).collect(Collectors.toList()).toString());
+			}
+			try(Stream<Foo> s1 = co.stream(new ByteArrayInputStream(Files.readAllBytes(p1)), StandardCharsets.UTF_8);
+				Stream<Foo> s2 = co.stream(new ByteArrayInputStream(Files.readAllBytes(p2)), StandardCharsets.UTF_8)){
+				Iterator<Foo> i1 = s1.iterator();
+				Iterator<Foo> i2 = s2.iterator();
+				Foo f2 = i2.next();
+				Foo f1 = i1.next();
+				assertEquals("1:first", f1.getI() + ":" + f1.getInfo());
+				assertEquals("2:second", f2.getI() + ":" + f2.getInfo());
+			}
+		}finally{
+			Files.deleteIfExists(p1);
+			Files.deleteIfExists(p2);
+		}
+	}
+	@Test
+	public void testTooManyFields() throws Exception{
+		// ヘッダ行より列が多い行はエラー、少ない行はセットしない
+		byte[] data = "i,info\n1,a\n2\n3,c,x\n".getBytes(StandardCharsets.UTF_8);
+		List<String> list = new ArrayList<>();
+		try(InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			new CsvObject<Foo>().read(reader, (i, f)->list.add(f.getI() + ":" + f.getInfo()));
+			fail("ProcessingException");
+		}catch(ProcessingException e){
+			assertEquals(4, e.getLinenumber());
+			assertTrue(e.getCause() instanceof IndexOutOfBoundsException);
+		}
+		assertEquals("[1:a, 2:null]", list.toString());
+	}
+	@Test
+	public void testBindingCache() throws Exception{
+		sb.append("10,100,2,20,3.14,30.14,0.02,0.021,7,70,true,false,あ,2021-07-09,2021-07-09T08:14:51,17:24:22");
+		byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+		CsvBindingCache.clear();
+		try{
+			for(int i=0; i < 3; i++){
+				try(Stream<Foo> stream = new CsvObject<Foo>().stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+					assertEquals("あ", stream.findFirst().get().getInfo());
+				}
+			}
+			assertEquals(1, CsvBindingCache.getMissCount());
+			assertEquals(2, CsvBindingCache.getHitCount());
+			// 変換を登録した型が異なる読込みは、別の結び付け
+			CsvObject<Foo> co = new CsvObject<>();
+			co.setConverter(LocalTime.class, t->LocalTime.parse(t));
+			try(Stream<Foo> stream = co.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+				assertEquals(1, stream.count());
+			}
+			assertEquals(2, CsvBindingCache.getMissCount());
+			assertEquals(2, CsvBindingCache.size());
+			CsvBindingCache.setMaxSize(1);
+			assertEquals(1, CsvBindingCache.size());
+			try(Stream<Foo> stream = co.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+				assertEquals(1, stream.count());
+			}
+			assertEquals(3, CsvBindingCache.getHitCount());
+		}finally{
+			CsvBindingCache.setMaxSize(CsvBindingCache.DEFAULT_MAX_SIZE);
+			CsvBindingCache.clear();
+		}
+	}
+	@Test
+	public void testBindingCacheFormatter() throws Exception{
+		// 読込みごとに ofPattern で生成したフォーマット、ブランク→null、boolean 読込方法でもキャッシュを使用する
+		sb.append("10,,2,,3.14,,0.02,,7,,0,1,あ,2021/07/09,2021/07/09 08:14:51,17:24");
+		byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+		CsvBindingCache.clear();
+		try{
+			for(int i=0; i < 3; i++){
+				CsvObject<Foo> co = new CsvObject<>();
+				co.setBlanknull(i==1);
+				co.setBooleanReader(s->s.equals("0"));
+				co.setLocaldateFormat(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
+				co.setLocaldateTimeFormat(DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss"));
+				co.setLocalTimeFormat(DateTimeFormatter.ofPattern("HH:mm"));
+				try(InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+					Foo f = co.read(reader).findFirst().get();
+					assertEquals("(i=10,ii=null,l=2,ll=null,d=3.14,dd=null,f=0.02,ff=null,t=7,tt=null,flg=true,flgB=false,info=あ,date=2021-07-09,datetime=2021-07-09T08:14:51,time=17:24)"
+						, f.toString());
+				}
+			}
+			assertEquals(1, CsvBindingCache.getMissCount());
+			assertEquals(2, CsvBindingCache.getHitCount());
+			// キャッシュの結び付けに、前の読込みの設定は残らない
+			CsvObject<Foo> co = new CsvObject<>();
+			try(InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+				co.read(reader).count();
+				fail("ProcessingException");
+			}catch(ProcessingException e){
+			}
+			assertEquals(3, CsvBindingCache.getHitCount());
+		}finally{
+			CsvBindingCache.clear();
+		}
+	}
+	@Test
+	public void testGeneratedMapper() throws Exception{
+		assertTrue(CsvMapper.class.isAssignableFrom(Class.forName("org.yipuran.csv.data.Bar$CsvMapper")));
+		sb.append("10,100,2,20,3.14,30.14,0.02,0.021,7,70,true,false,あ,2021-07-09,2021-07-09T08:14:51,17:24:22");
+		sb.append("\n");
+		sb.append("11,,21,x,3.14,,0.02,,7,,False,True,,2021-07-08,2021-07-06T16:21:06,05:08:47");
+		byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+		for(boolean blankIsNull : new boolean[]{ false, true }){
+			CsvObject<Foo> foo = new CsvObject<>();
+			foo.setBlanknull(blankIsNull);
+			CsvObject<Bar> bar = new CsvObject<>();
+			bar.setBlanknull(blankIsNull);
+			try(Stream<Foo> expected = foo.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8);
+				Stream<Bar> result = bar.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+				assertEquals(expected.collect(Collectors.toList()).toString(), result.collect(Collectors.toList()).toString());
+			}
+		}
+	}
+	@Test
+	public void testGeneratedMapperThrowingSetter() throws Exception{
+		assertTrue(CsvMapper.class.isAssignableFrom(Class.forName("org.yipuran.csv.data.ThrowingBean$CsvMapper")));
+		byte[] data = "a,b,code,name\nx,1,c1,n1\ny,-1,,n2\n".getBytes(StandardCharsets.UTF_8);
+		CsvObject<ThrowingBean> co = new CsvObject<>();
+		try(Stream<ThrowingBean> stream = co.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			assertEquals("[(a=null,b=1,code=c1,name=n1), (a=null,b=0,code=null,name=n2)]", stream.collect(Collectors.toList()).toString());
+		}
+	}
+	@Test
+	public void testDateFormat() throws Exception{
+		StringBuilder csv = new StringBuilder("date,datetime,time\n");
+		csv.append("2023/02/28,2023/02/28 23:59:59,07:05\n");
+		csv.append("2023/02/28,2024/02/29 00:00:00,23:59\n");
+		// ResolverStyle.SMART の DateTimeFormatter で変換される
+		csv.append("2023/02/30,2023/04/31 10:20:30,00:00\n");
+		byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+		List<String> expected = new ArrayList<>();
+		expected.add("2023-02-28 2023-02-28T23:59:59 07:05");
+		expected.add("2023-02-28 2024-02-29T00:00 23:59");
+		expected.add("2023-02-28 2023-04-30T10:20:30 00:00");
+		CsvObject<Foo> foo = new CsvObject<>();
+		foo.setLocaldateFormat(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
+		foo.setLocaldateTimeFormat(DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss"));
+		foo.setLocalTimeFormat(DateTimeFormatter.ofPattern("HH:mm"));
+		try(Stream<Foo> stream = foo.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			assertEquals(expected, stream.map(f->f.getDate() + " " + f.getDatetime() + " " + f.getTime()).collect(Collectors.toList()));
+		}
+		CsvObject<Bar> bar = new CsvObject<>();
+		bar.setLocaldateFormat(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
+		bar.setLocaldateTimeFormat(DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss"));
+		bar.setLocalTimeFormat(DateTimeFormatter.ofPattern("HH:mm"));
+		try(Stream<Bar> stream = bar.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			assertEquals(expected, stream.map(f->f.getDate() + " " + f.getDatetime() + " " + f.getTime()).collect(Collectors.toList()));
+		}
+
+		// ISO 形式
+		data = "date,datetime,time\n2021-07-09,2021-07-09T08:14:51.5,17:24\n2021-02-29,2021-07-09T08:14,17:24:22.123456789\n"
+			.getBytes(StandardCharsets.UTF_8);
+		try(Stream<Foo> stream = new CsvObject<Foo>().stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			stream.forEach(f->{
+				assertEquals(LocalDate.of(2021, 7, 9), f.getDate());
+				assertEquals(LocalDateTime.of(2021, 7, 9, 8, 14, 51, 500000000), f.getDatetime());
+				assertEquals(LocalTime.of(17, 24), f.getTime());
+			});
+			fail();
+		}catch(RuntimeException e){
+			assertTrue(e.getCause() instanceof ProcessingException);
+			assertEquals(3, ((ProcessingException)e.getCause()).getLinenumber());
+		}
+	}
+	@Test
+	public void testConverter() throws Exception{
+		byte[] data = "name,color,price,qty\na,RED,1.50,3\nb,PURPLE,x,4\nc,blue,2,5\n".getBytes(StandardCharsets.UTF_8);
+		// enum, BigDecimal(String)、変換できない値はセットしない
+		String expected = "[(name=a,color=RED,price=1.50,qty=3), (name=b,color=null,price=null,qty=4), (name=c,color=null,price=2,qty=5)]";
+		try(Stream<Item> stream = new CsvObject<Item>().stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			assertEquals(expected, stream.collect(Collectors.toList()).toString());
+		}
+		try(Stream<ItemBean> stream = new CsvObject<ItemBean>().stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			assertEquals(expected, stream.collect(Collectors.toList()).toString());
+		}
+		// 登録した変換
+		Function<CharSequence, Item.Color> color = cs->Arrays.stream(Item.Color.values())
+			.filter(c->c.name().equalsIgnoreCase(cs.toString())).findFirst().orElse(null);
+		expected = "[(name=a,color=RED,price=1.50,qty=30), (name=b,color=null,price=null,qty=40), (name=c,color=BLUE,price=2,qty=50)]";
+		CsvObject<Item> item = new CsvObject<>();
+		item.setConverter(Item.Color.class, color);
+		item.setConverter(int.class, cs->Integer.parseInt(cs.toString()) * 10);
+		try(Stream<Item> stream = item.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			assertEquals(expected, stream.collect(Collectors.toList()).toString());
+		}
+		CsvObject<ItemBean> bean = new CsvObject<>();
+		bean.setConverter(Item.Color.class, color);
+		bean.setConverter(int.class, cs->Integer.parseInt(cs.toString()) * 10);
+		try(Stream<ItemBean> stream = bean.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			assertEquals(expected, stream.collect(Collectors.toList()).toString());
+		}
+		// 変換の例外は読込みエラー
+		item.setConverter(Item.Color.class, cs->Item.Color.valueOf(cs.toString()));
+		try(Stream<Item> stream = item.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			stream.forEach(e->{});
+			fail();
+		}catch(RuntimeException e){
+			assertTrue(e.getCause() instanceof ProcessingException);
+			assertEquals(3, ((ProcessingException)e.getCause()).getLinenumber());
+		}
+	}
+	@Test
+	public void testFilter() throws Exception{
+		byte[] data = "name,country,qty,price\na,JP,1,1.5\nb,US,2,x\nc,JP,3,2\n".getBytes(StandardCharsets.UTF_8);
+		// country is not a field of Item, it is read only for the filter
+		CsvObject<Item> co = new CsvObject<>();
+		co.setFilter("country", s->"JP".contentEquals(s));
+		List<String> list = new ArrayList<>();
+		co.read(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8), (i, t)->list.add(i + ":" + t));
+		assertEquals("[1:(name=a,color=null,price=1.5,qty=1), 2:(name=c,color=null,price=2,qty=3)]", list.toString());
+		CsvObject<ItemBean> bean = new CsvObject<>();
+		bean.setFilter(1, s->"US".contentEquals(s));
+		try(Stream<ItemBean> stream = bean.stream(new ByteArrayInputStream(data), StandardCharsets.UTF_8)){
+			assertEquals("[(name=b,color=null,price=null,qty=2)]", stream.collect(Collectors.toList()).toString());
+		}
+	}
 }
@@ -0,0 +1,123 @@
+package org.yipuran.csv;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.yipuran.csv4j.CSVCursor;
+
+/**
+ * CsvSettersTest.java
+ */
+public class CsvSettersTest{
+	public enum Color{ RED, BLUE }
+
+	public static class Bean{
+		int i;
+		long l;
+		double d;
+		short t;
+		float f;
+		boolean b;
+		Integer boxed;
+		Color color;
+		public void setI(int i){ this.i = i; }
+		public void setL(long l){ this.l = l; }
+		public void setD(double d){ this.d = d; }
+		public void setT(short t){ this.t = t; }
+		public void setF(float f){ this.f = f; }
+		public void setB(boolean b){ this.b = b; }
+		public void setBoxed(Integer boxed){ this.boxed = boxed; }
+		public void setColor(Color color){ this.color = color; }
+		void setHidden(int i){ this.i = i; }
+		@SuppressWarnings("unused")
+		private void setSecret(int i){ this.i = i; }
+		public void setChecked(int i) throws IOException{
+			this.i = i;
+			throw new IOException("checked");
+		}
+		public void setUnchecked(Integer i){
+			this.boxed = i;
+			throw new IllegalStateException("unchecked");
+		}
+		public void setError(boolean b){
+			this.b = b;
+			throw new AssertionError("error");
+		}
+		static int count;
+		public static void setCount(int count){
+			Bean.count = count;
+			if (count < 0) throw new IllegalArgumentException();
+		}
+	}
+
+	private static Method method(String name, Class<?> type) throws NoSuchMethodException{
+		return Bean.class.getDeclaredMethod(name, type);
+	}
+
+	@Test
+	public void testPrimitive() throws Exception{
+		Bean bean = new Bean();
+		CsvSetters.<Bean>intSetter(method("setI", int.class)).set(bean, 10);
+		CsvSetters.<Bean>longSetter(method("setL", long.class)).set(bean, 20L);
+		CsvSetters.<Bean>doubleSetter(method("setD", double.class)).set(bean, 3.5);
+		CsvSetters.<Bean>shortSetter(method("setT", short.class)).set(bean, (short)7);
+		CsvSetters.<Bean>floatSetter(method("setF", float.class)).set(bean, 0.5f);
+		CsvSetters.<Bean>booleanSetter(method("setB", boolean.class)).set(bean, true);
+		assertEquals(10, bean.i);
+		assertEquals(20L, bean.l);
+		assertEquals(3.5, bean.d, 0);
+		assertEquals(7, bean.t);
+		assertEquals(0.5f, bean.f, 0);
+		assertTrue(bean.b);
+	}
+	@Test
+	public void testObject() throws Exception{
+		Bean bean = new Bean();
+		CsvSetters.<Bean>objectSetter(method("setBoxed", Integer.class)).set(bean, 5);
+		CsvSetters.<Bean>objectSetter(method("setColor", Color.class)).set(bean, Color.BLUE);
+		assertEquals(Integer.valueOf(5), bean.boxed);
+		assertEquals(Color.BLUE, bean.color);
+		assertEquals(Color.RED, CsvSetters.valueOf(Color.class).parse(cursor("RED"), 0));
+	}
+	@Test
+	public void testNonPublic() throws Exception{
+		// 同じパッケージの package private の setter
+		Bean bean = new Bean();
+		CsvSetters.<Bean>intSetter(method("setHidden", int.class)).set(bean, 3);
+		assertEquals(3, bean.i);
+		// private の setter は、Method.invoke と同じく IllegalAccessException
+		try{
+			CsvSetters.<Bean>intSetter(method("setSecret", int.class)).set(bean, 4);
+			fail();
+		}catch(IllegalAccessException e){
+		}
+		assertEquals(3, bean.i);
+		// 生成できない static の setter は Method.invoke で実行する
+		CsvSetters.<Bean>intSetter(method("setCount", int.class)).set(bean, 9);
+		assertEquals(9, Bean.count);
+	}
+	@Test
+	public void testThrowingSetter() throws Exception{
+		Bean bean = new Bean();
+		CsvSetters.<Bean>intSetter(method("setChecked", int.class)).set(bean, 11);
+		assertEquals(11, bean.i);
+		CsvSetters.<Bean>objectSetter(method("setUnchecked", Integer.class)).set(bean, 12);
+		assertEquals(Integer.valueOf(12), bean.boxed);
+		CsvSetters.<Bean>booleanSetter(method("setError", boolean.class)).set(bean, true);
+		assertTrue(bean.b);
+		// Method.invoke の InvocationTargetException
+		CsvSetters.<Bean>intSetter(method("setCount", int.class)).set(bean, -1);
+		assertEquals(-1, Bean.count);
+	}
+
+	private static CSVCursor cursor(String line) throws Exception{
+		CSVCursor cursor = CSVCursor.of(new StringReader(line), StandardCharsets.UTF_8);
+		assertTrue(cursor.next());
+		return cursor;
+	}
+}
@@ -0,0 +1,237 @@
+package org.yipuran.csv;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.yipuran.csv.CsvTable.Type;
+import org.yipuran.csv4j.ProcessingException;
+
+public class CsvTableTest {
+	private static final String CSV = "ID,CODE,PRICE,FLAG,NAME,EMPTY\n"
+		+ "1,001,100,true,あ,\n"
+		+ "2,002,2.5,FALSE,\"b,\"\"c\"\"\",\n"
+		+ "3,001,,True,あ\n"
+		+ "4,003,-7,false,,\n";
+
+	@Test
+	public void testInfer() throws Exception{
+		Charset[] charsets = { StandardCharsets.UTF_8, Charset.forName("MS932"), StandardCharsets.UTF_16 };
+		for(Charset cs : charsets){
+			// BOM of UTF-8
+			String str = cs.equals(StandardCharsets.UTF_8) ? "\uFEFF" + CSV : CSV;
+			CsvTable table = new CsvTableLoader().read(new ByteArrayInputStream(str.getBytes(cs)), cs);
+			assertEquals(4, table.size());
+			assertEquals(6, table.getColumnCount());
+			assertEquals(Arrays.asList("ID", "CODE", "PRICE", "FLAG", "NAME", "EMPTY"), table.getNames());
+			assertEquals(Type.INT, table.getType(0));
+			assertEquals(Type.INT, table.getType(1));
+			assertEquals(Type.DOUBLE, table.getType(2));
+			assertEquals(Type.BOOLEAN, table.getType(3));
+			assertEquals(Type.STRING, table.getType(4));
+			assertEquals(Type.STRING, table.getType(5));
+			assertArrayEquals(new int[]{ 1, 2, 3, 4 }, table.getInts(0));
+			assertEquals(3L, table.getLong(2, 0));
+			assertArrayEquals(new double[]{ 100, 2.5, 0, -7 }, table.getDoubles(2), 0.0);
+			assertTrue(table.isNull(2, 2));
+			assertFalse(table.isNull(3, 2));
+			assertEquals("2.5", table.getString(1, 2));
+			assertNull(table.getString(2, 2));
+			assertTrue(table.getBoolean(0, 3));
+			assertFalse(table.getBoolean(1, 3));
+			assertTrue(table.getBoolean(2, 3));
+			assertEquals("あ", table.getString(0, 4));
+			assertEquals("b,\"c\"", table.getString(1, 4));
+			// the same value is one String
+			assertSame(table.getString(0, 4), table.getString(2, 4));
+			assertArrayEquals(new int[]{ 0, 1, 0, 2 }, table.getCodes(4));
+			assertEquals(Arrays.asList("あ", "b,\"c\"", ""), table.getDictionary(4));
+			// a short line does not have the column
+			assertTrue(table.isNull(2, 5));
+			assertEquals("", table.getString(0, 5));
+			assertEquals("{2}", table.getNulls(2).toString());
+		}
+		CsvTable table = new CsvTableLoader(true).read(new InputStreamReader(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8));
+		assertNull(table.getString(0, 5));
+		assertTrue(table.isNull(3, 4));
+		assertEquals(5, table.indexOf("EMPTY"));
+		try{
+			table.getInt(0, 2);
+			fail("IllegalStateException");
+		}catch(IllegalStateException e){
+		}
+		try{
+			table.getInt(4, 0);
+			fail("IndexOutOfBoundsException");
+		}catch(IndexOutOfBoundsException e){
+		}
+	}
+	@Test
+	public void testSchema() throws Exception{
+		byte[] data = CSV.getBytes(StandardCharsets.UTF_8);
+		CsvTableLoader loader = new CsvTableLoader();
+		loader.setType(1, Type.STRING);
+		loader.setType("PRICE", Type.STRING);
+		loader.setType("ID", Type.LONG);
+		CsvTable table = loader.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8);
+		assertEquals(Type.LONG, table.getType(0));
+		assertArrayEquals(new long[]{ 1, 2, 3, 4 }, table.getLongs(0));
+		assertEquals(Arrays.asList("001", "002", "003"), table.getDictionary(1));
+		assertEquals("2.5", table.getString(1, 2));
+		loader.setType("FLAG", Type.INT);
+		try{
+			loader.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8);
+			fail("ProcessingException");
+		}catch(ProcessingException e){
+			assertEquals(2, e.getLinenumber());
+		}
+		loader.setType("FLAG", null);
+		loader.setFilter("CODE", s->"001".contentEquals(s));
+		table = loader.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8);
+		assertArrayEquals(new long[]{ 1, 3 }, table.getLongs(0));
+		loader.setHasHeader(false);
+		try{
+			loader.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8);
+			fail("IllegalStateException");
+		}catch(IllegalStateException e){
+		}
+	}
+	@Test
+	public void testWiden() throws Exception{
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i < 10; i++){
+			sb.append(i).append(',').append(i).append(',').append(i % 2==0 ? "" : "x").append('\n');
+		}
+		sb.append("3000000000,1.5,y\n");
+		sb.append("4,z,z\n");
+		CsvTableLoader loader = new CsvTableLoader();
+		loader.setHasHeader(false);
+		loader.setSampleSize(10);
+		Path path = Files.createTempFile("csvtable", ".csv");
+		try{
+			Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+			try{
+				loader.read(path, StandardCharsets.UTF_8);
+				fail("ProcessingException");
+			}catch(ProcessingException e){
+				// z is not a number
+				assertEquals(12, e.getLinenumber());
+			}
+			Files.write(path, sb.substring(0, sb.lastIndexOf("4,z")).getBytes(StandardCharsets.UTF_8));
+			CsvTable table = loader.read(path, StandardCharsets.UTF_8);
+			assertEquals(11, table.size());
+			assertEquals(Type.LONG, table.getType(0));
+			assertEquals(3000000000L, table.getLong(10, 0));
+			assertEquals(9L, table.getLong(9, 0));
+			assertEquals(Type.DOUBLE, table.getType(1));
+			assertEquals(1.5, table.getDouble(10, 1), 0.0);
+			assertEquals(Type.STRING, table.getType(2));
+			assertEquals("", table.getString(0, 2));
+			assertTrue(table.getNulls(0).isEmpty());
+		}finally{
+			Files.deleteIfExists(path);
+		}
+	}
+	@Test
+	public void testOffHeap() throws Exception{
+		StringBuilder sb = new StringBuilder("ID,CODE,PRICE,FLAG\n");
+		// more rows than a page
+		for(int i=0; i < 70000; i++){
+			sb.append(i).append(",c").append(i % 3).append(',').append(i % 5==0 ? "" : Integer.toString(i % 100)).append(',').append(i % 2==0).append('\n');
+		}
+		sb.append("5000000000,,1.5,false\n");
+		Path dir = Files.createTempDirectory("csvtable");
+		Path path = dir.resolve("data.csv");
+		try{
+			Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+			CsvTableLoader loader = new CsvTableLoader();
+			CsvTable heap = loader.read(path, StandardCharsets.UTF_8);
+			for(CsvTable.Storage storage : new CsvTable.Storage[]{ CsvTable.Storage.DIRECT, CsvTable.Storage.MAPPED }){
+				loader.setStorage(storage);
+				loader.setTempDirectory(dir);
+				CsvTable table = loader.read(path, StandardCharsets.UTF_8);
+				try{
+					assertEquals(heap.size(), table.size());
+					assertEquals(70001, table.size());
+					// widened after the sample
+					assertEquals(Type.LONG, table.getType(0));
+					assertEquals(Type.DOUBLE, table.getType(2));
+					assertEquals(5000000000L, table.getLong(70000, 0));
+					assertEquals(65536L, table.getLong(65536, 0));
+					assertEquals(1.5, table.getDouble(70000, 2), 0.0);
+					assertEquals(heap.getNulls(2), table.getNulls(2));
+					assertEquals(heap.getDictionary(1), table.getDictionary(1));
+					for(int row=0; row < table.size(); row++){
+						for(int column=0; column < table.getColumnCount(); column++){
+							assertEquals(heap.getString(row, column), table.getString(row, column));
+						}
+					}
+					try{
+						table.getLongs(0);
+						fail("IllegalStateException");
+					}catch(IllegalStateException e){
+					}
+				}finally{
+					table.close();
+				}
+				try{
+					table.getLong(0, 0);
+					fail("IllegalStateException");
+				}catch(IllegalStateException e){
+				}
+				// the temporary file is deleted
+				try(Stream<Path> files = Files.list(dir)){
+					assertEquals(Arrays.asList(path), files.collect(Collectors.toList()));
+				}
+			}
+		}finally{
+			Files.deleteIfExists(path);
+			Files.deleteIfExists(dir);
+		}
+	}
+	@Test
+	public void testMappedMemory() throws Exception{
+		Path dir = Files.createTempDirectory("csvtable");
+		try{
+			try(CsvPages.Memory memory = CsvPages.Memory.mapped(dir)){
+				// pages are slices of chunks, one mapping per chunk
+				int count = CsvPages.Memory.CHUNK_SIZE / (1 << 18) + 1;
+				ByteBuffer[] pages = new ByteBuffer[count];
+				for(int i=0; i < count; i++){
+					pages[i] = memory.allocate(1 << 18);
+					assertEquals(1 << 18, pages[i].capacity());
+					assertEquals(ByteOrder.nativeOrder(), pages[i].order());
+					pages[i].putInt((1 << 18) - 4, i + 1);
+				}
+				for(int i=0; i < count; i++){
+					assertEquals(i + 1, pages[i].getInt((1 << 18) - 4));
+				}
+				assertEquals(2L * CsvPages.Memory.CHUNK_SIZE, memory.mapped());
+				// a page given back is used again, filled with 0
+				memory.free(pages[1]);
+				ByteBuffer page = memory.allocate(1 << 18);
+				assertSame(pages[1], page);
+				assertEquals(0, page.getInt((1 << 18) - 4));
+				assertEquals(2L * CsvPages.Memory.CHUNK_SIZE, memory.mapped());
+				memory.allocate(1 << 19);
+				assertEquals(2L * CsvPages.Memory.CHUNK_SIZE, memory.mapped());
+			}
+			try(Stream<Path> files = Files.list(dir)){
+				assertEquals(0, files.count());
+			}
+		}finally{
+			Files.deleteIfExists(dir);
+		}
+	}
+}
@@ -3,6 +3,7 @@ package org.yipuran.csv;
 import static org.junit.Assert.*;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -10,6 +11,9 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -37,6 +41,29 @@ public class CsvUtilTest{
 	public void testCsvlineStringArray(){
 		String s = CsvUtil.csvline(Arrays.asList("A", "B\"B", "C"));
 		assertEquals(s, "\"A\",\"B\"\"B\",\"C\"");
+		assertEquals(CsvUtil.csvline(Arrays.asList("\"", "\"\"x\"", "")), "\"\"\"\",\"\"\"\"\"x\"\"\",\"\"");
+		assertEquals(CsvUtil.csvline(Arrays.asList()), "");
+	}
+	@Test
+	public void testIsCsvlineOverridden(){
+		CsvwriteListStream c = ()->()->Stream.empty();
+		assertFalse(CsvUtil.isCsvlineOverridden(c, CsvwriteListStream.class, List.class));
+		c = new CsvwriteListStream(){
+			@Override
+			public Supplier<Stream<List<String>>> getSupplier(){
+				return ()->Stream.of(Arrays.asList("a", "b"), Arrays.asList());
+			}
+			@Override
+			public String csvline(List<String> list){
+				return String.join(";", list);
+			}
+		};
+		assertTrue(CsvUtil.isCsvlineOverridden(c, CsvwriteListStream.class, List.class));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		c.createWithDblQuot(out, "UTF-8");
+		assertEquals(out.toString(), "a;b" + System.getProperty("line.separator") + System.getProperty("line.separator"));
+		CsvwriteArrayStream a = ()->()->Stream.empty();
+		assertFalse(CsvUtil.isCsvlineOverridden(a, CsvwriteArrayStream.class, String[].class));
 	}
 	@Test
 	public void testSplitAry(){
@@ -11,12 +11,24 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.yipuran.csv4j.CSVLineProcessor;
+import org.yipuran.csv4j.CSVRow;
+import org.yipuran.csv4j.CSVStreamProcessor;
 import org.yipuran.csv4j.ParseException;
 import org.yipuran.csv4j.ProcessingException;
 
@@ -180,4 +192,336 @@ public class CsvprocessTest{
 		}
 	}
 
+	@Test
+	public void testReadQuotedLineAndComment(){
+		String str = "# comment \"a\r\n A , \"B\r\nb\" ,\"C\"\"c\" \r  #comment\rあ,\" い \",\r\n";
+		List<String> lines = new ArrayList<>();
+		try(ByteArrayInputStream bin = new ByteArrayInputStream(str.getBytes(StandardCharsets.UTF_8));
+			InputStreamReader reader = new InputStreamReader(bin, StandardCharsets.UTF_8)){
+			process.readNoheader(reader, (n, l)->{
+				lines.add(n + ":" + l.toString());
+			});
+		}catch(ParseException e){
+			fail("ParseException");
+		}catch(IOException e){
+			fail("IOException");
+		}catch(ProcessingException e){
+			fail("ProcessingException");
+		}
+		assertEquals("[0:[A, B\r\nb, C\"c], 1:[あ,  い , ]]", lines.toString());
+	}
+	@Test
+	public void testReadParallel() throws Exception{
+		Path path = Files.createTempFile("csvprocess", ".csv");
+		try{
+			int size = 200000;
+			try(OutputStream out = Files.newOutputStream(path)){
+				StringBuilder sb = new StringBuilder("\uFEFFNO,NAME\r\n");
+				for(int i=1; i <= size; i++){
+					sb.append(i).append(",\"あ\r\n").append(i).append("\"\r\n");
+					if (sb.length() > 8192){
+						out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+						sb.setLength(0);
+					}
+				}
+				out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			List<String> header = new ArrayList<>();
+			List<Integer> ordered = new ArrayList<>();
+			process.readParallel(path, StandardCharsets.UTF_8, h->header.addAll(h), (n, l)->{
+				assertEquals(n.toString(), l.get(0));
+				assertEquals("あ\r\n" + n, l.get(1));
+				ordered.add(n);
+			}, true);
+			assertEquals("[NO, NAME]", header.toString());
+			assertEquals(size, ordered.size());
+			for(int i=0; i < size; i++){
+				assertEquals(i + 1, ordered.get(i).intValue());
+			}
+			AtomicInteger count = new AtomicInteger();
+			AtomicLong sum = new AtomicLong();
+			process.readNoheaderParallel(path, StandardCharsets.UTF_8, (n, l)->{
+				if (n==0){
+					assertEquals("[NO, NAME]", l.toString());
+				}else{
+					assertEquals(n.toString(), l.get(0));
+					sum.addAndGet(n);
+				}
+				count.incrementAndGet();
+			}, false);
+			assertEquals(size + 1, count.get());
+			assertEquals((long)size * (size + 1) / 2, sum.get());
+			try(Stream<List<String>> stream = process.stream(path, StandardCharsets.UTF_8)){
+				List<Integer> list = stream.parallel().map(l->Integer.valueOf(l.get(0))).collect(Collectors.toList());
+				assertEquals(ordered, list);
+			}
+			try{
+				process.readNoheaderParallel(path, StandardCharsets.UTF_8, (n, l)->{
+					if (n==150000) throw new IllegalStateException();
+				}, false);
+				fail("ProcessingException");
+			}catch(ProcessingException e){
+				assertEquals(150001, e.getLinenumber());
+			}
+			// 順序ありのエラー、残りの範囲の読込みは終了している
+			ForkJoinPool pool = new ForkJoinPool(4);
+			try{
+				process.readParallel(path, StandardCharsets.UTF_8, pool, h->{}, (n, l)->{
+					if (n==20000) throw new IllegalStateException();
+				}, true);
+				fail("ProcessingException");
+			}catch(ProcessingException e){
+				assertTrue(e.getCause() instanceof IllegalStateException);
+				assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+			}finally{
+				pool.shutdown();
+			}
+		}finally{
+			Files.deleteIfExists(path);
+		}
+	}
+	@Test
+	public void testReadMapView() throws Exception{
+		// 同じ列名、ブランク列名、列数の過不足
+		String str = "A,B,A,,C\n1,2,3,4,5\n1,2\n1,,3\n1,2,3,4,5,6,7\n";
+		for(boolean blankIsNull : new boolean[]{ false, true }){
+			for(boolean hasHeader : new boolean[]{ true, false }){
+				List<Map<String, String>> expected = new ArrayList<>();
+				List<String> header = new ArrayList<>();
+				Csvprocess legacy = new Csvprocess(blankIsNull);
+				legacy.setHasHeader(hasHeader);
+				legacy.readNoheader(new ByteArrayInputStream(str.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, (n, list)->{
+					if (hasHeader && header.isEmpty()){
+						header.addAll(list);
+						return;
+					}
+					Map<String, String> map = new HashMap<>();
+					for(int i=0; i < list.size(); i++){
+						map.put(i < header.size() ? header.get(i) : null, list.get(i));
+					}
+					expected.add(map);
+				});
+				List<Map<String, String>> result = new ArrayList<>();
+				Csvprocess p = new Csvprocess(blankIsNull);
+				p.setHasHeader(hasHeader);
+				p.read(new ByteArrayInputStream(str.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, (n, map)->{
+					assertEquals(map.size(), map.entrySet().size());
+					assertEquals(map.size(), map.keySet().stream().filter(map::containsKey).count());
+					result.add(map);
+				});
+				assertEquals(expected, result);
+				assertEquals(expected.toString().length(), result.toString().length());
+				for(int i=0; i < expected.size(); i++){
+					assertEquals(expected.get(i).hashCode(), result.get(i).hashCode());
+					assertEquals(expected.get(i).get("A"), result.get(i).get("A"));
+					assertEquals(expected.get(i).get(null), result.get(i).get(null));
+					assertEquals(expected.get(i).containsKey(null), result.get(i).containsKey(null));
+					assertEquals(expected.get(i).containsKey("C"), result.get(i).containsKey("C"));
+					assertFalse(result.get(i).containsKey("D"));
+					assertNull(result.get(i).get(1));
+				}
+			}
+		}
+		process.read(new ByteArrayInputStream("A\n1\n".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, (n, map)->{
+			try{
+				map.put("A", "2");
+				fail();
+			}catch(UnsupportedOperationException e){
+			}
+		});
+	}
+	@Test
+	public void testProjection() throws Exception{
+		String str = "\uFEFFID,NAME,MEMO,PRICE\n1,a,\"x,\r\ny\",100\n2,b\n3,c,z,300,extra\n";
+		byte[] data = str.getBytes(StandardCharsets.UTF_8);
+		Csvprocess p = new Csvprocess();
+		p.setProjection(3, 0);
+		List<String> lines = new ArrayList<>();
+		p.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8, h->lines.add(h.toString()), (n, l)->lines.add(n + ":" + l));
+		assertEquals("[[PRICE, ID], 1:[100, 1], 2:[null, 2], 3:[300, 3]]", lines.toString());
+		lines.clear();
+		p.readNoheader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8), (n, l)->lines.add(n + ":" + l));
+		assertEquals("[0:[PRICE, ID], 1:[100, 1], 2:[null, 2], 3:[300, 3]]", lines.toString());
+
+		p.setProjection("PRICE", "NONE", "ID");
+		lines.clear();
+		p.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8, h->lines.add(h.toString()), (n, l)->lines.add(n + ":" + l));
+		assertEquals("[[PRICE, null, ID], 1:[100, null, 1], 2:[null, null, 2], 3:[300, null, 3]]", lines.toString());
+		List<Map<String, String>> maps = new ArrayList<>();
+		p.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8, (n, map)->maps.add(map));
+		assertEquals(3, maps.size());
+		assertEquals("100", maps.get(0).get("PRICE"));
+		assertEquals("1", maps.get(0).get("ID"));
+		assertFalse(maps.get(0).containsKey("NAME"));
+		assertTrue(maps.get(1).containsKey("PRICE"));
+		assertNull(maps.get(1).get("PRICE"));
+		assertFalse(maps.get(2).containsKey(null));
+		try{
+			p.readNoheader(new ByteArrayInputStream(data), StandardCharsets.UTF_8, (n, l)->{});
+			fail("IllegalStateException");
+		}catch(IllegalStateException e){
+		}
+
+		Path path = Files.createTempFile("csvprocess", ".csv");
+		try{
+			Files.write(path, data);
+			try(Stream<List<String>> stream = p.stream(path, StandardCharsets.UTF_8)){
+				assertEquals("[[100, null, 1], [null, null, 2], [300, null, 3]]", stream.collect(Collectors.toList()).toString());
+			}
+			lines.clear();
+			p.readParallel(path, StandardCharsets.UTF_8, h->lines.add(h.toString()), (n, l)->lines.add(n + ":" + l), true);
+			assertEquals("[[PRICE, null, ID], 1:[100, null, 1], 2:[null, null, 2], 3:[300, null, 3]]", lines.toString());
+		}finally{
+			Files.deleteIfExists(path);
+		}
+	}
+	@Test
+	public void testCompactRows() throws Exception{
+		String str = "\uFEFFID,NAME,MEMO\n1,a,\"x,\r\ny\"\n2,b\n";
+		byte[] data = str.getBytes(StandardCharsets.UTF_8);
+		Csvprocess p = new Csvprocess();
+		p.setCompactRows(true);
+		List<List<String>> rows = new ArrayList<>();
+		List<String> header = new ArrayList<>();
+		p.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8, h->header.addAll(h), (n, l)->rows.add(l));
+		assertEquals("[ID, NAME, MEMO]", header.toString());
+		assertEquals("[[1, a, x,\r\ny], [2, b]]", rows.toString());
+		assertTrue(rows.stream().allMatch(l->l instanceof CSVRow));
+		rows.clear();
+		p.readNoheader(new ByteArrayInputStream(data), StandardCharsets.UTF_8, (n, l)->rows.add(l));
+		assertEquals("[[ID, NAME, MEMO], [1, a, x,\r\ny], [2, b]]", rows.toString());
+		assertTrue(rows.stream().allMatch(l->l instanceof CSVRow));
+		// map rows are not changed
+		List<Map<String, String>> maps = new ArrayList<>();
+		p.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8, (n, map)->maps.add(map));
+		assertEquals("a", maps.get(0).get("NAME"));
+		Path path = Files.createTempFile("csvprocess", ".csv");
+		try{
+			Files.write(path, data);
+			try(Stream<List<String>> stream = p.stream(path, StandardCharsets.UTF_8)){
+				rows.clear();
+				stream.forEach(rows::add);
+			}
+			assertEquals("[[1, a, x,\r\ny], [2, b]]", rows.toString());
+			assertTrue(rows.stream().allMatch(l->l instanceof CSVRow));
+		}finally{
+			Files.deleteIfExists(path);
+		}
+	}
+	@Test
+	public void testInterning() throws Exception{
+		String str = "ID,CC\n1,JP\n2,US\n3,JP\n4,US\n";
+		byte[] data = str.getBytes(StandardCharsets.UTF_8);
+		Csvprocess p = new Csvprocess();
+		p.setInterning(1);
+		List<List<String>> rows = new ArrayList<>();
+		p.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8, h->{}, (n, l)->rows.add(l));
+		assertEquals("[[1, JP], [2, US], [3, JP], [4, US]]", rows.toString());
+		assertSame(rows.get(0).get(1), rows.get(2).get(1));
+		assertSame(rows.get(1).get(1), rows.get(3).get(1));
+		assertNotSame(rows.get(0).get(0), rows.get(2).get(0));
+		List<Map<String, String>> maps = new ArrayList<>();
+		p.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8, (n, map)->maps.add(map));
+		assertSame(maps.get(0).get("CC"), maps.get(2).get("CC"));
+		Path path = Files.createTempFile("csvprocess", ".csv");
+		try{
+			Files.write(path, data);
+			try(Stream<List<String>> stream = p.stream(path, StandardCharsets.UTF_8)){
+				rows.clear();
+				stream.forEach(rows::add);
+			}
+			assertSame(rows.get(0).get(1), rows.get(2).get(1));
+		}finally{
+			Files.deleteIfExists(path);
+		}
+	}
+	@Test
+	public void testFilter() throws Exception{
+		String str = "ID,CC,MEMO\n1,JP,a\n2,US,\"b\r\nb\"\n3,JP,c\n4\n";
+		byte[] data = str.getBytes(StandardCharsets.UTF_8);
+		Csvprocess p = new Csvprocess();
+		p.setFilter("CC", s->"JP".contentEquals(s));
+		List<String> lines = new ArrayList<>();
+		p.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8, h->lines.add(h.toString()), (n, l)->lines.add(n + ":" + l));
+		assertEquals("[[ID, CC, MEMO], 1:[1, JP, a], 2:[3, JP, c]]", lines.toString());
+		// the filter column does not have to be projected
+		p.setProjection("MEMO");
+		List<Map<String, String>> maps = new ArrayList<>();
+		p.read(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8), (n, map)->maps.add(map));
+		assertEquals("[{MEMO=a}, {MEMO=c}]", maps.toString());
+		p.setProjection((int[])null);
+		// without header line, the header line is a data line
+		p.setFilter(1, s->!"JP".contentEquals(s));
+		lines.clear();
+		p.readNoheader(new ByteArrayInputStream(data), StandardCharsets.UTF_8, (n, l)->lines.add(n + ":" + l));
+		assertEquals("[0:[ID, CC, MEMO], 1:[2, US, b\r\nb]]", lines.toString());
+		p.setFilter("CC", s->true);
+		try{
+			p.readNoheader(new ByteArrayInputStream(data), StandardCharsets.UTF_8, (n, l)->{});
+			fail("IllegalStateException");
+		}catch(IllegalStateException e){
+		}
+		Path path = Files.createTempFile("csvprocess", ".csv");
+		try{
+			Files.write(path, data);
+			p.readParallel(path, StandardCharsets.UTF_8, h->{}, (n, l)->{}, true);
+			fail("IllegalStateException");
+		}catch(IllegalStateException e){
+		}finally{
+			Files.deleteIfExists(path);
+		}
+
+		CSVStreamProcessor sp = new CSVStreamProcessor();
+		sp.setFilter(0, s->s.length()==1 && s.charAt(0) > '1');
+		lines.clear();
+		int count = sp.processStream(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8), new CSVLineProcessor(){
+			@Override
+			public void processHeaderLine(int linenumber, List<String> fieldNames){
+				lines.add(linenumber + ":" + fieldNames);
+			}
+			@Override
+			public void processDataLine(int linenumber, List<String> fieldValues){
+				lines.add(linenumber + ":" + fieldValues);
+			}
+			@Override
+			public boolean continueProcessing(){
+				return true;
+			}
+		});
+		assertEquals(4, count);
+		assertEquals("[1:[ID, CC, MEMO], 3:[2, US, b\r\nb], 4:[3, JP, c], 5:[4]]", lines.toString());
+	}
+	@Test
+	public void testFilterUnknownName() throws Exception{
+		byte[] data = "ID,CC,MEMO\n1,JP,a\n2,US,b\n".getBytes(StandardCharsets.UTF_8);
+		Csvprocess p = new Csvprocess();
+		p.setFilter("COUNTRY", s->"JP".contentEquals(s));
+		try{
+			p.read(new ByteArrayInputStream(data), StandardCharsets.UTF_8, h->{}, (n, l)->fail("data line"));
+			fail("ProcessingException");
+		}catch(ProcessingException e){
+			assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+			assertEquals(1, e.getLinenumber());
+		}
+		CSVStreamProcessor sp = new CSVStreamProcessor();
+		sp.setFilter("COUNTRY", s->true);
+		try{
+			sp.processStream(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8), new CSVLineProcessor(){
+				@Override
+				public void processHeaderLine(int linenumber, List<String> fieldNames){
+				}
+				@Override
+				public void processDataLine(int linenumber, List<String> fieldValues){
+					fail("data line");
+				}
+				@Override
+				public boolean continueProcessing(){
+					return true;
+				}
+			});
+			fail("ProcessingException");
+		}catch(ProcessingException e){
+			assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+		}
+	}
 }
@@ -0,0 +1,41 @@
+package org.yipuran.csv.data;
+
+import java.math.BigDecimal;
+
+public class Item {
+	public enum Color { RED, GREEN, BLUE }
+
+	private String name;
+	private Color color;
+	private BigDecimal price;
+	private int qty;
+
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	public Color getColor() {
+		return color;
+	}
+	public void setColor(Color color) {
+		this.color = color;
+	}
+	public BigDecimal getPrice() {
+		return price;
+	}
+	public void setPrice(BigDecimal price) {
+		this.price = price;
+	}
+	public int getQty() {
+		return qty;
+	}
+	public void setQty(int qty) {
+		this.qty = qty;
+	}
+	@Override
+	public String toString() {
+		return "(name=" + name + ",color=" + color + ",price=" + price + ",qty=" + qty + ")";
+	}
+}
@@ -0,0 +1,42 @@
+package org.yipuran.csv.data;
+
+import java.math.BigDecimal;
+
+import org.yipuran.csv.CsvBean;
+
+@CsvBean
+public class ItemBean {
+	private String name;
+	private Item.Color color;
+	private BigDecimal price;
+	private int qty;
+
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	public Item.Color getColor() {
+		return color;
+	}
+	public void setColor(Item.Color color) {
+		this.color = color;
+	}
+	public BigDecimal getPrice() {
+		return price;
+	}
+	public void setPrice(BigDecimal price) {
+		this.price = price;
+	}
+	public int getQty() {
+		return qty;
+	}
+	public void setQty(int qty) {
+		this.qty = qty;
+	}
+	@Override
+	public String toString() {
+		return "(name=" + name + ",color=" + color + ",price=" + price + ",qty=" + qty + ")";
+	}
+}
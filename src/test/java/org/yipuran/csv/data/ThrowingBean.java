@@ -0,0 +1,44 @@
+package org.yipuran.csv.data;
+
+import org.yipuran.csv.CsvBean;
+
+@CsvBean
+public class ThrowingBean {
+	private String a;
+	private int b;
+	private Code code;
+	private String name;
+
+	public static class Code {
+		private final String value;
+		private Code(String value) {
+			this.value = value;
+		}
+		public static Code valueOf(String value) {
+			if (value.isEmpty()) throw new AssertionError("empty");
+			return new Code(value);
+		}
+		@Override
+		public String toString() {
+			return value;
+		}
+	}
+
+	public void setA(String a) throws Exception {
+		throw new Exception("checked");
+	}
+	public void setB(int b) {
+		if (b < 0) throw new AssertionError("negative");
+		this.b = b;
+	}
+	public void setCode(Code code) {
+		this.code = code;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	@Override
+	public String toString() {
+		return "(a=" + a + ",b=" + b + ",code=" + code + ",name=" + name + ")";
+	}
+}
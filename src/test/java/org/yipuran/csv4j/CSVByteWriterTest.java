@@ -0,0 +1,104 @@
+package org.yipuran.csv4j;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * CSVByteWriterTest.java
+ */
+public class CSVByteWriterTest{
+	Path path;
+
+	@Before
+	public void setUp() throws IOException{
+		path = Files.createTempFile("csv4j", ".csv");
+	}
+	@After
+	public void tearDown() throws IOException{
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void testWrite() throws IOException{
+		StringBuilder sb = new StringBuilder();
+		Random random = new Random(3);
+		char[] chars = { 'a', ',', '"', '\n', '\u00e9', '\u3042', '\ud83d', '\ude00', '\uffff' };
+		for(int i=0; i < 100000; i++){
+			sb.append(chars[random.nextInt(chars.length)]);
+		}
+		String text = sb.toString();
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		try(Writer w = new OutputStreamWriter(expected, StandardCharsets.UTF_8)){
+			w.write(text);
+		}
+		// writes of every length, pairs split between writes, small buffer
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try(CSVByteWriter w = new CSVByteWriter(out, 16)){
+			for(int i=0, n=1; i < text.length(); i += n, n = n % 37 + 1){
+				w.write(text, i, Math.min(n, text.length() - i));
+			}
+		}
+		assertArrayEquals(expected.toByteArray(), out.toByteArray());
+	}
+	@Test
+	public void testChannel() throws IOException{
+		try(CSVByteWriter w = new CSVByteWriter(FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))){
+			w.writeBOM();
+			CSVWriter writer = new CSVWriter(w, ',', '#', "\n", true);
+			writer.writeLine(new String[]{ "\u3042", "a,b" });
+			writer.flush();
+			assertEquals(13, Files.size(path));
+			w.write('\ud83d');
+			w.flush();
+			assertEquals(13, Files.size(path));
+		}
+		assertArrayEquals(new byte[]{ (byte)0xef, (byte)0xbb, (byte)0xbf, (byte)0xe3, (byte)0x81, (byte)0x82, ',', '"', 'a', ',', 'b', '"', '\n', '?' }
+			, Files.readAllBytes(path));
+	}
+	@Test
+	public void testClosed() throws IOException{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CSVByteWriter w = new CSVByteWriter(out);
+		w.write("a");
+		w.close();
+		w.close();
+		assertEquals("a", out.toString("UTF-8"));
+		try{
+			w.writeBOM();
+			fail();
+		}catch(IOException e){
+		}
+		try{
+			w.write("b");
+			fail();
+		}catch(IOException e){
+		}
+		try{
+			w.flush();
+			fail();
+		}catch(IOException e){
+		}
+		assertEquals("a", out.toString("UTF-8"));
+	}
+	@Test
+	public void testOf() throws IOException{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertTrue(CSVByteWriter.of(out, StandardCharsets.UTF_8) instanceof CSVByteWriter);
+		assertFalse(CSVByteWriter.of(out, Charset.forName("MS932")) instanceof CSVByteWriter);
+	}
+}
@@ -0,0 +1,382 @@
+package org.yipuran.csv4j;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * CSVCursorTest.java
+ */
+public class CSVCursorTest{
+
+	@Test
+	public void testFieldView() throws IOException{
+		String str = "\uFEFFA,B,C\r\n\"x,\"\"y\"\"\", b ,\r\n";
+		try(CSVCursor cursor = CSVCursor.of(new StringReader(str), StandardCharsets.UTF_8)){
+			assertTrue(cursor.next());
+			assertEquals(3, cursor.fieldCount());
+			CharSequence a = cursor.field(0);
+			assertEquals("A", a.toString());
+			assertTrue(cursor.next());
+			assertEquals(3, cursor.fieldCount());
+			// view is reused for the next record
+			assertSame(a, cursor.field(0));
+			assertEquals("x,\"y\"", a.toString());
+			assertEquals(5, a.length());
+			assertEquals('"', a.charAt(2));
+			assertEquals("b", cursor.getString(1));
+			assertEquals("", cursor.getString(2));
+			assertEquals(2, cursor.getLineNumber());
+			assertFalse(cursor.next());
+		}
+	}
+	@Test
+	public void testBlankIsNull() throws IOException{
+		try(CSVCursor cursor = CSVCursor.of(new StringReader("1,,\"\"\n\n2"), StandardCharsets.UTF_8, '#', true)){
+			assertTrue(cursor.next());
+			assertEquals("1", cursor.field(0).toString());
+			assertNull(cursor.field(1));
+			assertNull(cursor.getString(2));
+			// empty line
+			assertTrue(cursor.next());
+			assertEquals(0, cursor.fieldCount());
+		}
+	}
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testIndex() throws IOException{
+		try(CSVCursor cursor = CSVCursor.of(new StringReader("1,2"), StandardCharsets.UTF_8)){
+			cursor.next();
+			cursor.field(2);
+		}
+	}
+	@Test(expected=ParseException.class)
+	public void testTerminatingQuote() throws IOException{
+		try(CSVCursor cursor = CSVCursor.of(new StringReader("1,\"2\n"), StandardCharsets.UTF_8)){
+			cursor.next();
+		}
+	}
+	@Test
+	public void testBytes() throws IOException{
+		byte[] data = "\uFEFF\u3000あ, \"い,\"\"う\"\"\" ,え\u3000お\u3000\r\n#c\r\n\u00e9\r\n".getBytes(StandardCharsets.UTF_8);
+		try(CSVCursor cursor = CSVCursor.of(data, StandardCharsets.UTF_8)){
+			assertTrue(cursor.next());
+			assertEquals(3, cursor.fieldCount());
+			assertEquals("あ", cursor.field(0).toString());
+			assertEquals("い,\"う\"", cursor.getString(1));
+			assertEquals(5, cursor.field(1).length());
+			assertEquals('お', cursor.field(2).charAt(2));
+			assertEquals("え\u3000お", cursor.getString(2));
+			assertTrue(cursor.next());
+			assertEquals("\u00e9", cursor.getString(0));
+			assertEquals(3, cursor.getLineNumber());
+			assertFalse(cursor.next());
+		}
+		// stream read in small blocks, direct buffer
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data).flip();
+		for(CSVCursor cursor : new CSVCursor[]{ CSVCursor.of(new ByteArrayInputStream(data){
+				@Override
+				public synchronized int read(byte[] b, int off, int len){
+					return super.read(b, off, Math.min(len, 2));
+				}
+			}, StandardCharsets.UTF_8), CSVCursor.of(direct, StandardCharsets.UTF_8) }){
+			try{
+				assertTrue(cursor.next());
+				assertEquals("[あ, い,\"う\", え\u3000お]", cursor.toList().toString());
+				assertTrue(cursor.next());
+				assertEquals("[\u00e9]", cursor.toList().toString());
+				assertFalse(cursor.next());
+			}finally{
+				cursor.close();
+			}
+		}
+		assertEquals(0, direct.position());
+	}
+	@Test
+	public void testBytesSingleByte() throws IOException{
+		Charset cs = Charset.forName("windows-1252");
+		try(CSVCursor cursor = CSVCursor.of("\u00a0x\u00e9\u00a0;\u20ac\n".getBytes(cs), cs, ';', '#', false)){
+			assertTrue(cursor.next());
+			assertEquals("[\u00a0x\u00e9\u00a0, \u20ac]", cursor.toList().toString());
+		}
+	}
+	@Test
+	public void testBytesSjis() throws IOException{
+		Charset cs = Charset.forName("MS932");
+		// 表 and ソ have 0x5C (\) as trail byte
+		byte[] data = "\u3000表\u3000|\"ソ|\"\"①\"\"\" | ～ｱ \r\n#表\r\n".getBytes(cs);
+		try(CSVCursor cursor = CSVCursor.of(data, cs, '|', '#', false)){
+			assertTrue(cursor.next());
+			assertEquals(3, cursor.fieldCount());
+			assertEquals("表", cursor.field(0).toString());
+			assertEquals("ソ|\"①\"", cursor.getString(1));
+			assertEquals("～ｱ", cursor.getString(2));
+			assertFalse(cursor.next());
+		}
+		try(CSVCursor cursor = CSVCursor.of(new ByteArrayInputStream(data), cs, '|', '#', false)){
+			assertTrue(cursor.next());
+			assertEquals("[表, ソ|\"①\", ～ｱ]", cursor.toList().toString());
+			assertFalse(cursor.next());
+		}
+	}
+	@Test
+	public void testProjection() throws IOException{
+		// quoted delimiters and line terminators, escaped quotes, blank and comment lines, short and long lines
+		String str = "A,B,C,D\r\n\"a,\"\"1\"\"\", b\n b ,c, \"c\r\nc\" ,\"d\"\n  \n#x,y\n 1 ,2\n1,2,3,4,5\n\n\u3042,\"\u3044,\u3046\" ,\u3048\n";
+		int[] columns = { 3, 1, 7 };
+		Charset[] charsets = { StandardCharsets.UTF_8, Charset.forName("MS932"), StandardCharsets.UTF_16 };
+		for(Charset cs : charsets){
+			byte[] data = str.getBytes(cs);
+			try(CSVCursor full = CSVCursor.of(data, cs, ',', '#', false);
+				CSVCursor projected = CSVCursor.of(data, cs, ',', '#', false)){
+				projected.setProjection(columns);
+				assertSame(columns, projected.getProjection());
+				int records = 0;
+				while(full.next()){
+					assertTrue(projected.next());
+					assertEquals(full.fieldCount(), projected.fieldCount());
+					assertEquals(full.getLineNumber(), projected.getLineNumber());
+					assertEquals(full.toList(columns), projected.toList(columns));
+					if (projected.fieldCount() > 2){
+						// fields out of the projection are not copied
+						assertEquals("", projected.getString(2));
+					}
+					records++;
+				}
+				assertFalse(projected.next());
+				assertEquals(8, records);
+			}
+		}
+		try(CSVCursor cursor = CSVCursor.of(new StringReader(str), StandardCharsets.UTF_8)){
+			assertTrue(cursor.next());
+			cursor.setProjection(columns);
+			// the current record is not changed
+			assertEquals("[A, B, C, D]", cursor.toList().toString());
+			assertEquals(Arrays.asList("D", "B", null), cursor.toList(columns));
+			assertTrue(cursor.next());
+			assertEquals(Arrays.asList(null, "b", null), cursor.toList(columns));
+			assertEquals("", cursor.getString(0));
+			cursor.setProjection((int[])null);
+			assertTrue(cursor.next());
+			assertEquals("[b, c, c\r\nc, d]", cursor.toList().toString());
+		}
+	}
+	@Test
+	public void testFilter() throws IOException{
+		String str = "ID,CC,MEMO\n1,JP,a\n2, US ,\"b\r\n,\"\"c\"\"\"\n3,\"JP\",\"x\ny\"\n4\n\n5,,\n6,JP\n#7,JP\n8,\u3042,\u3044\n";
+		Charset[] charsets = { StandardCharsets.UTF_8, Charset.forName("MS932"), StandardCharsets.UTF_16 };
+		for(Charset cs : charsets){
+			for(boolean blankIsNull : new boolean[]{ false, true }){
+				byte[] data = str.getBytes(cs);
+				List<String> expected = new ArrayList<>();
+				try(CSVCursor cursor = CSVCursor.of(data, cs, ',', '#', blankIsNull)){
+					cursor.next();
+					while(cursor.next()){
+						if (cursor.fieldCount()==0 || cursor.fieldCount() > 1 && "JP".equals(cursor.getString(1))){
+							expected.add(cursor.getLineNumber() + ":" + cursor.toList());
+						}
+					}
+				}
+				List<String> result = new ArrayList<>();
+				try(CSVCursor cursor = CSVCursor.of(data, cs, ',', '#', blankIsNull)){
+					cursor.next();
+					cursor.setFilter(1, s->"JP".contentEquals(s==null ? "" : s));
+					while(cursor.next()){
+						result.add(cursor.getLineNumber() + ":" + cursor.toList());
+					}
+				}
+				assertEquals("[2:[1, JP, a], 4:[3, JP, x\ny], 6:[], 8:[6, JP]]", expected.toString());
+				assertEquals(expected, result);
+				// the filter column is read even if it is out of the projection
+				result.clear();
+				try(CSVCursor cursor = CSVCursor.of(data, cs, ',', '#', blankIsNull)){
+					cursor.setProjection(0);
+					cursor.setFilter(1, s->s != null && s.length()==2 && s.charAt(0)=='J');
+					while(cursor.next()){
+						result.add(cursor.toList(new int[]{ 0, 1 }).toString());
+					}
+				}
+				assertEquals("[[1, JP], [3, JP], [], [6, JP]]", result.toString());
+			}
+		}
+	}
+	@Test
+	public void testRow() throws IOException{
+		String str = "A,B,C\n1,,\"x,\r\ny\"\n\n-12,3.5,\"\"\"q\"\"\"\n\u3042,9\n";
+		Charset[] charsets = { StandardCharsets.UTF_8, Charset.forName("MS932"), StandardCharsets.UTF_16 };
+		for(Charset cs : charsets){
+			for(boolean blankIsNull : new boolean[]{ false, true }){
+				byte[] data = str.getBytes(cs);
+				try(CSVCursor cursor = CSVCursor.of(data, cs, ',', '#', blankIsNull)){
+					int records = 0;
+					while(cursor.next()){
+						List<String> list = cursor.toList();
+						CSVRow row = cursor.toRow();
+						assertEquals(list, row);
+						assertEquals(row, list);
+						assertEquals(list.hashCode(), row.hashCode());
+						assertEquals(row, CSVRow.of(list));
+						for(int i=0; i < list.size(); i++){
+							assertEquals(list.get(i)==null, row.isNull(i));
+							assertTrue(row.contentEquals(i, list.get(i)));
+						}
+						int[] columns = { 2, 0, 5 };
+						assertEquals(cursor.toList(columns), cursor.toRow(columns));
+						records++;
+					}
+					assertEquals(5, records);
+				}
+			}
+		}
+		try(CSVCursor cursor = CSVCursor.of(new StringReader(str), StandardCharsets.UTF_8, '#', true)){
+			cursor.next();
+			cursor.next();
+			CSVRow row = cursor.toRow();
+			assertEquals(1, row.getInt(0));
+			assertTrue(row.isNull(1));
+			assertEquals(0, row.length(1));
+			assertEquals("x,\r\ny", row.get(2));
+			cursor.next();
+			assertEquals(0, cursor.toRow().size());
+			cursor.next();
+			row = cursor.toRow();
+			assertEquals(-12L, row.getLong(0));
+			assertEquals((short)-12, row.getShort(0));
+			assertEquals(3.5, row.getDouble(1), 0.0);
+			assertEquals(3.5f, row.getFloat(1), 0.0f);
+			assertEquals("\"q\"", row.get(2));
+			try{
+				row.getInt(2);
+				fail("NumberFormatException");
+			}catch(NumberFormatException e){
+			}
+			try{
+				row.set(0, "x");
+				fail("UnsupportedOperationException");
+			}catch(UnsupportedOperationException e){
+			}
+		}
+		CSVReader reader = new CSVReader(new StringReader(str), StandardCharsets.UTF_8);
+		assertEquals(Arrays.asList("A", "B", "C"), reader.readRow());
+		assertEquals(Arrays.asList("1", "", "x,\r\ny"), reader.readRow());
+		assertEquals(0, reader.readRow().size());
+		assertEquals(Arrays.asList("-12", "3.5", "\"q\""), reader.readRow());
+		assertEquals(Arrays.asList("\u3042", "9"), reader.readRow());
+		assertEquals(0, reader.readRow().size());
+		reader.close();
+	}
+	@Test
+	public void testInterning() throws IOException{
+		StringBuilder sb = new StringBuilder("ID,CC,NAME\n");
+		String[] codes = { "JP", "US", "\u65e5\u672c", "" };
+		for(int i=0; i < 3000; i++){
+			sb.append(i).append(',').append(codes[i % codes.length]).append(",\"n").append(i % 7).append("\"\n");
+		}
+		String str = sb.toString();
+		Charset[] charsets = { StandardCharsets.UTF_8, Charset.forName("MS932"), StandardCharsets.UTF_16 };
+		for(Charset cs : charsets){
+			byte[] data = str.getBytes(cs);
+			List<List<String>> expected = new ArrayList<>();
+			try(CSVCursor cursor = CSVCursor.of(data, cs, ',', '#', true)){
+				while(cursor.next()){
+					expected.add(cursor.toList());
+				}
+			}
+			try(CSVCursor cursor = CSVCursor.of(data, cs, ',', '#', true)){
+				cursor.setInterning(0, 1, 2);
+				cursor.next();
+				List<List<String>> result = new ArrayList<>();
+				result.add(cursor.toList());
+				String[] first = new String[codes.length];
+				String name = null;
+				while(cursor.next()){
+					List<String> list = cursor.toList();
+					int i = result.size() - 1;
+					if (i < codes.length){
+						first[i] = list.get(1);
+					}else{
+						// repeated values are the same instance
+						assertSame(first[i % codes.length], list.get(1));
+					}
+					if (i==7) name = list.get(2);
+					if (i > 7 && i % 7==0) assertSame(name, list.get(2));
+					result.add(list);
+				}
+				// the unique ID column gives up and keeps reading
+				assertEquals(expected, result);
+				assertNull(result.get(4).get(1));
+			}
+		}
+		try(CSVCursor cursor = CSVCursor.of(new StringReader("a,b\na,b\n"), StandardCharsets.UTF_8)){
+			cursor.setInterning(1);
+			cursor.next();
+			String b = cursor.getString(1);
+			String a = cursor.getString(0);
+			cursor.next();
+			assertSame(b, cursor.getString(1));
+			assertNotSame(a, cursor.getString(0));
+			cursor.setInterning((int[])null);
+			assertNotSame(b, cursor.getString(1));
+		}
+	}
+	@Test
+	public void testNumbers() throws IOException{
+		String[] fields = {"0", "-12", "+7", "2147483647", "-2147483648", "2147483648", "9223372036854775807", "-9223372036854775808"
+			, "32767", "-32769", "1.5", "-0.0", ".5", "1e3", "2.2250738585072011e-308", "4.9e-324", "1.7976931348623159e308"
+			, "3.4028236e38", "0.1", "123456789012345678901", "NaN", "-Infinity", "0x1p3", "1.5f", "1_0", "\uff11", "a", ""};
+		String line = String.join(",", fields) + "\n";
+		for(int mode=0; mode < 2; mode++){
+			try(CSVCursor cursor = mode==0 ? CSVCursor.of(new StringReader(line), StandardCharsets.UTF_8)
+				: CSVCursor.of(line.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8)){
+				assertTrue(cursor.next());
+				for(int index=0; index < fields.length; index++){
+					int i = index;
+					String s = cursor.getString(i);
+					assertEquals(s, parse(()->Integer.parseInt(s)), parse(()->cursor.getInt(i)));
+					assertEquals(s, parse(()->Long.parseLong(s)), parse(()->cursor.getLong(i)));
+					assertEquals(s, parse(()->Short.parseShort(s)), parse(()->cursor.getShort(i)));
+					assertEquals(s, parse(()->Double.parseDouble(s)), parse(()->cursor.getDouble(i)));
+					assertEquals(s, parse(()->Float.parseFloat(s)), parse(()->cursor.getFloat(i)));
+				}
+				assertFalse(cursor.isNull(fields.length - 1));
+			}
+		}
+		try(CSVCursor cursor = CSVCursor.of(new StringReader("1,\n"), StandardCharsets.UTF_8, '#', true)){
+			assertTrue(cursor.next());
+			assertFalse(cursor.isNull(0));
+			assertTrue(cursor.isNull(1));
+		}
+		// random doubles and floats, exact bits
+		java.util.Random random = new java.util.Random(1);
+		for(int n=0; n < 100000; n++){
+			String s = n % 2==0 ? Double.toString(Double.longBitsToDouble(random.nextLong()))
+				: Float.toString(Float.intBitsToFloat(random.nextInt()));
+			char[] chars = s.toCharArray();
+			byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+			assertEquals(s, parse(()->Double.parseDouble(s)), parse(()->CSVNumbers.parseDouble(chars, 0, chars.length)));
+			assertEquals(s, parse(()->Double.parseDouble(s)), parse(()->CSVNumbers.parseDouble(bytes, 0, bytes.length)));
+			assertEquals(s, parse(()->Float.parseFloat(s)), parse(()->CSVNumbers.parseFloat(s, 0, s.length())));
+		}
+	}
+	/** value or error message, bits of double and float */
+	private static String parse(java.util.concurrent.Callable<Object> parser){
+		try{
+			Object v = parser.call();
+			if (v instanceof Double) return "D" + Long.toHexString(Double.doubleToRawLongBits((Double)v));
+			if (v instanceof Float) return "F" + Integer.toHexString(Float.floatToRawIntBits((Float)v));
+			return v.getClass().getSimpleName() + v;
+		}catch(Exception e){
+			return e.getClass().getName() + ":" + e.getMessage();
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package org.yipuran.csv4j;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * CSVFileProcessorTest.java
+ */
+public class CSVFileProcessorTest{
+	Path path;
+
+	@Before
+	public void setUp() throws IOException{
+		path = Files.createTempFile("csv4j", ".csv");
+	}
+	@After
+	public void tearDown() throws IOException{
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void testProcessFilePath() throws Exception{
+		Files.write(path, "\uFEFFA,B\r\nあ,\"い\r\nう\"\r\n# comment\r\n1,2\r\n".getBytes(StandardCharsets.UTF_8));
+		List<String> lines = new ArrayList<>();
+		int count = new CSVFileProcessor().processFile(path, StandardCharsets.UTF_8, new CSVFieldMapProcessor(){
+			@Override
+			public void processDataLine(int linenumber, Map<String, String> fields){
+				lines.add(linenumber + ":" + fields.get("A") + "," + fields.get("B"));
+			}
+			@Override
+			public boolean continueProcessing(){
+				return true;
+			}
+		});
+		assertEquals(3, count);
+		assertEquals("[2:あ,い\r\nう, 4:1,2]", lines.toString());
+	}
+	@Test
+	public void testMappedWindows() throws IOException{
+		Charset cs = Charset.forName("MS932");
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i < 100; i++){
+			sb.append(i).append(",表示,\"").append(i).append("\r\n\"\r\n");
+		}
+		Files.write(path, sb.toString().getBytes(cs));
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+			CSVCursor cursor = CSVCursor.of(new CSVMappedInputStream(channel, 0, channel.size(), 7, false), cs)){
+			for(int i=0; i < 100; i++){
+				assertTrue(cursor.next());
+				assertEquals("[" + i + ", 表示, " + i + "\r\n]", cursor.toList().toString());
+			}
+			assertFalse(cursor.next());
+		}
+	}
+	@Test
+	public void testFileChunks() throws IOException{
+		StringBuilder sb = new StringBuilder("\uFEFF");
+		for(int i=0; i < 50; i++){
+			sb.append(i).append(",\"a\r\n# ").append(i).append("\",\"\"\"b\"\r\n");
+			if (i % 7==0) sb.append("# comment \"\r\n");
+		}
+		Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+		List<String> expected = new ArrayList<>();
+		try(CSVCursor cursor = CSVCursor.of(path, StandardCharsets.UTF_8)){
+			while(cursor.next()){
+				expected.add(cursor.getLineNumber() + ":" + cursor.toList());
+			}
+		}
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try{
+			for(int chunkSize=1; chunkSize < 40; chunkSize += 3){
+				List<String> result = new ArrayList<>();
+				try(CSVFileChunks chunks = CSVFileChunks.split(path, StandardCharsets.UTF_8, '#', pool, chunkSize)){
+					assertEquals(-1, chunks.emptyLineRecord());
+					for(int i=0; i < chunks.size(); i++){
+						assertEquals(result.size(), chunks.firstRecord(i));
+						try(CSVCursor cursor = chunks.cursor(i, ',', false)){
+							while(cursor.next()){
+								result.add(chunks.lineOffset(i) + cursor.getLineNumber() + ":" + cursor.toList());
+							}
+						}
+					}
+				}
+				assertEquals(expected, result);
+			}
+		}finally{
+			pool.shutdown();
+		}
+	}
+	@Test
+	public void testFileSpliterator() throws IOException{
+		StringBuilder sb = new StringBuilder("NO,NAME\r\n");
+		for(int i=1; i <= 3000; i++){
+			sb.append(i).append(",\"").append(i % 3==0 ? "a\r\n# b" : "c").append("\"\r\n");
+			if (i % 100==0) sb.append("# comment\r\n");
+		}
+		sb.append("\r\n").append("9999,ignored\r\n");
+		Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+		CSVFileSpliterator<String> spliterator = new CSVFileSpliterator<>(path, StandardCharsets.UTF_8, ',', '#', false,
+			(record, cursor)-> record==0 ? null : cursor.getString(0) + ":" + cursor.getString(1));
+		spliterator.setChunkSize(1000);
+		List<String> expected = new ArrayList<>();
+		for(int i=1; i <= 3000; i++){
+			expected.add(i + ":" + (i % 3==0 ? "a\r\n# b" : "c"));
+		}
+		try(Stream<String> stream = StreamSupport.stream(spliterator, true).onClose(spliterator::close)){
+			assertEquals(expected, stream.collect(Collectors.toList()));
+		}
+		CSVFileSpliterator<String> error = new CSVFileSpliterator<>(path, StandardCharsets.UTF_8, ',', '#', false,
+			(record, cursor)->{
+				if (record==2000) throw new IllegalStateException();
+				return cursor.getString(0);
+			});
+		error.setChunkSize(1000);
+		try(Stream<String> stream = StreamSupport.stream(error, true).onClose(error::close)){
+			stream.count();
+			fail("RuntimeException");
+		}catch(RuntimeException e){
+			assertEquals(2020, ((ProcessingException)e.getCause()).getLinenumber());
+		}
+	}
+	@Test
+	public void testSortedFieldMap() throws Exception{
+		// repeated field name, short line
+		Files.write(path, "C,A,B,A\n1,2,3,4\n5,\"6,7\"\n".getBytes(StandardCharsets.UTF_8));
+		List<String> header = new ArrayList<>();
+		List<SortedMap<String, String>> expected = new ArrayList<>();
+		new CSVFileProcessor().processFile(path, StandardCharsets.UTF_8, new CSVLineProcessor(){
+			@Override
+			public void processHeaderLine(int linenumber, List<String> fields){
+				header.addAll(fields);
+			}
+			@Override
+			public void processDataLine(int linenumber, List<String> fields){
+				SortedMap<String, String> map = new TreeMap<>(new LineToSortedFieldMapAdapter.FieldOrderComparator(header));
+				for(int i=0; i < header.size(); i++){
+					map.put(header.get(i), i < fields.size() ? fields.get(i) : "");
+				}
+				expected.add(map);
+			}
+			@Override
+			public boolean continueProcessing(){
+				return true;
+			}
+		});
+		List<SortedMap<String, String>> result = new ArrayList<>();
+		StringWriter out = new StringWriter();
+		CSVWriter writer = new CSVWriter(out, ',', '#', "\n");
+		new CSVFileProcessor().processFile(path, StandardCharsets.UTF_8, new CSVSortedFieldMapProcessor(){
+			@Override
+			public void processDataLine(int linenumber, SortedMap<String, String> fields){
+				try{
+					if (result.isEmpty()) writer.writeHeaderLine(fields);
+					writer.writeDataLine(fields);
+				}catch(IOException e){
+					throw new UncheckedIOException(e);
+				}
+				result.add(fields);
+			}
+			@Override
+			public boolean continueProcessing(){
+				return true;
+			}
+		});
+		assertEquals(expected, result);
+		assertEquals("C,B,A\n1,3,4\n5,,\n", out.toString());
+		for(int i=0; i < expected.size(); i++){
+			SortedMap<String, String> e = expected.get(i);
+			SortedMap<String, String> r = result.get(i);
+			assertEquals(new ArrayList<>(e.keySet()), new ArrayList<>(r.keySet()));
+			assertEquals(new ArrayList<>(e.values()), new ArrayList<>(r.values()));
+			assertEquals(e.firstKey(), r.firstKey());
+			assertEquals(e.lastKey(), r.lastKey());
+			assertEquals(e.headMap("B"), r.headMap("B"));
+			assertEquals(e.tailMap("B"), r.tailMap("B"));
+			assertEquals(e.subMap("C", "A"), r.subMap("C", "A"));
+			assertEquals(e.headMap("A").headMap("B"), r.headMap("A").headMap("B"));
+			assertEquals(e.hashCode(), r.hashCode());
+			assertFalse(r.containsKey("X"));
+			assertNull(r.get("X"));
+		}
+		SortedMap<String, String> m = result.get(0);
+		for(Runnable bound : Arrays.<Runnable>asList(() -> m.headMap("X"), () -> m.tailMap("X"), () -> m.subMap("C", "X"), () -> m.subMap("X", "A")
+		, () -> m.headMap("B").tailMap("A"), () -> m.tailMap("B").headMap("C"), () -> m.subMap("A", "C"))){
+			try{
+				bound.run();
+				fail();
+			}catch(IllegalArgumentException e){
+			}
+		}
+		assertEquals("1", result.get(0).put("C", "9"));
+		assertEquals("9", result.get(0).get("C"));
+		try{
+			result.get(0).put("X", "1");
+			fail();
+		}catch(UnsupportedOperationException e){
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package org.yipuran.csv4j;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+/**
+ * CSVWriterTest.java
+ */
+public class CSVWriterTest{
+	String[] values = { "a", "", "b,c", "d\"e\"", "f\ng", "\"" };
+	String line = "a,,\"b,c\",\"d\"\"e\"\"\",\"f\ng\",\"\"\"\"\n";
+
+	@Test
+	public void testEscapeCSV() throws IOException{
+		assertEquals("abc", CSVWriter.escapeCSV("abc"));
+		assertEquals("", CSVWriter.escapeCSV(""));
+		assertEquals("\"a,b\"", CSVWriter.escapeCSV("a,b"));
+		assertEquals("\"\"\"\"", CSVWriter.escapeCSV("\""));
+		assertEquals("\"x\"\"y\"\",z\"\"\"", CSVWriter.escapeCSV("x\"y\",z\""));
+		assertEquals("\"a\r\nb\"", CSVWriter.escapeCSV("a\r\nb"));
+		assertEquals("a,b", CSVWriter.escapeCSV("a,b", ';'));
+		assertEquals("\"a;b\"", CSVWriter.escapeCSV("a;b", ';'));
+		StringWriter out = new StringWriter();
+		CSVWriter.escapeCSV(out, "q\"", ',');
+		assertEquals("\"q\"\"\"", out.toString());
+	}
+	@Test
+	public void testWriteLine() throws IOException{
+		StringWriter out = new StringWriter();
+		CSVWriter writer = new CSVWriter(out, ',', '#', "\n");
+		writer.writeLine(values);
+		assertEquals(line, out.toString());
+		writer.writeCommentLine("x\ny");
+		assertEquals(line + "# x\n# y\n", out.toString());
+	}
+	@Test
+	public void testQuoteAll() throws IOException{
+		StringWriter out = new StringWriter();
+		CSVWriter writer = new CSVWriter(out, ',', '#', "\n");
+		writer.setQuoteAll(true);
+		assertTrue(writer.isQuoteAll());
+		writer.writeLine(values);
+		writer.writeLine(new String[]{ "x\"\"y", "a;b" });
+		assertEquals("\"a\",\"\",\"b,c\",\"d\"\"e\"\"\",\"f\ng\",\"\"\"\"\n\"x\"\"\"\"y\",\"a;b\"\n", out.toString());
+		// a line with no fields
+		out = new StringWriter();
+		writer = new CSVWriter(out, ',', '#', "\n");
+		writer.writeLine(new String[0]);
+		writer.setQuoteAll(true);
+		writer.writeLine(new String[0]);
+		writer.writeLine(new ArrayList<String>());
+		assertEquals("\n\"\"\n\"\"\n", out.toString());
+	}
+	@Test
+	public void testBuffered() throws IOException{
+		// written in blocks and by flush
+		StringWriter out = new StringWriter();
+		CSVWriter writer = new CSVWriter(out, ',', '#', "\n", true);
+		StringBuilder expected = new StringBuilder();
+		for(int i=0; i < 1000; i++){
+			writer.writeLine(values);
+			expected.append(line);
+		}
+		assertTrue(out.getBuffer().length() > 0);
+		assertTrue(out.getBuffer().length() < expected.length());
+		writer.flush();
+		assertEquals(expected.toString(), out.toString());
+		try{
+			writer.writeLine(new String[]{ "a", null });
+			fail();
+		}catch(NullPointerException e){
+		}
+		writer.flush();
+		assertEquals(expected.append("a,").toString(), out.toString());
+	}
+}